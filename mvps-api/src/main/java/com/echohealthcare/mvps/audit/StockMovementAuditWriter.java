@@ -0,0 +1,275 @@
+package com.echohealthcare.mvps.audit;
+
+import com.echohealthcare.mvps.audit.StockMovementJournal.Entry;
+import com.echohealthcare.mvps.domain.VendorProduct;
+import com.echohealthcare.mvps.domain.VendorStockMovement;
+import com.echohealthcare.mvps.event.StockMovement;
+import com.echohealthcare.mvps.event.StockMovementsRecordedEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind writer for the vendor stock movement audit log.
+ *
+ * Committed stock updates hand their movements over in a {@link StockMovementsRecordedEvent}. Each
+ * movement is first appended to a local {@link StockMovementJournal} and then offered to a bounded
+ * queue; a single background thread drains the queue and inserts the movements in JDBC batches of
+ * {@code mvps.audit.batch-size}, retrying failed batches with capped exponential backoff.
+ *
+ * When the queue stays full for {@code mvps.audit.offer-timeout-ms} (the database is slow or down),
+ * producers stop queueing and the writer catches up from the journal instead, so request threads are
+ * held back for at most that long and nothing is dropped. Journal entries that were not yet written
+ * when the process stopped are written after the next start. Delivery is at least once: a crash
+ * between a batch commit and its checkpoint writes that batch again.
+ *
+ * Movements are journaled after their stock update commits, since journaling them before could record
+ * movements that then roll back. That leaves a window between the commit and the journal append (one
+ * forced write) in which a crash loses the movements from the audit log; the stock levels themselves
+ * are not affected.
+ */
+@Component
+public class StockMovementAuditWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(StockMovementAuditWriter.class);
+
+    private static final long INITIAL_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final StockMovementJournal journal;
+    private final BlockingQueue<Entry> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+
+    // Guards the journal and catchingUp; producers hold it across append and enqueue so the queue stays in sequence order.
+    private final Object journalLock = new Object();
+    private boolean catchingUp;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public StockMovementAuditWriter(EntityManager entityManager,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${mvps.audit.journal-dir:audit-journal}") Path journalDir,
+                                    @Value("${mvps.audit.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${mvps.audit.batch-size:500}") int batchSize,
+                                    @Value("${mvps.audit.flush-interval-ms:200}") long flushIntervalMs,
+                                    @Value("${mvps.audit.offer-timeout-ms:50}") long offerTimeoutMs,
+                                    @Value("${mvps.audit.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.journal = new StockMovementJournal(journalDir);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        // Entries left over from the previous run are read back from the journal.
+        this.catchingUp = journal.lastAppended() > journal.checkpoint();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        writer = new Thread(this::run, "stock-movement-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        if (catchingUpNow()) {
+            log.info("Replaying stock movements {}..{} from the audit journal",
+                    journal.checkpoint() + 1, journal.lastAppended());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(shutdownTimeoutMs);
+            if (writer.isAlive()) {
+                writer.interrupt();
+                log.warn("Stopped stock movement audit writer with {} movements left in the journal",
+                        pending());
+            }
+        }
+    }
+
+    /**
+     * Journals the movements of a committed transaction and queues them. A crash before the journal
+     * append returns loses them; see the class comment.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockMovementsRecorded(StockMovementsRecordedEvent event) {
+        if (event.movements().isEmpty()) {
+            return;
+        }
+        synchronized (journalLock) {
+            List<Entry> entries = journal.append(event.movements());
+            if (catchingUp) {
+                return;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+            try {
+                for (Entry entry : entries) {
+                    if (!queue.offer(entry, Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                        // Already journaled: the writer picks this and later entries up from the file.
+                        catchingUp = true;
+                        log.warn("Stock movement audit queue full; writing from the journal until it catches up");
+                        return;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                catchingUp = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Movements accepted but not yet written to the database.
+     */
+    public long pending() {
+        synchronized (journalLock) {
+            return journal.lastAppended() - journal.checkpoint();
+        }
+    }
+
+    private void run() {
+        long written = checkpoint();
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || pending() > 0) {
+            try {
+                nextBatch(written, batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            if (!write(batch)) {
+                return;
+            }
+            written = batch.get(batch.size() - 1).seq();
+            synchronized (journalLock) {
+                journal.checkpoint(written);
+                if (catchingUp && written == journal.lastAppended()) {
+                    catchingUp = false;
+                    log.info("Stock movement audit writer caught up with the journal");
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Queued entries come first; they are always older than anything only in the journal.
+     */
+    private void nextBatch(long written, List<Entry> batch) throws InterruptedException {
+        if (queue.drainTo(batch, batchSize) > 0) {
+            return;
+        }
+        if (catchingUpNow()) {
+            List<Entry> journaled;
+            synchronized (journalLock) {
+                journaled = journal.read(written, batchSize);
+            }
+            batch.addAll(journaled);
+            if (!batch.isEmpty()) {
+                return;
+            }
+        }
+        Entry first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first != null) {
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+        }
+    }
+
+    /**
+     * Writes a batch, retrying transient failures until it succeeds. Entries the database refuses are
+     * written one by one and the offending ones set aside. Returns false if stopped before succeeding.
+     */
+    private boolean write(List<Entry> batch) {
+        long backoff = INITIAL_BACKOFF_MS;
+        while (true) {
+            try {
+                insert(batch);
+                return true;
+            } catch (DataIntegrityViolationException ex) {
+                if (batch.size() == 1) {
+                    log.error("Rejected stock movement for vendor product {}: {}",
+                            batch.get(0).movement().vendorProductId(), ex.getMostSpecificCause().getMessage());
+                    synchronized (journalLock) {
+                        journal.reject(batch.get(0), ex.getMostSpecificCause().getMessage());
+                    }
+                    return true;
+                }
+                for (Entry entry : batch) {
+                    if (!write(List.of(entry))) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (RuntimeException ex) {
+                if (!running) {
+                    return false;
+                }
+                log.warn("Failed to write {} stock movements, retrying in {} ms", batch.size(), backoff, ex);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void insert(List<Entry> batch) {
+        transaction.executeWithoutResult(status -> {
+            for (Entry entry : batch) {
+                StockMovement movement = entry.movement();
+                VendorStockMovement row = new VendorStockMovement();
+                row.setVendorProduct(entityManager.getReference(VendorProduct.class, movement.vendorProductId()));
+                row.setPreviousQuantity(movement.previousQuantity());
+                row.setNewQuantity(movement.newQuantity());
+                row.setChangeAmount(movement.changeAmount());
+                row.setChangedAt(movement.changedAt());
+                entityManager.persist(row);
+            }
+        });
+    }
+
+    private long checkpoint() {
+        synchronized (journalLock) {
+            return journal.checkpoint();
+        }
+    }
+
+    private boolean catchingUpNow() {
+        synchronized (journalLock) {
+            return catchingUp;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.echohealthcare.mvps.audit;
+
+import com.echohealthcare.mvps.event.StockMovement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only local file holding every stock movement until it is written to the database.
+ *
+ * Each entry gets a sequence number and is one text line, {@code seq,vendorProductId,previous,new,changedAt}.
+ * The checkpoint file records the highest sequence number known to be in the database; because entries
+ * are written in sequence order, everything above it still has to be written. Once the checkpoint
+ * reaches the last appended entry the journal is truncated. A torn last line from a crash is skipped.
+ *
+ * Not thread-safe; {@link StockMovementAuditWriter} serializes access.
+ */
+final class StockMovementJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(StockMovementJournal.class);
+
+    private final Path journalFile;
+    private final Path checkpointFile;
+    private final Path rejectedFile;
+
+    private long lastAppended;
+    private long checkpoint;
+    // Byte offset and sequence number of the first line not yet returned by read(), to avoid rescanning.
+    private long readOffset;
+    private long readSeq;
+
+    StockMovementJournal(Path directory) {
+        this.journalFile = directory.resolve("stock-movements.journal");
+        this.checkpointFile = directory.resolve("stock-movements.checkpoint");
+        this.rejectedFile = directory.resolve("stock-movements.rejected");
+        try {
+            Files.createDirectories(directory);
+            checkpoint = Files.exists(checkpointFile)
+                    ? Long.parseLong(Files.readString(checkpointFile, StandardCharsets.US_ASCII).trim())
+                    : 0L;
+            terminateTornLine();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open stock movement journal in " + directory, ex);
+        }
+        lastAppended = checkpoint;
+        for (Entry entry : read(0L, Integer.MAX_VALUE)) {
+            lastAppended = Math.max(lastAppended, entry.seq());
+        }
+        readOffset = 0L;
+        readSeq = 0L;
+    }
+
+    /**
+     * Appends movements and forces them to the device before returning them with their sequence
+     * numbers, so an entry handed out survives a crash of the process or the machine. One force per
+     * call: callers pass a transaction's movements together.
+     */
+    List<Entry> append(List<StockMovement> movements) {
+        List<Entry> entries = new ArrayList<>(movements.size());
+        StringBuilder lines = new StringBuilder(movements.size() * 48);
+        long seq = lastAppended;
+        for (StockMovement movement : movements) {
+            Entry entry = new Entry(++seq, movement);
+            lines.append(encode(entry)).append('\n');
+            entries.add(entry);
+        }
+        try (FileChannel channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = StandardCharsets.US_ASCII.encode(CharBuffer.wrap(lines));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot append to stock movement journal " + journalFile, ex);
+        }
+        lastAppended = seq;
+        return entries;
+    }
+
+    /**
+     * Up to {@code limit} entries with a sequence number above {@code afterSeq}, in sequence order.
+     */
+    List<Entry> read(long afterSeq, int limit) {
+        if (afterSeq < readSeq) {
+            readOffset = 0L;
+            readSeq = 0L;
+        }
+        List<Entry> entries = new ArrayList<>(Math.min(limit, 1024));
+        if (!Files.exists(journalFile)) {
+            return entries;
+        }
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            channel.position(readOffset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(channel), StandardCharsets.US_ASCII));
+            long offset = readOffset;
+            String line;
+            while (entries.size() < limit && (line = reader.readLine()) != null) {
+                offset += line.length() + 1;
+                Entry entry = decode(line);
+                readOffset = offset;
+                if (entry == null) {
+                    continue;
+                }
+                readSeq = entry.seq();
+                if (entry.seq() > afterSeq) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read stock movement journal " + journalFile, ex);
+        }
+        return entries;
+    }
+
+    long lastAppended() {
+        return lastAppended;
+    }
+
+    long checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Records that every entry up to {@code seq} is in the database, and truncates the journal when
+     * nothing is left to write.
+     */
+    void checkpoint(long seq) {
+        try {
+            Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            Files.writeString(temp, Long.toString(seq), StandardCharsets.US_ASCII);
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpoint = seq;
+            if (seq == lastAppended) {
+                Files.deleteIfExists(journalFile);
+                readOffset = 0L;
+                readSeq = 0L;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot update stock movement checkpoint " + checkpointFile, ex);
+        }
+    }
+
+    /**
+     * Moves an entry the database refused (for example a vendor product that no longer exists) aside.
+     */
+    void reject(Entry entry, String reason) {
+        try (BufferedWriter writer = Files.newBufferedWriter(rejectedFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(encode(entry) + " # " + reason);
+            writer.write('\n');
+        } catch (IOException ex) {
+            log.error("Cannot record rejected stock movement {}", encode(entry), ex);
+        }
+    }
+
+    /**
+     * Ends a line torn by a crash mid-append, so the next append does not run into it.
+     */
+    private void terminateTornLine() throws IOException {
+        if (!Files.exists(journalFile) || Files.size(journalFile) == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            if (last.get(0) != '\n') {
+                channel.write(ByteBuffer.wrap(new byte[] {'\n'}), channel.size());
+            }
+        }
+    }
+
+    private static String encode(Entry entry) {
+        StockMovement m = entry.movement();
+        return entry.seq() + "," + m.vendorProductId() + "," + m.previousQuantity() + "," + m.newQuantity()
+                + "," + m.changedAt();
+    }
+
+    private static Entry decode(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 5) {
+            log.warn("Skipping malformed stock movement journal line: {}", line);
+            return null;
+        }
+        try {
+            return new Entry(Long.parseLong(parts[0]), new StockMovement(
+                    Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[3]),
+                    LocalDateTime.parse(parts[4])));
+        } catch (RuntimeException ex) {
+            log.warn("Skipping malformed stock movement journal line: {}", line);
+            return null;
+        }
+    }
+
+    record Entry(long seq, StockMovement movement) {}
+}
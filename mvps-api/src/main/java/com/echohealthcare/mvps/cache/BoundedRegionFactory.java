@@ -0,0 +1,121 @@
+package com.echohealthcare.mvps.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate second-level cache regions kept in local memory, each an LRU map with a TTL.
+ *
+ * Configured through the Hibernate properties ({@code spring.jpa.properties.*}):
+ * {@code mvps.cache.default.max-entries} and {@code mvps.cache.default.ttl-seconds} apply to every
+ * entity and query result region, {@code mvps.cache.region.<name>.max-entries} and
+ * {@code .ttl-seconds} override them for one region. The update timestamps region is never bounded
+ * nor expired, because a cached query result is only checked against the timestamps of its tables.
+ *
+ * Entries live in this JVM only, so writes made by other instances are not seen until the entry
+ * expires; the TTL bounds that staleness.
+ */
+public class BoundedRegionFactory extends RegionFactoryTemplate {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_TTL_SECONDS = 600;
+
+    private final Map<String, BoundedStorageAccess> storages = new ConcurrentHashMap<>();
+    private Map<String, Object> settings = Map.of();
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions options, Map<String, Object> configValues) {
+        this.settings = new ConcurrentHashMap<>();
+        configValues.forEach((key, value) -> {
+            if (key.startsWith("mvps.cache.") && value != null) {
+                settings.put(key, value);
+            }
+        });
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        storages.values().forEach(BoundedStorageAccess::release);
+        storages.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                   DomainDataRegionBuildingContext buildingContext) {
+        return bounded(regionConfig.getRegionName());
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return bounded(regionName);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return storages.computeIfAbsent(regionName, name -> new BoundedStorageAccess(name, 0, 0));
+    }
+
+    /**
+     * Size and hit figures of every region, by region name. Hits, misses and puts come from the
+     * Hibernate statistics and stay zero unless {@code mvps.hibernate.statistics.enabled} is on.
+     */
+    public List<RegionStats> regionStats(Statistics statistics) {
+        List<RegionStats> stats = new ArrayList<>();
+        new TreeMap<>(storages).forEach((name, storage) -> {
+            BoundedStorageAccess.RegionSize size = storage.size();
+            CacheRegionStatistics counts = statistics.isStatisticsEnabled()
+                    ? statistics.getCacheRegionStatistics(name)
+                    : null;
+            stats.add(new RegionStats(name, size.size(), size.maxEntries(), size.ttlSeconds(),
+                    counts != null ? counts.getHitCount() : 0,
+                    counts != null ? counts.getMissCount() : 0,
+                    counts != null ? counts.getPutCount() : 0,
+                    size.evictions(), size.expirations()));
+        });
+        return stats;
+    }
+
+    private BoundedStorageAccess bounded(String regionName) {
+        return storages.computeIfAbsent(regionName, name -> new BoundedStorageAccess(name,
+                (int) setting(name, "max-entries", DEFAULT_MAX_ENTRIES),
+                setting(name, "ttl-seconds", DEFAULT_TTL_SECONDS)));
+    }
+
+    private long setting(String regionName, String property, long defaultValue) {
+        Object value = settings.get("mvps.cache.region." + regionName + "." + property);
+        if (value == null) {
+            value = settings.get("mvps.cache.default." + property);
+        }
+        return value != null ? Long.parseLong(value.toString().trim()) : defaultValue;
+    }
+
+    /**
+     * Figures of one cache region. Evictions were made for size, expirations for age.
+     */
+    public record RegionStats(
+        String name,
+        int size,
+        int maxEntries,
+        long ttlSeconds,
+        long hits,
+        long misses,
+        long puts,
+        long evictions,
+        long expirations
+    ) {}
+}
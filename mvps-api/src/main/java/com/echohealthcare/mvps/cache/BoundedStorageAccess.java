@@ -0,0 +1,101 @@
+package com.echohealthcare.mvps.cache;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory storage of one cache region: least recently used entries are evicted beyond
+ * {@code maxEntries} and entries expire {@code ttlSeconds} after they were put. A limit of zero
+ * or less means unbounded, a TTL of zero or less never expires.
+ */
+final class BoundedStorageAccess implements DomainDataStorageAccess {
+
+    private final String regionName;
+    private final int maxEntries;
+    private final long ttlSeconds;
+    private final long ttlNanos;
+
+    // Access-ordered; guarded by this.
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    BoundedStorageAccess(String regionName, int maxEntries, long ttlSeconds) {
+        this.regionName = regionName;
+        this.maxEntries = maxEntries;
+        this.ttlSeconds = ttlSeconds;
+        this.ttlNanos = ttlSeconds > 0 ? ttlSeconds * 1_000_000_000L : Long.MAX_VALUE;
+    }
+
+    @Override
+    public synchronized Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        Entry entry = live(key);
+        return entry != null ? entry.value() : null;
+    }
+
+    @Override
+    public synchronized void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        if (value == null) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry(value, System.nanoTime()));
+        if (maxEntries > 0) {
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean contains(Object key) {
+        return live(key) != null;
+    }
+
+    @Override
+    public synchronized void evictData() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized void evictData(Object key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public synchronized void release() {
+        entries.clear();
+    }
+
+    RegionSize size() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new RegionSize(regionName, size, maxEntries, ttlSeconds, evictions.sum(), expirations.sum());
+    }
+
+    private Entry live(Object key) {
+        Entry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.putAt() >= ttlNanos) {
+            entries.remove(key);
+            expirations.increment();
+            return null;
+        }
+        return entry;
+    }
+
+    private record Entry(Object value, long putAt) {}
+
+    /**
+     * Occupancy of one region; evictions were made for size, expirations for age.
+     */
+    record RegionSize(String name, int size, int maxEntries, long ttlSeconds, long evictions, long expirations) {}
+}
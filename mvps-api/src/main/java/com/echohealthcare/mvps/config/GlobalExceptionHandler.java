@@ -3,7 +3,10 @@ package com.echohealthcare.mvps.config;
 import com.echohealthcare.mvps.model.ErrorResponse;
 import com.echohealthcare.mvps.model.ErrorResponseError;
 import com.echohealthcare.mvps.model.ErrorResponseErrorDetailsInner;
+import com.echohealthcare.mvps.service.InsufficientStockException;
+import com.echohealthcare.mvps.service.InvalidRequestException;
 import com.echohealthcare.mvps.service.ResourceNotFoundException;
+import com.echohealthcare.mvps.service.ServiceBusyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -35,6 +38,43 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidRequest(InvalidRequestException ex) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setSuccess(false);
+        ErrorResponseErrorDetailsInner detail = new ErrorResponseErrorDetailsInner();
+        detail.setField(null);
+        detail.setMessage(ex.getMessage());
+        ErrorResponseError error = new ErrorResponseError();
+        error.setCode("INVALID_REQUEST");
+        error.setMessage(ex.getMessage());
+        error.setDetails(Collections.singletonList(detail));
+        errorResponse.setError(error);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<ErrorResponse> handleInsufficientStock(InsufficientStockException ex) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setSuccess(false);
+        ErrorResponseError error = new ErrorResponseError();
+        error.setCode("INSUFFICIENT_STOCK");
+        error.setMessage(ex.getMessage());
+        errorResponse.setError(error);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ErrorResponse> handleServiceBusy(ServiceBusyException ex) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setSuccess(false);
+        ErrorResponseError error = new ErrorResponseError();
+        error.setCode("SERVICE_BUSY");
+        error.setMessage(ex.getMessage());
+        errorResponse.setError(error);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidation(MethodArgumentNotValidException ex) {
         ErrorResponse errorResponse = new ErrorResponse();
@@ -0,0 +1,75 @@
+package com.echohealthcare.mvps.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replica routing, enabled with {@code mvps.datasource.replicas.enabled=true}.
+ *
+ * The primary pool is configured from {@code spring.datasource.*} as before; each URL in
+ * {@code mvps.datasource.replicas.urls} gets a read-only pool of its own. The application's data
+ * source becomes a {@link ReplicaRoutingDataSource} over all of them behind a lazy connection proxy.
+ * Replica pools do not fail startup when a replica is down; they are retried on use.
+ */
+@Configuration
+@ConditionalOnProperty(name = "mvps.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            @Value("${mvps.datasource.replicas.urls}") List<String> urls,
+            @Value("${mvps.datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${mvps.datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${mvps.datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${mvps.datasource.replicas.connection-timeout-ms:2000}") long connectionTimeoutMs,
+            @Value("${mvps.datasource.replicas.sticky-seconds:5}") long stickySeconds,
+            @Value("${mvps.datasource.replicas.retry-seconds:30}") long retrySeconds) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            if (properties.getDriverClassName() != null) {
+                replica.setDriverClassName(properties.getDriverClassName());
+            }
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            replica.setReadOnly(true);
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, stickySeconds, retrySeconds);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,271 @@
+package com.echohealthcare.mvps.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends read-only transactions to replica pools and everything else to the primary.
+ *
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so the
+ * connection is only fetched once the transaction is set up and its read-only flag can be seen. Reads
+ * go to the replicas round-robin; writes, and work outside a transaction, go to the primary. A replica
+ * that fails to hand out a connection is skipped for {@code retrySeconds} and the read falls back to
+ * the next replica or the primary.
+ *
+ * Read-your-writes: when a request's write transaction commits, reads by the same client (the
+ * authenticated user, else the remote address) stay on the primary for {@code stickySeconds}, which
+ * should cover the replication lag. Work a request hands to other threads (dashboard sections, report
+ * jobs) keeps the request's client when its task is wrapped with {@link #bindClient}. Other work
+ * outside a request, such as index loads, is never sticky.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final String PRIMARY = "primary";
+
+    private static final int MAX_TRACKED_CLIENTS = 10_000;
+
+    // Client of the request a task was handed over from; set by bindClient on the task's thread.
+    private static final ThreadLocal<String> boundClient = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+    private final Map<String, LongAdder> routed = new ConcurrentHashMap<>();
+    private final Map<String, Long> downUntil = new ConcurrentHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final long stickyMillis;
+    private final long retryMillis;
+
+    // Client key -> time its last write committed; guarded by itself.
+    private final Map<String, Long> lastWrites = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_TRACKED_CLIENTS;
+                }
+            });
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    long stickySeconds, long retrySeconds) {
+        this.primary = primary;
+        this.stickyMillis = stickySeconds * 1000L;
+        this.retryMillis = retrySeconds * 1000L;
+        pools.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + (i + 1);
+            replicaKeys.add(key);
+            pools.put(key, replicas.get(i));
+        }
+        pools.keySet().forEach(key -> routed.put(key, new LongAdder()));
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        String client = currentClient();
+        if (!readOnly) {
+            rememberWriteOnCommit(client);
+            return PRIMARY;
+        }
+        if (client != null && wroteRecently(client)) {
+            return PRIMARY;
+        }
+        long now = System.currentTimeMillis();
+        int start = nextReplica.getAndIncrement();
+        for (int i = 0; i < replicaKeys.size(); i++) {
+            String key = replicaKeys.get(Math.floorMod(start + i, replicaKeys.size()));
+            if (downUntil.getOrDefault(key, 0L) <= now) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        while (true) {
+            String key = (String) determineCurrentLookupKey();
+            try {
+                Connection connection = pools.get(key).getConnection();
+                routed.get(key).increment();
+                return connection;
+            } catch (SQLException ex) {
+                if (PRIMARY.equals(key)) {
+                    throw ex;
+                }
+                // Skipped by the lookup until the retry delay has passed, so the loop ends on the primary at the latest.
+                downUntil.put(key, System.currentTimeMillis() + retryMillis);
+                log.warn("Replica {} unavailable, sending reads elsewhere for {} ms: {}", key, retryMillis, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Not supported: the Hikari pools behind this data source hand out connections with the credentials
+     * they were configured with.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Credentials are configured per pool");
+    }
+
+    /**
+     * Pool figures of the primary and every replica, in that order.
+     */
+    public List<PoolStats> poolStats() {
+        List<PoolStats> stats = new ArrayList<>(pools.size());
+        pools.forEach((key, pool) -> stats.add(PoolStats.of(key, pool, routed.get(key).sum(),
+                downUntil.getOrDefault(key, 0L) > System.currentTimeMillis())));
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        // The primary is a bean of its own and closed by the container.
+        pools.forEach((key, pool) -> {
+            if (pool != primary) {
+                pool.close();
+            }
+        });
+    }
+
+    private void rememberWriteOnCommit(String client) {
+        if (client == null || stickyMillis <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWrites.put(client, System.currentTimeMillis());
+            }
+        });
+    }
+
+    private boolean wroteRecently(String client) {
+        Long wroteAt = lastWrites.get(client);
+        return wroteAt != null && System.currentTimeMillis() - wroteAt < stickyMillis;
+    }
+
+    /**
+     * Wraps a task that runs on another thread on behalf of the current request, so its transactions
+     * count as the request's client: its reads stay on the primary after the client's writes, and its
+     * writes make the client sticky. The client is captured here, on the request thread; outside a
+     * request the task is returned as is.
+     */
+    public static <T> Callable<T> bindClient(Callable<T> task) {
+        String client = currentClient();
+        if (client == null) {
+            return task;
+        }
+        return () -> {
+            String previous = boundClient.get();
+            boundClient.set(client);
+            try {
+                return task.call();
+            } finally {
+                restoreClient(previous);
+            }
+        };
+    }
+
+    /**
+     * Like {@link #bindClient(Callable)}, for a task without a result.
+     */
+    public static Runnable bindClient(Runnable task) {
+        String client = currentClient();
+        if (client == null) {
+            return task;
+        }
+        return () -> {
+            String previous = boundClient.get();
+            boundClient.set(client);
+            try {
+                task.run();
+            } finally {
+                restoreClient(previous);
+            }
+        };
+    }
+
+    private static void restoreClient(String previous) {
+        if (previous != null) {
+            boundClient.set(previous);
+        } else {
+            boundClient.remove();
+        }
+    }
+
+    private static String currentClient() {
+        String bound = boundClient.get();
+        if (bound != null) {
+            return bound;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && authentication.getName() != null) {
+            return "user:" + authentication.getName();
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        return "addr:" + request.getRemoteAddr();
+    }
+
+    /**
+     * Connection pool figures. {@code routed} counts connections handed out through this pool since
+     * startup; {@code down} marks a replica currently skipped after a failure.
+     */
+    public record PoolStats(
+        String name,
+        int maximumPoolSize,
+        int active,
+        int idle,
+        int total,
+        int threadsAwaiting,
+        long routed,
+        boolean down
+    ) {
+        public static PoolStats of(String name, HikariDataSource pool, long routed, boolean down) {
+            HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+            return mx != null
+                    ? new PoolStats(name, pool.getMaximumPoolSize(), mx.getActiveConnections(),
+                            mx.getIdleConnections(), mx.getTotalConnections(), mx.getThreadsAwaitingConnection(),
+                            routed, down)
+                    : new PoolStats(name, pool.getMaximumPoolSize(), 0, 0, 0, 0, routed, down);
+        }
+    }
+}
@@ -1,44 +1,104 @@
 package com.echohealthcare.mvps.controller;
 
 import com.echohealthcare.mvps.api.AnalyticsApi;
+import com.echohealthcare.mvps.dto.CursorPageResponse;
+import com.echohealthcare.mvps.dto.DashboardSnapshot;
+import com.echohealthcare.mvps.dto.ReportJobRequest;
+import com.echohealthcare.mvps.dto.ReportJobStatus;
+import com.echohealthcare.mvps.event.DataTopic;
 import com.echohealthcare.mvps.model.*;
+import com.echohealthcare.mvps.service.AnalyticsResultCache;
 import com.echohealthcare.mvps.service.AnalyticsService;
+import com.echohealthcare.mvps.service.DashboardService;
+import com.echohealthcare.mvps.service.ReportJobService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.net.URI;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @RestController
 public class AnalyticsController implements AnalyticsApi {
 
+    // Data each cached report is computed from; a committed write to any of them (within the report's date
+    // range, for order writes) marks the cached result stale.
+    private static final Set<DataTopic> INVENTORY_VIEW = Set.of(DataTopic.INVENTORY, DataTopic.CATALOG);
+    private static final Set<DataTopic> ORDERS_VIEW = Set.of(DataTopic.ORDERS);
+    private static final Set<DataTopic> ORDERS_CATALOG_VIEW = Set.of(DataTopic.ORDERS, DataTopic.CATALOG);
+
+    private static final int MAX_WAIT_SECONDS = 30;
+
     private final AnalyticsService analyticsService;
+    private final AnalyticsResultCache resultCache;
+    private final ReportJobService reportJobService;
+    private final DashboardService dashboardService;
 
-    public AnalyticsController(AnalyticsService analyticsService) {
+    public AnalyticsController(AnalyticsService analyticsService,
+                               AnalyticsResultCache resultCache,
+                               ReportJobService reportJobService,
+                               DashboardService dashboardService) {
         this.analyticsService = analyticsService;
+        this.resultCache = resultCache;
+        this.reportJobService = reportJobService;
+        this.dashboardService = dashboardService;
     }
 
     @Override
     public ResponseEntity<AnalyticsExpiringProductsGet200Response> analyticsExpiringProductsGet(Integer days) {
-        return ResponseEntity.ok(analyticsService.getExpiringProducts(days != null ? days : 30));
+        int window = days != null ? days : 30;
+        // The window is relative to today, so the date is part of the key.
+        return ResponseEntity.ok(resultCache.get("expiring-products", List.of(LocalDate.now(), window),
+                INVENTORY_VIEW, () -> analyticsService.getExpiringProducts(window)));
+    }
+
+    @Override
+    public ResponseEntity<AnalyticsExpiringProductsSummaryGet200Response> analyticsExpiringProductsSummaryGet() {
+        return ResponseEntity.ok(resultCache.get("expiring-products-summary", List.of(LocalDate.now()),
+                INVENTORY_VIEW, analyticsService::getExpirySummary));
     }
 
     @Override
-    public ResponseEntity<AnalyticsInventoryStatusGet200Response> analyticsInventoryStatusGet(Integer lowStockThreshold) {
-        return ResponseEntity.ok(analyticsService.getInventoryStatus(lowStockThreshold != null ? lowStockThreshold : 50));
+    public ResponseEntity<AnalyticsInventoryStatusGet200Response> analyticsInventoryStatusGet(Integer lowStockThreshold,
+                                                                                             Boolean lowStockOnly) {
+        int threshold = lowStockThreshold != null ? lowStockThreshold : 50;
+        boolean lowOnly = Boolean.TRUE.equals(lowStockOnly);
+        return ResponseEntity.ok(resultCache.get("inventory-status", List.of(threshold, lowOnly),
+                INVENTORY_VIEW, () -> analyticsService.getInventoryStatus(threshold, lowOnly)));
     }
 
     @Override
     public ResponseEntity<AnalyticsSalesSummaryGet200Response> analyticsSalesSummaryGet(LocalDate fromDate,
                                                                                        LocalDate toDate,
                                                                                        String groupBy) {
-        return ResponseEntity.ok(analyticsService.getSalesSummary(fromDate, toDate, groupBy));
+        return ResponseEntity.ok(resultCache.get("sales-summary", Arrays.asList(fromDate, toDate, normalize(groupBy)),
+                ORDERS_VIEW, fromDate, toDate, () -> analyticsService.getSalesSummary(fromDate, toDate, groupBy)));
     }
 
     @Override
     public ResponseEntity<AnalyticsTopCustomersGet200Response> analyticsTopCustomersGet(LocalDate fromDate,
                                                                                          LocalDate toDate,
                                                                                          Integer limit) {
-        return ResponseEntity.ok(analyticsService.getTopCustomers(fromDate, toDate, limit != null ? limit : 10));
+        int top = limit != null ? limit : 10;
+        return ResponseEntity.ok(resultCache.get("top-customers", Arrays.asList(fromDate, toDate, top),
+                ORDERS_VIEW, fromDate, toDate, () -> analyticsService.getTopCustomers(fromDate, toDate, top)));
     }
 
     @Override
@@ -46,17 +106,122 @@ public class AnalyticsController implements AnalyticsApi {
                                                                                        LocalDate toDate,
                                                        Integer limit,
                                                        String sortBy) {
-        return ResponseEntity.ok(analyticsService.getTopProducts(fromDate, toDate, limit != null ? limit : 10, sortBy));
+        int top = limit != null ? limit : 10;
+        return ResponseEntity.ok(resultCache.get("top-products", Arrays.asList(fromDate, toDate, top, normalize(sortBy)),
+                ORDERS_CATALOG_VIEW, fromDate, toDate, () -> analyticsService.getTopProducts(fromDate, toDate, top, sortBy)));
     }
 
     @Override
     public ResponseEntity<AnalyticsVendorRevenueGet200Response> analyticsVendorRevenueGet(LocalDate fromDate,
                                                                                            LocalDate toDate) {
-        return ResponseEntity.ok(analyticsService.getVendorRevenue(fromDate, toDate));
+        return ResponseEntity.ok(resultCache.get("vendor-revenue", Arrays.asList(fromDate, toDate),
+                ORDERS_CATALOG_VIEW, fromDate, toDate, () -> analyticsService.getVendorRevenue(fromDate, toDate)));
+    }
+
+    /**
+     * Stock movement log, cursor-paginated on (changedAt, id), newest first by default.
+     * Sortable by id, changedAt via {@code sort=field[,asc|desc]}; {@code from} is inclusive, {@code to} exclusive.
+     */
+    @GetMapping("/analytics/stock-movements")
+    public ResponseEntity<CursorPageResponse<StockHistoryEntry>> analyticsStockMovementsGet(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer vendorProductId,
+            @RequestParam(required = false) Integer vendorId,
+            @RequestParam(required = false) Integer productId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(analyticsService.getStockMovements(
+            cursor, size, sort, vendorProductId, vendorId, productId, from, to));
+    }
+
+    /**
+     * Expiring products, inventory status, sales summary, top products and top customers in one response,
+     * computed concurrently. Sections that time out or fail are flagged and the others still returned.
+     * The date range defaults to the last 30 days.
+     */
+    @GetMapping("/analytics/dashboard")
+    public ResponseEntity<DashboardSnapshot> analyticsDashboardGet(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) Integer days,
+            @RequestParam(required = false) Integer lowStockThreshold,
+            @RequestParam(required = false) Integer limit) {
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : to.minusDays(29);
+        // Each section goes through the same cached path as its own endpoint.
+        Map<String, Supplier<?>> sections = new LinkedHashMap<>();
+        sections.put("expiringProducts", () -> analyticsExpiringProductsGet(days).getBody());
+        sections.put("inventoryStatus", () -> analyticsInventoryStatusGet(lowStockThreshold, null).getBody());
+        sections.put("salesSummary", () -> analyticsSalesSummaryGet(from, to, null).getBody());
+        sections.put("topProducts", () -> analyticsTopProductsGet(from, to, limit, null).getBody());
+        sections.put("topCustomers", () -> analyticsTopCustomersGet(from, to, limit).getBody());
+        return ResponseEntity.ok(dashboardService.snapshot(sections));
+    }
+
+    /**
+     * Counters of the analytics result cache, for sizing it.
+     */
+    @GetMapping("/analytics/cache/stats")
+    public ResponseEntity<AnalyticsResultCache.Stats> analyticsCacheStatsGet() {
+        return ResponseEntity.ok(resultCache.stats());
+    }
+
+    /**
+     * Starts a sales-summary, top-products or vendor-revenue report in the background.
+     * Poll the returned job (see Location) for its state and result.
+     */
+    @PostMapping("/analytics/reports")
+    public ResponseEntity<ReportJobStatus> analyticsReportsPost(@RequestBody ReportJobRequest request) {
+        ReportJobStatus status = reportJobService.submit(request);
+        return ResponseEntity.accepted()
+            .location(URI.create("/analytics/reports/" + status.jobId()))
+            .body(status);
+    }
+
+    /**
+     * Current state of a report job. With {@code waitSeconds} (at most 30) the response is held until
+     * the job finishes or the wait runs out, without tying up a request thread meanwhile.
+     */
+    @GetMapping("/analytics/reports/{jobId}")
+    public DeferredResult<ResponseEntity<ReportJobStatus>> analyticsReportsJobIdGet(
+            @PathVariable String jobId,
+            @RequestParam(required = false) Integer waitSeconds) {
+        ReportJobStatus current = reportJobService.getStatus(jobId);
+        int wait = waitSeconds != null ? Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS)) : 0;
+        DeferredResult<ResponseEntity<ReportJobStatus>> response = new DeferredResult<>(
+            TimeUnit.SECONDS.toMillis(wait), () -> ResponseEntity.ok(reportJobService.getStatus(jobId)));
+        if (wait == 0 || current.finishedAt() != null) {
+            response.setResult(ResponseEntity.ok(current));
+        } else {
+            reportJobService.whenFinished(jobId).thenAccept(status -> response.setResult(ResponseEntity.ok(status)));
+        }
+        return response;
+    }
+
+    @DeleteMapping("/analytics/reports/{jobId}")
+    public ResponseEntity<ReportJobStatus> analyticsReportsJobIdDelete(@PathVariable String jobId) {
+        return ResponseEntity.ok(reportJobService.cancel(jobId));
+    }
+
+    /**
+     * The newest stock movements, {@code limit} of them (100 at most).
+     *
+     * @deprecated this used to return the whole movement log; use the paged /analytics/stock-movements,
+     * which responses point to in their Link header
+     */
+    @Deprecated
+    @GetMapping("/analytics/stock-history")
+    public ResponseEntity<List<StockHistoryEntry>> analyticsStockHistoryGet(
+            @RequestParam(defaultValue = "100") Integer limit) {
+        return ResponseEntity.ok()
+            .header("Deprecation", "true")
+            .header(HttpHeaders.LINK, "</analytics/stock-movements>; rel=\"successor-version\"")
+            .body(analyticsService.getStockHistory(limit));
     }
 
-    @org.springframework.web.bind.annotation.GetMapping("/analytics/stock-history")
-    public ResponseEntity<java.util.List<StockHistoryEntry>> analyticsStockHistoryGet() {
-        return ResponseEntity.ok(analyticsService.getStockHistory());
+    private static String normalize(String value) {
+        return value != null ? value.trim().toLowerCase(Locale.ROOT) : null;
     }
 }
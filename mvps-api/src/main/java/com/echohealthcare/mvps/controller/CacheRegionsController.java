@@ -0,0 +1,34 @@
+package com.echohealthcare.mvps.controller;
+
+import com.echohealthcare.mvps.cache.BoundedRegionFactory;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class CacheRegionsController {
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public CacheRegionsController(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    /**
+     * Size, hit and eviction figures of every second-level cache region. Hit figures need
+     * {@code mvps.hibernate.statistics.enabled}.
+     */
+    @GetMapping("/cache/regions")
+    public ResponseEntity<List<BoundedRegionFactory.RegionStats>> cacheRegionsGet() {
+        RegionFactory regionFactory = sessionFactory.getCache().getRegionFactory();
+        if (regionFactory instanceof BoundedRegionFactory bounded) {
+            return ResponseEntity.ok(bounded.regionStats(sessionFactory.getStatistics()));
+        }
+        return ResponseEntity.ok(List.of());
+    }
+}
@@ -39,8 +39,12 @@ public class CustomersController implements CustomersApi {
     public ResponseEntity<CustomersCustomerIdOrdersGet200Response> customersCustomerIdOrdersGet(@PathVariable("customerId") Integer customerId,
                                                                                                @Nullable String orderStatus,
                                                                                                @Nullable LocalDate fromDate,
-                                                                                               @Nullable LocalDate toDate) {
-        return ResponseEntity.ok(customerService.getCustomerOrders(customerId, orderStatus, fromDate, toDate));
+                                                                                               @Nullable LocalDate toDate,
+                                                                                               @Nullable String cursor,
+                                                                                               Integer size,
+                                                                                               Boolean includeSummary) {
+        return ResponseEntity.ok(customerService.getCustomerOrders(customerId, orderStatus, fromDate, toDate,
+                cursor, size, Boolean.TRUE.equals(includeSummary)));
     }
 
     @Override
@@ -55,24 +59,27 @@ public class CustomersController implements CustomersApi {
                                                                 @Nullable String city,
                                                                 @Nullable String search,
                                                                 Integer page,
-                                                                Integer limit) {
+                                                                Integer limit,
+                                                                String totalMode) {
         int[] validated = PaginationUtils.validatePagination(page, limit);
-        return ResponseEntity.ok(customerService.getCustomers(customerType, isActive, city, search, validated[0], validated[1]));
+        return ResponseEntity.ok(customerService.getCustomers(customerType, isActive, city, search, validated[0], validated[1], totalMode));
     }
 
     /**
      * Cursor-based pagination endpoint for customers.
+     * Sortable by id, name via {@code sort=field[,asc|desc]}; cursors page forward or backward.
      */
     @GetMapping("/customers/cursor")
     public ResponseEntity<CursorPageResponse<Customer>> customersGetByCursor(
             @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(required = false) String sort,
             @RequestParam(required = false) String customerType,
             @RequestParam(required = false) Boolean isActive,
             @RequestParam(required = false) String city,
             @RequestParam(required = false) String search) {
         return ResponseEntity.ok(customerService.getCustomersByCursor(
-            cursor, size, customerType, isActive, city, search));
+            cursor, size, sort, customerType, isActive, city, search));
     }
 
     @Override
@@ -0,0 +1,40 @@
+package com.echohealthcare.mvps.controller;
+
+import com.echohealthcare.mvps.config.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+@RestController
+public class DataSourcesController {
+
+    private final DataSource dataSource;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+
+    public DataSourcesController(DataSource dataSource, ObjectProvider<ReplicaRoutingDataSource> replicaRouting) {
+        this.dataSource = dataSource;
+        this.replicaRouting = replicaRouting;
+    }
+
+    /**
+     * Connection pool figures of the primary and, with replica routing enabled, of every replica.
+     */
+    @GetMapping("/datasources/stats")
+    public ResponseEntity<List<ReplicaRoutingDataSource.PoolStats>> datasourcesStatsGet() throws SQLException {
+        ReplicaRoutingDataSource routing = replicaRouting.getIfAvailable();
+        if (routing != null) {
+            return ResponseEntity.ok(routing.poolStats());
+        }
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+            return ResponseEntity.ok(List.of(ReplicaRoutingDataSource.PoolStats.of("primary", pool, 0, false)));
+        }
+        return ResponseEntity.ok(List.of());
+    }
+}
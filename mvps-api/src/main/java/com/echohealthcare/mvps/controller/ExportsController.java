@@ -0,0 +1,67 @@
+package com.echohealthcare.mvps.controller;
+
+import com.echohealthcare.mvps.export.ExportDataset;
+import com.echohealthcare.mvps.export.ExportFormat;
+import com.echohealthcare.mvps.export.ExportService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Callable;
+
+@RestController
+public class ExportsController {
+
+    private final ExportService exportService;
+
+    public ExportsController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * Streams a whole table (orders, order-items, vendor-products or stock-movements) as a download,
+     * in primary key order. {@code format} is ndjson (default) or csv; {@code from} is inclusive and
+     * {@code to} exclusive on the order date, vendor product update time or movement time.
+     *
+     * The export slot taken here is released when the body has been written, and also when the async
+     * request completes, times out or fails, in case the body never ran.
+     */
+    @GetMapping("/exports/{dataset}")
+    public ResponseEntity<StreamingResponseBody> exportsDatasetGet(
+            @PathVariable String dataset,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer vendorId,
+            NativeWebRequest webRequest) {
+        ExportDataset exportDataset = ExportDataset.fromPath(dataset);
+        ExportService.Export export = exportService.prepare(
+            exportDataset, ExportFormat.parse(format), from, to, vendorId);
+        WebAsyncUtils.getAsyncManager(webRequest).registerCallableInterceptor(export,
+            new CallableProcessingInterceptor() {
+                @Override
+                public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                    export.release();
+                }
+            });
+        String filename = exportDataset.path() + "-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE)
+            + "." + export.format().extension();
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(export.format().contentType() + ";charset=UTF-8"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .body(export::writeTo);
+    }
+}
@@ -32,17 +32,20 @@ public class OrdersController implements OrdersApi {
                                                           @Nullable LocalDate fromDate,
                                                           @Nullable LocalDate toDate,
                                                           Integer page,
-                                                          Integer limit) {
-        return ResponseEntity.ok(orderService.getOrders(customerId, orderStatus, paymentStatus, orderType, fromDate, toDate, page, limit));
+                                                          Integer limit,
+                                                          String totalMode) {
+        return ResponseEntity.ok(orderService.getOrders(customerId, orderStatus, paymentStatus, orderType, fromDate, toDate, page, limit, totalMode));
     }
 
     /**
      * Cursor-based pagination endpoint for orders.
+     * Sortable by id, orderDate via {@code sort=field[,asc|desc]}; cursors page forward or backward.
      */
     @GetMapping("/orders/cursor")
     public ResponseEntity<CursorPageResponse<Order>> ordersGetByCursor(
             @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(required = false) String sort,
             @RequestParam(required = false) Integer customerId,
             @RequestParam(required = false) String orderStatus,
             @RequestParam(required = false) String paymentStatus,
@@ -50,7 +53,7 @@ public class OrdersController implements OrdersApi {
             @RequestParam(required = false) LocalDate fromDate,
             @RequestParam(required = false) LocalDate toDate) {
         return ResponseEntity.ok(orderService.getOrdersByCursor(
-            cursor, size, customerId, orderStatus, paymentStatus, orderType, fromDate, toDate));
+            cursor, size, sort, customerId, orderStatus, paymentStatus, orderType, fromDate, toDate));
     }
 
     @Override
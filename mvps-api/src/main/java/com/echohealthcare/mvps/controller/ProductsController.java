@@ -34,25 +34,28 @@ public class ProductsController implements ProductsApi {
 															  @Nullable Boolean prescriptionRequired,
 															  @Nullable String search,
 															  Integer page,
-															  Integer limit) {
+															  Integer limit,
+															  String totalMode) {
 		int[] validated = PaginationUtils.validatePagination(page, limit);
-		return ResponseEntity.ok(productService.getProducts(categoryId, isActive, prescriptionRequired, search, validated[0], validated[1]));
+		return ResponseEntity.ok(productService.getProducts(categoryId, isActive, prescriptionRequired, search, validated[0], validated[1], totalMode));
 	}
 
 	/**
 	 * Cursor-based pagination endpoint for products.
+	 * Sortable by id, name via {@code sort=field[,asc|desc]}; cursors page forward or backward.
 	 * Provides efficient navigation through large product datasets.
 	 */
 	@GetMapping("/products/cursor")
 	public ResponseEntity<CursorPageResponse<Product>> productsGetByCursor(
 			@RequestParam(required = false) String cursor,
 			@RequestParam(defaultValue = "20") Integer size,
+			@RequestParam(required = false) String sort,
 			@RequestParam(required = false) Integer categoryId,
 			@RequestParam(required = false) Boolean isActive,
 			@RequestParam(required = false) Boolean prescriptionRequired,
 			@RequestParam(required = false) String search) {
 		return ResponseEntity.ok(productService.getProductsByCursor(
-			cursor, size, categoryId, isActive, prescriptionRequired, search));
+			cursor, size, sort, categoryId, isActive, prescriptionRequired, search));
 	}
 
 	@Override
@@ -2,21 +2,23 @@ package com.echohealthcare.mvps.controller;
 
 import com.echohealthcare.mvps.api.SearchApi;
 import com.echohealthcare.mvps.domain.Vendor;
-import com.echohealthcare.mvps.model.LowestPriceProduct;
+import com.echohealthcare.mvps.index.CatalogSearchIndex;
+import com.echohealthcare.mvps.index.TextSearchIndex;
 import com.echohealthcare.mvps.model.SearchVendorsGet200Response;
 import com.echohealthcare.mvps.model.VendorProductsLowestPricesGet200Response;
 import com.echohealthcare.mvps.service.VendorProductService;
 import com.echohealthcare.mvps.repository.VendorRepository;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,11 +26,14 @@ public class SearchController implements SearchApi {
 
     private final VendorProductService vendorProductService;
     private final VendorRepository vendorRepository;
+    private final CatalogSearchIndex catalogSearchIndex;
 
     public SearchController(VendorProductService vendorProductService,
-                            VendorRepository vendorRepository) {
+                            VendorRepository vendorRepository,
+                            CatalogSearchIndex catalogSearchIndex) {
         this.vendorProductService = vendorProductService;
         this.vendorRepository = vendorRepository;
+        this.catalogSearchIndex = catalogSearchIndex;
     }
 
     @Override
@@ -38,42 +43,8 @@ public class SearchController implements SearchApi {
                                                                                       BigDecimal maxPrice,
                                                                                       Boolean prescriptionRequired,
                                                                                       Boolean inStock) {
-        // Reuse existing lowest-price view and apply additional filters here.
-        VendorProductsLowestPricesGet200Response base =
-                vendorProductService.getLowestPriceProducts(categoryId, maxPrice, null);
-
-        List<LowestPriceProduct> items = new ArrayList<>();
-        if (base.getData() != null) {
-            items.addAll(base.getData());
-        }
-
-        // Filter by minimum price if provided
-        if (minPrice != null) {
-            items = items.stream()
-                    .filter(lp -> lp.getFinalPrice() != null
-                            && lp.getFinalPrice().compareTo(minPrice) >= 0)
-                    .collect(Collectors.toList());
-        }
-
-        // Basic text search across product name, generic name and vendor name
-        if (q != null && !q.isBlank()) {
-            final String term = q.toLowerCase(Locale.ROOT).trim();
-            items = items.stream()
-                    .filter(lp ->
-                            (lp.getProductName() != null && lp.getProductName().toLowerCase(Locale.ROOT).contains(term))
-                                    || (lp.getGenericName() != null && lp.getGenericName().toLowerCase(Locale.ROOT).contains(term))
-                                    || (lp.getVendorName() != null && lp.getVendorName().toLowerCase(Locale.ROOT).contains(term))
-                    )
-                    .collect(Collectors.toList());
-        }
-
-        // inStock flag: current lowest-price view already excludes zero/negative stock and unavailable items.
-        // If inStock is explicitly false, we still return the same list for now.
-
-        VendorProductsLowestPricesGet200Response response = new VendorProductsLowestPricesGet200Response();
-        response.setSuccess(true);
-        response.setData(items);
-        return ResponseEntity.ok(response);
+        // inStock flag: the lowest-price view only ever contains available offers with stock.
+        return ResponseEntity.ok(vendorProductService.searchLowestPriceProducts(q, categoryId, minPrice, maxPrice));
     }
 
     @Override
@@ -81,21 +52,26 @@ public class SearchController implements SearchApi {
                                                                          String city,
                                                                          String state,
                                                                          Boolean isActive) {
-        // Fetch a reasonable slice of vendors using existing search criteria.
-        Pageable pageable = PageRequest.of(0, 1000);
-        Page<Vendor> vendorPage = vendorRepository.search(isActive, city, state, pageable);
-
-        List<Vendor> vendors = new ArrayList<>(vendorPage.getContent());
-
-        // Apply free-text search on vendor name and city if q is provided.
+        List<Vendor> vendors;
         if (q != null && !q.isBlank()) {
-            final String term = q.toLowerCase(Locale.ROOT).trim();
-            vendors = vendors.stream()
-                    .filter(v ->
-                            (v.getName() != null && v.getName().toLowerCase(Locale.ROOT).contains(term))
-                                    || (v.getCity() != null && v.getCity().toLowerCase(Locale.ROOT).contains(term))
-                    )
+            // Ranked full-text matches on vendor name and city; remaining filters applied to the hits.
+            List<Integer> rankedIds = catalogSearchIndex.searchVendors(q).stream()
+                    .map(TextSearchIndex.Hit::id)
+                    .collect(Collectors.toList());
+            Map<Integer, Vendor> byId = vendorRepository.findAllById(rankedIds).stream()
+                    .collect(Collectors.toMap(Vendor::getId, Function.identity()));
+            vendors = rankedIds.stream()
+                    .map(byId::get)
+                    .filter(v -> v != null
+                            && (isActive == null || isActive.equals(v.getActive()))
+                            && (city == null || city.equalsIgnoreCase(v.getCity()))
+                            && (state == null || state.equalsIgnoreCase(v.getState())))
                     .collect(Collectors.toList());
+        } else {
+            // Fetch a reasonable slice of vendors using existing search criteria.
+            Pageable pageable = PageRequest.of(0, 1000);
+            Slice<Vendor> vendorPage = vendorRepository.search(isActive, city, state, pageable);
+            vendors = new ArrayList<>(vendorPage.getContent());
         }
 
         SearchVendorsGet200Response response = new SearchVendorsGet200Response();
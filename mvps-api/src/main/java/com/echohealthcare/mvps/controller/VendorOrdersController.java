@@ -33,8 +33,9 @@ public class VendorOrdersController implements VendorOrdersApi {
                                                                       @Nullable LocalDate fromDate,
                                                                       @Nullable LocalDate toDate,
                                                                       Integer page,
-                                                                      Integer limit) {
-        return ResponseEntity.ok(vendorOrderService.getVendorOrders(vendorId, status, fromDate, toDate, page, limit));
+                                                                      Integer limit,
+                                                                      String totalMode) {
+        return ResponseEntity.ok(vendorOrderService.getVendorOrders(vendorId, status, fromDate, toDate, page, limit, totalMode));
     }
 
     @Override
@@ -2,6 +2,7 @@ package com.echohealthcare.mvps.controller;
 
 import com.echohealthcare.mvps.api.VendorProductsApi;
 import com.echohealthcare.mvps.domain.VendorStockMovement;
+import com.echohealthcare.mvps.dto.BulkStockUpdateResponse;
 import com.echohealthcare.mvps.dto.CursorPageResponse;
 import com.echohealthcare.mvps.model.VendorProductCreate;
 import com.echohealthcare.mvps.model.VendorProductUpdate;
@@ -14,25 +15,32 @@ import com.echohealthcare.mvps.model.VendorProductsUpdateStockPatchRequest;
 import com.echohealthcare.mvps.model.VendorProductsVendorProductIdDelete200Response;
 import com.echohealthcare.mvps.model.VendorProductsVendorProductIdGet200Response;
 import com.echohealthcare.mvps.model.VendorProductsVendorProductIdPut200Response;
+import com.echohealthcare.mvps.service.InvalidRequestException;
 import com.echohealthcare.mvps.service.VendorProductService;
+import com.echohealthcare.mvps.stock.StockContentionStats;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @RestController
 public class VendorProductsController implements VendorProductsApi {
 
     private final VendorProductService vendorProductService;
+    private final StockContentionStats stockContentionStats;
 
-    public VendorProductsController(VendorProductService vendorProductService) {
+    public VendorProductsController(VendorProductService vendorProductService,
+                                    StockContentionStats stockContentionStats) {
         this.vendorProductService = vendorProductService;
+        this.stockContentionStats = stockContentionStats;
     }
 
     @Override
@@ -48,18 +56,32 @@ public class VendorProductsController implements VendorProductsApi {
 
     /**
      * Cursor-based pagination endpoint for vendor products.
+     * Sortable by id, finalPrice via {@code sort=field[,asc|desc]}; cursors page forward or backward.
      */
     @GetMapping("/vendor-products/cursor")
     public ResponseEntity<CursorPageResponse<com.echohealthcare.mvps.model.VendorProduct>> vendorProductsGetByCursor(
             @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(required = false) String sort,
             @RequestParam(required = false) Integer vendorId,
             @RequestParam(required = false) Integer productId,
             @RequestParam(required = false) Boolean isAvailable,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice) {
         return ResponseEntity.ok(vendorProductService.getVendorProductsByCursor(
-            cursor, size, vendorId, productId, isAvailable, minPrice, maxPrice));
+            cursor, size, sort, vendorId, productId, isAvailable, minPrice, maxPrice));
+    }
+
+    /**
+     * Stock reservation figures of the most contended vendor products on this node, by time spent in stock updates.
+     */
+    @GetMapping("/vendor-products/stock-contention")
+    public ResponseEntity<List<StockContentionStats.SkuStats>> vendorProductsStockContentionGet(
+            @RequestParam(defaultValue = "20") Integer limit) {
+        if (limit < 1 || limit > 1000) {
+            throw new InvalidRequestException("limit must be between 1 and 1000");
+        }
+        return ResponseEntity.ok(stockContentionStats.top(limit));
     }
 
     @Override
@@ -84,6 +106,14 @@ public class VendorProductsController implements VendorProductsApi {
         return ResponseEntity.ok(vendorProductService.updateStock(vendorProductsUpdateStockPatchRequest));
     }
 
+    /**
+     * Bulk stock sync: same request body as update-stock, with a per-line outcome in the response.
+     */
+    @PatchMapping("/vendor-products/update-stock/bulk")
+    public ResponseEntity<BulkStockUpdateResponse> vendorProductsUpdateStockBulkPatch(@Valid @RequestBody VendorProductsUpdateStockPatchRequest vendorProductsUpdateStockPatchRequest) {
+        return ResponseEntity.ok(vendorProductService.bulkUpdateStock(vendorProductsUpdateStockPatchRequest));
+    }
+
     @Override
     public ResponseEntity<VendorProductsVendorProductIdDelete200Response> vendorProductsVendorProductIdDelete(@PathVariable("vendorProductId") Integer vendorProductId) {
         return ResponseEntity.ok(vendorProductService.deleteVendorProduct(vendorProductId));
@@ -30,22 +30,25 @@ public class VendorsController implements VendorsApi {
                                                             @Nullable String city,
                                                             @Nullable String state,
                                                             Integer page,
-                                                            Integer limit) {
-        return ResponseEntity.ok(vendorService.getVendors(isActive, city, state, page, limit));
+                                                            Integer limit,
+                                                            String totalMode) {
+        return ResponseEntity.ok(vendorService.getVendors(isActive, city, state, page, limit, totalMode));
     }
 
     /**
      * Cursor-based pagination endpoint for vendors.
+     * Sortable by id, name via {@code sort=field[,asc|desc]}; cursors page forward or backward.
      */
     @GetMapping("/vendors/cursor")
     public ResponseEntity<CursorPageResponse<Vendor>> vendorsGetByCursor(
             @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(required = false) String sort,
             @RequestParam(required = false) Boolean isActive,
             @RequestParam(required = false) String city,
             @RequestParam(required = false) String state) {
         return ResponseEntity.ok(vendorService.getVendorsByCursor(
-            cursor, size, isActive, city, state));
+            cursor, size, sort, isActive, city, state));
     }
 
     @Override
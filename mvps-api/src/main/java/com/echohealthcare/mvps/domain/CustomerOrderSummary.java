@@ -0,0 +1,78 @@
+package com.echohealthcare.mvps.domain;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "customer_order_summary")
+public class CustomerOrderSummary {
+
+    @Id
+    @Column(name = "customer_id")
+    private Integer customerId;
+
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount = 0;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Integer cancelledCount = 0;
+
+    @Column(name = "cancelled_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal cancelledRevenue = BigDecimal.ZERO;
+
+    @Column(name = "last_order_date")
+    private LocalDate lastOrderDate;
+
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Integer customerId) {
+        this.customerId = customerId;
+    }
+
+    public Integer getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public Integer getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public void setCancelledCount(Integer cancelledCount) {
+        this.cancelledCount = cancelledCount;
+    }
+
+    public BigDecimal getCancelledRevenue() {
+        return cancelledRevenue;
+    }
+
+    public void setCancelledRevenue(BigDecimal cancelledRevenue) {
+        this.cancelledRevenue = cancelledRevenue;
+    }
+
+    public LocalDate getLastOrderDate() {
+        return lastOrderDate;
+    }
+
+    public void setLastOrderDate(LocalDate lastOrderDate) {
+        this.lastOrderDate = lastOrderDate;
+    }
+}
@@ -1,10 +1,14 @@
 package com.echohealthcare.mvps.domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "productCategory")
 @Table(name = "product_categories")
 public class ProductCategory {
 
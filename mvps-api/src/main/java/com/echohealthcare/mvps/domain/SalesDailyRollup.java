@@ -0,0 +1,91 @@
+package com.echohealthcare.mvps.domain;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "sales_daily_rollup",
+       uniqueConstraints = @UniqueConstraint(name = "unique_rollup_day_type", columnNames = {"rollup_date", "order_type"}))
+public class SalesDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Integer id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "order_type", nullable = false, length = 20)
+    private String orderType;
+
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount = 0;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Integer cancelledCount = 0;
+
+    @Column(name = "cancelled_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal cancelledRevenue = BigDecimal.ZERO;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public LocalDate getRollupDate() {
+        return rollupDate;
+    }
+
+    public void setRollupDate(LocalDate rollupDate) {
+        this.rollupDate = rollupDate;
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public void setOrderType(String orderType) {
+        this.orderType = orderType;
+    }
+
+    public Integer getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public Integer getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public void setCancelledCount(Integer cancelledCount) {
+        this.cancelledCount = cancelledCount;
+    }
+
+    public BigDecimal getCancelledRevenue() {
+        return cancelledRevenue;
+    }
+
+    public void setCancelledRevenue(BigDecimal cancelledRevenue) {
+        this.cancelledRevenue = cancelledRevenue;
+    }
+}
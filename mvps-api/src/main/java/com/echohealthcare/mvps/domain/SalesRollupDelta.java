@@ -0,0 +1,118 @@
+package com.echohealthcare.mvps.domain;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A change to the sales rollups not yet folded into sales_daily_rollup and customer_order_summary.
+ * It applies to the (rollupDate, orderType) row when rollupDate is set and to the customer's row when
+ * customerId is set.
+ */
+@Entity
+@Table(name = "sales_rollup_deltas")
+public class SalesRollupDelta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "delta_id")
+    private Long id;
+
+    @Column(name = "rollup_date")
+    private LocalDate rollupDate;
+
+    @Column(name = "order_type", nullable = false, length = 20)
+    private String orderType;
+
+    @Column(name = "customer_id")
+    private Integer customerId;
+
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Integer cancelledCount;
+
+    @Column(name = "cancelled_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal cancelledRevenue;
+
+    // Candidate for the customer's last_order_date; null when the delta removes an order.
+    @Column(name = "last_order_date")
+    private LocalDate lastOrderDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getRollupDate() {
+        return rollupDate;
+    }
+
+    public void setRollupDate(LocalDate rollupDate) {
+        this.rollupDate = rollupDate;
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public void setOrderType(String orderType) {
+        this.orderType = orderType;
+    }
+
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Integer customerId) {
+        this.customerId = customerId;
+    }
+
+    public Integer getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public Integer getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public void setCancelledCount(Integer cancelledCount) {
+        this.cancelledCount = cancelledCount;
+    }
+
+    public BigDecimal getCancelledRevenue() {
+        return cancelledRevenue;
+    }
+
+    public void setCancelledRevenue(BigDecimal cancelledRevenue) {
+        this.cancelledRevenue = cancelledRevenue;
+    }
+
+    public LocalDate getLastOrderDate() {
+        return lastOrderDate;
+    }
+
+    public void setLastOrderDate(LocalDate lastOrderDate) {
+        this.lastOrderDate = lastOrderDate;
+    }
+}
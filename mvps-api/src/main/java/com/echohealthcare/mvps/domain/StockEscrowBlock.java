@@ -0,0 +1,68 @@
+package com.echohealthcare.mvps.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_escrow_blocks")
+public class StockEscrowBlock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "escrow_id")
+    private Long id;
+
+    @Column(name = "vendor_product_id", nullable = false)
+    private Integer vendorProductId;
+
+    @Column(name = "node_id", nullable = false)
+    private Integer nodeId;
+
+    // Units left in the block as of flushedAt.
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "flushed_at", nullable = false)
+    private LocalDateTime flushedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getVendorProductId() {
+        return vendorProductId;
+    }
+
+    public void setVendorProductId(Integer vendorProductId) {
+        this.vendorProductId = vendorProductId;
+    }
+
+    public Integer getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(Integer nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public LocalDateTime getFlushedAt() {
+        return flushedAt;
+    }
+
+    public void setFlushedAt(LocalDateTime flushedAt) {
+        this.flushedAt = flushedAt;
+    }
+}
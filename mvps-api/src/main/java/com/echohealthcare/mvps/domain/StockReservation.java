@@ -0,0 +1,125 @@
+package com.echohealthcare.mvps.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_reservations")
+public class StockReservation {
+
+    public static final String RESERVED = "reserved";
+    public static final String COMMITTED = "committed";
+    public static final String RELEASED = "released";
+    public static final String EXPIRED = "expired";
+    public static final String SETTLED = "settled";
+
+    // Table-allocated ids so the reservations of one order are inserted in a single JDBC batch.
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stock_reservation_id")
+    @TableGenerator(name = "stock_reservation_id",
+                    table = "id_generators",
+                    pkColumnName = "generator_name",
+                    valueColumnName = "next_value",
+                    pkColumnValue = "stock_reservations",
+                    allocationSize = 50)
+    @Column(name = "reservation_id")
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Integer orderId;
+
+    @Column(name = "vendor_product_id", nullable = false)
+    private Integer vendorProductId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = RESERVED;
+
+    // Escrow block the units were drawn from; null when they were taken from vendor_products directly.
+    @Column(name = "escrow_id")
+    private Long escrowId;
+
+    @Column(name = "reserved_at", nullable = false, updatable = false)
+    private LocalDateTime reservedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Integer orderId) {
+        this.orderId = orderId;
+    }
+
+    public Integer getVendorProductId() {
+        return vendorProductId;
+    }
+
+    public void setVendorProductId(Integer vendorProductId) {
+        this.vendorProductId = vendorProductId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getEscrowId() {
+        return escrowId;
+    }
+
+    public void setEscrowId(Long escrowId) {
+        this.escrowId = escrowId;
+    }
+
+    public LocalDateTime getReservedAt() {
+        return reservedAt;
+    }
+
+    public void setReservedAt(LocalDateTime reservedAt) {
+        this.reservedAt = reservedAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getReleasedAt() {
+        return releasedAt;
+    }
+
+    public void setReleasedAt(LocalDateTime releasedAt) {
+        this.releasedAt = releasedAt;
+    }
+}
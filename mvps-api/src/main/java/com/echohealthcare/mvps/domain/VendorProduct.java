@@ -60,6 +60,10 @@ public class VendorProduct {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bumped by every write; not a JPA @Version, concurrent writers already serialize on the row lock.
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion = 0L;
+
     @PrePersist
     public void prePersist() {
         LocalDateTime now = LocalDateTime.now();
@@ -191,4 +195,12 @@ public class VendorProduct {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public Long getRowVersion() {
+        return rowVersion;
+    }
+
+    public void setRowVersion(Long rowVersion) {
+        this.rowVersion = rowVersion;
+    }
 }
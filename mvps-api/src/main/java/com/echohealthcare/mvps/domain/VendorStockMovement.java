@@ -9,8 +9,15 @@ import java.time.LocalDateTime;
 @Table(name = "vendor_stock_movements")
 public class VendorStockMovement {
 
+    // Table-allocated ids (in blocks of 50) instead of IDENTITY so movement inserts can be JDBC-batched.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "vendor_stock_movement_id")
+    @TableGenerator(name = "vendor_stock_movement_id",
+                    table = "id_generators",
+                    pkColumnName = "generator_name",
+                    valueColumnName = "next_value",
+                    pkColumnValue = "vendor_stock_movements",
+                    allocationSize = 50)
     @Column(name = "movement_id")
     private Integer id;
 
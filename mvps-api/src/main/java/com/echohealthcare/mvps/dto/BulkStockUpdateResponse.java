@@ -0,0 +1,13 @@
+package com.echohealthcare.mvps.dto;
+
+import java.util.List;
+
+/**
+ * Response of the bulk stock update endpoint, with one outcome per request line in request order.
+ */
+public record BulkStockUpdateResponse(
+    boolean success,
+    String message,
+    int updatedCount,
+    List<StockUpdateOutcome> results
+) {}
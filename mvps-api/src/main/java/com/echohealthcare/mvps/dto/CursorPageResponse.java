@@ -4,7 +4,7 @@ import java.util.List;
 
 /**
  * Generic response wrapper for cursor-based pagination.
- * Provides next cursor and hasNext flag for efficient forward navigation.
+ * Provides next/previous cursors and flags for navigation in either direction.
  *
  * @param <T> The type of data contained in the response
  */
@@ -12,5 +12,12 @@ public record CursorPageResponse<T>(
     List<T> data,          // The items in the current page
     int pageSize,          // Size of the page
     String nextCursor,     // Cursor for the next page (null if no more pages)
-    boolean hasNext        // Indicates if more pages exist
-) {}
+    boolean hasNext,       // Indicates if more pages exist
+    String previousCursor, // Cursor for the previous page (null on the first page)
+    boolean hasPrevious    // Indicates if earlier pages exist
+) {
+
+    public CursorPageResponse(List<T> data, int pageSize, String nextCursor, boolean hasNext) {
+        this(data, pageSize, nextCursor, hasNext, null, false);
+    }
+}
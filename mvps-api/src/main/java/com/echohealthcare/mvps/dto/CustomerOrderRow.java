@@ -0,0 +1,22 @@
+package com.echohealthcare.mvps.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order columns shown in a customer's order history; leaves out the TEXT columns and the customer.
+ */
+public record CustomerOrderRow(
+    Integer orderId,
+    String orderNumber,
+    LocalDateTime orderDate,
+    String orderType,
+    String orderStatus,
+    String paymentStatus,
+    BigDecimal totalAmount,
+    BigDecimal discountAmount,
+    BigDecimal taxAmount,
+    BigDecimal finalAmount,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt
+) {}
@@ -0,0 +1,14 @@
+package com.echohealthcare.mvps.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Per-customer order aggregate produced by the database for customer rankings.
+ */
+public record CustomerSpend(
+    Integer customerId,
+    String customerName,
+    String customerType,
+    Long orderCount,
+    BigDecimal totalSpent
+) {}
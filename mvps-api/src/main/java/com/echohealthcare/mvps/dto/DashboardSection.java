@@ -0,0 +1,12 @@
+package com.echohealthcare.mvps.dto;
+
+/**
+ * One section of the dashboard snapshot. {@code data} is the section's report when it completed in
+ * time; otherwise it is null and {@code error} says why.
+ */
+public record DashboardSection(
+    String status,      // ok, timeout or error
+    long elapsedMs,
+    String error,
+    Object data
+) {}
@@ -0,0 +1,14 @@
+package com.echohealthcare.mvps.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Dashboard sections computed in one request, in a fixed order. {@code complete} is false when at
+ * least one section timed out or failed; the other sections are still returned.
+ */
+public record DashboardSnapshot(
+    LocalDateTime generatedAt,
+    boolean complete,
+    Map<String, DashboardSection> sections
+) {}
@@ -0,0 +1,12 @@
+package com.echohealthcare.mvps.dto;
+
+import java.time.LocalDate;
+
+/**
+ * In-stock vendor products expiring on one day, with their combined stock.
+ */
+public record ExpiryDayCount(
+    LocalDate expiryDate,
+    long offers,
+    long stock
+) {}
@@ -0,0 +1,16 @@
+package com.echohealthcare.mvps.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Scalar projection of an order item used to (re)build the in-memory order item fact table.
+ */
+public record OrderItemFactRow(
+    Integer orderItemId,
+    Integer productId,
+    Integer vendorId,
+    LocalDateTime orderDate,
+    Integer quantity,
+    BigDecimal lineTotal
+) {}
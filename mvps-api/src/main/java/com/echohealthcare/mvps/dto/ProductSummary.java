@@ -0,0 +1,11 @@
+package com.echohealthcare.mvps.dto;
+
+/**
+ * Lightweight product projection used to seed in-memory indexes.
+ */
+public record ProductSummary(
+    Integer productId,
+    String productName,
+    String genericName,
+    Integer categoryId
+) {}
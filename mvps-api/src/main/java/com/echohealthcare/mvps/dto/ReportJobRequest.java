@@ -0,0 +1,16 @@
+package com.echohealthcare.mvps.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Request body of the report job endpoint. {@code report} is one of sales-summary, top-products or
+ * vendor-revenue; the remaining fields are that report's query parameters.
+ */
+public record ReportJobRequest(
+    String report,
+    LocalDate fromDate,
+    LocalDate toDate,
+    String groupBy,     // sales-summary only
+    Integer limit,      // top-products only
+    String sortBy       // top-products only
+) {}
@@ -0,0 +1,18 @@
+package com.echohealthcare.mvps.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of a report job. {@code result} holds the report response once the job has succeeded and
+ * {@code error} the failure message once it has failed.
+ */
+public record ReportJobStatus(
+    String jobId,
+    String report,
+    String state,       // queued, running, succeeded, failed or cancelled
+    LocalDateTime submittedAt,
+    LocalDateTime startedAt,
+    LocalDateTime finishedAt,
+    String error,
+    Object result
+) {}
@@ -0,0 +1,22 @@
+package com.echohealthcare.mvps.dto;
+
+/**
+ * Result of one line of a bulk stock update.
+ *
+ * @param previousQuantity stock before the line was applied, null when the vendor product was not found
+ * @param newQuantity stock after the line was applied, null when the vendor product was not found
+ */
+public record StockUpdateOutcome(
+    Integer vendorProductId,
+    Status status,
+    Integer previousQuantity,
+    Integer newQuantity
+) {
+
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        NOT_FOUND,
+        INVALID_QUANTITY
+    }
+}
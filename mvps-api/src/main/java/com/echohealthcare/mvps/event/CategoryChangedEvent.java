@@ -0,0 +1,33 @@
+package com.echohealthcare.mvps.event;
+
+import com.echohealthcare.mvps.domain.ProductCategory;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a category is created, changed or deleted; a deleted category carries only its id.
+ * Listeners receive it after the surrounding transaction commits.
+ */
+public record CategoryChangedEvent(
+    Integer categoryId,
+    String categoryName,
+    String description,
+    Integer parentCategoryId,
+    LocalDateTime createdAt,
+    boolean deleted
+) {
+
+    public static CategoryChangedEvent of(ProductCategory category) {
+        return new CategoryChangedEvent(
+                category.getId(),
+                category.getName(),
+                category.getDescription(),
+                category.getParentCategory() != null ? category.getParentCategory().getId() : null,
+                category.getCreatedAt(),
+                false);
+    }
+
+    public static CategoryChangedEvent deleted(Integer categoryId) {
+        return new CategoryChangedEvent(categoryId, null, null, null, null, true);
+    }
+}
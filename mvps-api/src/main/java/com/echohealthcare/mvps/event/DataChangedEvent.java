@@ -0,0 +1,24 @@
+package com.echohealthcare.mvps.event;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Published by writes that have no more specific change event, naming the data they touched.
+ * Listeners receive it after the surrounding transaction commits.
+ *
+ * @param days the business days (order dates) the write touched, or null when it may touch any
+ */
+public record DataChangedEvent(DataTopic topic, Set<LocalDate> days) {
+
+    public DataChangedEvent(DataTopic topic) {
+        this(topic, null);
+    }
+
+    /**
+     * A write touching one day's data; a null day is taken as any day.
+     */
+    public static DataChangedEvent ofDay(DataTopic topic, LocalDate day) {
+        return new DataChangedEvent(topic, day != null ? Set.of(day) : null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.echohealthcare.mvps.event;
+
+/**
+ * Coarse groups of data that derived results (cached reports, dashboards) depend on.
+ */
+public enum DataTopic {
+    /** Customer orders, their items, statuses and payments. */
+    ORDERS,
+    /** Vendor products: prices, stock, availability and expiry. */
+    INVENTORY,
+    /** Purchase orders placed with vendors. */
+    VENDOR_ORDERS,
+    /** Product and vendor names and descriptive fields. */
+    CATALOG
+}
@@ -0,0 +1,58 @@
+package com.echohealthcare.mvps.event;
+
+import com.echohealthcare.mvps.domain.OrderItem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * Flattened, primitive view of one order item as used by the in-memory analytics structures.
+ * Missing product or vendor ids are encoded as -1 and a missing order date as {@link #NO_DAY}.
+ */
+public record OrderItemFact(
+    int orderItemId,
+    int productId,
+    int vendorId,
+    int epochDay,
+    int quantity,
+    long lineTotalCents
+) {
+
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    public static OrderItemFact of(OrderItem item) {
+        return of(item.getId(),
+                item.getProduct() != null ? item.getProduct().getId() : null,
+                item.getVendor() != null ? item.getVendor().getId() : null,
+                item.getOrder() != null ? item.getOrder().getOrderDate() : null,
+                item.getQuantity(),
+                item.getLineTotal());
+    }
+
+    public static OrderItemFact of(Integer orderItemId,
+                                   Integer productId,
+                                   Integer vendorId,
+                                   LocalDateTime orderDate,
+                                   Integer quantity,
+                                   BigDecimal lineTotal) {
+        return new OrderItemFact(
+                orderItemId,
+                productId != null ? productId : -1,
+                vendorId != null ? vendorId : -1,
+                orderDate != null ? (int) orderDate.toLocalDate().toEpochDay() : NO_DAY,
+                quantity != null ? quantity : 0,
+                toCents(lineTotal));
+    }
+
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
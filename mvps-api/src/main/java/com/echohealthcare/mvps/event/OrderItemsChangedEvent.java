@@ -0,0 +1,30 @@
+package com.echohealthcare.mvps.event;
+
+import java.util.List;
+
+/**
+ * Published when order items are created, edited or deleted.
+ * Listeners receive it after the surrounding transaction commits.
+ *
+ * @param added items that did not exist before this transaction
+ * @param updated items whose quantity, amount or keys changed
+ * @param removedItemIds ids of deleted items
+ */
+public record OrderItemsChangedEvent(
+    List<OrderItemFact> added,
+    List<OrderItemFact> updated,
+    List<Integer> removedItemIds
+) {
+
+    public static OrderItemsChangedEvent added(List<OrderItemFact> facts) {
+        return new OrderItemsChangedEvent(facts, List.of(), List.of());
+    }
+
+    public static OrderItemsChangedEvent updated(OrderItemFact fact) {
+        return new OrderItemsChangedEvent(List.of(), List.of(fact), List.of());
+    }
+
+    public static OrderItemsChangedEvent removed(Integer orderItemId) {
+        return new OrderItemsChangedEvent(List.of(), List.of(), List.of(orderItemId));
+    }
+}
@@ -0,0 +1,25 @@
+package com.echohealthcare.mvps.event;
+
+import com.echohealthcare.mvps.domain.Product;
+
+/**
+ * Published when a product is created or its descriptive fields change.
+ * Listeners receive it after the surrounding transaction commits.
+ */
+public record ProductChangedEvent(
+    Integer productId,
+    String productName,
+    String genericName,
+    Integer categoryId,
+    boolean active
+) {
+
+    public static ProductChangedEvent of(Product product) {
+        return new ProductChangedEvent(
+                product.getId(),
+                product.getName(),
+                product.getGenericName(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                Boolean.TRUE.equals(product.getActive()));
+    }
+}
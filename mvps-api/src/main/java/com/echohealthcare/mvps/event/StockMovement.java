@@ -0,0 +1,18 @@
+package com.echohealthcare.mvps.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stock quantity change of a vendor product, as written to the stock movement audit log.
+ */
+public record StockMovement(
+    int vendorProductId,
+    int previousQuantity,
+    int newQuantity,
+    LocalDateTime changedAt
+) {
+
+    public int changeAmount() {
+        return newQuantity - previousQuantity;
+    }
+}
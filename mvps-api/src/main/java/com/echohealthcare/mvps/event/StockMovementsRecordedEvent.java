@@ -0,0 +1,9 @@
+package com.echohealthcare.mvps.event;
+
+import java.util.List;
+
+/**
+ * Published by stock updates with the movements they made, in the order they were applied.
+ * Listeners receive it after the surrounding transaction commits, so rolled back changes are never audited.
+ */
+public record StockMovementsRecordedEvent(List<StockMovement> movements) {}
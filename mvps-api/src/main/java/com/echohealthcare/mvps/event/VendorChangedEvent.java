@@ -0,0 +1,23 @@
+package com.echohealthcare.mvps.event;
+
+import com.echohealthcare.mvps.domain.Vendor;
+
+/**
+ * Published when a vendor is created or its descriptive fields change.
+ * Listeners receive it after the surrounding transaction commits.
+ */
+public record VendorChangedEvent(
+    Integer vendorId,
+    String vendorName,
+    String city,
+    boolean active
+) {
+
+    public static VendorChangedEvent of(Vendor vendor) {
+        return new VendorChangedEvent(
+                vendor.getId(),
+                vendor.getName(),
+                vendor.getCity(),
+                Boolean.TRUE.equals(vendor.getActive()));
+    }
+}
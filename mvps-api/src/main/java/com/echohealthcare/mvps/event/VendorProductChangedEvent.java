@@ -0,0 +1,13 @@
+package com.echohealthcare.mvps.event;
+
+/**
+ * Published when a vendor product is created or its price, stock or availability changes.
+ * Listeners receive it after the surrounding transaction commits.
+ *
+ * @param before state before the change, or null for a new vendor product
+ * @param after state after the change
+ */
+public record VendorProductChangedEvent(
+    VendorProductSnapshot before,
+    VendorProductSnapshot after
+) {}
@@ -0,0 +1,70 @@
+package com.echohealthcare.mvps.event;
+
+import com.echohealthcare.mvps.domain.VendorProduct;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of the offer-related state of one vendor product.
+ * The final price is recomputed the same way as the generated final_price column,
+ * since the mapped entity field is only refreshed when the row is re-read.
+ *
+ * {@code version} is the row version the state was read at. Change events are delivered after their
+ * transactions commit, in no particular order across threads, so consumers keep the highest version
+ * they have seen per vendor product and drop anything older.
+ */
+public record VendorProductSnapshot(
+    Integer vendorProductId,
+    Integer productId,
+    Integer vendorId,
+    BigDecimal costPrice,
+    BigDecimal discountPercentage,
+    BigDecimal finalPrice,
+    int stockQuantity,
+    boolean available,
+    LocalDate expiryDate,
+    long version
+) {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    public static VendorProductSnapshot of(VendorProduct vp) {
+        return new VendorProductSnapshot(
+                vp.getId(),
+                vp.getProduct() != null ? vp.getProduct().getId() : null,
+                vp.getVendor() != null ? vp.getVendor().getId() : null,
+                vp.getCostPrice(),
+                vp.getDiscountPercentage(),
+                finalPrice(vp.getCostPrice(), vp.getDiscountPercentage()),
+                vp.getStockQuantity() != null ? vp.getStockQuantity() : 0,
+                Boolean.TRUE.equals(vp.getAvailable()),
+                vp.getExpiryDate(),
+                vp.getRowVersion() != null ? vp.getRowVersion() : 0L);
+    }
+
+    /**
+     * Same offer with a different stock quantity.
+     */
+    public VendorProductSnapshot withStockQuantity(int quantity) {
+        return new VendorProductSnapshot(vendorProductId, productId, vendorId, costPrice, discountPercentage,
+                finalPrice, quantity, available, expiryDate, version);
+    }
+
+    /**
+     * True when the offer can be sold right now: available, priced and with stock on hand.
+     */
+    public boolean sellable() {
+        return available && stockQuantity > 0 && finalPrice != null;
+    }
+
+    private static BigDecimal finalPrice(BigDecimal costPrice, BigDecimal discountPercentage) {
+        if (costPrice == null) {
+            return null;
+        }
+        BigDecimal discount = discountPercentage != null ? discountPercentage : BigDecimal.ZERO;
+        return costPrice.multiply(BigDecimal.ONE.subtract(discount.divide(HUNDRED)))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+}
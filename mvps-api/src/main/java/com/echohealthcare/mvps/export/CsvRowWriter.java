@@ -0,0 +1,55 @@
+package com.echohealthcare.mvps.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * RFC 4180 CSV: a header line, CRLF line ends, and fields quoted only when they contain a comma,
+ * quote or line break. Nulls are empty fields.
+ */
+final class CsvRowWriter implements RowWriter {
+
+    private final Writer out;
+
+    CsvRowWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void header(String[] columns) throws IOException {
+        row(columns);
+    }
+
+    @Override
+    public void row(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            if (values[i] != null) {
+                field(String.valueOf(values[i]));
+            }
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void field(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
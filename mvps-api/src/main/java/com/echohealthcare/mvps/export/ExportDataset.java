@@ -0,0 +1,87 @@
+package com.echohealthcare.mvps.export;
+
+import com.echohealthcare.mvps.service.InvalidRequestException;
+
+import java.util.Arrays;
+
+/**
+ * Tables that can be exported, with the query that reads them.
+ *
+ * Every query reads one flat row per entity with foreign keys as ids, in primary key order. The time
+ * column is what the {@code from}/{@code to} filter applies to and the vendor column what the
+ * {@code vendorId} filter applies to (null when the dataset has no vendor).
+ */
+public enum ExportDataset {
+
+    ORDERS("orders",
+            "select o.order_id, o.order_number, o.customer_id, o.order_date, o.order_type, o.total_amount,"
+            + " o.discount_amount, o.tax_amount, o.final_amount, o.payment_status, o.order_status,"
+            + " o.delivery_address, o.notes, o.created_at, o.updated_at"
+            + " from orders o",
+            "o.order_date", null, "o.order_id"),
+
+    ORDER_ITEMS("order-items",
+            "select oi.order_item_id, oi.order_id, o.order_number, o.order_date, oi.vendor_product_id,"
+            + " oi.product_id, oi.vendor_id, oi.quantity, oi.unit_price, oi.discount_percentage,"
+            + " oi.tax_percentage, oi.line_total, oi.created_at"
+            + " from order_items oi join orders o on o.order_id = oi.order_id",
+            "o.order_date", "oi.vendor_id", "oi.order_item_id"),
+
+    VENDOR_PRODUCTS("vendor-products",
+            "select vp.vendor_product_id, vp.vendor_id, vp.product_id, vp.vendor_sku, vp.cost_price, vp.mrp,"
+            + " vp.discount_percentage, vp.final_price, vp.minimum_order_quantity, vp.stock_quantity,"
+            + " vp.expiry_date, vp.is_available, vp.delivery_time_days, vp.created_at, vp.updated_at"
+            + " from vendor_products vp",
+            "vp.updated_at", "vp.vendor_id", "vp.vendor_product_id"),
+
+    STOCK_MOVEMENTS("stock-movements",
+            "select m.movement_id, m.vendor_product_id, vp.vendor_id, vp.product_id, m.previous_quantity,"
+            + " m.new_quantity, m.change_amount, m.changed_at"
+            + " from vendor_stock_movements m join vendor_products vp on vp.vendor_product_id = m.vendor_product_id",
+            "m.changed_at", "vp.vendor_id", "m.movement_id");
+
+    private final String path;
+    private final String select;
+    private final String timeColumn;
+    private final String vendorColumn;
+    private final String idColumn;
+
+    ExportDataset(String path, String select, String timeColumn, String vendorColumn, String idColumn) {
+        this.path = path;
+        this.select = select;
+        this.timeColumn = timeColumn;
+        this.vendorColumn = vendorColumn;
+        this.idColumn = idColumn;
+    }
+
+    /**
+     * Name of the dataset in the export URL and file name.
+     */
+    public String path() {
+        return path;
+    }
+
+    String select() {
+        return select;
+    }
+
+    String timeColumn() {
+        return timeColumn;
+    }
+
+    String vendorColumn() {
+        return vendorColumn;
+    }
+
+    String idColumn() {
+        return idColumn;
+    }
+
+    public static ExportDataset fromPath(String path) {
+        return Arrays.stream(values())
+                .filter(dataset -> dataset.path.equals(path))
+                .findFirst()
+                .orElseThrow(() -> new InvalidRequestException("Unknown export '" + path
+                        + "'; expected orders, order-items, vendor-products or stock-movements"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.echohealthcare.mvps.export;
+
+import com.echohealthcare.mvps.service.InvalidRequestException;
+
+import java.util.Locale;
+
+/**
+ * Output formats of the export endpoints.
+ */
+public enum ExportFormat {
+
+    /** One JSON object per line, keyed by column name. */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /** RFC 4180 CSV with a header line. */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static ExportFormat parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NDJSON;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException("Unknown export format '" + value + "'; expected ndjson or csv");
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.echohealthcare.mvps.export;
+
+import com.echohealthcare.mvps.service.InvalidRequestException;
+import com.echohealthcare.mvps.service.ServiceBusyException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams whole tables out as NDJSON or CSV.
+ *
+ * Rows are read with MySQL result set streaming (a forward-only, read-only statement with fetch size
+ * {@link Integer#MIN_VALUE}), so the driver hands them over one at a time instead of buffering the
+ * result, and each row is encoded straight onto the response stream. Memory use does not depend on
+ * the number of rows exported.
+ *
+ * An export holds one pooled connection until it finishes, so at most {@code mvps.export.max-concurrent}
+ * run at once; further requests are refused rather than queued. The server's net_write_timeout is raised
+ * to {@code mvps.export.net-write-timeout-seconds} for the export, so a slow client does not get the
+ * stream cut off. If the client goes away mid-export the query is cancelled instead of being read to the end.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exportSlots;
+    private final int netWriteTimeoutSeconds;
+
+    public ExportService(JdbcTemplate jdbcTemplate,
+                         ObjectMapper objectMapper,
+                         @Value("${mvps.export.max-concurrent:2}") int maxConcurrent,
+                         @Value("${mvps.export.net-write-timeout-seconds:600}") int netWriteTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.exportSlots = new Semaphore(maxConcurrent);
+        this.netWriteTimeoutSeconds = netWriteTimeoutSeconds;
+    }
+
+    /**
+     * Reserves an export slot. The slot is released when the returned export has been written, or by
+     * {@link Export#release()} if it never will be.
+     *
+     * @param from inclusive lower bound on the dataset's time column, or null
+     * @param to exclusive upper bound on the dataset's time column, or null
+     * @param vendorId vendor to restrict to, or null; not supported by every dataset
+     */
+    public Export prepare(ExportDataset dataset, ExportFormat format, LocalDateTime from, LocalDateTime to,
+                          Integer vendorId) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new InvalidRequestException("from must be before to");
+        }
+        if (vendorId != null && dataset.vendorColumn() == null) {
+            throw new InvalidRequestException("The " + dataset.path() + " export cannot be filtered by vendorId");
+        }
+
+        StringBuilder sql = new StringBuilder(dataset.select());
+        List<Object> args = new ArrayList<>();
+        List<String> predicates = new ArrayList<>();
+        if (from != null) {
+            predicates.add(dataset.timeColumn() + " >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            predicates.add(dataset.timeColumn() + " < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        if (vendorId != null) {
+            predicates.add(dataset.vendorColumn() + " = ?");
+            args.add(vendorId);
+        }
+        if (!predicates.isEmpty()) {
+            sql.append(" where ").append(String.join(" and ", predicates));
+        }
+        sql.append(" order by ").append(dataset.idColumn());
+
+        if (!exportSlots.tryAcquire()) {
+            throw new ServiceBusyException("Too many exports running; retry later");
+        }
+        return new Export(dataset, format, sql.toString(), args);
+    }
+
+    public final class Export {
+
+        private final ExportDataset dataset;
+        private final ExportFormat format;
+        private final String sql;
+        private final List<Object> args;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Export(ExportDataset dataset, ExportFormat format, String sql, List<Object> args) {
+            this.dataset = dataset;
+            this.format = format;
+            this.sql = sql;
+            this.args = args;
+        }
+
+        public ExportFormat format() {
+            return format;
+        }
+
+        /**
+         * Gives back the export slot. Only the first call has an effect, so it is safe to call as a
+         * cleanup step whether or not the export has been written.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                exportSlots.release();
+            }
+        }
+
+        /**
+         * Runs the query and writes every row to the stream. Releases the export slot when done.
+         */
+        public void writeTo(OutputStream stream) {
+            long started = System.currentTimeMillis();
+            try {
+                long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                    int previousTimeout = setNetWriteTimeout(connection, netWriteTimeoutSeconds);
+                    try {
+                        return stream(connection, new BufferedOutputStream(stream, OUTPUT_BUFFER_BYTES));
+                    } finally {
+                        setNetWriteTimeout(connection, previousTimeout);
+                    }
+                });
+                log.info("Exported {} {} rows as {} in {} ms",
+                        rows, dataset.path(), format.extension(), System.currentTimeMillis() - started);
+            } finally {
+                release();
+            }
+        }
+
+        private long stream(Connection connection, OutputStream out) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(Integer.MIN_VALUE);
+                for (int i = 0; i < args.size(); i++) {
+                    statement.setObject(i + 1, args.get(i));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    return writeRows(statement, rs, out);
+                }
+            }
+        }
+
+        private long writeRows(Statement statement, ResultSet rs, OutputStream out) throws SQLException {
+            ResultSetMetaData meta = rs.getMetaData();
+            String[] columns = new String[meta.getColumnCount()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = meta.getColumnLabel(i + 1);
+            }
+            Object[] values = new Object[columns.length];
+            long rows = 0;
+            try {
+                RowWriter writer = format == ExportFormat.CSV
+                        ? new CsvRowWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))
+                        : new NdjsonRowWriter(objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8));
+                writer.header(columns);
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = exportValue(rs.getObject(i + 1));
+                    }
+                    writer.row(values);
+                    rows++;
+                }
+                writer.finish();
+            } catch (IOException ex) {
+                // Closing a streaming result set reads the remaining rows; kill the query first so it stops early.
+                cancelQuietly(statement);
+                throw new UncheckedIOException("Export of " + dataset.path() + " aborted after " + rows + " rows", ex);
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Formats dates and times as ISO-8601 strings, whether the driver returns java.sql or java.time
+     * types; {@code Timestamp.toString()} would give "2026-10-17 13:38:12.0". Other values pass through.
+     */
+    private static Object exportValue(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp.toLocalDateTime());
+        } else if (value instanceof LocalDateTime dateTime) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime);
+        } else if (value instanceof java.sql.Date date) {
+            return date.toLocalDate().toString();
+        } else if (value instanceof Time time) {
+            return DateTimeFormatter.ISO_LOCAL_TIME.format(time.toLocalTime());
+        } else if (value instanceof LocalTime localTime) {
+            return DateTimeFormatter.ISO_LOCAL_TIME.format(localTime);
+        }
+        return value;
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException ex) {
+            log.warn("Could not cancel export query", ex);
+        }
+    }
+
+    /**
+     * Sets the session's net_write_timeout and returns the previous value.
+     */
+    private static int setNetWriteTimeout(Connection connection, int seconds) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            int previous;
+            try (ResultSet rs = statement.executeQuery("select @@session.net_write_timeout")) {
+                rs.next();
+                previous = rs.getInt(1);
+            }
+            statement.execute("set session net_write_timeout = " + seconds);
+            return previous;
+        }
+    }
+}
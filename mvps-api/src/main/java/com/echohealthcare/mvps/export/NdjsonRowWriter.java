@@ -0,0 +1,57 @@
+package com.echohealthcare.mvps.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Newline-delimited JSON: one object per row, keyed by column name. Decimals keep their scale, dates
+ * and times are ISO-8601 strings.
+ */
+final class NdjsonRowWriter implements RowWriter {
+
+    private final JsonGenerator json;
+    private String[] columns;
+
+    NdjsonRowWriter(JsonGenerator json) {
+        this.json = json;
+        // Rows are separated by the newline written after each object instead.
+        this.json.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void header(String[] columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void row(Object[] values) throws IOException {
+        json.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            json.writeFieldName(columns[i]);
+            Object value = values[i];
+            if (value == null) {
+                json.writeNull();
+            } else if (value instanceof BigDecimal decimal) {
+                json.writeNumber(decimal);
+            } else if (value instanceof BigInteger integer) {
+                json.writeNumber(integer);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+                json.writeNumber(((Number) value).longValue());
+            } else if (value instanceof Boolean bool) {
+                json.writeBoolean(bool);
+            } else {
+                json.writeString(value.toString());
+            }
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        json.flush();
+    }
+}
@@ -0,0 +1,19 @@
+package com.echohealthcare.mvps.export;
+
+import java.io.IOException;
+
+/**
+ * Encodes exported rows onto an output stream, one row at a time.
+ */
+interface RowWriter {
+
+    void header(String[] columns) throws IOException;
+
+    /**
+     * @param values column values in header order, as returned by the JDBC driver except that dates and
+     *               times are already ISO-8601 strings; may contain nulls
+     */
+    void row(Object[] values) throws IOException;
+
+    void finish() throws IOException;
+}
@@ -0,0 +1,13 @@
+package com.echohealthcare.mvps.id;
+
+/**
+ * Source of business numbers for orders and purchase orders.
+ */
+public interface OrderNumberGenerator {
+
+    /**
+     * A new number starting with {@code prefix} and a dash, e.g. {@code ORD-...}. Numbers are unique
+     * across all nodes, and the numbers one node hands out sort in the order they were generated.
+     */
+    String next(String prefix);
+}
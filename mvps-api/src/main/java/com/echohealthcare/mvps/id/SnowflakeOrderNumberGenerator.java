@@ -0,0 +1,92 @@
+package com.echohealthcare.mvps.id;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style order numbers: a 64-bit id of milliseconds since 2024-01-01 (41 bits), node id
+ * (10 bits) and a per-millisecond sequence (12 bits), rendered as {@code <prefix>-<yyyy-MM-dd>-<id>}
+ * with the id in 13 Crockford base32 digits, e.g. {@code ORD-2026-10-17-0E7KQ2M40001Z}.
+ *
+ * The date is the local date of the id's timestamp and the id is fixed width, so numbers sort
+ * as text the same way they sort by time, and inserts land at the right edge of the unique index.
+ * Each node needs its own {@code mvps.order-number.node-id}.
+ *
+ * Generation is lock-free: the last (time, sequence) pair is one atomic long advanced to
+ * {@code max(now, last + 1)}. A burst of more than 4096 numbers in one millisecond borrows from the
+ * next millisecond instead of waiting, and a clock that steps back keeps counting from the last
+ * number, so numbers stay increasing either way. They are only repeated if the node restarts with
+ * its clock set back past numbers it already handed out.
+ */
+@Component
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ID_DIGITS = 13;
+    // "yyyy-MM-dd-"
+    private static final int DATE_CHARS = 11;
+
+    private final long nodeBits;
+    private final ZoneId zone = ZoneId.systemDefault();
+    // (milliseconds since EPOCH_MILLIS << SEQUENCE_BITS) | sequence, of the last number handed out.
+    private final AtomicLong last = new AtomicLong();
+    private volatile Day day;
+
+    public SnowflakeOrderNumberGenerator(@Value("${mvps.order-number.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException(
+                    "mvps.order-number.node-id must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    @Override
+    public String next(String prefix) {
+        long stamp = last.accumulateAndGet((System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS,
+                (previous, now) -> Math.max(previous + 1, now));
+        long millis = stamp >>> SEQUENCE_BITS;
+        long id = millis << (NODE_BITS + SEQUENCE_BITS) | nodeBits | (stamp & SEQUENCE_MASK);
+
+        char[] date = dayOf(EPOCH_MILLIS + millis).text();
+        int length = prefix.length() + 1 + DATE_CHARS + ID_DIGITS;
+        char[] chars = new char[length];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        chars[prefix.length()] = '-';
+        System.arraycopy(date, 0, chars, prefix.length() + 1, DATE_CHARS);
+        for (int i = length - 1; i >= length - ID_DIGITS; i--) {
+            chars[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * The date text for a timestamp; recomputed only when the day changes.
+     */
+    private Day dayOf(long epochMillis) {
+        Day current = day;
+        if (current != null && epochMillis >= current.start() && epochMillis < current.end()) {
+            return current;
+        }
+        LocalDate date = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+        current = new Day(
+                date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                (date + "-").toCharArray());
+        day = current;
+        return current;
+    }
+
+    private record Day(long start, long end, char[] text) {}
+}
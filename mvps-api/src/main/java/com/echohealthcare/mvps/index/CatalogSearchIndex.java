@@ -0,0 +1,140 @@
+package com.echohealthcare.mvps.index;
+
+import com.echohealthcare.mvps.domain.Vendor;
+import com.echohealthcare.mvps.dto.ProductSummary;
+import com.echohealthcare.mvps.event.ProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorChangedEvent;
+import com.echohealthcare.mvps.repository.ProductRepository;
+import com.echohealthcare.mvps.repository.VendorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full-text indexes used by the search endpoints: products by name and generic name,
+ * vendors by name and city.
+ *
+ * Loaded once after startup and kept current from product and vendor change events after their
+ * transactions commit; events that arrive while the initial load is running are replayed afterwards.
+ */
+@Component
+public class CatalogSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSearchIndex.class);
+
+    private final ProductRepository productRepository;
+    private final VendorRepository vendorRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TextSearchIndex products = new TextSearchIndex(3, 2);
+    private final TextSearchIndex vendors = new TextSearchIndex(3, 1);
+
+    private final Object loadLock = new Object();
+    private final Object writeLock = new Object();
+    private final List<Object> pendingEvents = new ArrayList<>();
+
+    private volatile boolean loaded;
+
+    public CatalogSearchIndex(ProductRepository productRepository,
+                              VendorRepository vendorRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.vendorRepository = vendorRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::ensureLoaded, "catalog-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        handle(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVendorChanged(VendorChangedEvent event) {
+        handle(event);
+    }
+
+    /**
+     * Products whose name or generic name match every term of the query, best match first.
+     */
+    public List<TextSearchIndex.Hit> searchProducts(String query) {
+        ensureLoaded();
+        return products.search(query);
+    }
+
+    /**
+     * Vendors whose name or city match every term of the query, best match first.
+     */
+    public List<TextSearchIndex.Hit> searchVendors(String query) {
+        ensureLoaded();
+        return vendors.search(query);
+    }
+
+    private void handle(Object event) {
+        synchronized (writeLock) {
+            if (!loaded) {
+                pendingEvents.add(event);
+                return;
+            }
+            apply(event);
+        }
+    }
+
+    private void apply(Object event) {
+        if (event instanceof ProductChangedEvent e) {
+            products.put(e.productId(), e.productName(), e.genericName());
+        } else if (event instanceof VendorChangedEvent e) {
+            vendors.put(e.vendorId(), e.vendorName(), e.city());
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    for (ProductSummary product : productRepository.findAllSummaries()) {
+                        products.put(product.productId(), product.productName(), product.genericName());
+                    }
+                    for (Vendor vendor : vendorRepository.findAll()) {
+                        vendors.put(vendor.getId(), vendor.getName(), vendor.getCity());
+                    }
+                });
+            } catch (RuntimeException ex) {
+                products.clear();
+                vendors.clear();
+                log.error("Failed to load catalog search index", ex);
+                throw ex;
+            }
+
+            synchronized (writeLock) {
+                pendingEvents.forEach(this::apply);
+                pendingEvents.clear();
+                loaded = true;
+            }
+            log.info("Loaded catalog search index with {} products and {} vendors in {} ms",
+                    products.size(), vendors.size(), System.currentTimeMillis() - started);
+        }
+    }
+}
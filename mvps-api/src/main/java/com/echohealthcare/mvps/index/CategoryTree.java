@@ -0,0 +1,320 @@
+package com.echohealthcare.mvps.index;
+
+import com.echohealthcare.mvps.domain.ProductCategory;
+import com.echohealthcare.mvps.event.CategoryChangedEvent;
+import com.echohealthcare.mvps.repository.ProductCategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * In-memory copy of the category hierarchy with Euler-tour numbering for subtree queries.
+ *
+ * Categories are numbered in preorder; each one records the position it is entered at and the
+ * position of its last descendant, so its subtree is one contiguous slice of the preorder and
+ * "is X under Y" is an interval test. Categories whose parent is missing are treated as roots, and
+ * a parent cycle, should the table ever hold one, is broken where the walk first meets it.
+ *
+ * The tree is loaded once from the database and then maintained from category change events after
+ * their transactions commit. A change that only renames or redescribes a category replaces that node;
+ * one that adds, removes or moves a category renumbers the tour, which is linear in the number of
+ * categories. Writers are serialized and publish an immutable snapshot; readers never lock.
+ */
+@Component
+public class CategoryTree {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryTree.class);
+
+    private static final Comparator<Category> BY_ID = Comparator.comparingInt(Category::categoryId);
+
+    private final ProductCategoryRepository categoryRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Object loadLock = new Object();
+    private final Object writeLock = new Object();
+
+    // Current categories by id; guarded by writeLock.
+    private final Map<Integer, Category> nodes = new HashMap<>();
+    private final List<CategoryChangedEvent> pendingEvents = new ArrayList<>();
+
+    private volatile Snapshot snapshot = Snapshot.build(Map.of());
+    private volatile boolean loaded;
+
+    public CategoryTree(ProductCategoryRepository categoryRepository, PlatformTransactionManager transactionManager) {
+        this.categoryRepository = categoryRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::ensureLoaded, "category-tree-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        synchronized (writeLock) {
+            if (!loaded) {
+                // Replayed once the initial load finishes; every event carries absolute state.
+                pendingEvents.add(event);
+                return;
+            }
+            apply(event);
+        }
+    }
+
+    /**
+     * All categories, ordered by id.
+     */
+    public List<Category> categories() {
+        ensureLoaded();
+        return snapshot.all;
+    }
+
+    /**
+     * Direct children of a category, ordered by id.
+     */
+    public List<Category> children(Integer parentCategoryId) {
+        ensureLoaded();
+        return snapshot.children.getOrDefault(parentCategoryId, List.of());
+    }
+
+    /**
+     * Ids of a category and all of its descendants, the category itself first. An id the tree does not
+     * know is returned on its own, so filtering by it behaves like filtering by one category.
+     */
+    public Set<Integer> subtree(Integer categoryId) {
+        ensureLoaded();
+        Snapshot current = snapshot;
+        Integer enter = current.enter.get(categoryId);
+        if (enter == null) {
+            return Set.of(categoryId);
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (int i = enter; i <= current.exit[enter]; i++) {
+            ids.add(current.preorder[i]);
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Whether {@code categoryId} is {@code ancestorId} or lies anywhere below it.
+     */
+    public boolean contains(Integer ancestorId, Integer categoryId) {
+        ensureLoaded();
+        return Objects.equals(ancestorId, categoryId) || snapshot.contains(ancestorId, categoryId);
+    }
+
+    /**
+     * Ids of the ancestors of a category, root first, not including the category itself.
+     */
+    public List<Integer> ancestors(Integer categoryId) {
+        ensureLoaded();
+        Snapshot current = snapshot;
+        List<Integer> path = new ArrayList<>();
+        Category node = current.byId.get(categoryId);
+        while (node != null && node.parentCategoryId() != null && path.size() < current.preorder.length) {
+            Integer parentId = node.parentCategoryId();
+            if (!current.contains(parentId, node.categoryId())) {
+                // Parent missing, or the edge that was cut to break a cycle.
+                break;
+            }
+            path.add(parentId);
+            node = current.byId.get(parentId);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            List<Category> all = readOnlyTransaction.execute(status -> categoryRepository.findAll().stream()
+                    .map(CategoryTree::toCategory)
+                    .toList());
+
+            synchronized (writeLock) {
+                nodes.clear();
+                all.forEach(category -> nodes.put(category.categoryId(), category));
+                pendingEvents.forEach(this::apply);
+                pendingEvents.clear();
+                snapshot = Snapshot.build(nodes);
+                loaded = true;
+            }
+            log.info("Loaded category tree with {} categories in {} ms",
+                    all.size(), System.currentTimeMillis() - started);
+        }
+    }
+
+    private void apply(CategoryChangedEvent event) {
+        Category previous;
+        Category next = null;
+        if (event.deleted()) {
+            previous = nodes.remove(event.categoryId());
+            if (previous == null) {
+                return;
+            }
+        } else {
+            next = new Category(event.categoryId(), event.categoryName(), event.description(),
+                    event.parentCategoryId(), event.createdAt());
+            previous = nodes.put(next.categoryId(), next);
+            if (next.equals(previous)) {
+                return;
+            }
+        }
+
+        if (!loaded) {
+            // Still loading; the snapshot is built once the pending events are replayed.
+            return;
+        }
+        if (previous != null && next != null && Objects.equals(previous.parentCategoryId(), next.parentCategoryId())) {
+            snapshot = snapshot.replace(next);
+        } else {
+            snapshot = Snapshot.build(nodes);
+        }
+    }
+
+    private static Category toCategory(ProductCategory entity) {
+        return new Category(
+                entity.getId(),
+                entity.getName(),
+                entity.getDescription(),
+                entity.getParentCategory() != null ? entity.getParentCategory().getId() : null,
+                entity.getCreatedAt());
+    }
+
+    /**
+     * One category as held by the tree.
+     */
+    public record Category(
+        int categoryId,
+        String categoryName,
+        String description,
+        Integer parentCategoryId,
+        LocalDateTime createdAt
+    ) {}
+
+    /**
+     * Immutable view of the tree: {@code preorder[enter(c)]} is c, and c's subtree is
+     * {@code preorder[enter(c) .. exit[enter(c)]]}.
+     */
+    private static final class Snapshot {
+
+        final Map<Integer, Category> byId;
+        final List<Category> all;
+        final Map<Integer, List<Category>> children;
+        final int[] preorder;
+        final int[] exit;
+        final Map<Integer, Integer> enter;
+
+        private Snapshot(Map<Integer, Category> byId, List<Category> all, Map<Integer, List<Category>> children,
+                         int[] preorder, int[] exit, Map<Integer, Integer> enter) {
+            this.byId = byId;
+            this.all = all;
+            this.children = children;
+            this.preorder = preorder;
+            this.exit = exit;
+            this.enter = enter;
+        }
+
+        static Snapshot build(Map<Integer, Category> nodes) {
+            List<Category> all = nodes.values().stream().sorted(BY_ID).toList();
+            Map<Integer, List<Category>> children = new HashMap<>();
+            for (Category category : all) {
+                if (category.parentCategoryId() != null) {
+                    children.computeIfAbsent(category.parentCategoryId(), p -> new ArrayList<>()).add(category);
+                }
+            }
+            children.replaceAll((parentId, list) -> List.copyOf(list));
+
+            int[] preorder = new int[all.size()];
+            int[] exit = new int[all.size()];
+            Map<Integer, Integer> enter = new HashMap<>(all.size() * 2);
+            int next = 0;
+            // Real roots first, so a cycle (which has none) is only entered once everything else is numbered.
+            List<Category> starts = new ArrayList<>(all.size());
+            all.stream().filter(c -> c.parentCategoryId() == null || !nodes.containsKey(c.parentCategoryId()))
+                    .forEach(starts::add);
+            starts.addAll(all);
+            for (Category start : starts) {
+                if (enter.containsKey(start.categoryId())) {
+                    continue;
+                }
+                // Iterative walk; a frame is {position, index of the next child to visit}.
+                Deque<int[]> stack = new ArrayDeque<>();
+                enter.put(start.categoryId(), next);
+                preorder[next] = start.categoryId();
+                stack.push(new int[] {next++, 0});
+                while (!stack.isEmpty()) {
+                    int[] frame = stack.peek();
+                    List<Category> kids = children.getOrDefault(preorder[frame[0]], List.of());
+                    if (frame[1] < kids.size()) {
+                        Category child = kids.get(frame[1]++);
+                        if (!enter.containsKey(child.categoryId())) {
+                            enter.put(child.categoryId(), next);
+                            preorder[next] = child.categoryId();
+                            stack.push(new int[] {next++, 0});
+                        }
+                    } else {
+                        stack.pop();
+                        exit[frame[0]] = next - 1;
+                    }
+                }
+            }
+            return new Snapshot(Map.copyOf(nodes), all, Map.copyOf(children), preorder, exit, Map.copyOf(enter));
+        }
+
+        /**
+         * Same shape with one node's descriptive fields replaced.
+         */
+        Snapshot replace(Category category) {
+            Map<Integer, Category> byId = new HashMap<>(this.byId);
+            byId.put(category.categoryId(), category);
+            List<Category> all = this.all.stream()
+                    .map(c -> c.categoryId() == category.categoryId() ? category : c)
+                    .toList();
+            Map<Integer, List<Category>> children = new HashMap<>(this.children);
+            if (category.parentCategoryId() != null) {
+                children.computeIfPresent(category.parentCategoryId(), (parentId, list) -> list.stream()
+                        .map(c -> c.categoryId() == category.categoryId() ? category : c)
+                        .toList());
+            }
+            return new Snapshot(Map.copyOf(byId), all, Map.copyOf(children), preorder, exit, enter);
+        }
+
+        /**
+         * Whether {@code categoryId} lies strictly below {@code ancestorId}.
+         */
+        boolean contains(Integer ancestorId, Integer categoryId) {
+            Integer outer = enter.get(ancestorId);
+            Integer inner = enter.get(categoryId);
+            return outer != null && inner != null && outer < inner && inner <= exit[outer];
+        }
+    }
+}
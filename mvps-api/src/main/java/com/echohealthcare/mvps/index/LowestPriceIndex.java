@@ -0,0 +1,430 @@
+package com.echohealthcare.mvps.index;
+
+import com.echohealthcare.mvps.domain.Vendor;
+import com.echohealthcare.mvps.dto.ProductSummary;
+import com.echohealthcare.mvps.event.ProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductSnapshot;
+import com.echohealthcare.mvps.repository.ProductRepository;
+import com.echohealthcare.mvps.repository.VendorProductRepository;
+import com.echohealthcare.mvps.repository.VendorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory index of the sellable offers of every product, ordered by final price.
+ *
+ * For each product the index keeps its sellable vendor offers sorted by price (ties broken by
+ * vendor product id), so the lowest offer is always the first element. Products that have at least
+ * one offer are also kept in name order, globally and per category, which is the order the lowest
+ * price view is returned in.
+ *
+ * The index is loaded once from the database and then maintained from vendor product, product and
+ * vendor change events after their transactions commit. Writers are serialized; readers never lock.
+ * Vendor product events can arrive out of commit order, so a snapshot older than the row version
+ * already applied for that offer is ignored.
+ */
+@Component
+public class LowestPriceIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LowestPriceIndex.class);
+
+    private static final int NO_CATEGORY = -1;
+    private static final Offer[] NO_OFFERS = new Offer[0];
+    private static final Comparator<Offer> BY_PRICE = Comparator
+            .comparing(Offer::finalPrice)
+            .thenComparingInt(Offer::vendorProductId);
+
+    private final VendorProductRepository vendorProductRepository;
+    private final ProductRepository productRepository;
+    private final VendorRepository vendorRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Object loadLock = new Object();
+    private final Object writeLock = new Object();
+
+    private final Map<Integer, ProductInfo> products = new ConcurrentHashMap<>();
+    private final Map<Integer, String> vendorNames = new ConcurrentHashMap<>();
+    // Offer arrays are never mutated once published; writers swap in a new array.
+    private final Map<Integer, Offer[]> offersByProduct = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> productByOffer = new ConcurrentHashMap<>();
+    // Highest row version applied per vendor product, kept for unsellable offers too.
+    private final Map<Integer, Long> offerVersions = new ConcurrentHashMap<>();
+    private final NavigableSet<NameKey> allByName = new ConcurrentSkipListSet<>();
+    private final Map<Integer, NavigableSet<NameKey>> byCategory = new ConcurrentHashMap<>();
+    // Products whose lowest offer currently belongs to the vendor.
+    private final Map<Integer, Set<Integer>> ledByVendor = new ConcurrentHashMap<>();
+    private final List<Object> pendingEvents = new ArrayList<>();
+
+    private volatile boolean loaded;
+
+    public LowestPriceIndex(VendorProductRepository vendorProductRepository,
+                            ProductRepository productRepository,
+                            VendorRepository vendorRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.vendorProductRepository = vendorProductRepository;
+        this.productRepository = productRepository;
+        this.vendorRepository = vendorRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::ensureLoaded, "lowest-price-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVendorProductChanged(VendorProductChangedEvent event) {
+        handle(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        handle(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVendorChanged(VendorChangedEvent event) {
+        handle(event);
+    }
+
+    /**
+     * Lowest sellable offer of every product in name order.
+     *
+     * @param categoryIds only products in these categories, typically a {@link CategoryTree#subtree}, or all when null
+     * @param maxPrice drop products whose lowest qualifying offer costs more than this
+     * @param minStock only consider offers with at least this much stock
+     */
+    public List<LowestOffer> lowestOffers(Set<Integer> categoryIds, BigDecimal maxPrice, Integer minStock) {
+        ensureLoaded();
+        NavigableSet<NameKey> keys = keysFor(categoryIds);
+
+        List<LowestOffer> result = new ArrayList<>();
+        for (NameKey key : keys) {
+            Offer best = lowest(offersByProduct.getOrDefault(key.productId(), NO_OFFERS), minStock);
+            if (best == null) {
+                continue;
+            }
+            if (maxPrice != null && best.finalPrice().compareTo(maxPrice) > 0) {
+                continue;
+            }
+            result.add(toLowestOffer(best));
+        }
+        return result;
+    }
+
+    /**
+     * Id of the cheapest sellable vendor product for a product with at least {@code minStock} units in
+     * stock (any stock when null), or null when there is none.
+     */
+    public Integer lowestOfferId(Integer productId, Integer minStock) {
+        ensureLoaded();
+        Offer best = lowest(offersByProduct.getOrDefault(productId, NO_OFFERS), minStock);
+        return best != null ? best.vendorProductId() : null;
+    }
+
+    /**
+     * Lowest sellable offer of one product, subject to the same filters as {@link #lowestOffers}.
+     * Returns null when the product has no qualifying offer.
+     */
+    public LowestOffer lowestOffer(Integer productId, Set<Integer> categoryIds, BigDecimal maxPrice, Integer minStock) {
+        ensureLoaded();
+        if (categoryIds != null) {
+            ProductInfo product = products.get(productId);
+            if (product == null || product.categoryId() == null || !categoryIds.contains(product.categoryId())) {
+                return null;
+            }
+        }
+        Offer best = lowest(offersByProduct.getOrDefault(productId, NO_OFFERS), minStock);
+        if (best == null || (maxPrice != null && best.finalPrice().compareTo(maxPrice) > 0)) {
+            return null;
+        }
+        return toLowestOffer(best);
+    }
+
+    /**
+     * Ids of the products whose lowest offer currently comes from the given vendor.
+     */
+    public Set<Integer> productsLedBy(Integer vendorId) {
+        ensureLoaded();
+        Set<Integer> led = ledByVendor.get(vendorId);
+        return led != null ? Set.copyOf(led) : Set.of();
+    }
+
+    /**
+     * Listed products of the given categories in name order; a subtree merges the per-category sets.
+     */
+    private NavigableSet<NameKey> keysFor(Set<Integer> categoryIds) {
+        if (categoryIds == null) {
+            return allByName;
+        }
+        if (categoryIds.size() == 1) {
+            NavigableSet<NameKey> keys = byCategory.get(categoryIds.iterator().next());
+            return keys != null ? keys : Collections.emptyNavigableSet();
+        }
+        NavigableSet<NameKey> merged = new TreeSet<>();
+        for (Integer categoryId : categoryIds) {
+            NavigableSet<NameKey> keys = byCategory.get(categoryId);
+            if (keys != null) {
+                merged.addAll(keys);
+            }
+        }
+        return merged;
+    }
+
+    private static Offer lowest(Offer[] offers, Integer minStock) {
+        for (Offer offer : offers) {
+            if (minStock == null || offer.stockQuantity() >= minStock) {
+                return offer;
+            }
+        }
+        return null;
+    }
+
+    private LowestOffer toLowestOffer(Offer offer) {
+        ProductInfo product = products.get(offer.productId());
+        return new LowestOffer(
+                offer.productId(),
+                product != null ? product.name() : null,
+                product != null ? product.genericName() : null,
+                offer.vendorProductId(),
+                offer.vendorId(),
+                vendorNames.get(offer.vendorId()),
+                offer.costPrice(),
+                offer.discountPercentage(),
+                offer.finalPrice(),
+                offer.stockQuantity());
+    }
+
+    private void handle(Object event) {
+        synchronized (writeLock) {
+            if (!loaded) {
+                // Replayed once the initial load finishes; every event carries absolute state.
+                pendingEvents.add(event);
+                return;
+            }
+            apply(event);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    for (ProductSummary product : productRepository.findAllSummaries()) {
+                        putProduct(product.productId(), product.productName(), product.genericName(), product.categoryId());
+                    }
+                    for (Vendor vendor : vendorRepository.findAll()) {
+                        if (vendor.getName() != null) {
+                            vendorNames.put(vendor.getId(), vendor.getName());
+                        }
+                    }
+                    // Unsellable offers too, so their row versions are known before queued events replay.
+                    for (VendorProductSnapshot snapshot : vendorProductRepository.findAllSnapshots()) {
+                        putOffer(snapshot);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                synchronized (writeLock) {
+                    reset();
+                }
+                log.error("Failed to load lowest price index", ex);
+                throw ex;
+            }
+
+            synchronized (writeLock) {
+                pendingEvents.forEach(this::apply);
+                pendingEvents.clear();
+                loaded = true;
+            }
+            log.info("Loaded lowest price index with {} offers in {} ms",
+                    productByOffer.size(), System.currentTimeMillis() - started);
+        }
+    }
+
+    private void apply(Object event) {
+        if (event instanceof VendorProductChangedEvent e) {
+            putOffer(e.after());
+        } else if (event instanceof ProductChangedEvent e) {
+            putProduct(e.productId(), e.productName(), e.genericName(), e.categoryId());
+        } else if (event instanceof VendorChangedEvent e) {
+            if (e.vendorName() != null) {
+                vendorNames.put(e.vendorId(), e.vendorName());
+            } else {
+                vendorNames.remove(e.vendorId());
+            }
+        }
+    }
+
+    private void putOffer(VendorProductSnapshot snapshot) {
+        Integer vendorProductId = snapshot.vendorProductId();
+        Long applied = offerVersions.get(vendorProductId);
+        if (applied != null && snapshot.version() < applied) {
+            // A later write of this row was already applied; its listener simply ran first.
+            return;
+        }
+        offerVersions.put(vendorProductId, snapshot.version());
+
+        Integer previousProductId = productByOffer.remove(vendorProductId);
+        if (previousProductId != null) {
+            Offer[] current = offersByProduct.getOrDefault(previousProductId, NO_OFFERS);
+            Offer[] next = Arrays.stream(current)
+                    .filter(o -> o.vendorProductId() != vendorProductId)
+                    .toArray(Offer[]::new);
+            setOffers(previousProductId, next);
+        }
+
+        if (!snapshot.sellable() || snapshot.productId() == null || snapshot.vendorId() == null) {
+            return;
+        }
+
+        Offer offer = new Offer(vendorProductId, snapshot.productId(), snapshot.vendorId(), snapshot.costPrice(),
+                snapshot.discountPercentage(), snapshot.finalPrice(), snapshot.stockQuantity());
+        Offer[] current = offersByProduct.getOrDefault(offer.productId(), NO_OFFERS);
+        int at = Arrays.binarySearch(current, offer, BY_PRICE);
+        int insertAt = at >= 0 ? at : -at - 1;
+        Offer[] next = new Offer[current.length + 1];
+        System.arraycopy(current, 0, next, 0, insertAt);
+        next[insertAt] = offer;
+        System.arraycopy(current, insertAt, next, insertAt + 1, current.length - insertAt);
+        setOffers(offer.productId(), next);
+        productByOffer.put(vendorProductId, offer.productId());
+    }
+
+    private void setOffers(Integer productId, Offer[] offers) {
+        Offer[] previous = offersByProduct.get(productId);
+        boolean wasListed = previous != null;
+        int previousLeader = wasListed ? previous[0].vendorId() : -1;
+        int leader = offers.length > 0 ? offers[0].vendorId() : -1;
+        if (previousLeader != leader) {
+            if (previousLeader >= 0) {
+                Set<Integer> led = ledByVendor.get(previousLeader);
+                if (led != null) {
+                    led.remove(productId);
+                }
+            }
+            if (leader >= 0) {
+                ledByVendor.computeIfAbsent(leader, v -> ConcurrentHashMap.newKeySet()).add(productId);
+            }
+        }
+
+        if (offers.length == 0) {
+            offersByProduct.remove(productId);
+            if (wasListed) {
+                unlist(productId, products.get(productId));
+            }
+            return;
+        }
+        offersByProduct.put(productId, offers);
+        if (!wasListed) {
+            list(productId, products.get(productId));
+        }
+    }
+
+    private void putProduct(Integer productId, String name, String genericName, Integer categoryId) {
+        ProductInfo next = new ProductInfo(name, genericName, categoryId);
+        ProductInfo previous = products.put(productId, next);
+        if (offersByProduct.containsKey(productId) && !next.equals(previous)) {
+            unlist(productId, previous);
+            list(productId, next);
+        }
+    }
+
+    private void list(Integer productId, ProductInfo product) {
+        NameKey key = new NameKey(product != null ? product.name() : null, productId);
+        allByName.add(key);
+        byCategory.computeIfAbsent(categoryKey(product), c -> new ConcurrentSkipListSet<>()).add(key);
+    }
+
+    private void unlist(Integer productId, ProductInfo product) {
+        NameKey key = new NameKey(product != null ? product.name() : null, productId);
+        allByName.remove(key);
+        NavigableSet<NameKey> category = byCategory.get(categoryKey(product));
+        if (category != null) {
+            category.remove(key);
+        }
+    }
+
+    private static int categoryKey(ProductInfo product) {
+        return product != null && product.categoryId() != null ? product.categoryId() : NO_CATEGORY;
+    }
+
+    private void reset() {
+        products.clear();
+        vendorNames.clear();
+        offersByProduct.clear();
+        productByOffer.clear();
+        offerVersions.clear();
+        allByName.clear();
+        byCategory.clear();
+        ledByVendor.clear();
+    }
+
+    /**
+     * Lowest offer of one product together with the names needed to display it.
+     */
+    public record LowestOffer(
+        int productId,
+        String productName,
+        String genericName,
+        int vendorProductId,
+        int vendorId,
+        String vendorName,
+        BigDecimal costPrice,
+        BigDecimal discountPercentage,
+        BigDecimal finalPrice,
+        int stockQuantity
+    ) {}
+
+    private record Offer(int vendorProductId,
+                         int productId,
+                         int vendorId,
+                         BigDecimal costPrice,
+                         BigDecimal discountPercentage,
+                         BigDecimal finalPrice,
+                         int stockQuantity) {}
+
+    private record ProductInfo(String name, String genericName, Integer categoryId) {}
+
+    /**
+     * Sort key matching the lowest price view: product name (null as empty), then product id.
+     */
+    private record NameKey(String name, int productId) implements Comparable<NameKey> {
+
+        @Override
+        public int compareTo(NameKey other) {
+            int byName = (name != null ? name : "").compareTo(other.name != null ? other.name : "");
+            return byName != 0 ? byName : Integer.compare(productId, other.productId);
+        }
+    }
+}
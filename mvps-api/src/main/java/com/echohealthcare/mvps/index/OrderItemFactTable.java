@@ -0,0 +1,550 @@
+package com.echohealthcare.mvps.index;
+
+import com.echohealthcare.mvps.dto.OrderItemFactRow;
+import com.echohealthcare.mvps.event.OrderItemFact;
+import com.echohealthcare.mvps.event.OrderItemsChangedEvent;
+import com.echohealthcare.mvps.repository.OrderItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Column-oriented, in-memory copy of the order_items facts needed by sales analytics.
+ *
+ * Each order item is one row spread over primitive arrays (product slot, vendor slot, epoch day,
+ * quantity, line total in cents). Product and vendor ids are dictionary-encoded into dense slots so
+ * aggregations accumulate into plain arrays. The table is loaded once from the database and then kept
+ * current from {@link OrderItemsChangedEvent}s after their transactions commit.
+ *
+ * Writers are serialized on a lock; readers never lock and scan the last published {@link Snapshot}.
+ * Published column entries are never written again: new rows go past the published size, and edits and
+ * deletes mark the old row in a removed bitset (appending a new row for edits). The bitset is split into
+ * one block per {@code CHUNK_SIZE} rows and a block is copied before its first change after a publish, so
+ * a snapshot's bits stay as they were too. Once a quarter of the rows are removed the columns are rebuilt
+ * without them into new arrays. The writer finds the row of an order item through an open-addressing
+ * int map rather than scanning, so bulk edits stay linear.
+ *
+ * Events that commit while the initial load runs are buffered and replayed after it. The buffer holds at
+ * most {@code MAX_PENDING_EVENTS}; past that it is dropped and the load is repeated, since the repeat
+ * reads those writes from the database. Events arriving while no load runs are not buffered at all.
+ */
+@Component
+public class OrderItemFactTable {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderItemFactTable.class);
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_WORDS = CHUNK_SIZE / Long.SIZE;
+    private static final int COMPACT_MIN_REMOVED = 1 << 12;
+    private static final int REMOVED = -1;
+    private static final int MAX_PENDING_EVENTS = 10_000;
+
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Object loadLock = new Object();
+    private final Object writeLock = new Object();
+
+    // Columns and dictionaries below are guarded by writeLock.
+    private int[] itemIds = new int[INITIAL_CAPACITY];
+    private int[] productSlots = new int[INITIAL_CAPACITY];
+    private int[] vendorSlots = new int[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] lineTotalCents = new long[INITIAL_CAPACITY];
+    private int size;
+    // One bit per row, one block per chunk of rows; a null block has no removed rows.
+    private long[][] removed = new long[1][];
+    // Blocks of removed copied since the last publish, which the writer may change in place.
+    private final BitSet ownedChunks = new BitSet();
+    private int removedCount;
+    private final RowIndex rowByItemId = new RowIndex();
+    private final Dictionary products = new Dictionary();
+    private final Dictionary vendors = new Dictionary();
+    private final List<OrderItemsChangedEvent> pendingEvents = new ArrayList<>();
+    private boolean loading;
+    private boolean pendingOverflowed;
+
+    private volatile boolean loaded;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public OrderItemFactTable(OrderItemRepository orderItemRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.orderItemRepository = orderItemRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::ensureLoaded, "order-item-fact-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderItemsChanged(OrderItemsChangedEvent event) {
+        synchronized (writeLock) {
+            if (!loaded) {
+                if (!loading) {
+                    // The next load reads this write from the database.
+                    return;
+                }
+                if (pendingEvents.size() >= MAX_PENDING_EVENTS) {
+                    pendingEvents.clear();
+                    pendingOverflowed = true;
+                } else if (!pendingOverflowed) {
+                    // Replayed once the initial load finishes; replay is idempotent.
+                    pendingEvents.add(event);
+                }
+                return;
+            }
+            apply(event, false);
+            compactIfSparse();
+            publish();
+        }
+    }
+
+    /**
+     * Per-product totals for orders dated within [fromDate, toDate]; either bound may be null.
+     */
+    public Totals totalsByProduct(LocalDate fromDate, LocalDate toDate) {
+        ensureLoaded();
+        Snapshot s = snapshot;
+        return totals(s, s.productSlots(), s.productIds(), s.productCount(), fromDate, toDate);
+    }
+
+    /**
+     * Per-vendor totals for orders dated within [fromDate, toDate]; either bound may be null.
+     */
+    public Totals totalsByVendor(LocalDate fromDate, LocalDate toDate) {
+        ensureLoaded();
+        Snapshot s = snapshot;
+        return totals(s, s.vendorSlots(), s.vendorIds(), s.vendorCount(), fromDate, toDate);
+    }
+
+    private Totals totals(Snapshot s, int[] keys, int[] ids, int slotCount, LocalDate fromDate, LocalDate toDate) {
+        int lo = fromDate != null ? (int) fromDate.toEpochDay() : OrderItemFact.NO_DAY + 1;
+        int hi = toDate != null ? (int) toDate.toEpochDay() : Integer.MAX_VALUE;
+
+        Accumulator result;
+        if (s.size() < PARALLEL_THRESHOLD) {
+            result = accumulate(s, keys, slotCount, lo, hi, 0, s.size());
+        } else {
+            int chunks = (s.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            result = IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(c -> accumulate(s, keys, slotCount, lo, hi, c * CHUNK_SIZE,
+                            Math.min(s.size(), (c + 1) * CHUNK_SIZE)))
+                    .reduce(Accumulator::merge)
+                    .orElseGet(() -> new Accumulator(slotCount));
+        }
+        return new Totals(ids, slotCount, result.units, result.cents, result.lines);
+    }
+
+    private static Accumulator accumulate(Snapshot s, int[] keys, int slotCount, int lo, int hi, int start, int end) {
+        Accumulator acc = new Accumulator(slotCount);
+        int[] days = s.epochDays();
+        int[] qty = s.quantities();
+        long[] cents = s.lineTotalCents();
+        for (int chunkStart = start; chunkStart < end; ) {
+            int chunk = chunkStart >>> CHUNK_SHIFT;
+            int chunkEnd = Math.min(end, (chunk + 1) << CHUNK_SHIFT);
+            long[] removedBits = s.removed()[chunk];
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                int day = days[i];
+                if (day < lo || day > hi) {
+                    continue;
+                }
+                int slot = keys[i];
+                if (slot < 0) {
+                    continue;
+                }
+                if (removedBits != null && (removedBits[(i & (CHUNK_SIZE - 1)) >>> 6] & (1L << i)) != 0) {
+                    continue;
+                }
+                acc.units[slot] += qty[i];
+                acc.cents[slot] += cents[i];
+                acc.lines[slot]++;
+            }
+            chunkStart = chunkEnd;
+        }
+        return acc;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            while (!loaded) {
+                synchronized (writeLock) {
+                    loading = true;
+                    pendingOverflowed = false;
+                }
+                try {
+                    readOnlyTransaction.executeWithoutResult(status -> {
+                        try (Stream<OrderItemFactRow> rows = orderItemRepository.streamFactRows()) {
+                            rows.forEach(row -> append(OrderItemFact.of(row.orderItemId(), row.productId(),
+                                    row.vendorId(), row.orderDate(), row.quantity(), row.lineTotal())));
+                        }
+                    });
+                } catch (RuntimeException ex) {
+                    synchronized (writeLock) {
+                        reset();
+                        pendingEvents.clear();
+                        loading = false;
+                    }
+                    log.error("Failed to load order item fact table", ex);
+                    throw ex;
+                }
+
+                synchronized (writeLock) {
+                    if (pendingOverflowed) {
+                        log.warn("More than {} order item changes committed during the load; loading again",
+                                MAX_PENDING_EVENTS);
+                        reset();
+                        pendingEvents.clear();
+                        continue;
+                    }
+                    for (OrderItemsChangedEvent event : pendingEvents) {
+                        apply(event, true);
+                    }
+                    pendingEvents.clear();
+                    loading = false;
+                    loaded = true;
+                    compactIfSparse();
+                    publish();
+                }
+            }
+            log.info("Loaded {} order item facts in {} ms", size, System.currentTimeMillis() - started);
+        }
+    }
+
+    private void apply(OrderItemsChangedEvent event, boolean replay) {
+        for (OrderItemFact fact : event.added()) {
+            if (replay) {
+                remove(fact.orderItemId());
+            }
+            append(fact);
+        }
+        for (OrderItemFact fact : event.updated()) {
+            remove(fact.orderItemId());
+            append(fact);
+        }
+        for (Integer orderItemId : event.removedItemIds()) {
+            remove(orderItemId);
+        }
+    }
+
+    private void append(OrderItemFact fact) {
+        if (size == itemIds.length) {
+            int capacity = itemIds.length * 2;
+            itemIds = Arrays.copyOf(itemIds, capacity);
+            productSlots = Arrays.copyOf(productSlots, capacity);
+            vendorSlots = Arrays.copyOf(vendorSlots, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            lineTotalCents = Arrays.copyOf(lineTotalCents, capacity);
+        }
+        if ((size >>> CHUNK_SHIFT) == removed.length) {
+            removed = Arrays.copyOf(removed, removed.length + 1);
+        }
+        itemIds[size] = fact.orderItemId();
+        rowByItemId.put(fact.orderItemId(), size);
+        productSlots[size] = products.slot(fact.productId());
+        vendorSlots[size] = vendors.slot(fact.vendorId());
+        epochDays[size] = fact.epochDay();
+        quantities[size] = fact.quantity();
+        lineTotalCents[size] = fact.lineTotalCents();
+        size++;
+    }
+
+    private void remove(int orderItemId) {
+        int i = rowByItemId.remove(orderItemId);
+        if (i < 0) {
+            return;
+        }
+        // itemIds is not published; the other columns are and must not change.
+        itemIds[i] = REMOVED;
+        int chunk = i >>> CHUNK_SHIFT;
+        if (!ownedChunks.get(chunk)) {
+            long[] bits = removed[chunk];
+            removed[chunk] = bits != null ? bits.clone() : new long[CHUNK_WORDS];
+            ownedChunks.set(chunk);
+        }
+        removed[chunk][(i & (CHUNK_SIZE - 1)) >>> 6] |= 1L << i;
+        removedCount++;
+    }
+
+    private void compactIfSparse() {
+        if (removedCount < COMPACT_MIN_REMOVED || removedCount < size / 4) {
+            return;
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(size - removedCount, 1)) << 1);
+        int[] liveItemIds = new int[capacity];
+        int[] liveProductSlots = new int[capacity];
+        int[] liveVendorSlots = new int[capacity];
+        int[] liveEpochDays = new int[capacity];
+        int[] liveQuantities = new int[capacity];
+        long[] liveLineTotalCents = new long[capacity];
+        int live = 0;
+        rowByItemId.clear();
+        for (int i = 0; i < size; i++) {
+            if (itemIds[i] == REMOVED) {
+                continue;
+            }
+            rowByItemId.put(itemIds[i], live);
+            liveItemIds[live] = itemIds[i];
+            liveProductSlots[live] = productSlots[i];
+            liveVendorSlots[live] = vendorSlots[i];
+            liveEpochDays[live] = epochDays[i];
+            liveQuantities[live] = quantities[i];
+            liveLineTotalCents[live] = lineTotalCents[i];
+            live++;
+        }
+        itemIds = liveItemIds;
+        productSlots = liveProductSlots;
+        vendorSlots = liveVendorSlots;
+        epochDays = liveEpochDays;
+        quantities = liveQuantities;
+        lineTotalCents = liveLineTotalCents;
+        size = live;
+        removed = new long[(live >>> CHUNK_SHIFT) + 1][];
+        ownedChunks.clear();
+        removedCount = 0;
+    }
+
+    private void reset() {
+        itemIds = new int[INITIAL_CAPACITY];
+        productSlots = new int[INITIAL_CAPACITY];
+        vendorSlots = new int[INITIAL_CAPACITY];
+        epochDays = new int[INITIAL_CAPACITY];
+        quantities = new int[INITIAL_CAPACITY];
+        lineTotalCents = new long[INITIAL_CAPACITY];
+        size = 0;
+        removed = new long[1][];
+        ownedChunks.clear();
+        removedCount = 0;
+        rowByItemId.clear();
+        products.clear();
+        vendors.clear();
+    }
+
+    private void publish() {
+        snapshot = new Snapshot(size, productSlots, vendorSlots, epochDays, quantities, lineTotalCents,
+                removed.clone(), products.ids(), products.count(), vendors.ids(), vendors.count());
+        // The snapshot shares the blocks now; the next change to one copies it first.
+        ownedChunks.clear();
+    }
+
+    /**
+     * Aggregated units, revenue and line counts per dictionary slot.
+     * Only slots with {@code lines(slot) > 0} had matching rows.
+     */
+    public record Totals(int[] ids, int slotCount, long[] units, long[] cents, int[] lines) {
+
+        public int id(int slot) {
+            return ids[slot];
+        }
+
+        public long units(int slot) {
+            return units[slot];
+        }
+
+        public long cents(int slot) {
+            return cents[slot];
+        }
+
+        public int lines(int slot) {
+            return lines[slot];
+        }
+    }
+
+    private record Snapshot(int size,
+                            int[] productSlots,
+                            int[] vendorSlots,
+                            int[] epochDays,
+                            int[] quantities,
+                            long[] lineTotalCents,
+                            long[][] removed,
+                            int[] productIds,
+                            int productCount,
+                            int[] vendorIds,
+                            int vendorCount) {
+
+        static final Snapshot EMPTY = new Snapshot(0, new int[0], new int[0], new int[0], new int[0], new long[0],
+                new long[1][], new int[0], 0, new int[0], 0);
+    }
+
+    private static final class Accumulator {
+        final long[] units;
+        final long[] cents;
+        final int[] lines;
+
+        Accumulator(int slots) {
+            units = new long[slots];
+            cents = new long[slots];
+            lines = new int[slots];
+        }
+
+        Accumulator merge(Accumulator other) {
+            for (int i = 0; i < lines.length; i++) {
+                units[i] += other.units[i];
+                cents[i] += other.cents[i];
+                lines[i] += other.lines[i];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Row of each live order item id: open addressing with linear probing over parallel int arrays, so
+     * lookups neither box nor allocate. Item ids are positive, which leaves 0 free to mark empty cells.
+     */
+    private static final class RowIndex {
+        private static final int EMPTY = 0;
+
+        private int[] keys = new int[INITIAL_CAPACITY * 2];
+        private int[] rows = new int[INITIAL_CAPACITY * 2];
+        private int count;
+
+        void put(int itemId, int row) {
+            if (itemId <= 0) {
+                return;
+            }
+            if ((count + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = hash(itemId) & mask;
+            while (keys[i] != EMPTY && keys[i] != itemId) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                keys[i] = itemId;
+                count++;
+            }
+            rows[i] = row;
+        }
+
+        /**
+         * Removes the item and returns its row, or -1 when it is not indexed.
+         */
+        int remove(int itemId) {
+            if (itemId <= 0) {
+                return -1;
+            }
+            int mask = keys.length - 1;
+            int i = hash(itemId) & mask;
+            while (keys[i] != itemId) {
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+                i = (i + 1) & mask;
+            }
+            int row = rows[i];
+            // Backward-shift deletion keeps every later key of the probe run reachable without tombstones.
+            int hole = i;
+            for (int j = (hole + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    rows[hole] = rows[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = EMPTY;
+            count--;
+            return row;
+        }
+
+        void clear() {
+            keys = new int[INITIAL_CAPACITY * 2];
+            rows = new int[INITIAL_CAPACITY * 2];
+            count = 0;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = new int[oldKeys.length * 2];
+            rows = new int[oldKeys.length * 2];
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldRows[i]);
+                }
+            }
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Maps sparse entity ids to dense slots; ids below zero mean "absent" and map to -1.
+     */
+    private static final class Dictionary {
+        private final Map<Integer, Integer> slotById = new HashMap<>();
+        private int[] idBySlot = new int[64];
+        private int count;
+
+        int slot(int id) {
+            if (id < 0) {
+                return -1;
+            }
+            Integer slot = slotById.get(id);
+            if (slot != null) {
+                return slot;
+            }
+            if (count == idBySlot.length) {
+                idBySlot = Arrays.copyOf(idBySlot, count * 2);
+            }
+            idBySlot[count] = id;
+            slotById.put(id, count);
+            return count++;
+        }
+
+        int[] ids() {
+            return idBySlot;
+        }
+
+        int count() {
+            return count;
+        }
+
+        void clear() {
+            slotById.clear();
+            idBySlot = new int[64];
+            count = 0;
+        }
+    }
+}
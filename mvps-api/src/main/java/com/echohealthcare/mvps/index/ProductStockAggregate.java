@@ -0,0 +1,271 @@
+package com.echohealthcare.mvps.index;
+
+import com.echohealthcare.mvps.dto.ProductSummary;
+import com.echohealthcare.mvps.event.ProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductSnapshot;
+import com.echohealthcare.mvps.repository.ProductRepository;
+import com.echohealthcare.mvps.repository.VendorProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Total stock and number of vendor offers per product, across all vendors.
+ *
+ * Products that have at least one vendor product are kept in two orders: by name, which is the order
+ * of the full inventory report, and by total stock, so out-of-stock and low-stock products for any
+ * threshold are a range of the stock order. Store-wide totals are kept as running sums.
+ *
+ * The aggregate is loaded once from the database and then maintained from vendor product change
+ * events (published by creates, edits, deletes and stock updates alongside their stock movements)
+ * and product change events, after their transactions commit. Each offer remembers the row version
+ * it was applied at, and an older snapshot of it arriving late is ignored rather than undoing the
+ * newer stock in the running totals.
+ */
+@Component
+public class ProductStockAggregate {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStockAggregate.class);
+
+    private static final Comparator<ProductStock> BY_NAME = Comparator
+            .comparing(ProductStock::productName, Comparator.nullsLast(String::compareToIgnoreCase))
+            .thenComparingInt(ProductStock::productId);
+    private static final Comparator<ProductStock> BY_STOCK = Comparator
+            .comparingLong(ProductStock::totalStock)
+            .thenComparingInt(ProductStock::productId);
+
+    private final VendorProductRepository vendorProductRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Object loadLock = new Object();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All state below is guarded by lock.
+    private final Map<Integer, Offer> offers = new HashMap<>();
+    private final Map<Integer, String> productNames = new HashMap<>();
+    private final Map<Integer, ProductStock> byProduct = new HashMap<>();
+    private final NavigableSet<ProductStock> byName = new TreeSet<>(BY_NAME);
+    private final NavigableSet<ProductStock> byStock = new TreeSet<>(BY_STOCK);
+    private long totalStock;
+    private final List<Object> pendingEvents = new ArrayList<>();
+
+    private volatile boolean loaded;
+
+    public ProductStockAggregate(VendorProductRepository vendorProductRepository,
+                                 ProductRepository productRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.vendorProductRepository = vendorProductRepository;
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::ensureLoaded, "product-stock-aggregate-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVendorProductChanged(VendorProductChangedEvent event) {
+        handle(event);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        handle(event);
+    }
+
+    /**
+     * Inventory totals with low stock meaning a total stock above zero and at most {@code lowStockThreshold}.
+     *
+     * @param lowStockOnly list only the low stock products, lowest stock first; otherwise list every
+     *                     product in name order (case-insensitive, nulls last)
+     */
+    public Inventory inventory(int lowStockThreshold, boolean lowStockOnly) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            NavigableSet<ProductStock> lowStock = stockBetween(1, lowStockThreshold);
+            return new Inventory(
+                    byProduct.size(),
+                    totalStock,
+                    lowStock.size(),
+                    stockBetween(0, 0).size(),
+                    List.copyOf(lowStockOnly ? lowStock : byName));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private NavigableSet<ProductStock> stockBetween(long from, long to) {
+        if (from > to) {
+            return new TreeSet<>(BY_STOCK);
+        }
+        return byStock.subSet(new ProductStock(Integer.MIN_VALUE, null, from, 0), true,
+                new ProductStock(Integer.MAX_VALUE, null, to, 0), true);
+    }
+
+    private void handle(Object event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                // Replayed once the initial load finishes; every event carries absolute state.
+                pendingEvents.add(event);
+                return;
+            }
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    List<ProductSummary> products = productRepository.findAllSummaries();
+                    List<VendorProductSnapshot> snapshots = vendorProductRepository.findAllSnapshots();
+                    lock.writeLock().lock();
+                    try {
+                        for (ProductSummary product : products) {
+                            productNames.put(product.productId(), product.productName());
+                        }
+                        snapshots.forEach(this::putOffer);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                lock.writeLock().lock();
+                try {
+                    reset();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.error("Failed to load product stock aggregate", ex);
+                throw ex;
+            }
+
+            lock.writeLock().lock();
+            try {
+                pendingEvents.forEach(this::apply);
+                pendingEvents.clear();
+                loaded = true;
+                log.info("Loaded stock of {} products from {} offers in {} ms",
+                        byProduct.size(), offers.size(), System.currentTimeMillis() - started);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void apply(Object event) {
+        if (event instanceof VendorProductChangedEvent e) {
+            putOffer(e.after());
+        } else if (event instanceof ProductChangedEvent e) {
+            productNames.put(e.productId(), e.productName());
+            ProductStock current = byProduct.get(e.productId());
+            if (current != null) {
+                replace(current, new ProductStock(current.productId(), e.productName(),
+                        current.totalStock(), current.vendorsCarrying()));
+            }
+        }
+    }
+
+    private void putOffer(VendorProductSnapshot snapshot) {
+        Offer previous = offers.get(snapshot.vendorProductId());
+        if (previous != null && snapshot.version() < previous.version()) {
+            // A later write of this row was already applied; its listener simply ran first.
+            return;
+        }
+        offers.remove(snapshot.vendorProductId());
+        if (previous != null) {
+            adjust(previous.productId(), -previous.stock(), -1);
+        }
+        if (snapshot.productId() != null) {
+            offers.put(snapshot.vendorProductId(),
+                    new Offer(snapshot.productId(), snapshot.stockQuantity(), snapshot.version()));
+            adjust(snapshot.productId(), snapshot.stockQuantity(), 1);
+        }
+    }
+
+    private void adjust(int productId, long stockDelta, int vendorsDelta) {
+        ProductStock current = byProduct.get(productId);
+        ProductStock updated = current != null
+                ? new ProductStock(productId, current.productName(),
+                        current.totalStock() + stockDelta, current.vendorsCarrying() + vendorsDelta)
+                : new ProductStock(productId, productNames.get(productId), stockDelta, vendorsDelta);
+        totalStock += stockDelta;
+        replace(current, updated.vendorsCarrying() > 0 ? updated : null);
+    }
+
+    private void replace(ProductStock current, ProductStock updated) {
+        if (current != null) {
+            byProduct.remove(current.productId());
+            byName.remove(current);
+            byStock.remove(current);
+        }
+        if (updated != null) {
+            byProduct.put(updated.productId(), updated);
+            byName.add(updated);
+            byStock.add(updated);
+        }
+    }
+
+    private void reset() {
+        offers.clear();
+        productNames.clear();
+        byProduct.clear();
+        byName.clear();
+        byStock.clear();
+        totalStock = 0;
+    }
+
+    /**
+     * Stock of one product summed over all of its vendor products.
+     */
+    public record ProductStock(int productId, String productName, long totalStock, int vendorsCarrying) {}
+
+    /**
+     * Store-wide inventory totals with the requested product listing.
+     */
+    public record Inventory(
+        int totalProducts,
+        long totalStock,
+        int lowStockProducts,
+        int outOfStockProducts,
+        List<ProductStock> products
+    ) {}
+
+    private record Offer(int productId, int stock, long version) {}
+}
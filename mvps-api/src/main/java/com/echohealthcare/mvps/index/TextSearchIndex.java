@@ -0,0 +1,235 @@
+package com.echohealthcare.mvps.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Small inverted index over a fixed number of weighted text fields per document.
+ *
+ * Field values are lowercased and split into word tokens. Each query token matches a document when it
+ * is a prefix of one of its tokens (through a sorted token dictionary) or, for tokens of three or more
+ * characters, a substring of one (through a trigram index, verified against the token). All query
+ * tokens must match. Hits are scored per query token by the best field match, exact words beating
+ * prefixes beating substrings, times the field weight.
+ */
+public class TextSearchIndex {
+
+    private static final int EXACT = 4;
+    private static final int PREFIX = 3;
+    private static final int SUBSTRING = 1;
+    private static final int GRAM = 3;
+
+    private final int[] fieldWeights;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All state below is guarded by lock.
+    private final Map<Integer, String[][]> documents = new HashMap<>();
+    private final NavigableMap<String, Set<Integer>> tokens = new TreeMap<>();
+    private final Map<String, Set<Integer>> trigrams = new HashMap<>();
+
+    /**
+     * @param fieldWeights relative weight of each indexed field, in the order values are passed to {@link #put}
+     */
+    public TextSearchIndex(int... fieldWeights) {
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Indexes a document, replacing any previous version with the same id.
+     */
+    public void put(int id, String... fieldValues) {
+        String[][] fields = new String[fieldWeights.length][];
+        for (int f = 0; f < fields.length; f++) {
+            fields[f] = tokenize(f < fieldValues.length ? fieldValues[f] : null);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            documents.put(id, fields);
+            for (String[] field : fields) {
+                for (String token : field) {
+                    tokens.computeIfAbsent(token, t -> new HashSet<>()).add(id);
+                    for (String gram : grams(token)) {
+                        trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            tokens.clear();
+            trigrams.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Documents matching every token of the query, best score first (ties by id).
+     * Returns an empty list for a query without tokens.
+     */
+    public List<Hit> search(String query) {
+        String[] queryTokens = tokenize(query);
+        if (queryTokens.length == 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Integer> candidates = null;
+            for (String queryToken : queryTokens) {
+                Set<Integer> matches = candidates(queryToken);
+                if (candidates == null) {
+                    candidates = matches;
+                } else {
+                    candidates.retainAll(matches);
+                }
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(candidates.size());
+            for (Integer id : candidates) {
+                int score = score(documents.get(id), queryTokens);
+                if (score > 0) {
+                    hits.add(new Hit(id, score));
+                }
+            }
+            hits.sort(Comparator.comparingInt(Hit::score).reversed().thenComparingInt(Hit::id));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Integer> candidates(String queryToken) {
+        Set<Integer> result = new HashSet<>();
+        for (Set<Integer> ids : tokens.subMap(queryToken, true, queryToken + Character.MAX_VALUE, true).values()) {
+            result.addAll(ids);
+        }
+        if (queryToken.length() < GRAM) {
+            return result;
+        }
+
+        // Trigram postings give a superset of substring matches; score() verifies them.
+        Set<Integer> bySubstring = null;
+        for (String gram : grams(queryToken)) {
+            Set<Integer> ids = trigrams.get(gram);
+            if (ids == null) {
+                return result;
+            }
+            if (bySubstring == null) {
+                bySubstring = new HashSet<>(ids);
+            } else {
+                bySubstring.retainAll(ids);
+            }
+        }
+        if (bySubstring != null) {
+            result.addAll(bySubstring);
+        }
+        return result;
+    }
+
+    private int score(String[][] fields, String[] queryTokens) {
+        int total = 0;
+        for (String queryToken : queryTokens) {
+            int best = 0;
+            for (int f = 0; f < fields.length; f++) {
+                for (String token : fields[f]) {
+                    int match = token.equals(queryToken) ? EXACT
+                            : token.startsWith(queryToken) ? PREFIX
+                            : token.contains(queryToken) ? SUBSTRING
+                            : 0;
+                    best = Math.max(best, match * fieldWeights[f]);
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private void removeLocked(int id) {
+        String[][] fields = documents.remove(id);
+        if (fields == null) {
+            return;
+        }
+        for (String[] field : fields) {
+            for (String token : field) {
+                unpost(tokens, token, id);
+                for (String gram : grams(token)) {
+                    unpost(trigrams, gram, id);
+                }
+            }
+        }
+    }
+
+    private static void unpost(Map<String, Set<Integer>> postings, String key, int id) {
+        Set<Integer> ids = postings.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    private static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    private static List<String> grams(String token) {
+        if (token.length() < GRAM) {
+            return List.of();
+        }
+        List<String> grams = new ArrayList<>(token.length() - GRAM + 1);
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            grams.add(token.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    public record Hit(int id, int score) {}
+}
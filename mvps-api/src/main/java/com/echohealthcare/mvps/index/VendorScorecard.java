@@ -0,0 +1,303 @@
+package com.echohealthcare.mvps.index;
+
+import com.echohealthcare.mvps.domain.Vendor;
+import com.echohealthcare.mvps.event.VendorChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductSnapshot;
+import com.echohealthcare.mvps.repository.VendorProductRepository;
+import com.echohealthcare.mvps.repository.VendorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Running per-vendor totals behind the vendor performance view.
+ *
+ * Every vendor with at least one vendor product has a card holding its offer count, total stock, the
+ * sum and count of its priced offers, and the number of products on which one of its sellable offers
+ * matches the lowest sellable price (ties count for every vendor at that price). Lowest-price wins are
+ * kept current by comparing the set of vendors at each product's lowest price before and after a change.
+ *
+ * The cards are loaded once from the database and then maintained from vendor product and vendor
+ * change events after their transactions commit. Writers are serialized; readers get an immutable
+ * list that is rebuilt at most once per change. A vendor product snapshot older than the one already
+ * applied for that offer is ignored, since listeners of concurrent commits can run in either order.
+ */
+@Component
+public class VendorScorecard {
+
+    private static final Logger log = LoggerFactory.getLogger(VendorScorecard.class);
+
+    private static final Comparator<VendorScore> BY_NAME = Comparator
+            .comparing(VendorScore::vendorName, Comparator.nullsLast(String::compareToIgnoreCase))
+            .thenComparingInt(VendorScore::vendorId);
+
+    private final VendorProductRepository vendorProductRepository;
+    private final VendorRepository vendorRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Object loadLock = new Object();
+    private final Object writeLock = new Object();
+
+    // All state below is guarded by writeLock.
+    private final Map<Integer, VendorProductSnapshot> offers = new HashMap<>();
+    private final Map<Integer, Card> cards = new HashMap<>();
+    private final Map<Integer, String> vendorNames = new HashMap<>();
+    // Sellable prices of each product, with the number of offers each vendor has at that price.
+    private final Map<Integer, TreeMap<BigDecimal, Map<Integer, Integer>>> pricesByProduct = new HashMap<>();
+    private final List<Object> pendingEvents = new ArrayList<>();
+
+    private volatile boolean loaded;
+    // Null after a change until the next read rebuilds it.
+    private volatile List<VendorScore> published;
+
+    public VendorScorecard(VendorProductRepository vendorProductRepository,
+                           VendorRepository vendorRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.vendorProductRepository = vendorProductRepository;
+        this.vendorRepository = vendorRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::ensureLoaded, "vendor-scorecard-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVendorProductChanged(VendorProductChangedEvent event) {
+        handle(event);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVendorChanged(VendorChangedEvent event) {
+        handle(event);
+    }
+
+    /**
+     * Scorecards of every vendor that has vendor products, ordered by vendor name (case-insensitive, nulls last).
+     */
+    public List<VendorScore> scores() {
+        ensureLoaded();
+        List<VendorScore> scores = published;
+        if (scores != null) {
+            return scores;
+        }
+        synchronized (writeLock) {
+            if (published == null) {
+                List<VendorScore> rebuilt = new ArrayList<>(cards.size());
+                cards.forEach((vendorId, card) -> rebuilt.add(card.score(vendorId, vendorNames.get(vendorId))));
+                rebuilt.sort(BY_NAME);
+                published = List.copyOf(rebuilt);
+            }
+            return published;
+        }
+    }
+
+    private void handle(Object event) {
+        synchronized (writeLock) {
+            if (!loaded) {
+                // Replayed once the initial load finishes; every event carries absolute state.
+                pendingEvents.add(event);
+                return;
+            }
+            apply(event);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    List<Vendor> vendors = vendorRepository.findAll();
+                    List<VendorProductSnapshot> snapshots = vendorProductRepository.findAllSnapshots();
+                    synchronized (writeLock) {
+                        for (Vendor vendor : vendors) {
+                            putVendorName(vendor.getId(), vendor.getName());
+                        }
+                        snapshots.forEach(this::putOffer);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                synchronized (writeLock) {
+                    reset();
+                }
+                log.error("Failed to load vendor scorecards", ex);
+                throw ex;
+            }
+
+            synchronized (writeLock) {
+                pendingEvents.forEach(this::apply);
+                pendingEvents.clear();
+                published = null;
+                loaded = true;
+            }
+            log.info("Loaded vendor scorecards for {} vendors from {} offers in {} ms",
+                    cards.size(), offers.size(), System.currentTimeMillis() - started);
+        }
+    }
+
+    private void apply(Object event) {
+        if (event instanceof VendorProductChangedEvent e) {
+            putOffer(e.after());
+        } else if (event instanceof VendorChangedEvent e) {
+            putVendorName(e.vendorId(), e.vendorName());
+        }
+        published = null;
+    }
+
+    private void putVendorName(Integer vendorId, String name) {
+        if (name != null) {
+            vendorNames.put(vendorId, name);
+        } else {
+            vendorNames.remove(vendorId);
+        }
+    }
+
+    private void putOffer(VendorProductSnapshot snapshot) {
+        VendorProductSnapshot previous = offers.get(snapshot.vendorProductId());
+        if (previous != null && snapshot.version() < previous.version()) {
+            // A later write of this row was already applied; its listener simply ran first.
+            return;
+        }
+        offers.remove(snapshot.vendorProductId());
+        if (previous != null) {
+            retract(previous);
+        }
+        if (snapshot.vendorId() == null || snapshot.productId() == null) {
+            return;
+        }
+        offers.put(snapshot.vendorProductId(), snapshot);
+
+        Card card = cards.computeIfAbsent(snapshot.vendorId(), id -> new Card());
+        card.products++;
+        card.stock += snapshot.stockQuantity();
+        if (snapshot.finalPrice() != null) {
+            card.priceCents += cents(snapshot.finalPrice());
+            card.priced++;
+        }
+        if (snapshot.sellable()) {
+            Set<Integer> before = lowestHolders(snapshot.productId());
+            pricesByProduct.computeIfAbsent(snapshot.productId(), id -> new TreeMap<>())
+                    .computeIfAbsent(snapshot.finalPrice(), price -> new HashMap<>())
+                    .merge(snapshot.vendorId(), 1, Integer::sum);
+            creditWins(before, lowestHolders(snapshot.productId()));
+        }
+    }
+
+    private void retract(VendorProductSnapshot snapshot) {
+        if (snapshot.sellable()) {
+            Set<Integer> before = lowestHolders(snapshot.productId());
+            TreeMap<BigDecimal, Map<Integer, Integer>> prices = pricesByProduct.get(snapshot.productId());
+            Map<Integer, Integer> holders = prices.get(snapshot.finalPrice());
+            if (holders.merge(snapshot.vendorId(), -1, Integer::sum) == 0) {
+                holders.remove(snapshot.vendorId());
+                if (holders.isEmpty()) {
+                    prices.remove(snapshot.finalPrice());
+                    if (prices.isEmpty()) {
+                        pricesByProduct.remove(snapshot.productId());
+                    }
+                }
+            }
+            creditWins(before, lowestHolders(snapshot.productId()));
+        }
+
+        Card card = cards.get(snapshot.vendorId());
+        card.products--;
+        card.stock -= snapshot.stockQuantity();
+        if (snapshot.finalPrice() != null) {
+            card.priceCents -= cents(snapshot.finalPrice());
+            card.priced--;
+        }
+        if (card.products == 0) {
+            cards.remove(snapshot.vendorId());
+        }
+    }
+
+    private Set<Integer> lowestHolders(Integer productId) {
+        TreeMap<BigDecimal, Map<Integer, Integer>> prices = pricesByProduct.get(productId);
+        return prices != null ? Set.copyOf(prices.firstEntry().getValue().keySet()) : Set.of();
+    }
+
+    private void creditWins(Set<Integer> before, Set<Integer> after) {
+        for (Integer vendorId : before) {
+            if (!after.contains(vendorId)) {
+                cards.get(vendorId).wins--;
+            }
+        }
+        for (Integer vendorId : after) {
+            if (!before.contains(vendorId)) {
+                cards.get(vendorId).wins++;
+            }
+        }
+    }
+
+    private static long cents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private void reset() {
+        offers.clear();
+        cards.clear();
+        vendorNames.clear();
+        pricesByProduct.clear();
+        published = null;
+    }
+
+    /**
+     * Performance figures of one vendor. {@code avgPrice} is the mean final price of its priced
+     * offers (scale 2, half up), or null when none is priced.
+     */
+    public record VendorScore(
+        int vendorId,
+        String vendorName,
+        int totalProducts,
+        int totalStock,
+        BigDecimal avgPrice,
+        int lowestPriceWins
+    ) {}
+
+    private static final class Card {
+        int products;
+        long stock;
+        long priceCents;
+        int priced;
+        int wins;
+
+        VendorScore score(int vendorId, String vendorName) {
+            BigDecimal avgPrice = priced > 0
+                    ? BigDecimal.valueOf(priceCents, 2).divide(BigDecimal.valueOf(priced), 2, RoundingMode.HALF_UP)
+                    : null;
+            return new VendorScore(vendorId, vendorName, products, Math.toIntExact(stock), avgPrice, wins);
+        }
+    }
+}
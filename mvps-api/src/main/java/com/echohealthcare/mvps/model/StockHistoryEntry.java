@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 public class StockHistoryEntry {
 
+    private Integer movementId;
     private Integer vendorProductId;
     private Integer productId;
     private String productName;
@@ -15,6 +16,14 @@ public class StockHistoryEntry {
     private Integer changeAmount;
     private LocalDateTime changedAt;
 
+    public Integer getMovementId() {
+        return movementId;
+    }
+
+    public void setMovementId(Integer movementId) {
+        this.movementId = movementId;
+    }
+
     public Integer getVendorProductId() {
         return vendorProductId;
     }
@@ -0,0 +1,37 @@
+package com.echohealthcare.mvps.repository;
+
+import com.echohealthcare.mvps.domain.CustomerOrderSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface CustomerOrderSummaryRepository extends JpaRepository<CustomerOrderSummary, Integer> {
+
+    /**
+     * Adds the given deltas to the customer's summary row, creating the row on first use, and moves
+     * last_order_date forward when {@code orderDate} is later. Runs as a single upsert so folds
+     * running on several nodes at once never lose an increment.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO customer_order_summary " +
+                   "(customer_id, order_count, revenue, cancelled_count, cancelled_revenue, last_order_date) " +
+                   "VALUES (:customerId, :orderCount, :revenue, :cancelledCount, :cancelledRevenue, :orderDate) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "order_count = order_count + VALUES(order_count), " +
+                   "revenue = revenue + VALUES(revenue), " +
+                   "cancelled_count = cancelled_count + VALUES(cancelled_count), " +
+                   "cancelled_revenue = cancelled_revenue + VALUES(cancelled_revenue), " +
+                   "last_order_date = GREATEST(COALESCE(last_order_date, VALUES(last_order_date)), " +
+                   "COALESCE(VALUES(last_order_date), last_order_date))",
+           nativeQuery = true)
+    int applyDelta(@Param("customerId") Integer customerId,
+                   @Param("orderCount") int orderCount,
+                   @Param("revenue") BigDecimal revenue,
+                   @Param("cancelledCount") int cancelledCount,
+                   @Param("cancelledRevenue") BigDecimal cancelledRevenue,
+                   @Param("orderDate") LocalDate orderDate);
+}
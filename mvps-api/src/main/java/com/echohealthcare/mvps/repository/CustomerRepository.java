@@ -1,60 +1,43 @@
 package com.echohealthcare.mvps.repository;
 
 import com.echohealthcare.mvps.domain.Customer;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
-import java.util.List;
+import java.util.Locale;
 
-public interface CustomerRepository extends JpaRepository<Customer, Integer> {
-
-    @Query("SELECT c FROM Customer c " +
-           "WHERE (:customerType IS NULL OR c.customerType = :customerType) " +
-           "AND (:isActive IS NULL OR c.active = :isActive) " +
-           "AND (:city IS NULL OR LOWER(c.city) = LOWER(:city)) " +
-           "AND (:search IS NULL OR " +
-           "     LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "     LOWER(c.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "     c.phone LIKE CONCAT('%', :search, '%'))")
-    Page<Customer> search(
-        @Param("customerType") String customerType,
-        @Param("isActive") Boolean isActive,
-        @Param("city") String city,
-        @Param("search") String search,
-        Pageable pageable
-    );
+public interface CustomerRepository extends JpaRepository<Customer, Integer>, FilterQueryRepository<Customer> {
 
     /**
-     * Cursor-based pagination query for customers.
-     * Fetches customers with ID greater than the cursor, maintaining all filter conditions.
-     *
-     * @param cursor the cursor (customer ID) from which to start fetching (null for first page)
-     * @param customerType optional customer type filter
-     * @param isActive optional active status filter
-     * @param city optional city filter
-     * @param search optional search term (matches name, email, or phone)
-     * @param pageable pagination information (size and sort)
-     * @return list of customers matching the criteria
+     * Customer filters; {@code search} matches name, email or phone as a case-insensitive substring.
+     * City is compared directly (the column collation is case-insensitive) so idx_customer_city applies.
      */
-    @Query("SELECT c FROM Customer c " +
-           "WHERE (:cursor IS NULL OR c.id > :cursor) " +
-           "AND (:customerType IS NULL OR c.customerType = :customerType) " +
-           "AND (:isActive IS NULL OR c.active = :isActive) " +
-           "AND (:city IS NULL OR LOWER(c.city) = LOWER(:city)) " +
-           "AND (:search IS NULL OR " +
-           "     LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "     LOWER(c.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "     c.phone LIKE CONCAT('%', :search, '%')) " +
-           "ORDER BY c.id ASC")
-    List<Customer> searchByCursor(
-        @Param("cursor") Integer cursor,
-        @Param("customerType") String customerType,
-        @Param("isActive") Boolean isActive,
-        @Param("city") String city,
-        @Param("search") String search,
-        Pageable pageable
-    );
+    default FilterQuery<Customer> filter(String customerType,
+                                         Boolean isActive,
+                                         String city,
+                                         String search) {
+        String pattern = search != null ? "%" + search.toLowerCase(Locale.ROOT) + "%" : null;
+        return FilterQuery.from(Customer.class, "c")
+                .where("c.customerType = :customerType", "customerType", customerType)
+                .where("c.active = :isActive", "isActive", isActive)
+                .where("c.city = :city", "city", city)
+                .where("(lower(c.name) like :search or lower(c.email) like :search or c.phone like :search)",
+                        "search", pattern);
+    }
+
+    default Slice<Customer> search(String customerType,
+                                   Boolean isActive,
+                                   String city,
+                                   String search,
+                                   Pageable pageable) {
+        return slice(filter(customerType, isActive, city, search), pageable);
+    }
+
+    default long countSearch(String customerType,
+                             Boolean isActive,
+                             String city,
+                             String search) {
+        return count(filter(customerType, isActive, city, search));
+    }
 }
@@ -0,0 +1,38 @@
+package com.echohealthcare.mvps.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Loads entities by id through the persistence context and the second-level cache.
+ *
+ * Unlike {@code findAllById}, which always runs a query, ids already in the session or in the entity's
+ * cache region are served from memory and only the rest are read, in one {@code in} query.
+ */
+@Component
+public class EntityLookup {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * The entities with the given ids, in id order of the argument; missing ids are skipped.
+     */
+    public <T> List<T> findAllById(Class<T> type, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<T> found = entityManager.unwrap(Session.class)
+                .byMultipleIds(type)
+                .enableSessionCheck(true)
+                .multiLoad(new ArrayList<>(ids));
+        return found.stream().filter(Objects::nonNull).toList();
+    }
+}
@@ -0,0 +1,120 @@
+package com.echohealthcare.mvps.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filter part of a dynamic JPQL query over one entity.
+ *
+ * Replaces the {@code (:x is null or col = :x)} idiom: a clause is only emitted when its value is
+ * present, so MySQL plans a plain conjunction and can pick the matching composite index. The present
+ * clauses (not their values) form the query shape; repositories cache rendered JPQL per shape, and the
+ * identical JPQL text also lets Hibernate reuse its query plan.
+ *
+ * @param <T> the entity being queried
+ */
+public final class FilterQuery<T> {
+
+    private final Class<T> entityClass;
+    private final String alias;
+    private final List<String> fetches = new ArrayList<>();
+    private final List<String> clauses = new ArrayList<>();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    private FilterQuery(Class<T> entityClass, String alias) {
+        this.entityClass = entityClass;
+        this.alias = alias;
+    }
+
+    public static <T> FilterQuery<T> from(Class<T> entityClass, String alias) {
+        return new FilterQuery<>(entityClass, alias);
+    }
+
+    /**
+     * Fetch-joins an association into selected rows, e.g. {@code "m.vendorProduct vp"}; the join alias may be
+     * used in filter clauses. Count queries join the same path without fetching it.
+     */
+    public FilterQuery<T> fetch(String association) {
+        fetches.add(association);
+        return this;
+    }
+
+    /**
+     * Adds a filter clause bound to one named parameter; skipped when the value is null.
+     */
+    public FilterQuery<T> where(String clause, String parameter, Object value) {
+        if (value != null) {
+            clauses.add(clause);
+            parameters.put(parameter, value);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a filter clause without parameters.
+     */
+    public FilterQuery<T> where(String clause) {
+        clauses.add(clause);
+        return this;
+    }
+
+    public Class<T> entityClass() {
+        return entityClass;
+    }
+
+    public String alias() {
+        return alias;
+    }
+
+    /**
+     * Fetch-joined associations, in call order.
+     */
+    public List<String> fetches() {
+        return Collections.unmodifiableList(fetches);
+    }
+
+    /**
+     * The emitted clauses, in call order; together with the entity and fetches this identifies the query shape.
+     */
+    public List<String> clauses() {
+        return Collections.unmodifiableList(clauses);
+    }
+
+    public Map<String, Object> parameters() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * {@code select <alias> from <Entity> <alias> [join fetch ...] [where ...]}, without ordering.
+     */
+    public String selectJpql() {
+        return render("select " + alias, " join fetch ", clauses);
+    }
+
+    /**
+     * {@code select <selection> from <Entity> <alias> [join ...] [where ...] group by <groupBy>}, for aggregate
+     * projections; associations are joined without fetching.
+     */
+    public String aggregateJpql(String selection, String groupBy) {
+        return render("select " + selection, " join ", clauses) + " group by " + groupBy;
+    }
+
+    public String countJpql() {
+        return render("select count(" + alias + ")", " join ", clauses);
+    }
+
+    String render(String select, String join, List<String> predicates) {
+        StringBuilder jpql = new StringBuilder(select)
+                .append(" from ").append(entityClass.getSimpleName()).append(' ').append(alias);
+        for (String association : fetches) {
+            jpql.append(join).append(association);
+        }
+        if (!predicates.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", predicates));
+        }
+        return jpql.toString();
+    }
+}
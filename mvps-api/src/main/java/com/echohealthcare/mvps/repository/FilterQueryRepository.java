@@ -0,0 +1,54 @@
+package com.echohealthcare.mvps.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Repository fragment that runs {@link FilterQuery} and {@link KeysetQuery} queries.
+ *
+ * @param <T> the entity being queried
+ */
+public interface FilterQueryRepository<T> {
+
+    List<T> list(FilterQuery<T> query);
+
+    /**
+     * One offset page without a count query; reads one extra row to tell whether more exist.
+     */
+    Slice<T> slice(FilterQuery<T> query, Pageable pageable);
+
+    /**
+     * One offset page with its total; the count query is skipped when the page itself reveals the total.
+     */
+    Page<T> page(FilterQuery<T> query, Pageable pageable);
+
+    long count(FilterQuery<T> query);
+
+    /**
+     * Streams {@code selection} (typically a constructor expression over aggregates) grouped by {@code groupBy}.
+     * Rows are streamed forward-only (MySQL row streaming); the stream must be consumed inside a transaction
+     * and closed.
+     *
+     * The query runs with a fetch size of {@code Integer.MIN_VALUE}, the only setting with which MySQL
+     * Connector/J hands out rows one at a time instead of reading the whole result into memory. Until the
+     * stream is read to the end or closed, the transaction's connection is tied to it: no other statement
+     * may run on that connection (Connector/J rejects it), and the connection is not returned to the pool.
+     * Callers should read the stream straight through without issuing other queries and close it promptly.
+     */
+    <R> Stream<R> aggregate(FilterQuery<T> query, String selection, String groupBy, Class<R> resultType);
+
+    /**
+     * Rows of one keyset page, always in the sort's forward order, with at most {@code query.limit()} rows.
+     */
+    List<T> seek(KeysetQuery<T> query);
+
+    /**
+     * Like {@link #seek(KeysetQuery)}, but reads {@code selection} (a JPQL select list, typically a
+     * constructor expression) instead of whole entities.
+     */
+    <R> List<R> seek(KeysetQuery<T> query, String selection, Class<R> resultType);
+}
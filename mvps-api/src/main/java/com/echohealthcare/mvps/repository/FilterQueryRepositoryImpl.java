@@ -0,0 +1,128 @@
+package com.echohealthcare.mvps.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class FilterQueryRepositoryImpl<T> implements FilterQueryRepository<T> {
+
+    // Rendered JPQL per query shape; bounded by the number of filter combinations the services use.
+    private static final Map<Shape, String> JPQL_BY_SHAPE = new ConcurrentHashMap<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<T> list(FilterQuery<T> query) {
+        return select(query, Sort.unsorted()).getResultList();
+    }
+
+    @Override
+    public Slice<T> slice(FilterQuery<T> query, Pageable pageable) {
+        TypedQuery<T> typedQuery = select(query, pageable.getSort());
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize() + 1);
+        }
+        List<T> rows = typedQuery.getResultList();
+        boolean hasNext = pageable.isPaged() && rows.size() > pageable.getPageSize();
+        List<T> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public Page<T> page(FilterQuery<T> query, Pageable pageable) {
+        TypedQuery<T> typedQuery = select(query, pageable.getSort());
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(query));
+    }
+
+    @Override
+    public long count(FilterQuery<T> query) {
+        String jpql = jpql(query, "count", query::countJpql);
+        TypedQuery<Long> typedQuery = entityManager.createQuery(jpql, Long.class);
+        query.parameters().forEach(typedQuery::setParameter);
+        return typedQuery.getSingleResult();
+    }
+
+    @Override
+    public <R> Stream<R> aggregate(FilterQuery<T> query, String selection, String groupBy, Class<R> resultType) {
+        String jpql = jpql(query, selection + " group by " + groupBy, () -> query.aggregateJpql(selection, groupBy));
+        TypedQuery<R> typedQuery = entityManager.createQuery(jpql, resultType);
+        query.parameters().forEach(typedQuery::setParameter);
+        // Connector/J only streams row by row with this fetch size; otherwise it buffers the whole result.
+        typedQuery.setHint(HibernateHints.HINT_FETCH_SIZE, Integer.MIN_VALUE);
+        return typedQuery.getResultStream();
+    }
+
+    @Override
+    public List<T> seek(KeysetQuery<T> query) {
+        return seek(query, entityManager.createQuery(query.jpql(), query.filters().entityClass()));
+    }
+
+    @Override
+    public <R> List<R> seek(KeysetQuery<T> query, String selection, Class<R> resultType) {
+        return seek(query, entityManager.createQuery(query.jpql(selection), resultType));
+    }
+
+    private static <R> List<R> seek(KeysetQuery<?> query, TypedQuery<R> typedQuery) {
+        query.parameters().forEach(typedQuery::setParameter);
+        if (query.limit() > 0) {
+            typedQuery.setMaxResults(query.limit());
+        }
+
+        List<R> rows = typedQuery.getResultList();
+        if (!query.backward()) {
+            return rows;
+        }
+        // Backward pages are read in reverse index order; flip them back for the client.
+        List<R> forward = new ArrayList<>(rows);
+        Collections.reverse(forward);
+        return forward;
+    }
+
+    private TypedQuery<T> select(FilterQuery<T> query, Sort sort) {
+        String orderBy = orderBy(query.alias(), sort);
+        String jpql = jpql(query, orderBy, () -> query.selectJpql() + orderBy);
+        TypedQuery<T> typedQuery = entityManager.createQuery(jpql, query.entityClass());
+        query.parameters().forEach(typedQuery::setParameter);
+        return typedQuery;
+    }
+
+    private static String jpql(FilterQuery<?> query, String variant, Supplier<String> renderer) {
+        Shape shape = new Shape(query.entityClass(), query.alias(), List.copyOf(query.fetches()),
+                List.copyOf(query.clauses()), variant);
+        return JPQL_BY_SHAPE.computeIfAbsent(shape, s -> renderer.get());
+    }
+
+    private static String orderBy(String alias, Sort sort) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        List<String> parts = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            parts.add(alias + "." + order.getProperty() + (order.isAscending() ? " asc" : " desc"));
+        }
+        return " order by " + String.join(", ", parts);
+    }
+
+    private record Shape(Class<?> entityClass, String alias, List<String> fetches, List<String> clauses, String variant) {}
+}
@@ -0,0 +1,125 @@
+package com.echohealthcare.mvps.repository;
+
+import com.echohealthcare.mvps.util.KeysetCursor;
+import com.echohealthcare.mvps.util.KeysetSort;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset (seek) page query: a {@link FilterQuery} plus sort order, cursor and limit.
+ *
+ * The page boundary is expressed as a row-value comparison on the sort columns, expanded to
+ * {@code c0 >= :k0 and (c0 > :k0 or (c0 = :k0 and c1 > :k1))} because JPQL has no tuple comparison;
+ * the leading {@code c0 >= :k0} keeps it a range scan on the index.
+ *
+ * @param <T> the entity being paged
+ */
+public final class KeysetQuery<T> {
+
+    private final FilterQuery<T> filters;
+    private KeysetSort<?> sort;
+    private KeysetCursor cursor;
+    private int limit;
+
+    private KeysetQuery(FilterQuery<T> filters) {
+        this.filters = filters;
+    }
+
+    public static <T> KeysetQuery<T> of(FilterQuery<T> filters) {
+        return new KeysetQuery<>(filters);
+    }
+
+    /**
+     * Sort order; only its column paths are used, so a sort over a projection of {@code T} works too.
+     */
+    public KeysetQuery<T> orderBy(KeysetSort<?> sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    /**
+     * Starts the page after (or, for a backward cursor, before) the cursor row; null starts at the beginning.
+     */
+    public KeysetQuery<T> after(KeysetCursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public KeysetQuery<T> limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public FilterQuery<T> filters() {
+        return filters;
+    }
+
+    public boolean backward() {
+        return cursor != null && cursor.backward();
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Named parameters for {@link #jpql()}, including the cursor key values.
+     */
+    public Map<String, Object> parameters() {
+        Map<String, Object> all = new LinkedHashMap<>(filters.parameters());
+        if (cursor != null) {
+            for (int i = 0; i < cursor.values().size(); i++) {
+                all.put("k" + i, cursor.values().get(i));
+            }
+        }
+        return all;
+    }
+
+    public String jpql() {
+        return render("select " + filters.alias(), " join fetch ");
+    }
+
+    /**
+     * The same page selecting {@code selection}, e.g. a constructor expression, instead of the entity;
+     * fetch associations are joined without fetching.
+     */
+    public String jpql(String selection) {
+        return render("select " + selection, " join ");
+    }
+
+    private String render(String select, String join) {
+        if (sort == null) {
+            throw new IllegalStateException("Keyset query needs a sort order");
+        }
+        List<String> predicates = new ArrayList<>(filters.clauses());
+        if (cursor != null) {
+            predicates.add(seekPredicate(cursor.backward()));
+        }
+        return filters.render(select, join, predicates) + " order by " + sort.orderBy(backward());
+    }
+
+    private String seekPredicate(boolean reversed) {
+        List<? extends KeysetSort.Column<?>> columns = sort.columns();
+        List<String> alternatives = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            StringBuilder alternative = new StringBuilder();
+            for (int j = 0; j < i; j++) {
+                alternative.append(columns.get(j).path()).append(" = :k").append(j).append(" and ");
+            }
+            alternative.append(columns.get(i).path()).append(' ').append(operator(columns.get(i), reversed))
+                    .append(" :k").append(i);
+            alternatives.add("(" + alternative + ")");
+        }
+
+        KeysetSort.Column<?> leading = columns.get(0);
+        String bound = leading.path() + " " + operator(leading, reversed) + "= :k0";
+        return "(" + bound + " and (" + String.join(" or ", alternatives) + "))";
+    }
+
+    private static String operator(KeysetSort.Column<?> column, boolean reversed) {
+        return column.descending() != reversed ? "<" : ">";
+    }
+}
@@ -0,0 +1,41 @@
+package com.echohealthcare.mvps.repository;
+
+import com.echohealthcare.mvps.domain.NodeLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Heartbeats are compared with the database clock, so the instances' own clocks need not agree.
+ */
+public interface NodeLeaseRepository extends JpaRepository<NodeLease, Integer> {
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO node_leases (node_id, instance_id, heartbeat_at) VALUES (:nodeId, :instanceId, NOW(6))",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("nodeId") int nodeId, @Param("instanceId") String instanceId);
+
+    /**
+     * Takes the lease when this instance already holds it or its holder's heartbeat is older than
+     * {@code ttlSeconds}. Returns 0 when another instance holds it.
+     */
+    @Modifying
+    @Query(value = "UPDATE node_leases SET instance_id = :instanceId, heartbeat_at = NOW(6) "
+                 + "WHERE node_id = :nodeId AND (instance_id = :instanceId OR heartbeat_at < NOW(6) - INTERVAL :ttlSeconds SECOND)",
+           nativeQuery = true)
+    int claim(@Param("nodeId") int nodeId, @Param("instanceId") String instanceId, @Param("ttlSeconds") int ttlSeconds);
+
+    /**
+     * Renews the heartbeat of a lease this instance holds. Returns 0 when another instance has taken it over.
+     */
+    @Modifying
+    @Query(value = "UPDATE node_leases SET heartbeat_at = NOW(6) WHERE node_id = :nodeId AND instance_id = :instanceId",
+           nativeQuery = true)
+    int renew(@Param("nodeId") int nodeId, @Param("instanceId") String instanceId);
+
+    @Modifying
+    @Query(value = "DELETE FROM node_leases WHERE node_id = :nodeId AND instance_id = :instanceId",
+           nativeQuery = true)
+    int release(@Param("nodeId") int nodeId, @Param("instanceId") String instanceId);
+}
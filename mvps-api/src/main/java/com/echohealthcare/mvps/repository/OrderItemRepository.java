@@ -1,19 +1,32 @@
 package com.echohealthcare.mvps.repository;
 
 import com.echohealthcare.mvps.domain.OrderItem;
+import com.echohealthcare.mvps.dto.OrderItemFactRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
+public interface OrderItemRepository extends JpaRepository<OrderItem, Integer>, FilterQueryRepository<OrderItem> {
 
-    @Query("select oi from OrderItem oi " +
-	    "where (:orderId is null or oi.order.id = :orderId) " +
-	    "and (:vendorId is null or oi.vendor.id = :vendorId) " +
-	    "and (:productId is null or oi.product.id = :productId)")
-    List<OrderItem> search(@Param("orderId") Integer orderId,
-			      @Param("vendorId") Integer vendorId,
-			      @Param("productId") Integer productId);
+    default List<OrderItem> search(Integer orderId, Integer vendorId, Integer productId) {
+        return list(FilterQuery.from(OrderItem.class, "oi")
+                .where("oi.order.id = :orderId", "orderId", orderId)
+                .where("oi.vendor.id = :vendorId", "vendorId", vendorId)
+                .where("oi.product.id = :productId", "productId", productId));
+    }
+
+    /**
+     * Streams every order item as a scalar row (no entity hydration) in id order.
+     * Used to build the in-memory fact table; must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select new com.echohealthcare.mvps.dto.OrderItemFactRow(oi.id, oi.product.id, oi.vendor.id, o.orderDate, oi.quantity, oi.lineTotal) " +
+           "from OrderItem oi join oi.order o " +
+           "order by oi.id")
+    Stream<OrderItemFactRow> streamFactRows();
 }
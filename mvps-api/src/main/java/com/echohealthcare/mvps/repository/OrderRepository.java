@@ -1,61 +1,89 @@
 package com.echohealthcare.mvps.repository;
 
 import com.echohealthcare.mvps.domain.Order;
-import org.springframework.data.domain.Page;
+import com.echohealthcare.mvps.dto.CustomerOrderRow;
+import com.echohealthcare.mvps.dto.CustomerSpend;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface OrderRepository extends JpaRepository<Order, Integer> {
-
-    @Query("select o from Order o " +
-           "where (:customerId is null or o.customer.id = :customerId) " +
-           "and (:orderStatus is null or o.orderStatus = :orderStatus) " +
-           "and (:paymentStatus is null or o.paymentStatus = :paymentStatus) " +
-           "and (:orderType is null or o.orderType = :orderType) " +
-           "and (:fromDate is null or o.orderDate >= :fromDate) " +
-           "and (:toDate is null or o.orderDate <= :toDate)")
-    Page<Order> search(@Param("customerId") Integer customerId,
-                       @Param("orderStatus") String orderStatus,
-                       @Param("paymentStatus") String paymentStatus,
-                       @Param("orderType") String orderType,
-                       @Param("fromDate") LocalDateTime fromDate,
-                       @Param("toDate") LocalDateTime toDate,
-                       Pageable pageable);
+public interface OrderRepository extends JpaRepository<Order, Integer>, FilterQueryRepository<Order> {
 
     /**
-     * Cursor-based pagination query for orders.
-     * Fetches orders with ID greater than the cursor, maintaining all filter conditions.
+     * Order filters; only the supplied ones are emitted so idx_order_customer_status_date and friends apply.
+     */
+    default FilterQuery<Order> filter(Integer customerId,
+                                      String orderStatus,
+                                      String paymentStatus,
+                                      String orderType,
+                                      LocalDateTime fromDate,
+                                      LocalDateTime toDate) {
+        return FilterQuery.from(Order.class, "o")
+                .where("o.customer.id = :customerId", "customerId", customerId)
+                .where("o.orderStatus = :orderStatus", "orderStatus", orderStatus)
+                .where("o.paymentStatus = :paymentStatus", "paymentStatus", paymentStatus)
+                .where("o.orderType = :orderType", "orderType", orderType)
+                .where("o.orderDate >= :fromDate", "fromDate", fromDate)
+                .where("o.orderDate <= :toDate", "toDate", toDate);
+    }
+
+    default Slice<Order> search(Integer customerId,
+                                String orderStatus,
+                                String paymentStatus,
+                                String orderType,
+                                LocalDateTime fromDate,
+                                LocalDateTime toDate,
+                                Pageable pageable) {
+        return slice(filter(customerId, orderStatus, paymentStatus, orderType, fromDate, toDate), pageable);
+    }
+
+    default long countSearch(Integer customerId,
+                             String orderStatus,
+                             String paymentStatus,
+                             String orderType,
+                             LocalDateTime fromDate,
+                             LocalDateTime toDate) {
+        return count(filter(customerId, orderStatus, paymentStatus, orderType, fromDate, toDate));
+    }
+
+    /**
+     * One keyset page of order history rows; with a customer filter and the (orderDate, id) sort this
+     * range-scans idx_order_customer_date.
+     */
+    default List<CustomerOrderRow> seekHistory(KeysetQuery<Order> query) {
+        return seek(query,
+                "new com.echohealthcare.mvps.dto.CustomerOrderRow(o.id, o.orderNumber, o.orderDate, o.orderType, " +
+                "o.orderStatus, o.paymentStatus, o.totalAmount, o.discountAmount, o.taxAmount, o.finalAmount, " +
+                "o.createdAt, o.updatedAt)",
+                CustomerOrderRow.class);
+    }
+
+    /**
+     * Per-customer order count and spend, aggregated by the database in one round-trip.
+     * Rows are streamed forward-only (MySQL row streaming) so callers can rank them without
+     * materializing the full result; the stream must be consumed inside a transaction and closed.
+     * Streaming holds the transaction's connection for the whole stream and allows no other statement
+     * on it until the stream is closed, so read the rows straight through without running other queries
+     * (see {@link FilterQueryRepository#aggregate}).
+     * Only the supplied date bounds are emitted, so a bounded range scans idx_order_date.
      *
-     * @param cursor the cursor (order ID) from which to start fetching (null for first page)
-     * @param customerId optional customer filter
-     * @param orderStatus optional order status filter
-     * @param paymentStatus optional payment status filter
-     * @param orderType optional order type filter
-     * @param fromDate optional start date filter
-     * @param toDate optional end date filter
-     * @param pageable pagination information (size and sort)
-     * @return list of orders matching the criteria
+     * @param fromDate optional inclusive lower bound on order date
+     * @param toDate optional inclusive upper bound on order date
+     * @return one aggregate row per customer with at least one matching order
      */
-    @Query("select o from Order o " +
-           "where (:cursor is null or o.id > :cursor) " +
-           "and (:customerId is null or o.customer.id = :customerId) " +
-           "and (:orderStatus is null or o.orderStatus = :orderStatus) " +
-           "and (:paymentStatus is null or o.paymentStatus = :paymentStatus) " +
-           "and (:orderType is null or o.orderType = :orderType) " +
-           "and (:fromDate is null or o.orderDate >= :fromDate) " +
-           "and (:toDate is null or o.orderDate <= :toDate) " +
-           "order by o.id asc")
-    List<Order> searchByCursor(@Param("cursor") Integer cursor,
-                                @Param("customerId") Integer customerId,
-                                @Param("orderStatus") String orderStatus,
-                                @Param("paymentStatus") String paymentStatus,
-                                @Param("orderType") String orderType,
-                                @Param("fromDate") LocalDateTime fromDate,
-                                @Param("toDate") LocalDateTime toDate,
-                                Pageable pageable);
+    default Stream<CustomerSpend> streamCustomerSpend(LocalDateTime fromDate, LocalDateTime toDate) {
+        FilterQuery<Order> query = FilterQuery.from(Order.class, "o")
+                .fetch("o.customer c")
+                .where("o.orderDate is not null")
+                .where("o.orderDate >= :fromDate", "fromDate", fromDate)
+                .where("o.orderDate <= :toDate", "toDate", toDate);
+        return aggregate(query,
+                "new com.echohealthcare.mvps.dto.CustomerSpend(c.id, c.name, c.customerType, count(o), sum(o.finalAmount))",
+                "c.id, c.name, c.customerType",
+                CustomerSpend.class);
+    }
 }
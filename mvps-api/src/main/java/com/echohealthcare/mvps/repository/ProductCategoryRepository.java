@@ -1,7 +1,20 @@
 package com.echohealthcare.mvps.repository;
 
 import com.echohealthcare.mvps.domain.ProductCategory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
 
 public interface ProductCategoryRepository extends JpaRepository<ProductCategory, Integer> {
+
+    /**
+     * The category list is small and read far more often than it changes, so it is served from the
+     * query cache; any write to product_categories invalidates it.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<ProductCategory> findAll();
 }
@@ -1,52 +1,51 @@
 package com.echohealthcare.mvps.repository;
 
 import com.echohealthcare.mvps.domain.Product;
-import org.springframework.data.domain.Page;
+import com.echohealthcare.mvps.dto.ProductSummary;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 
-public interface ProductRepository extends JpaRepository<Product, Integer> {
-
-    @Query("select p from Product p " +
-           "where (:categoryId is null or p.category.id = :categoryId) " +
-           "and (:active is null or p.active = :active) " +
-           "and (:prescriptionRequired is null or p.prescriptionRequired = :prescriptionRequired) " +
-           "and (:search is null or lower(p.name) like lower(concat('%', :search, '%')) " +
-           "     or lower(p.genericName) like lower(concat('%', :search, '%')))" )
-    Page<Product> search(@Param("categoryId") Integer categoryId,
-                         @Param("active") Boolean active,
-                         @Param("prescriptionRequired") Boolean prescriptionRequired,
-                         @Param("search") String search,
-                         Pageable pageable);
+public interface ProductRepository extends JpaRepository<Product, Integer>, FilterQueryRepository<Product> {
 
     /**
-     * Cursor-based pagination query for products.
-     * Fetches products with ID greater than the cursor, maintaining all filter conditions.
-     *
-     * @param cursor the cursor (product ID) from which to start fetching (null for first page)
-     * @param categoryId optional category filter
-     * @param active optional active status filter
-     * @param prescriptionRequired optional prescription requirement filter
-     * @param search optional search term (matches name or generic name)
-     * @param pageable pagination information (size and sort)
-     * @return list of products matching the criteria
+     * Product filters; {@code categoryIds} is a category subtree (see
+     * {@link com.echohealthcare.mvps.index.CategoryTree#subtree}) and {@code search} matches name or
+     * generic name as a case-insensitive substring.
      */
-    @Query("select p from Product p " +
-           "where (:cursor is null or p.id > :cursor) " +
-           "and (:categoryId is null or p.category.id = :categoryId) " +
-           "and (:active is null or p.active = :active) " +
-           "and (:prescriptionRequired is null or p.prescriptionRequired = :prescriptionRequired) " +
-           "and (:search is null or lower(p.name) like lower(concat('%', :search, '%')) " +
-           "     or lower(p.genericName) like lower(concat('%', :search, '%'))) " +
-           "order by p.id asc")
-    List<Product> searchByCursor(@Param("cursor") Integer cursor,
-                                   @Param("categoryId") Integer categoryId,
-                                   @Param("active") Boolean active,
-                                   @Param("prescriptionRequired") Boolean prescriptionRequired,
-                                   @Param("search") String search,
-                                   Pageable pageable);
+    default FilterQuery<Product> filter(Collection<Integer> categoryIds,
+                                        Boolean active,
+                                        Boolean prescriptionRequired,
+                                        String search) {
+        return FilterQuery.from(Product.class, "p")
+                .where("p.category.id in :categoryIds", "categoryIds", categoryIds)
+                .where("p.active = :active", "active", active)
+                .where("p.prescriptionRequired = :prescriptionRequired", "prescriptionRequired", prescriptionRequired)
+                .where("(lower(p.name) like :search or lower(p.genericName) like :search)",
+                        "search", search != null ? "%" + search.toLowerCase(Locale.ROOT) + "%" : null);
+    }
+
+    default Slice<Product> search(Collection<Integer> categoryIds,
+                                  Boolean active,
+                                  Boolean prescriptionRequired,
+                                  String search,
+                                  Pageable pageable) {
+        return slice(filter(categoryIds, active, prescriptionRequired, search), pageable);
+    }
+
+    default long countSearch(Collection<Integer> categoryIds,
+                             Boolean active,
+                             Boolean prescriptionRequired,
+                             String search) {
+        return count(filter(categoryIds, active, prescriptionRequired, search));
+    }
+
+    @Query("select new com.echohealthcare.mvps.dto.ProductSummary(p.id, p.name, p.genericName, c.id) " +
+           "from Product p left join p.category c")
+    List<ProductSummary> findAllSummaries();
 }
@@ -0,0 +1,37 @@
+package com.echohealthcare.mvps.repository;
+
+import com.echohealthcare.mvps.domain.SalesDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, Integer> {
+
+    List<SalesDailyRollup> findByRollupDateBetweenOrderByRollupDateAsc(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Adds the given deltas to the rollup row for (rollupDate, orderType), creating the row on first use.
+     * Runs as a single upsert so folds running on several nodes at once never lose an increment.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup " +
+                   "(rollup_date, order_type, order_count, revenue, cancelled_count, cancelled_revenue) " +
+                   "VALUES (:rollupDate, :orderType, :orderCount, :revenue, :cancelledCount, :cancelledRevenue) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "order_count = order_count + VALUES(order_count), " +
+                   "revenue = revenue + VALUES(revenue), " +
+                   "cancelled_count = cancelled_count + VALUES(cancelled_count), " +
+                   "cancelled_revenue = cancelled_revenue + VALUES(cancelled_revenue)",
+           nativeQuery = true)
+    int applyDelta(@Param("rollupDate") LocalDate rollupDate,
+                   @Param("orderType") String orderType,
+                   @Param("orderCount") int orderCount,
+                   @Param("revenue") BigDecimal revenue,
+                   @Param("cancelledCount") int cancelledCount,
+                   @Param("cancelledRevenue") BigDecimal cancelledRevenue);
+}
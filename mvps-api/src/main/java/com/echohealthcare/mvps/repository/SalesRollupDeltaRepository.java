@@ -0,0 +1,30 @@
+package com.echohealthcare.mvps.repository;
+
+import com.echohealthcare.mvps.domain.SalesRollupDelta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface SalesRollupDeltaRepository extends JpaRepository<SalesRollupDelta, Long> {
+
+    List<SalesRollupDelta> findByRollupDateBetween(LocalDate fromDate, LocalDate toDate);
+
+    List<SalesRollupDelta> findByCustomerId(Integer customerId);
+
+    /**
+     * Locks the oldest deltas for folding. Rows another node is folding, and rows of order transactions
+     * still open, are skipped rather than waited for.
+     */
+    @Query(value = "SELECT * FROM sales_rollup_deltas ORDER BY delta_id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<SalesRollupDelta> findBatchForFold(@Param("limit") int limit);
+
+    @Modifying
+    @Query("delete from SalesRollupDelta d where d.id in :ids")
+    int deleteFolded(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,30 @@
+package com.echohealthcare.mvps.repository;
+
+import com.echohealthcare.mvps.domain.StockEscrowBlock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface StockEscrowBlockRepository extends JpaRepository<StockEscrowBlock, Long> {
+
+    List<StockEscrowBlock> findByNodeId(Integer nodeId);
+
+    /**
+     * Deletes one block row. Returns 0 when a stock count has already discarded the block, in which
+     * case its units must not be put back on the stock.
+     */
+    @Modifying
+    @Query("delete from StockEscrowBlock b where b.id = :id")
+    int deleteBlock(@Param("id") Long id);
+
+    /**
+     * Discards the blocks of the given vendor products on every node.
+     */
+    @Modifying
+    @Query("delete from StockEscrowBlock b where b.vendorProductId in :vendorProductIds")
+    int deleteByVendorProducts(@Param("vendorProductIds") Collection<Integer> vendorProductIds);
+}
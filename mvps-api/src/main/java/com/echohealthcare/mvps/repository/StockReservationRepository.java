@@ -0,0 +1,93 @@
+package com.echohealthcare.mvps.repository;
+
+import com.echohealthcare.mvps.domain.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    /**
+     * The order's reservations that still hold stock, locked so two releases of one order cannot both
+     * hand the units back.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r " +
+           "where r.orderId = :orderId and r.status in ('reserved', 'committed') " +
+           "order by r.vendorProductId")
+    List<StockReservation> findHeldForUpdate(@Param("orderId") Integer orderId);
+
+    /**
+     * The order's open reservations that expired before {@code now}, locked like {@link #findHeldForUpdate}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r " +
+           "where r.orderId = :orderId and r.status = 'reserved' and r.expiresAt < :now " +
+           "order by r.vendorProductId")
+    List<StockReservation> findExpiredForUpdate(@Param("orderId") Integer orderId, @Param("now") LocalDateTime now);
+
+    /**
+     * The order's expired reservations, locked, so they are renewed at most once.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r " +
+           "where r.orderId = :orderId and r.status = 'expired' " +
+           "order by r.vendorProductId")
+    List<StockReservation> findLapsedForUpdate(@Param("orderId") Integer orderId);
+
+    /**
+     * Marks the order's open reservations as committed, which exempts them from expiry.
+     */
+    @Modifying
+    @Query("update StockReservation r set r.status = 'committed' " +
+           "where r.orderId = :orderId and r.status = 'reserved'")
+    int commitOrder(@Param("orderId") Integer orderId);
+
+    /**
+     * Orders holding a reservation that expired before {@code now}, oldest expiry first.
+     * Served by idx_reservation_status_expiry.
+     */
+    @Query("select r.orderId from StockReservation r " +
+           "where r.status = 'reserved' and r.expiresAt < :now " +
+           "group by r.orderId " +
+           "order by min(r.expiresAt)")
+    List<Integer> findExpiredOrderIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Units drawn from an escrow block by reservations made at or after {@code since}, whatever
+     * became of them later. Served by idx_reservation_escrow.
+     */
+    @Query("select coalesce(sum(r.quantity), 0) from StockReservation r " +
+           "where r.escrowId = :escrowId and r.reservedAt >= :since")
+    long sumDrawnSince(@Param("escrowId") Long escrowId, @Param("since") LocalDateTime since);
+
+    /**
+     * Settles the committed reservations of shipped or delivered orders: their units have left the
+     * shelf, so a stock count no longer includes them and cancelling the order must not give them back.
+     */
+    @Modifying
+    @Query("update StockReservation r set r.status = 'settled' " +
+           "where r.vendorProductId in :vendorProductIds and r.status = 'committed' " +
+           "and r.orderId in (select o.id from Order o where o.orderStatus in ('shipped', 'delivered'))")
+    int settleShipped(@Param("vendorProductIds") Collection<Integer> vendorProductIds);
+
+    /**
+     * Units held by open and committed reservations per vendor product, as {vendor_product_id, units} rows.
+     * A locking read, so it sees reservations committed after the caller's snapshot was taken.
+     * Served by idx_reservation_product_status.
+     */
+    @Query(value = "SELECT vendor_product_id, SUM(quantity) FROM stock_reservations " +
+                   "WHERE vendor_product_id IN (:vendorProductIds) AND status IN ('reserved', 'committed') " +
+                   "GROUP BY vendor_product_id " +
+                   "LOCK IN SHARE MODE",
+           nativeQuery = true)
+    List<Object[]> sumHeldForUpdate(@Param("vendorProductIds") Collection<Integer> vendorProductIds);
+}
@@ -1,63 +1,147 @@
 package com.echohealthcare.mvps.repository;
 
 import com.echohealthcare.mvps.domain.VendorProduct;
+import com.echohealthcare.mvps.dto.ExpiryDayCount;
+import com.echohealthcare.mvps.event.VendorProductSnapshot;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
-public interface VendorProductRepository extends JpaRepository<VendorProduct, Integer> {
+public interface VendorProductRepository extends JpaRepository<VendorProduct, Integer>, FilterQueryRepository<VendorProduct> {
 
-    @Query("select vp from VendorProduct vp " +
-           "where (:vendorId is null or vp.vendor.id = :vendorId) " +
-           "and (:productId is null or vp.product.id = :productId) " +
-           "and (:available is null or vp.available = :available) " +
-           "and (:minPrice is null or vp.finalPrice >= :minPrice) " +
-           "and (:maxPrice is null or vp.finalPrice <= :maxPrice)")
-    Page<VendorProduct> search(@Param("vendorId") Integer vendorId,
-                               @Param("productId") Integer productId,
-                               @Param("available") Boolean available,
-                               @Param("minPrice") BigDecimal minPrice,
-                               @Param("maxPrice") BigDecimal maxPrice,
-                               Pageable pageable);
+    default FilterQuery<VendorProduct> filter(Integer vendorId,
+                                              Integer productId,
+                                              Boolean available,
+                                              BigDecimal minPrice,
+                                              BigDecimal maxPrice) {
+        return FilterQuery.from(VendorProduct.class, "vp")
+                .where("vp.vendor.id = :vendorId", "vendorId", vendorId)
+                .where("vp.product.id = :productId", "productId", productId)
+                .where("vp.available = :available", "available", available)
+                .where("vp.finalPrice >= :minPrice", "minPrice", minPrice)
+                .where("vp.finalPrice <= :maxPrice", "maxPrice", maxPrice);
+    }
+
+    default Page<VendorProduct> search(Integer vendorId,
+                                       Integer productId,
+                                       Boolean available,
+                                       BigDecimal minPrice,
+                                       BigDecimal maxPrice,
+                                       Pageable pageable) {
+        return page(filter(vendorId, productId, available, minPrice, maxPrice), pageable);
+    }
+
+    /**
+     * In-stock offers for the lowest price view, with product and vendor fetched.
+     *
+     * @param categoryIds a category subtree (see {@link com.echohealthcare.mvps.index.CategoryTree#subtree}),
+     *                    or null for every category
+     */
+    default List<VendorProduct> findForLowestPriceView(Collection<Integer> categoryIds) {
+        return categoryIds != null ? findForLowestPriceViewIn(categoryIds) : findAllForLowestPriceView();
+    }
+
+    @Query(value = "SELECT vp FROM VendorProduct vp " +
+            "JOIN FETCH vp.product p " +
+            "JOIN FETCH vp.vendor v " +
+            "WHERE vp.available = true AND vp.stockQuantity > 0")
+    List<VendorProduct> findAllForLowestPriceView();
 
     @Query(value = "SELECT vp FROM VendorProduct vp " +
             "JOIN FETCH vp.product p " +
             "JOIN FETCH vp.vendor v " +
             "WHERE vp.available = true AND vp.stockQuantity > 0 " +
-            "AND ( :categoryId IS NULL OR p.category.id = :categoryId )")
-    List<VendorProduct> findForLowestPriceView(@Param("categoryId") Integer categoryId);
+            "AND p.category.id IN :categoryIds")
+    List<VendorProduct> findForLowestPriceViewIn(@Param("categoryIds") Collection<Integer> categoryIds);
 
     /**
-     * Cursor-based pagination query for vendor products.
-     * Fetches vendor products with ID greater than the cursor, maintaining all filter conditions.
-     *
-     * @param cursor the cursor (vendor product ID) from which to start fetching (null for first page)
-     * @param vendorId optional vendor filter
-     * @param productId optional product filter
-     * @param available optional availability filter
-     * @param minPrice optional minimum price filter
-     * @param maxPrice optional maximum price filter
-     * @param pageable pagination information (size and sort)
-     * @return list of vendor products matching the criteria
+     * In-stock offers expiring within [from, to], soonest first, with product and vendor fetched.
+     * Served by a range scan on idx_vp_expiry_stock.
      */
     @Query("select vp from VendorProduct vp " +
-           "where (:cursor is null or vp.id > :cursor) " +
-           "and (:vendorId is null or vp.vendor.id = :vendorId) " +
-           "and (:productId is null or vp.product.id = :productId) " +
-           "and (:available is null or vp.available = :available) " +
-           "and (:minPrice is null or vp.finalPrice >= :minPrice) " +
-           "and (:maxPrice is null or vp.finalPrice <= :maxPrice) " +
-           "order by vp.id asc")
-    List<VendorProduct> searchByCursor(@Param("cursor") Integer cursor,
-                                        @Param("vendorId") Integer vendorId,
-                                        @Param("productId") Integer productId,
-                                        @Param("available") Boolean available,
-                                        @Param("minPrice") BigDecimal minPrice,
-                                        @Param("maxPrice") BigDecimal maxPrice,
-                                        Pageable pageable);
+           "join fetch vp.product " +
+           "join fetch vp.vendor " +
+           "where vp.expiryDate between :from and :to and vp.stockQuantity > 0 " +
+           "order by vp.expiryDate, vp.id")
+    List<VendorProduct> findInStockExpiringBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Number and combined stock of in-stock offers per expiry day within [from, to].
+     * Reads only idx_vp_expiry_stock, one row per distinct day.
+     */
+    @Query("select new com.echohealthcare.mvps.dto.ExpiryDayCount(vp.expiryDate, count(vp), coalesce(sum(vp.stockQuantity), 0)) " +
+           "from VendorProduct vp " +
+           "where vp.expiryDate between :from and :to and vp.stockQuantity > 0 " +
+           "group by vp.expiryDate")
+    List<ExpiryDayCount> countInStockByExpiryDate(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Available offers with at least {@code minStock} units, priced at the lowest such offer of their
+     * product, for all given products in one query. A product can return several rows when vendors tie on price.
+     */
+    @Query("select vp from VendorProduct vp " +
+           "where vp.product.id in :productIds " +
+           "and vp.available = true and vp.stockQuantity >= :minStock " +
+           "and vp.finalPrice = (select min(vp2.finalPrice) from VendorProduct vp2 " +
+           "                     where vp2.product.id = vp.product.id " +
+           "                     and vp2.available = true and vp2.stockQuantity >= :minStock)")
+    List<VendorProduct> findLowestPricedOffers(@Param("productIds") Collection<Integer> productIds,
+                                               @Param("minStock") int minStock);
+
+    /**
+     * Offer state of every vendor product, sellable or not, without loading the entities.
+     * Used to seed the in-memory indexes.
+     */
+    @Query("select new com.echohealthcare.mvps.event.VendorProductSnapshot(" +
+           "vp.id, vp.product.id, vp.vendor.id, vp.costPrice, vp.discountPercentage, vp.finalPrice, " +
+           "coalesce(vp.stockQuantity, 0), coalesce(vp.available, false), vp.expiryDate, vp.rowVersion) " +
+           "from VendorProduct vp")
+    List<VendorProductSnapshot> findAllSnapshots();
+
+    /**
+     * Vendor products locked for an absolute stock write, in id order so concurrent writers cannot deadlock.
+     * Holding the rows keeps reservations of these products from committing until the write is done.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select vp from VendorProduct vp where vp.id in :ids order by vp.id")
+    List<VendorProduct> findAllForUpdate(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Offer state of one vendor product, read from the database rather than the persistence context.
+     */
+    @Query("select new com.echohealthcare.mvps.event.VendorProductSnapshot(" +
+           "vp.id, vp.product.id, vp.vendor.id, vp.costPrice, vp.discountPercentage, vp.finalPrice, " +
+           "coalesce(vp.stockQuantity, 0), coalesce(vp.available, false), vp.expiryDate, vp.rowVersion) " +
+           "from VendorProduct vp where vp.id = :id")
+    VendorProductSnapshot findSnapshotById(@Param("id") Integer id);
+
+    /**
+     * Takes {@code quantity} units off the stock if at least that many are on hand, as one conditional
+     * update. Returns 0 when the stock is short or the vendor product does not exist. The row stays
+     * locked until the transaction ends, so keep the rest of the transaction short.
+     */
+    @Modifying
+    @Query("update VendorProduct vp set vp.stockQuantity = vp.stockQuantity - :quantity, " +
+           "vp.rowVersion = vp.rowVersion + 1 " +
+           "where vp.id = :id and vp.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Integer id, @Param("quantity") int quantity);
+
+    /**
+     * Puts {@code quantity} units back on the stock.
+     */
+    @Modifying
+    @Query("update VendorProduct vp set vp.stockQuantity = coalesce(vp.stockQuantity, 0) + :quantity, " +
+           "vp.rowVersion = vp.rowVersion + 1 " +
+           "where vp.id = :id")
+    int incrementStock(@Param("id") Integer id, @Param("quantity") int quantity);
 }
@@ -5,10 +5,32 @@ import com.echohealthcare.mvps.domain.VendorStockMovement;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface VendorStockMovementRepository extends JpaRepository<VendorStockMovement, Integer> {
+public interface VendorStockMovementRepository extends JpaRepository<VendorStockMovement, Integer>,
+        FilterQueryRepository<VendorStockMovement> {
+
+    /**
+     * Movements with their vendor product, product and vendor fetched in the same query.
+     * The time range is half-open: [from, to).
+     */
+    default FilterQuery<VendorStockMovement> filter(Integer vendorProductId,
+                                                    Integer vendorId,
+                                                    Integer productId,
+                                                    LocalDateTime from,
+                                                    LocalDateTime to) {
+        return FilterQuery.from(VendorStockMovement.class, "m")
+                .fetch("m.vendorProduct vp")
+                .fetch("vp.product")
+                .fetch("vp.vendor")
+                .where("vp.id = :vendorProductId", "vendorProductId", vendorProductId)
+                .where("vp.vendor.id = :vendorId", "vendorId", vendorId)
+                .where("vp.product.id = :productId", "productId", productId)
+                .where("m.changedAt >= :from", "from", from)
+                .where("m.changedAt < :to", "to", to);
+    }
 
     List<VendorStockMovement> findByVendorProductOrderByChangedAtDesc(VendorProduct vendorProduct);
 }
@@ -0,0 +1,364 @@
+package com.echohealthcare.mvps.service;
+
+import com.echohealthcare.mvps.event.DataChangedEvent;
+import com.echohealthcare.mvps.event.DataTopic;
+import com.echohealthcare.mvps.event.OrderItemFact;
+import com.echohealthcare.mvps.event.OrderItemsChangedEvent;
+import com.echohealthcare.mvps.event.ProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Result cache for the analytics endpoints, keyed by endpoint name and normalized parameters.
+ *
+ * Entries are fresh for {@code mvps.analytics.cache.ttl-seconds}; for {@code stale-seconds} after that
+ * they are still served while one background refresh recomputes them. At most {@code max-entries}
+ * results are kept, least recently used first out. Concurrent misses on one key share a single load.
+ *
+ * Each entry records the {@link DataTopic}s it was computed from and, for results over a date range,
+ * that range. When a write to one of its topics commits and touches a day in its range (or names no
+ * days), the entry is marked stale: it is still served, for no longer than it would have been anyway,
+ * while one background refresh recomputes it. Entries for other ranges are left alone. A load that
+ * overlaps such a write is cached already marked stale, so the next read refreshes it. Either way the
+ * first read after the write starts replacing a result computed from pre-write data.
+ *
+ * Cached results are computed from the in-memory fact and stock indexes, which apply the same commit
+ * events. The indexes listen at highest precedence and this cache at lowest, so an entry is only marked
+ * stale once the indexes hold the write and its refresh cannot recompute the pre-write result.
+ */
+@Component
+public class AnalyticsResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsResultCache.class);
+
+    private static final int MAX_RECENT_WRITES = 1024;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long staleNanos;
+
+    private final Object lock = new Object();
+    // Access-ordered; guarded by lock.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Key, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    // Recent writes, oldest first, for loads to check what they overlapped; guarded by lock.
+    private final ArrayDeque<Write> recentWrites = new ArrayDeque<>();
+    private long lastWriteSeq;
+    private final ExecutorService refresher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    public AnalyticsResultCache(@Value("${mvps.analytics.cache.max-entries:500}") int maxEntries,
+                                @Value("${mvps.analytics.cache.ttl-seconds:30}") long ttlSeconds,
+                                @Value("${mvps.analytics.cache.stale-seconds:120}") long staleSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.staleNanos = staleSeconds * 1_000_000_000L;
+        this.refresher = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "analytics-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Returns the cached result for the endpoint and parameters, loading it on a miss. The result may
+     * depend on data of any day.
+     *
+     * @param endpoint endpoint name, the cache namespace
+     * @param params normalized request parameters (defaults applied), in a fixed order; may contain nulls
+     * @param topics data the result is computed from
+     * @param loader computes the result; exceptions propagate and nothing is cached
+     */
+    public <T> T get(String endpoint, List<?> params, Set<DataTopic> topics, Supplier<T> loader) {
+        return get(endpoint, params, topics, null, null, loader);
+    }
+
+    /**
+     * Returns the cached result for the endpoint and parameters, loading it on a miss. The result only
+     * depends on data of days within [fromDate, toDate]; either bound may be null for an open range.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, List<?> params, Set<DataTopic> topics, LocalDate fromDate, LocalDate toDate,
+                     Supplier<T> loader) {
+        Key key = new Key(endpoint, Collections.unmodifiableList(new ArrayList<>(params)));
+        Scope scope = new Scope(Set.copyOf(topics), fromDate, toDate);
+        long now = System.nanoTime();
+
+        Entry entry;
+        synchronized (lock) {
+            entry = entries.get(key);
+            if (entry != null && now - entry.loadedAt() >= ttlNanos + staleNanos) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            if (!entry.stale() && now - entry.loadedAt() < ttlNanos) {
+                hits.increment();
+            } else {
+                staleHits.increment();
+                refreshInBackground(key, scope, loader);
+            }
+            return (T) entry.value();
+        }
+
+        misses.increment();
+        return (T) load(key, scope, loader);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(DataChangedEvent event) {
+        invalidate(event.topic(), event.days());
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderItemsChanged(OrderItemsChangedEvent event) {
+        Set<LocalDate> days = new HashSet<>();
+        for (OrderItemFact fact : event.added()) {
+            days.add(fact.epochDay() != OrderItemFact.NO_DAY ? LocalDate.ofEpochDay(fact.epochDay()) : null);
+        }
+        for (OrderItemFact fact : event.updated()) {
+            days.add(fact.epochDay() != OrderItemFact.NO_DAY ? LocalDate.ofEpochDay(fact.epochDay()) : null);
+        }
+        // Removed items carry no date.
+        invalidate(DataTopic.ORDERS, days.contains(null) || !event.removedItemIds().isEmpty() ? null : days);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVendorProductChanged(VendorProductChangedEvent event) {
+        invalidate(DataTopic.INVENTORY);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(DataTopic.CATALOG);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVendorChanged(VendorChangedEvent event) {
+        invalidate(DataTopic.CATALOG);
+    }
+
+    /**
+     * Marks every cached result computed from the topic stale.
+     */
+    public void invalidate(DataTopic topic) {
+        invalidate(topic, null);
+    }
+
+    /**
+     * Marks the cached results computed from the topic whose range covers one of the days stale; all of
+     * them when {@code days} is null.
+     */
+    public void invalidate(DataTopic topic, Set<LocalDate> days) {
+        Write write;
+        synchronized (lock) {
+            write = new Write(++lastWriteSeq, topic, days != null ? Set.copyOf(days) : null);
+            recentWrites.addLast(write);
+            if (recentWrites.size() > MAX_RECENT_WRITES) {
+                recentWrites.removeFirst();
+            }
+            for (Map.Entry<Key, Entry> cached : entries.entrySet()) {
+                Entry entry = cached.getValue();
+                if (!entry.stale() && write.affects(entry.scope())) {
+                    cached.setValue(entry.markedStale());
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (lock) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long staleHitCount = staleHits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + staleHitCount + missCount;
+        return new Stats(size, maxEntries, hitCount, staleHitCount, missCount,
+                requests > 0 ? (double) (hitCount + staleHitCount) / requests : 0.0,
+                evictions.sum(), expirations.sum(), invalidations.sum(), refreshFailures.sum());
+    }
+
+    private Object load(Key key, Scope scope, Supplier<?> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+            }
+        }
+
+        try {
+            long seen;
+            synchronized (lock) {
+                seen = lastWriteSeq;
+            }
+            Object value = loader.get();
+            store(key, value, scope, seen);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    private void refreshInBackground(Key key, Scope scope, Supplier<?> loader) {
+        if (loading.containsKey(key)) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                load(key, scope, loader);
+            } catch (RuntimeException ex) {
+                refreshFailures.increment();
+                log.warn("Background refresh of {} failed; serving the stale result until it expires", key, ex);
+            }
+        });
+    }
+
+    private void store(Key key, Object value, Scope scope, long seen) {
+        synchronized (lock) {
+            // Checked under the lock so an invalidation cannot slip in between the check and the put.
+            entries.put(key, new Entry(value, scope, System.nanoTime(), overlappedWrite(scope, seen)));
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Whether a write after {@code seen} affects the scope. Must hold lock.
+     */
+    private boolean overlappedWrite(Scope scope, long seen) {
+        if (lastWriteSeq == seen) {
+            return false;
+        }
+        if (recentWrites.isEmpty() || recentWrites.peekFirst().seq() > seen + 1) {
+            // Some of the writes are no longer known; assume the worst.
+            return true;
+        }
+        Iterator<Write> newestFirst = recentWrites.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Write write = newestFirst.next();
+            if (write.seq() <= seen) {
+                return false;
+            }
+            if (write.affects(scope)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cache counters since startup. Stale hits were served while a refresh ran; evictions were made
+     * for size and expirations for age. Invalidations count entries marked stale by writes.
+     */
+    public record Stats(
+        int size,
+        int maxEntries,
+        long hits,
+        long staleHits,
+        long misses,
+        double hitRatio,
+        long evictions,
+        long expirations,
+        long invalidations,
+        long refreshFailures
+    ) {}
+
+    private record Key(String endpoint, List<Object> params) {}
+
+    /**
+     * What a result depends on: its topics, and the days [fromDate, toDate] when it covers a date range.
+     */
+    private record Scope(Set<DataTopic> topics, LocalDate fromDate, LocalDate toDate) {
+
+        boolean covers(LocalDate day) {
+            return (fromDate == null || !day.isBefore(fromDate)) && (toDate == null || !day.isAfter(toDate));
+        }
+    }
+
+    /**
+     * A committed write to a topic; {@code days} is null when it may touch any day.
+     */
+    private record Write(long seq, DataTopic topic, Set<LocalDate> days) {
+
+        boolean affects(Scope scope) {
+            if (!scope.topics().contains(topic)) {
+                return false;
+            }
+            if (days == null) {
+                return true;
+            }
+            for (LocalDate day : days) {
+                if (scope.covers(day)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Entry(Object value, Scope scope, long loadedAt, boolean stale) {
+
+        Entry markedStale() {
+            return new Entry(value, scope, loadedAt, true);
+        }
+    }
+}
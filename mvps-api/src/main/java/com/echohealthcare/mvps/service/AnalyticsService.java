@@ -1,16 +1,27 @@
 package com.echohealthcare.mvps.service;
 
-import com.echohealthcare.mvps.domain.Order;
-import com.echohealthcare.mvps.domain.OrderItem;
+import com.echohealthcare.mvps.domain.SalesDailyRollup;
 import com.echohealthcare.mvps.domain.VendorProduct;
 import com.echohealthcare.mvps.domain.VendorStockMovement;
+import com.echohealthcare.mvps.dto.CursorPageResponse;
+import com.echohealthcare.mvps.dto.CustomerSpend;
+import com.echohealthcare.mvps.dto.ExpiryDayCount;
+import com.echohealthcare.mvps.event.OrderItemFact;
+import com.echohealthcare.mvps.index.OrderItemFactTable;
+import com.echohealthcare.mvps.index.ProductStockAggregate;
+import com.echohealthcare.mvps.index.VendorScorecard;
 import com.echohealthcare.mvps.model.*;
-import com.echohealthcare.mvps.repository.OrderItemRepository;
+import com.echohealthcare.mvps.repository.KeysetQuery;
 import com.echohealthcare.mvps.repository.OrderRepository;
 import com.echohealthcare.mvps.repository.VendorProductRepository;
 import com.echohealthcare.mvps.repository.CustomerRepository;
+import com.echohealthcare.mvps.repository.ProductRepository;
 import com.echohealthcare.mvps.repository.VendorRepository;
 import com.echohealthcare.mvps.repository.VendorStockMovementRepository;
+import com.echohealthcare.mvps.util.CursorPaginationUtils;
+import com.echohealthcare.mvps.util.KeysetCursor;
+import com.echohealthcare.mvps.util.KeysetSort;
+import com.echohealthcare.mvps.util.TopNSelector;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,109 +35,125 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(readOnly = true)
 public class AnalyticsService {
 
+    private static final int[] EXPIRY_BUCKET_DAYS = {7, 30, 90};
+    private static final String DEFAULT_MOVEMENT_SORT = "changedAt,desc";
+    private static final Map<String, KeysetSort.Field<VendorStockMovement>> MOVEMENT_SORTS = Map.of(
+            KeysetSort.ID, KeysetSort.field("m.id", VendorStockMovement::getId),
+            "changedAt", KeysetSort.field("m.changedAt", VendorStockMovement::getChangedAt));
+
     private final VendorProductRepository vendorProductRepository;
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
     private final CustomerRepository customerRepository;
     private final VendorRepository vendorRepository;
     private final VendorStockMovementRepository vendorStockMovementRepository;
+    private final SalesRollupService salesRollupService;
+    private final OrderItemFactTable orderItemFactTable;
+    private final VendorScorecard vendorScorecard;
+    private final ProductStockAggregate productStockAggregate;
 
     public AnalyticsService(VendorProductRepository vendorProductRepository,
                             OrderRepository orderRepository,
-                            OrderItemRepository orderItemRepository,
+                            ProductRepository productRepository,
                             CustomerRepository customerRepository,
                             VendorRepository vendorRepository,
-                            VendorStockMovementRepository vendorStockMovementRepository) {
+                            VendorStockMovementRepository vendorStockMovementRepository,
+                            SalesRollupService salesRollupService,
+                            OrderItemFactTable orderItemFactTable,
+                            VendorScorecard vendorScorecard,
+                            ProductStockAggregate productStockAggregate) {
         this.vendorProductRepository = vendorProductRepository;
         this.orderRepository = orderRepository;
-        this.orderItemRepository = orderItemRepository;
+        this.productRepository = productRepository;
         this.customerRepository = customerRepository;
         this.vendorRepository = vendorRepository;
         this.vendorStockMovementRepository = vendorStockMovementRepository;
+        this.salesRollupService = salesRollupService;
+        this.orderItemFactTable = orderItemFactTable;
+        this.vendorScorecard = vendorScorecard;
+        this.productStockAggregate = productStockAggregate;
     }
 
     public AnalyticsExpiringProductsGet200Response getExpiringProducts(int days) {
         LocalDate today = LocalDate.now();
         LocalDate threshold = today.plusDays(days);
 
-        List<VendorProduct> products = vendorProductRepository.findAll();
-
         AnalyticsExpiringProductsGet200Response response = new AnalyticsExpiringProductsGet200Response();
         response.setSuccess(true);
 
-        products.stream()
-                .filter(vp -> vp.getExpiryDate() != null
-                        && !vp.getExpiryDate().isBefore(today)
-                        && !vp.getExpiryDate().isAfter(threshold)
-                        && vp.getStockQuantity() != null
-                        && vp.getStockQuantity() > 0)
-                .sorted(Comparator.comparing(VendorProduct::getExpiryDate))
-                .forEach(vp -> {
-                    ExpiringProduct ep = new ExpiringProduct();
-                    ep.setVendorProductId(vp.getId());
-					ep.setProductName(vp.getProduct() != null ? vp.getProduct().getName() : null);
-					ep.setVendorName(vp.getVendor() != null ? vp.getVendor().getName() : null);
-                    ep.setStockQuantity(vp.getStockQuantity());
-                    ep.setExpiryDate(vp.getExpiryDate());
-                    ep.setDaysToExpiry((int) (vp.getExpiryDate().toEpochDay() - today.toEpochDay()));
-                    response.addDataItem(ep);
-                });
+        for (VendorProduct vp : vendorProductRepository.findInStockExpiringBetween(today, threshold)) {
+            ExpiringProduct ep = new ExpiringProduct();
+            ep.setVendorProductId(vp.getId());
+            ep.setProductName(vp.getProduct() != null ? vp.getProduct().getName() : null);
+            ep.setVendorName(vp.getVendor() != null ? vp.getVendor().getName() : null);
+            ep.setStockQuantity(vp.getStockQuantity());
+            ep.setExpiryDate(vp.getExpiryDate());
+            ep.setDaysToExpiry((int) (vp.getExpiryDate().toEpochDay() - today.toEpochDay()));
+            response.addDataItem(ep);
+        }
 
         return response;
     }
 
-    public AnalyticsInventoryStatusGet200Response getInventoryStatus(int lowStockThreshold) {
-        List<VendorProduct> products = vendorProductRepository.findAll();
-
-        Map<Integer, InventoryStatusProductsInner> perProduct = new HashMap<>();
-
-        for (VendorProduct vp : products) {
-            if (vp.getProduct() == null) {
-                continue;
+    /**
+     * In-stock vendor products expiring within each of {@link #EXPIRY_BUCKET_DAYS} days from today.
+     * One grouped range query over the widest window; narrower buckets are prefix sums of its rows.
+     */
+    public AnalyticsExpiringProductsSummaryGet200Response getExpirySummary() {
+        LocalDate today = LocalDate.now();
+        int widest = EXPIRY_BUCKET_DAYS[EXPIRY_BUCKET_DAYS.length - 1];
+
+        long[] offers = new long[EXPIRY_BUCKET_DAYS.length];
+        long[] stock = new long[EXPIRY_BUCKET_DAYS.length];
+        for (ExpiryDayCount day : vendorProductRepository.countInStockByExpiryDate(today, today.plusDays(widest))) {
+            long daysToExpiry = day.expiryDate().toEpochDay() - today.toEpochDay();
+            for (int b = 0; b < EXPIRY_BUCKET_DAYS.length; b++) {
+                if (daysToExpiry <= EXPIRY_BUCKET_DAYS[b]) {
+                    offers[b] += day.offers();
+                    stock[b] += day.stock();
+                }
             }
-            Integer productId = vp.getProduct().getId();
-            InventoryStatusProductsInner entry = perProduct.computeIfAbsent(productId, id -> {
-                InventoryStatusProductsInner i = new InventoryStatusProductsInner();
-                i.setProductId(id);
-				i.setProductName(vp.getProduct().getName());
-                i.setTotalStock(0);
-                i.setVendorsCarrying(0);
-                return i;
-            });
+        }
 
-            int stock = vp.getStockQuantity() != null ? vp.getStockQuantity() : 0;
-            entry.setTotalStock((entry.getTotalStock() != null ? entry.getTotalStock() : 0) + stock);
-            entry.setVendorsCarrying((entry.getVendorsCarrying() != null ? entry.getVendorsCarrying() : 0) + 1);
+        ExpirySummary summary = new ExpirySummary();
+        summary.setAsOf(today);
+        for (int b = 0; b < EXPIRY_BUCKET_DAYS.length; b++) {
+            ExpiryBucket bucket = new ExpiryBucket();
+            bucket.setWithinDays(EXPIRY_BUCKET_DAYS[b]);
+            bucket.setProductCount(Math.toIntExact(offers[b]));
+            bucket.setTotalStock(Math.toIntExact(stock[b]));
+            summary.addBucketsItem(bucket);
         }
 
-        InventoryStatus status = new InventoryStatus();
-        status.setTotalProducts(perProduct.size());
-        int totalStock = perProduct.values().stream()
-                .mapToInt(p -> p.getTotalStock() != null ? p.getTotalStock() : 0)
-                .sum();
-        status.setTotalStock(totalStock);
-
-        int lowStock = (int) perProduct.values().stream()
-                .filter(p -> {
-                    int stock = p.getTotalStock() != null ? p.getTotalStock() : 0;
-                    return stock > 0 && stock <= lowStockThreshold;
-                })
-                .count();
-        status.setLowStockProducts(lowStock);
+        AnalyticsExpiringProductsSummaryGet200Response response = new AnalyticsExpiringProductsSummaryGet200Response();
+        response.setSuccess(true);
+        response.setData(summary);
+        return response;
+    }
 
-        int outOfStock = (int) perProduct.values().stream()
-                .filter(p -> p.getTotalStock() == null || p.getTotalStock() == 0)
-                .count();
-        status.setOutOfStock(outOfStock);
+    public AnalyticsInventoryStatusGet200Response getInventoryStatus(int lowStockThreshold, boolean lowStockOnly) {
+        ProductStockAggregate.Inventory inventory = productStockAggregate.inventory(lowStockThreshold, lowStockOnly);
 
-        status.setProducts(perProduct.values().stream()
-                .sorted(Comparator.comparing(InventoryStatusProductsInner::getProductName, Comparator.nullsLast(String::compareToIgnoreCase)))
-                .collect(Collectors.toList()));
+        InventoryStatus status = new InventoryStatus();
+        status.setTotalProducts(inventory.totalProducts());
+        status.setTotalStock(Math.toIntExact(inventory.totalStock()));
+        status.setLowStockProducts(inventory.lowStockProducts());
+        status.setOutOfStock(inventory.outOfStockProducts());
+        for (ProductStockAggregate.ProductStock product : inventory.products()) {
+            InventoryStatusProductsInner entry = new InventoryStatusProductsInner();
+            entry.setProductId(product.productId());
+            entry.setProductName(product.productName());
+            entry.setTotalStock(Math.toIntExact(product.totalStock()));
+            entry.setVendorsCarrying(product.vendorsCarrying());
+            status.addProductsItem(entry);
+        }
 
         AnalyticsInventoryStatusGet200Response response = new AnalyticsInventoryStatusGet200Response();
         response.setSuccess(true);
@@ -135,39 +162,15 @@ public class AnalyticsService {
     }
 
     public AnalyticsSalesSummaryGet200Response getSalesSummary(LocalDate fromDate, LocalDate toDate, String groupBy) {
-        LocalDateTime from = fromDate.atStartOfDay();
-        LocalDateTime to = toDate.atTime(23, 59, 59);
-
-        List<Order> orders = orderRepository.findAll().stream()
-                .filter(o -> o.getOrderDate() != null
-                        && !o.getOrderDate().isBefore(from)
-                        && !o.getOrderDate().isAfter(to))
-                .collect(Collectors.toList());
+        // One pre-aggregated row per (day, order type); weeks and months are folded from the daily rows.
+        List<SalesDailyRollup> rollups = salesRollupService.findDaily(fromDate, toDate);
 
         SalesSummary summary = new SalesSummary();
 
-        int totalOrders = orders.size();
-        summary.setTotalOrders(totalOrders);
-
-        BigDecimal totalRevenue = orders.stream()
-                .map(Order::getFinalAmount)
-                .filter(a -> a != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        summary.setTotalRevenue(totalRevenue);
-
-        if (totalOrders > 0) {
-            summary.setAvgOrderValue(totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP));
-        }
-
-        int onlineOrders = (int) orders.stream()
-                .filter(o -> "online".equalsIgnoreCase(o.getOrderType()))
-                .count();
-        summary.setOnlineOrders(onlineOrders);
-
-        int d2dOrders = (int) orders.stream()
-                .filter(o -> "door_to_door".equalsIgnoreCase(o.getOrderType()) || "door-to-door".equalsIgnoreCase(o.getOrderType()))
-                .count();
-        summary.setDoorToDoorOrders(d2dOrders);
+        int totalOrders = 0;
+        int onlineOrders = 0;
+        int d2dOrders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
 
         Map<String, SalesSummaryPeriodDataInner> periodMap = new HashMap<>();
         DateTimeFormatter formatter;
@@ -183,11 +186,22 @@ public class AnalyticsService {
                 break;
         }
 
-        for (Order order : orders) {
-            if (order.getOrderDate() == null) {
+        for (SalesDailyRollup rollup : rollups) {
+            int orders = rollup.getOrderCount() != null ? rollup.getOrderCount() : 0;
+            BigDecimal revenue = rollup.getRevenue() != null ? rollup.getRevenue() : BigDecimal.ZERO;
+            if (orders == 0 && revenue.signum() == 0) {
                 continue;
             }
-            String key = order.getOrderDate().toLocalDate().format(formatter);
+
+            totalOrders += orders;
+            totalRevenue = totalRevenue.add(revenue);
+            if ("online".equalsIgnoreCase(rollup.getOrderType())) {
+                onlineOrders += orders;
+            } else if ("door_to_door".equalsIgnoreCase(rollup.getOrderType()) || "door-to-door".equalsIgnoreCase(rollup.getOrderType())) {
+                d2dOrders += orders;
+            }
+
+            String key = rollup.getRollupDate().format(formatter);
             SalesSummaryPeriodDataInner period = periodMap.computeIfAbsent(key, k -> {
                 SalesSummaryPeriodDataInner p = new SalesSummaryPeriodDataInner();
                 p.setPeriod(k);
@@ -195,12 +209,17 @@ public class AnalyticsService {
                 p.setRevenue(BigDecimal.ZERO);
                 return p;
             });
+            period.setOrders(period.getOrders() + orders);
+            period.setRevenue(period.getRevenue().add(revenue));
+        }
 
-            period.setOrders((period.getOrders() != null ? period.getOrders() : 0) + 1);
-            if (order.getFinalAmount() != null) {
-                period.setRevenue(period.getRevenue().add(order.getFinalAmount()));
-            }
+        summary.setTotalOrders(totalOrders);
+        summary.setTotalRevenue(totalRevenue);
+        if (totalOrders > 0) {
+            summary.setAvgOrderValue(totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP));
         }
+        summary.setOnlineOrders(onlineOrders);
+        summary.setDoorToDoorOrders(d2dOrders);
 
         summary.setPeriodData(periodMap.values().stream()
                 .sorted(Comparator.comparing(SalesSummaryPeriodDataInner::getPeriod))
@@ -216,132 +235,121 @@ public class AnalyticsService {
         LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
         LocalDateTime to = toDate != null ? toDate.atTime(23, 59, 59) : null;
 
-        List<Order> orders = orderRepository.findAll();
-
-        Map<Integer, TopCustomer> topMap = new HashMap<>();
-
-        for (Order order : orders) {
-            if (order.getOrderDate() == null) {
-                continue;
-            }
-            if (from != null && order.getOrderDate().isBefore(from)) {
-                continue;
-            }
-            if (to != null && order.getOrderDate().isAfter(to)) {
-                continue;
-            }
-            if (order.getCustomer() == null || order.getCustomer().getId() == null) {
-                continue;
-            }
-            Integer customerId = order.getCustomer().getId();
-
-            TopCustomer tc = topMap.computeIfAbsent(customerId, id -> {
-                TopCustomer t = new TopCustomer();
-                t.setCustomerId(id);
-				t.setCustomerName(order.getCustomer().getName());
-                t.setCustomerType(order.getCustomer().getCustomerType());
-                t.setTotalOrders(0);
-                t.setTotalSpent(BigDecimal.ZERO);
-                return t;
-            });
-
-            tc.setTotalOrders((tc.getTotalOrders() != null ? tc.getTotalOrders() : 0) + 1);
-            if (order.getFinalAmount() != null) {
-                tc.setTotalSpent(tc.getTotalSpent().add(order.getFinalAmount()));
-            }
+        // Aggregation happens in the database; only the best `limit` rows are ever held in memory.
+        Comparator<CustomerSpend> bySpend = Comparator
+                .comparing(CustomerSpend::totalSpent, Comparator.nullsFirst(BigDecimal::compareTo))
+                .thenComparing(CustomerSpend::customerId, Comparator.reverseOrder());
+        List<CustomerSpend> ranked;
+        try (Stream<CustomerSpend> rows = orderRepository.streamCustomerSpend(from, to)) {
+            ranked = TopNSelector.top(rows, limit, bySpend);
         }
 
-        List<TopCustomer> sorted = topMap.values().stream()
-                .sorted(Comparator.comparing(TopCustomer::getTotalSpent, Comparator.nullsFirst(BigDecimal::compareTo)).reversed())
-                .limit(limit)
+        List<TopCustomer> top = ranked.stream()
+                .map(row -> {
+                    TopCustomer t = new TopCustomer();
+                    t.setCustomerId(row.customerId());
+                    t.setCustomerName(row.customerName());
+                    t.setCustomerType(row.customerType());
+                    t.setTotalOrders(row.orderCount() != null ? row.orderCount().intValue() : 0);
+                    t.setTotalSpent(row.totalSpent() != null ? row.totalSpent() : BigDecimal.ZERO);
+                    return t;
+                })
                 .collect(Collectors.toList());
 
         AnalyticsTopCustomersGet200Response response = new AnalyticsTopCustomersGet200Response();
         response.setSuccess(true);
-        response.setData(sorted);
+        response.setData(top);
         return response;
     }
 
-    public java.util.List<StockHistoryEntry> getStockHistory() {
-        java.util.List<VendorStockMovement> movements = vendorStockMovementRepository.findAll();
-
-        return movements.stream()
-                .sorted(Comparator.comparing(VendorStockMovement::getChangedAt, Comparator.nullsLast(LocalDateTime::compareTo)).reversed())
-                .map(movement -> {
-                    StockHistoryEntry entry = new StockHistoryEntry();
-                    entry.setVendorProductId(movement.getVendorProduct() != null ? movement.getVendorProduct().getId() : null);
-                    if (movement.getVendorProduct() != null) {
-                        if (movement.getVendorProduct().getProduct() != null) {
-                            entry.setProductId(movement.getVendorProduct().getProduct().getId());
-                            entry.setProductName(movement.getVendorProduct().getProduct().getName());
-                        }
-                        if (movement.getVendorProduct().getVendor() != null) {
-                            entry.setVendorId(movement.getVendorProduct().getVendor().getId());
-                            entry.setVendorName(movement.getVendorProduct().getVendor().getName());
-                        }
-                        entry.setVendorSku(movement.getVendorProduct().getVendorSku());
-                    }
-                    entry.setPreviousQuantity(movement.getPreviousQuantity());
-                    entry.setNewQuantity(movement.getNewQuantity());
-                    entry.setChangeAmount(movement.getChangeAmount());
-                    entry.setChangedAt(movement.getChangedAt());
-                    return entry;
-                })
-                .collect(Collectors.toList());
+    /**
+     * The newest {@code limit} stock movements (at most one page). Kept for old clients of
+     * /analytics/stock-history, which used to return the whole log.
+     *
+     * @deprecated page through {@link #getStockMovements} instead
+     */
+    @Deprecated
+    public List<StockHistoryEntry> getStockHistory(Integer limit) {
+        return getStockMovements(null, limit, null, null, null, null, null, null).data();
     }
 
-    public AnalyticsTopProductsGet200Response getTopProducts(LocalDate fromDate, LocalDate toDate, int limit, String sortBy) {
-        LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
-        LocalDateTime to = toDate != null ? toDate.atTime(23, 59, 59) : null;
-
-        List<OrderItem> items = orderItemRepository.findAll();
-
-        Map<Integer, TopProduct> topMap = new HashMap<>();
+    /**
+     * One keyset page of the stock movement log, newest first unless {@code sort} says otherwise.
+     * Each page is a single query with vendor product, product and vendor fetch-joined.
+     */
+    public CursorPageResponse<StockHistoryEntry> getStockMovements(String cursor,
+                                                                   Integer size,
+                                                                   String sort,
+                                                                   Integer vendorProductId,
+                                                                   Integer vendorId,
+                                                                   Integer productId,
+                                                                   LocalDateTime from,
+                                                                   LocalDateTime to) {
+        int validatedSize = CursorPaginationUtils.validatePageSize(size);
+        KeysetSort<VendorStockMovement> keysetSort = CursorPaginationUtils.parseSort(
+                sort != null ? sort : DEFAULT_MOVEMENT_SORT, MOVEMENT_SORTS);
+        KeysetCursor decodedCursor = KeysetCursor.decode(cursor, keysetSort);
+
+        List<VendorStockMovement> movements = vendorStockMovementRepository.seek(KeysetQuery.of(
+                vendorStockMovementRepository.filter(vendorProductId, vendorId, productId, from, to))
+                .orderBy(keysetSort)
+                .after(decodedCursor)
+                .limit(validatedSize + 1));
+
+        return CursorPaginationUtils.keysetPage(movements, validatedSize, keysetSort, decodedCursor,
+                this::mapToStockHistoryEntry);
+    }
 
-        for (OrderItem item : items) {
-            if (item.getOrder() == null || item.getOrder().getOrderDate() == null) {
-                continue;
-            }
-            LocalDateTime od = item.getOrder().getOrderDate();
-            if (from != null && od.isBefore(from)) {
-                continue;
-            }
-            if (to != null && od.isAfter(to)) {
-                continue;
-            }
-            if (item.getProduct() == null || item.getProduct().getId() == null) {
-                continue;
+    private StockHistoryEntry mapToStockHistoryEntry(VendorStockMovement movement) {
+        StockHistoryEntry entry = new StockHistoryEntry();
+        entry.setMovementId(movement.getId());
+        entry.setVendorProductId(movement.getVendorProduct() != null ? movement.getVendorProduct().getId() : null);
+        if (movement.getVendorProduct() != null) {
+            if (movement.getVendorProduct().getProduct() != null) {
+                entry.setProductId(movement.getVendorProduct().getProduct().getId());
+                entry.setProductName(movement.getVendorProduct().getProduct().getName());
             }
-            Integer productId = item.getProduct().getId();
-
-            TopProduct tp = topMap.computeIfAbsent(productId, id -> {
-                TopProduct t = new TopProduct();
-                t.setProductId(id);
-				t.setProductName(item.getProduct().getName());
-                t.setUnitsSold(0);
-                t.setTotalRevenue(BigDecimal.ZERO);
-                t.setTimesOrdered(0);
-                return t;
-            });
-
-            int qty = item.getQuantity() != null ? item.getQuantity() : 0;
-            tp.setUnitsSold((tp.getUnitsSold() != null ? tp.getUnitsSold() : 0) + qty);
-            if (item.getLineTotal() != null) {
-                tp.setTotalRevenue(tp.getTotalRevenue().add(item.getLineTotal()));
+            if (movement.getVendorProduct().getVendor() != null) {
+                entry.setVendorId(movement.getVendorProduct().getVendor().getId());
+                entry.setVendorName(movement.getVendorProduct().getVendor().getName());
             }
-            tp.setTimesOrdered((tp.getTimesOrdered() != null ? tp.getTimesOrdered() : 0) + 1);
+            entry.setVendorSku(movement.getVendorProduct().getVendorSku());
         }
+        entry.setPreviousQuantity(movement.getPreviousQuantity());
+        entry.setNewQuantity(movement.getNewQuantity());
+        entry.setChangeAmount(movement.getChangeAmount());
+        entry.setChangedAt(movement.getChangedAt());
+        return entry;
+    }
 
-        List<TopProduct> sorted = topMap.values().stream()
-                .sorted((a, b) -> {
-                    Comparator<BigDecimal> bigDecimalComparator = Comparator.nullsFirst(BigDecimal::compareTo);
-                    Comparator<Integer> intComparator = Comparator.nullsFirst(Integer::compareTo);
-                    if ("quantity".equalsIgnoreCase(sortBy)) {
-                        return intComparator.compare(a.getUnitsSold(), b.getUnitsSold()) * -1;
-                    }
-                    return bigDecimalComparator.compare(a.getTotalRevenue(), b.getTotalRevenue()) * -1;
+    public AnalyticsTopProductsGet200Response getTopProducts(LocalDate fromDate, LocalDate toDate, int limit, String sortBy) {
+        // Scans the in-memory fact columns instead of loading every order item with its order.
+        OrderItemFactTable.Totals totals = orderItemFactTable.totalsByProduct(fromDate, toDate);
+
+        boolean byQuantity = "quantity".equalsIgnoreCase(sortBy);
+        Comparator<Integer> ranking = byQuantity
+                ? Comparator.comparingLong(totals::units)
+                : Comparator.comparingLong(totals::cents);
+        ranking = ranking.thenComparing(slot -> totals.id(slot), Comparator.reverseOrder());
+
+        List<Integer> rankedSlots = TopNSelector.top(
+                IntStream.range(0, totals.slotCount()).filter(slot -> totals.lines(slot) > 0).boxed(),
+                limit, ranking);
+
+        Map<Integer, String> names = new HashMap<>();
+        productRepository.findAllById(rankedSlots.stream().map(totals::id).toList())
+                .forEach(p -> names.put(p.getId(), p.getName()));
+
+        List<TopProduct> sorted = rankedSlots.stream()
+                .map(slot -> {
+                    TopProduct t = new TopProduct();
+                    t.setProductId(totals.id(slot));
+                    t.setProductName(names.get(totals.id(slot)));
+                    t.setUnitsSold((int) totals.units(slot));
+                    t.setTotalRevenue(OrderItemFact.fromCents(totals.cents(slot)));
+                    t.setTimesOrdered(totals.lines(slot));
+                    return t;
                 })
-                .limit(limit)
                 .collect(Collectors.toList());
 
         AnalyticsTopProductsGet200Response response = new AnalyticsTopProductsGet200Response();
@@ -351,49 +359,28 @@ public class AnalyticsService {
     }
 
     public AnalyticsVendorRevenueGet200Response getVendorRevenue(LocalDate fromDate, LocalDate toDate) {
-        LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
-        LocalDateTime to = toDate != null ? toDate.atTime(23, 59, 59) : null;
-
-        List<OrderItem> items = orderItemRepository.findAll();
-
-        Map<Integer, VendorRevenue> revenueMap = new HashMap<>();
-
-        for (OrderItem item : items) {
-            if (item.getOrder() == null || item.getOrder().getOrderDate() == null) {
-                continue;
-            }
-            LocalDateTime od = item.getOrder().getOrderDate();
-            if (from != null && od.isBefore(from)) {
-                continue;
-            }
-            if (to != null && od.isAfter(to)) {
-                continue;
-            }
-            if (item.getVendor() == null || item.getVendor().getId() == null) {
-                continue;
-            }
-            Integer vendorId = item.getVendor().getId();
-
-            VendorRevenue vr = revenueMap.computeIfAbsent(vendorId, id -> {
-                VendorRevenue v = new VendorRevenue();
-                v.setVendorId(id);
-				v.setVendorName(item.getVendor().getName());
-                v.setOrdersFulfilled(0);
-                v.setUnitsSold(0);
-                v.setTotalRevenue(BigDecimal.ZERO);
-                return v;
-            });
-
-            int qty = item.getQuantity() != null ? item.getQuantity() : 0;
-            vr.setUnitsSold((vr.getUnitsSold() != null ? vr.getUnitsSold() : 0) + qty);
-            if (item.getLineTotal() != null) {
-                vr.setTotalRevenue(vr.getTotalRevenue().add(item.getLineTotal()));
-            }
-            vr.setOrdersFulfilled((vr.getOrdersFulfilled() != null ? vr.getOrdersFulfilled() : 0) + 1);
-        }
-
-        List<VendorRevenue> sorted = revenueMap.values().stream()
-                .sorted(Comparator.comparing(VendorRevenue::getTotalRevenue, Comparator.nullsFirst(BigDecimal::compareTo)).reversed())
+        OrderItemFactTable.Totals totals = orderItemFactTable.totalsByVendor(fromDate, toDate);
+
+        List<Integer> slots = IntStream.range(0, totals.slotCount())
+                .filter(slot -> totals.lines(slot) > 0)
+                .boxed()
+                .sorted(Comparator.comparingLong((Integer slot) -> totals.cents(slot)).reversed())
+                .toList();
+
+        Map<Integer, String> names = new HashMap<>();
+        vendorRepository.findAllById(slots.stream().map(totals::id).toList())
+                .forEach(v -> names.put(v.getId(), v.getName()));
+
+        List<VendorRevenue> sorted = slots.stream()
+                .map(slot -> {
+                    VendorRevenue v = new VendorRevenue();
+                    v.setVendorId(totals.id(slot));
+                    v.setVendorName(names.get(totals.id(slot)));
+                    v.setOrdersFulfilled(totals.lines(slot));
+                    v.setUnitsSold((int) totals.units(slot));
+                    v.setTotalRevenue(OrderItemFact.fromCents(totals.cents(slot)));
+                    return v;
+                })
                 .collect(Collectors.toList());
 
         AnalyticsVendorRevenueGet200Response response = new AnalyticsVendorRevenueGet200Response();
@@ -403,89 +390,17 @@ public class AnalyticsService {
     }
 
     public VendorsPerformanceGet200Response getVendorPerformance() {
-        List<VendorProduct> allVendorProducts = vendorProductRepository.findAll();
-
-        Map<Integer, VendorPerformance> byVendor = new HashMap<>();
-        Map<Integer, Integer> productCountByVendor = new HashMap<>();
-        Map<Integer, BigDecimal> totalPriceByVendor = new HashMap<>();
-        Map<Integer, Integer> priceCountByVendor = new HashMap<>();
-
-        Map<Integer, BigDecimal> minPriceByProduct = new HashMap<>();
-
-        for (VendorProduct vp : allVendorProducts) {
-            if (vp.getVendor() == null || vp.getVendor().getId() == null || vp.getProduct() == null
-                    || vp.getProduct().getId() == null) {
-                continue;
-            }
-
-            Integer vendorId = vp.getVendor().getId();
-            Integer productId = vp.getProduct().getId();
-
-            VendorPerformance perf = byVendor.computeIfAbsent(vendorId, id -> {
-                VendorPerformance v = new VendorPerformance();
-                v.setVendorId(id);
-                v.setVendorName(vp.getVendor().getName());
-                v.setTotalProducts(0);
-                v.setTotalStock(0);
-                v.setProductsWithLowestPrice(0);
-                return v;
-            });
-
-            productCountByVendor.merge(vendorId, 1, Integer::sum);
-
-            int stock = vp.getStockQuantity() != null ? vp.getStockQuantity() : 0;
-            perf.setTotalStock((perf.getTotalStock() != null ? perf.getTotalStock() : 0) + stock);
-
-            if (vp.getFinalPrice() != null) {
-                totalPriceByVendor.merge(vendorId, vp.getFinalPrice(), BigDecimal::add);
-                priceCountByVendor.merge(vendorId, 1, Integer::sum);
-            }
-
-            if (Boolean.TRUE.equals(vp.getAvailable()) && vp.getStockQuantity() != null && vp.getStockQuantity() > 0
-                    && vp.getFinalPrice() != null) {
-                minPriceByProduct.merge(productId, vp.getFinalPrice(), (oldVal, newVal) -> oldVal.min(newVal));
-            }
-        }
-
-        Map<Integer, java.util.Set<Integer>> lowestPriceProductsByVendor = new HashMap<>();
-
-        for (VendorProduct vp : allVendorProducts) {
-            if (vp.getVendor() == null || vp.getVendor().getId() == null || vp.getProduct() == null
-                    || vp.getProduct().getId() == null || vp.getFinalPrice() == null) {
-                continue;
-            }
-            if (!Boolean.TRUE.equals(vp.getAvailable()) || vp.getStockQuantity() == null || vp.getStockQuantity() <= 0) {
-                continue;
-            }
-
-            Integer vendorId = vp.getVendor().getId();
-            Integer productId = vp.getProduct().getId();
-            BigDecimal minPrice = minPriceByProduct.get(productId);
-            if (minPrice != null && vp.getFinalPrice().compareTo(minPrice) == 0) {
-                lowestPriceProductsByVendor
-                        .computeIfAbsent(vendorId, id -> new java.util.HashSet<>())
-                        .add(productId);
-            }
-        }
-
-        for (Map.Entry<Integer, VendorPerformance> entry : byVendor.entrySet()) {
-            Integer vendorId = entry.getKey();
-            VendorPerformance perf = entry.getValue();
-
-            perf.setTotalProducts(productCountByVendor.getOrDefault(vendorId, 0));
-
-            BigDecimal totalPrice = totalPriceByVendor.get(vendorId);
-            Integer count = priceCountByVendor.get(vendorId);
-            if (totalPrice != null && count != null && count > 0) {
-                perf.setAvgPrice(totalPrice.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP));
-            }
-
-            java.util.Set<Integer> lowestSet = lowestPriceProductsByVendor.get(vendorId);
-            perf.setProductsWithLowestPrice(lowestSet != null ? lowestSet.size() : 0);
-        }
-
-        List<VendorPerformance> result = byVendor.values().stream()
-                .sorted(Comparator.comparing(VendorPerformance::getVendorName, Comparator.nullsLast(String::compareToIgnoreCase)))
+        List<VendorPerformance> result = vendorScorecard.scores().stream()
+                .map(score -> {
+                    VendorPerformance perf = new VendorPerformance();
+                    perf.setVendorId(score.vendorId());
+                    perf.setVendorName(score.vendorName());
+                    perf.setTotalProducts(score.totalProducts());
+                    perf.setTotalStock(score.totalStock());
+                    perf.setAvgPrice(score.avgPrice());
+                    perf.setProductsWithLowestPrice(score.lowestPriceWins());
+                    return perf;
+                })
                 .collect(Collectors.toList());
 
         VendorsPerformanceGet200Response response = new VendorsPerformanceGet200Response();
@@ -1,6 +1,9 @@
 package com.echohealthcare.mvps.service;
 
+import com.echohealthcare.mvps.event.CategoryChangedEvent;
+import com.echohealthcare.mvps.index.CategoryTree;
 import com.echohealthcare.mvps.repository.ProductCategoryRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -9,21 +12,22 @@ import org.springframework.transaction.annotation.Transactional;
 public class CategoryService {
 
 	private final ProductCategoryRepository categoryRepository;
+	private final CategoryTree categoryTree;
+	private final ApplicationEventPublisher eventPublisher;
 
-	public CategoryService(ProductCategoryRepository categoryRepository) {
+	public CategoryService(ProductCategoryRepository categoryRepository,
+			CategoryTree categoryTree,
+			ApplicationEventPublisher eventPublisher) {
 		this.categoryRepository = categoryRepository;
+		this.categoryTree = categoryTree;
+		this.eventPublisher = eventPublisher;
 	}
 
 	public com.echohealthcare.mvps.model.CategoriesGet200Response getCategories(Integer parentCategoryId) {
-		java.util.List<com.echohealthcare.mvps.domain.ProductCategory> categories;
-		java.util.List<com.echohealthcare.mvps.domain.ProductCategory> all = categoryRepository.findAll();
-		if (parentCategoryId != null) {
-			categories = all.stream()
-					.filter(c -> c.getParentCategory() != null && parentCategoryId.equals(c.getParentCategory().getId()))
-					.toList();
-		} else {
-			categories = all;
-		}
+		// Served from the in-memory tree, which the change events keep in step with the table.
+		java.util.List<CategoryTree.Category> categories = parentCategoryId != null
+				? categoryTree.children(parentCategoryId)
+				: categoryTree.categories();
 
 		com.echohealthcare.mvps.model.CategoriesGet200Response response = new com.echohealthcare.mvps.model.CategoriesGet200Response();
 		response.setSuccess(true);
@@ -35,6 +39,7 @@ public class CategoryService {
 		com.echohealthcare.mvps.domain.ProductCategory category = new com.echohealthcare.mvps.domain.ProductCategory();
 		applyCreate(request, category);
 		com.echohealthcare.mvps.domain.ProductCategory saved = categoryRepository.save(category);
+		eventPublisher.publishEvent(CategoryChangedEvent.of(saved));
 
 		com.echohealthcare.mvps.model.CategoriesPost201Response response = new com.echohealthcare.mvps.model.CategoriesPost201Response();
 		response.setSuccess(true);
@@ -60,6 +65,7 @@ public class CategoryService {
 
 		applyUpdate(request, category);
 		com.echohealthcare.mvps.domain.ProductCategory saved = categoryRepository.save(category);
+		eventPublisher.publishEvent(CategoryChangedEvent.of(saved));
 
 		com.echohealthcare.mvps.model.CategoriesCategoryIdPut200Response response = new com.echohealthcare.mvps.model.CategoriesCategoryIdPut200Response();
 		response.setSuccess(true);
@@ -72,6 +78,7 @@ public class CategoryService {
 		com.echohealthcare.mvps.domain.ProductCategory category = categoryRepository.findById(categoryId)
 				.orElseThrow(() -> new ResourceNotFoundException("Category not found"));
 		categoryRepository.delete(category);
+		eventPublisher.publishEvent(CategoryChangedEvent.deleted(categoryId));
 
 		com.echohealthcare.mvps.model.CategoriesCategoryIdDelete200Response response = new com.echohealthcare.mvps.model.CategoriesCategoryIdDelete200Response();
 		response.setSuccess(true);
@@ -101,6 +108,9 @@ public class CategoryService {
 		}
 		if (request.getParentCategoryId() != null && request.getParentCategoryId().isPresent()) {
 			Integer parentId = request.getParentCategoryId().get();
+			if (categoryTree.contains(category.getId(), parentId)) {
+				throw new InvalidRequestException("A category cannot be moved under itself or one of its subcategories");
+			}
 			com.echohealthcare.mvps.domain.ProductCategory parent = categoryRepository.findById(parentId)
 					.orElseThrow(() -> new ResourceNotFoundException("Parent category not found"));
 			category.setParentCategory(parent);
@@ -118,4 +128,16 @@ public class CategoryService {
 		model.createdAt(entity.getCreatedAt());
 		return model;
 	}
+
+	private com.echohealthcare.mvps.model.ProductCategory mapToModel(CategoryTree.Category category) {
+		com.echohealthcare.mvps.model.ProductCategory model = new com.echohealthcare.mvps.model.ProductCategory();
+		model.categoryId(category.categoryId());
+		model.categoryName(category.categoryName());
+		model.description(category.description());
+		if (category.parentCategoryId() != null) {
+			model.parentCategoryId(category.parentCategoryId());
+		}
+		model.createdAt(category.createdAt());
+		return model;
+	}
 }
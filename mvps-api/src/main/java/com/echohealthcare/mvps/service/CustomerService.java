@@ -2,32 +2,54 @@ package com.echohealthcare.mvps.service;
 
 import com.echohealthcare.mvps.domain.Customer;
 import com.echohealthcare.mvps.dto.CursorPageResponse;
+import com.echohealthcare.mvps.dto.CustomerOrderRow;
 import com.echohealthcare.mvps.model.*;
 import com.echohealthcare.mvps.repository.CustomerRepository;
+import com.echohealthcare.mvps.repository.KeysetQuery;
 import com.echohealthcare.mvps.repository.OrderRepository;
 import com.echohealthcare.mvps.util.CursorPaginationUtils;
-import org.springframework.data.domain.Page;
+import com.echohealthcare.mvps.util.KeysetCursor;
+import com.echohealthcare.mvps.util.KeysetSort;
+import com.echohealthcare.mvps.util.TotalMode;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @Transactional
 public class CustomerService {
 
+    private static final Map<String, KeysetSort.Field<Customer>> CURSOR_SORTS = Map.of(
+            KeysetSort.ID, KeysetSort.field("c.id", Customer::getId),
+            "name", KeysetSort.field("c.name", Customer::getName));
+
+    // Newest first; the id breaks ties between orders placed in the same instant.
+    private static final KeysetSort<CustomerOrderRow> ORDER_HISTORY_SORT = KeysetSort.parse("orderDate,desc", Map.of(
+            KeysetSort.ID, KeysetSort.field("o.id", CustomerOrderRow::orderId),
+            "orderDate", KeysetSort.field("o.orderDate", CustomerOrderRow::orderDate)));
+
     private final CustomerRepository customerRepository;
     private final OrderRepository orderRepository;
+    private final SalesRollupService salesRollupService;
+    private final PageTotalResolver pageTotalResolver;
 
     public CustomerService(CustomerRepository customerRepository,
-                           OrderRepository orderRepository) {
+                           OrderRepository orderRepository,
+                           SalesRollupService salesRollupService,
+                           PageTotalResolver pageTotalResolver) {
         this.customerRepository = customerRepository;
         this.orderRepository = orderRepository;
+        this.salesRollupService = salesRollupService;
+        this.pageTotalResolver = pageTotalResolver;
     }
 
     public CustomersGet200Response getCustomers(String customerType,
@@ -35,9 +57,10 @@ public class CustomerService {
                                                 String city,
                                                 String search,
                                                 int page,
-                                                int limit) {
+                                                int limit,
+                                                String totalMode) {
         Pageable pageable = PageRequest.of(Math.max(page - 1, 0), limit);
-        Page<Customer> customerPage = customerRepository.search(
+        Slice<Customer> customerPage = customerRepository.search(
             customerType,
             isActive,
             city,
@@ -49,12 +72,9 @@ public class CustomerService {
         response.setSuccess(true);
         customerPage.getContent().forEach(c -> response.addDataItem(mapToModel(c)));
 
-        Pagination pagination = new Pagination();
-        pagination.setPage(page);
-        pagination.setLimit(limit);
-		pagination.setTotalItems((int) customerPage.getTotalElements());
-		pagination.setTotalPages(customerPage.getTotalPages());
-        response.setPagination(pagination);
+        response.setPagination(pageTotalResolver.paginate(page, limit, customerPage, TotalMode.parse(totalMode),
+            "customers", Arrays.asList(customerType, isActive, city, search),
+            () -> customerRepository.countSearch(customerType, isActive, city, search)));
         return response;
     }
 
@@ -64,35 +84,23 @@ public class CustomerService {
     public CursorPageResponse<com.echohealthcare.mvps.model.Customer> getCustomersByCursor(
             String cursor,
             Integer size,
+            String sort,
             String customerType,
             Boolean isActive,
             String city,
             String search) {
 
         int validatedSize = CursorPaginationUtils.validatePageSize(size);
-        Integer decodedCursor = CursorPaginationUtils.decodeCursor(cursor);
-
-        Pageable pageable = PageRequest.of(0, validatedSize + 1);
-        List<Customer> customers = customerRepository.searchByCursor(
-            decodedCursor, customerType, isActive, city, search, pageable);
-
-        boolean hasNext = customers.size() > validatedSize;
-        List<Customer> pageItems = hasNext ? customers.subList(0, validatedSize) : customers;
+        KeysetSort<Customer> keysetSort = CursorPaginationUtils.parseSort(sort, CURSOR_SORTS);
+        KeysetCursor decodedCursor = KeysetCursor.decode(cursor, keysetSort);
 
-        Integer nextCursorValue = hasNext && !pageItems.isEmpty()
-            ? pageItems.get(pageItems.size() - 1).getId()
-            : null;
+        List<Customer> customers = customerRepository.seek(KeysetQuery.of(
+            customerRepository.filter(customerType, isActive, city, search))
+            .orderBy(keysetSort)
+            .after(decodedCursor)
+            .limit(validatedSize + 1));
 
-        List<com.echohealthcare.mvps.model.Customer> responseData = pageItems.stream()
-            .map(this::mapToModel)
-            .collect(Collectors.toList());
-
-        return new CursorPageResponse<>(
-            responseData,
-            validatedSize,
-            CursorPaginationUtils.encodeCursor(nextCursorValue),
-            hasNext
-        );
+        return CursorPaginationUtils.keysetPage(customers, validatedSize, keysetSort, decodedCursor, this::mapToModel);
     }
 
     public CustomersPost201Response createCustomer(CustomerCreate request) {
@@ -143,56 +151,97 @@ public class CustomerService {
         return response;
     }
 
+    /**
+     * One page of a customer's order history, newest first.
+     *
+     * Rows are read as a projection of the listed columns and paged by keyset on (orderDate, id), so
+     * each page is an index range scan no matter how deep it is. The summary comes from the
+     * customer_order_summary row kept by {@link SalesRollupService}, not from the orders themselves.
+     */
     public CustomersCustomerIdOrdersGet200Response getCustomerOrders(Integer customerId,
                                                                      String orderStatus,
                                                                      LocalDate fromDate,
-                                                                     LocalDate toDate) {
-        customerRepository.findById(customerId)
-                .orElseThrow(() -> new ResourceNotFoundException("Customer not found"));
+                                                                     LocalDate toDate,
+                                                                     String cursor,
+                                                                     Integer size,
+                                                                     boolean includeSummary) {
+        if (!customerRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException("Customer not found");
+        }
 
         LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
         LocalDateTime to = toDate != null ? toDate.atTime(23, 59, 59) : null;
 
-        // reuse OrderService-style projection via repository search
-        var page = orderRepository.search(customerId, orderStatus, null, null, from, to, Pageable.unpaged());
+        int validatedSize = CursorPaginationUtils.validatePageSize(size);
+        KeysetCursor decodedCursor = KeysetCursor.decode(cursor, ORDER_HISTORY_SORT);
+        List<CustomerOrderRow> rows = orderRepository.seekHistory(KeysetQuery.of(
+            orderRepository.filter(customerId, orderStatus, null, null, from, to))
+            .orderBy(ORDER_HISTORY_SORT)
+            .after(decodedCursor)
+            .limit(validatedSize + 1));
+        CursorPageResponse<com.echohealthcare.mvps.model.Order> page = CursorPaginationUtils.keysetPage(
+            rows, validatedSize, ORDER_HISTORY_SORT, decodedCursor, row -> mapToOrderModel(customerId, row));
 
         CustomersCustomerIdOrdersGet200Response response = new CustomersCustomerIdOrdersGet200Response();
         response.setSuccess(true);
-        page.getContent().forEach(order -> {
-            com.echohealthcare.mvps.model.Order model = new com.echohealthcare.mvps.model.Order();
-            model.orderId(order.getId());
-            model.orderNumber(order.getOrderNumber());
-            model.customerId(order.getCustomer() != null ? order.getCustomer().getId() : null);
-            if (order.getOrderType() != null) {
-                try {
-                    model.setOrderType(com.echohealthcare.mvps.model.Order.OrderTypeEnum.fromValue(order.getOrderType()));
-                } catch (IllegalArgumentException ignored) {
-                }
+        response.setData(page.data());
+        response.setPagination(new CursorPagination()
+            .pageSize(page.pageSize())
+            .nextCursor(page.nextCursor())
+            .hasNext(page.hasNext())
+            .previousCursor(page.previousCursor())
+            .hasPrevious(page.hasPrevious()));
+        if (includeSummary) {
+            response.setSummary(getOrderSummary(customerId));
+        }
+        return response;
+    }
+
+    private com.echohealthcare.mvps.model.CustomerOrderSummary getOrderSummary(Integer customerId) {
+        com.echohealthcare.mvps.model.CustomerOrderSummary model = new com.echohealthcare.mvps.model.CustomerOrderSummary()
+            .customerId(customerId)
+            .orderCount(0)
+            .cancelledCount(0)
+            .totalSpend(BigDecimal.ZERO);
+        salesRollupService.findCustomerSummary(customerId).ifPresent(summary -> model
+            .orderCount(summary.getOrderCount())
+            .cancelledCount(summary.getCancelledCount())
+            .totalSpend(summary.getRevenue().subtract(summary.getCancelledRevenue()))
+            .lastOrderDate(summary.getLastOrderDate()));
+        return model;
+    }
+
+    private com.echohealthcare.mvps.model.Order mapToOrderModel(Integer customerId, CustomerOrderRow row) {
+        com.echohealthcare.mvps.model.Order model = new com.echohealthcare.mvps.model.Order();
+        model.orderId(row.orderId());
+        model.orderNumber(row.orderNumber());
+        model.customerId(customerId);
+        if (row.orderType() != null) {
+            try {
+                model.setOrderType(com.echohealthcare.mvps.model.Order.OrderTypeEnum.fromValue(row.orderType()));
+            } catch (IllegalArgumentException ignored) {
             }
-            if (order.getOrderStatus() != null) {
-                try {
-                    model.setOrderStatus(com.echohealthcare.mvps.model.Order.OrderStatusEnum.fromValue(order.getOrderStatus()));
-                } catch (IllegalArgumentException ignored) {
-                }
+        }
+        if (row.orderStatus() != null) {
+            try {
+                model.setOrderStatus(com.echohealthcare.mvps.model.Order.OrderStatusEnum.fromValue(row.orderStatus()));
+            } catch (IllegalArgumentException ignored) {
             }
-            if (order.getPaymentStatus() != null) {
-                try {
-                    model.setPaymentStatus(com.echohealthcare.mvps.model.Order.PaymentStatusEnum.fromValue(order.getPaymentStatus()));
-                } catch (IllegalArgumentException ignored) {
-                }
+        }
+        if (row.paymentStatus() != null) {
+            try {
+                model.setPaymentStatus(com.echohealthcare.mvps.model.Order.PaymentStatusEnum.fromValue(row.paymentStatus()));
+            } catch (IllegalArgumentException ignored) {
             }
-            model.orderDate(order.getOrderDate());
-            model.totalAmount(order.getTotalAmount());
-            model.discountAmount(order.getDiscountAmount());
-            model.taxAmount(order.getTaxAmount());
-            model.finalAmount(order.getFinalAmount());
-            model.deliveryAddress(order.getDeliveryAddress());
-            model.notes(order.getNotes());
-            model.createdAt(order.getCreatedAt());
-            model.updatedAt(order.getUpdatedAt());
-            response.addDataItem(model);
-        });
-        return response;
+        }
+        model.orderDate(row.orderDate());
+        model.totalAmount(row.totalAmount());
+        model.discountAmount(row.discountAmount());
+        model.taxAmount(row.taxAmount());
+        model.finalAmount(row.finalAmount());
+        model.createdAt(row.createdAt());
+        model.updatedAt(row.updatedAt());
+        return model;
     }
 
     private void applyCreate(CustomerCreate request, Customer customer) {
@@ -0,0 +1,111 @@
+package com.echohealthcare.mvps.service;
+
+import com.echohealthcare.mvps.config.ReplicaRoutingDataSource;
+import com.echohealthcare.mvps.dto.DashboardSection;
+import com.echohealthcare.mvps.dto.DashboardSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Computes the sections of a dashboard snapshot concurrently, one virtual thread per section.
+ *
+ * Every section gets the same deadline, {@code mvps.dashboard.section-timeout-ms} after the request
+ * started, so a snapshot takes about as long as its slowest section and never much longer than the
+ * timeout. Sections that miss the deadline or fail are reported as such and the rest are returned.
+ * Across all requests at most {@code mvps.dashboard.max-concurrent-sections} sections run at once,
+ * which bounds the database connections dashboards can take from the pool.
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardService.class);
+
+    private final long sectionTimeoutMs;
+    private final Semaphore sectionSlots;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("dashboard-section-", 0).factory());
+
+    public DashboardService(@Value("${mvps.dashboard.section-timeout-ms:5000}") long sectionTimeoutMs,
+                            @Value("${mvps.dashboard.max-concurrent-sections:8}") int maxConcurrentSections) {
+        this.sectionTimeoutMs = sectionTimeoutMs;
+        this.sectionSlots = new Semaphore(maxConcurrentSections, true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs every section loader and collects their results under the section names, in map order.
+     */
+    public DashboardSnapshot snapshot(Map<String, Supplier<?>> loaders) {
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMs);
+
+        Map<String, Future<Loaded>> running = new LinkedHashMap<>();
+        loaders.forEach((name, loader) -> running.put(name, executor.submit(
+                ReplicaRoutingDataSource.bindClient(() -> load(loader, started)))));
+
+        Map<String, DashboardSection> sections = new LinkedHashMap<>();
+        boolean complete = true;
+        for (Map.Entry<String, Future<Loaded>> section : running.entrySet()) {
+            DashboardSection result = await(section.getKey(), section.getValue(), started, deadline);
+            complete &= "ok".equals(result.status());
+            sections.put(section.getKey(), result);
+        }
+        return new DashboardSnapshot(LocalDateTime.now(), complete, sections);
+    }
+
+    private Loaded load(Supplier<?> loader, long started) throws InterruptedException {
+        sectionSlots.acquire();
+        try {
+            Object data = loader.get();
+            return new Loaded(data, elapsedMs(started));
+        } finally {
+            sectionSlots.release();
+        }
+    }
+
+    private DashboardSection await(String name, Future<Loaded> future, long started, long deadline) {
+        try {
+            Loaded loaded = future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return new DashboardSection("ok", loaded.elapsedMs(), null, loaded.data());
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            log.warn("Dashboard section {} did not finish within {} ms", name, sectionTimeoutMs);
+            return new DashboardSection("timeout", elapsedMs(started),
+                    "Not finished within " + sectionTimeoutMs + " ms", null);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            log.warn("Dashboard section {} failed", name, cause);
+            return new DashboardSection("error", elapsedMs(started),
+                    cause.getMessage() != null ? cause.getMessage() : cause.toString(), null);
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new DashboardSection("error", elapsedMs(started), "Interrupted", null);
+        }
+    }
+
+    private static long elapsedMs(long started) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    private record Loaded(Object data, long elapsedMs) {}
+}
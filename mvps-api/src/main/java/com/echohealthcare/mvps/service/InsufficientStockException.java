@@ -0,0 +1,8 @@
+package com.echohealthcare.mvps.service;
+
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
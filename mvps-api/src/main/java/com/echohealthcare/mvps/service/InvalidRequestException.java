@@ -0,0 +1,8 @@
+package com.echohealthcare.mvps.service;
+
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -1,12 +1,15 @@
 package com.echohealthcare.mvps.service;
 
 import com.echohealthcare.mvps.domain.OrderItem;
+import com.echohealthcare.mvps.event.OrderItemFact;
+import com.echohealthcare.mvps.event.OrderItemsChangedEvent;
 import com.echohealthcare.mvps.model.OrderItemUpdate;
 import com.echohealthcare.mvps.model.OrderItemsGet200Response;
 import com.echohealthcare.mvps.model.OrderItemsOrderItemIdDelete200Response;
 import com.echohealthcare.mvps.model.OrderItemsOrderItemIdGet200Response;
 import com.echohealthcare.mvps.model.OrderItemsOrderItemIdPut200Response;
 import com.echohealthcare.mvps.repository.OrderItemRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,9 +21,12 @@ import java.util.List;
 public class OrderItemService {
 
     private final OrderItemRepository orderItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public OrderItemService(OrderItemRepository orderItemRepository) {
+    public OrderItemService(OrderItemRepository orderItemRepository,
+                            ApplicationEventPublisher eventPublisher) {
         this.orderItemRepository = orderItemRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public OrderItemsGet200Response getOrderItems(Integer orderId, Integer vendorId, Integer productId) {
@@ -67,6 +73,7 @@ public class OrderItemService {
         item.setLineTotal(lineTotal);
 
         OrderItem saved = orderItemRepository.save(item);
+        eventPublisher.publishEvent(OrderItemsChangedEvent.updated(OrderItemFact.of(saved)));
 
         OrderItemsOrderItemIdPut200Response response = new OrderItemsOrderItemIdPut200Response();
         response.setSuccess(true);
@@ -79,6 +86,7 @@ public class OrderItemService {
         OrderItem item = orderItemRepository.findById(orderItemId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order item not found"));
         orderItemRepository.delete(item);
+        eventPublisher.publishEvent(OrderItemsChangedEvent.removed(orderItemId));
 
         OrderItemsOrderItemIdDelete200Response response = new OrderItemsOrderItemIdDelete200Response();
         response.setSuccess(true);
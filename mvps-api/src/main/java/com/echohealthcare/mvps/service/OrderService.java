@@ -6,16 +6,28 @@ import com.echohealthcare.mvps.domain.OrderItem;
 import com.echohealthcare.mvps.domain.Product;
 import com.echohealthcare.mvps.domain.VendorProduct;
 import com.echohealthcare.mvps.dto.CursorPageResponse;
+import com.echohealthcare.mvps.event.DataChangedEvent;
+import com.echohealthcare.mvps.event.DataTopic;
+import com.echohealthcare.mvps.event.OrderItemFact;
+import com.echohealthcare.mvps.event.OrderItemsChangedEvent;
+import com.echohealthcare.mvps.id.OrderNumberGenerator;
+import com.echohealthcare.mvps.index.LowestPriceIndex;
 import com.echohealthcare.mvps.model.*;
 import com.echohealthcare.mvps.repository.CustomerRepository;
+import com.echohealthcare.mvps.repository.EntityLookup;
+import com.echohealthcare.mvps.repository.KeysetQuery;
 import com.echohealthcare.mvps.repository.OrderItemRepository;
 import com.echohealthcare.mvps.repository.OrderRepository;
-import com.echohealthcare.mvps.repository.ProductRepository;
 import com.echohealthcare.mvps.repository.VendorProductRepository;
+import com.echohealthcare.mvps.stock.StockReservationService;
 import com.echohealthcare.mvps.util.CursorPaginationUtils;
-import org.springframework.data.domain.Page;
+import com.echohealthcare.mvps.util.KeysetCursor;
+import com.echohealthcare.mvps.util.KeysetSort;
+import com.echohealthcare.mvps.util.TotalMode;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,31 +35,57 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderService {
 
+    private static final Map<String, KeysetSort.Field<Order>> CURSOR_SORTS = Map.of(
+            KeysetSort.ID, KeysetSort.field("o.id", Order::getId),
+            "orderDate", KeysetSort.field("o.orderDate", Order::getOrderDate));
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CustomerRepository customerRepository;
-    private final ProductRepository productRepository;
+    private final EntityLookup entityLookup;
     private final VendorProductRepository vendorProductRepository;
+    private final SalesRollupService salesRollupService;
+    private final LowestPriceIndex lowestPriceIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PageTotalResolver pageTotalResolver;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final StockReservationService stockReservationService;
 
     public OrderService(OrderRepository orderRepository,
                         OrderItemRepository orderItemRepository,
                         CustomerRepository customerRepository,
-                        ProductRepository productRepository,
-                        VendorProductRepository vendorProductRepository) {
+                        EntityLookup entityLookup,
+                        VendorProductRepository vendorProductRepository,
+                        SalesRollupService salesRollupService,
+                        LowestPriceIndex lowestPriceIndex,
+                        ApplicationEventPublisher eventPublisher,
+                        PageTotalResolver pageTotalResolver,
+                        OrderNumberGenerator orderNumberGenerator,
+                        StockReservationService stockReservationService) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.customerRepository = customerRepository;
-        this.productRepository = productRepository;
+        this.entityLookup = entityLookup;
         this.vendorProductRepository = vendorProductRepository;
+        this.salesRollupService = salesRollupService;
+        this.lowestPriceIndex = lowestPriceIndex;
+        this.eventPublisher = eventPublisher;
+        this.pageTotalResolver = pageTotalResolver;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.stockReservationService = stockReservationService;
     }
 
     public OrdersGet200Response getOrders(Integer customerId,
@@ -57,12 +95,13 @@ public class OrderService {
                                           LocalDate fromDate,
                                           LocalDate toDate,
                                           int page,
-                                          int limit) {
+                                          int limit,
+                                          String totalMode) {
         Pageable pageable = PageRequest.of(Math.max(page - 1, 0), limit);
         LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
         LocalDateTime to = toDate != null ? toDate.atTime(23, 59, 59) : null;
 
-        Page<Order> orderPage = orderRepository.search(customerId, orderStatus, paymentStatus, orderType, from, to, pageable);
+        Slice<Order> orderPage = orderRepository.search(customerId, orderStatus, paymentStatus, orderType, from, to, pageable);
 
         OrdersGet200Response response = new OrdersGet200Response();
         response.setSuccess(true);
@@ -71,12 +110,9 @@ public class OrderService {
             response.addDataItem(model);
         }
 
-        Pagination pagination = new Pagination();
-        pagination.setPage(page);
-        pagination.setLimit(limit);
-		pagination.setTotalItems((int) orderPage.getTotalElements());
-		pagination.setTotalPages(orderPage.getTotalPages());
-        response.setPagination(pagination);
+        response.setPagination(pageTotalResolver.paginate(page, limit, orderPage, TotalMode.parse(totalMode),
+            "orders", Arrays.asList(customerId, orderStatus, paymentStatus, orderType, from, to),
+            () -> orderRepository.countSearch(customerId, orderStatus, paymentStatus, orderType, from, to)));
         return response;
     }
 
@@ -86,6 +122,7 @@ public class OrderService {
     public CursorPageResponse<com.echohealthcare.mvps.model.Order> getOrdersByCursor(
             String cursor,
             Integer size,
+            String sort,
             Integer customerId,
             String orderStatus,
             String paymentStatus,
@@ -94,31 +131,18 @@ public class OrderService {
             LocalDate toDate) {
 
         int validatedSize = CursorPaginationUtils.validatePageSize(size);
-        Integer decodedCursor = CursorPaginationUtils.decodeCursor(cursor);
+        KeysetSort<Order> keysetSort = CursorPaginationUtils.parseSort(sort, CURSOR_SORTS);
+        KeysetCursor decodedCursor = KeysetCursor.decode(cursor, keysetSort);
         LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
         LocalDateTime to = toDate != null ? toDate.atTime(23, 59, 59) : null;
 
-        Pageable pageable = PageRequest.of(0, validatedSize + 1);
-        List<Order> orders = orderRepository.searchByCursor(
-            decodedCursor, customerId, orderStatus, paymentStatus, orderType, from, to, pageable);
-
-        boolean hasNext = orders.size() > validatedSize;
-        List<Order> pageItems = hasNext ? orders.subList(0, validatedSize) : orders;
-
-        Integer nextCursorValue = hasNext && !pageItems.isEmpty()
-            ? pageItems.get(pageItems.size() - 1).getId()
-            : null;
-
-        List<com.echohealthcare.mvps.model.Order> responseData = pageItems.stream()
-            .map(this::mapToOrderModel)
-            .collect(Collectors.toList());
+        List<Order> orders = orderRepository.seek(KeysetQuery.of(
+            orderRepository.filter(customerId, orderStatus, paymentStatus, orderType, from, to))
+            .orderBy(keysetSort)
+            .after(decodedCursor)
+            .limit(validatedSize + 1));
 
-        return new CursorPageResponse<>(
-            responseData,
-            validatedSize,
-            CursorPaginationUtils.encodeCursor(nextCursorValue),
-            hasNext
-        );
+        return CursorPaginationUtils.keysetPage(orders, validatedSize, keysetSort, decodedCursor, this::mapToOrderModel);
     }
 
     public OrdersPost201Response createOrder(OrderCreate request) {
@@ -131,7 +155,7 @@ public class OrderService {
 
         Order order = new Order();
         order.setCustomer(customer);
-        order.setOrderNumber(generateOrderNumber());
+        order.setOrderNumber(orderNumberGenerator.next("ORD"));
         order.setOrderType(request.getOrderType() != null ? request.getOrderType().getValue() : null);
         order.setDeliveryAddress(request.getDeliveryAddress());
         order.setNotes(request.getNotes());
@@ -142,22 +166,37 @@ public class OrderService {
         BigDecimal totalDiscount = BigDecimal.ZERO;
         BigDecimal totalTax = BigDecimal.ZERO;
 
+        // Resolve all products and vendor products up front so the query count does not grow with the lines.
+        // Products come from the second-level cache where possible.
+        Map<Integer, Product> productsById = new HashMap<>();
+        entityLookup.findAllById(Product.class, request.getItems().stream()
+                        .map(OrderCreateItemsInner::getProductId)
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .collect(Collectors.toList()))
+                .forEach(p -> productsById.put(p.getId(), p));
+        ResolvedOffers offers = resolveVendorProducts(request.getItems());
+
         List<OrderItem> items = new ArrayList<>();
         for (OrderCreateItemsInner itemRequest : request.getItems()) {
             OrderItem item = new OrderItem();
             item.setOrder(order);
 
-            Product product = productRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            Product product = productsById.get(itemRequest.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found");
+            }
             item.setProduct(product);
 
             Integer vendorProductId = itemRequest.getVendorProductId().orElse(null);
             VendorProduct vendorProduct;
             if (vendorProductId != null) {
-                vendorProduct = vendorProductRepository.findById(vendorProductId)
-                        .orElseThrow(() -> new ResourceNotFoundException("Vendor product not found"));
+                vendorProduct = offers.byId().get(vendorProductId);
+                if (vendorProduct == null) {
+                    throw new ResourceNotFoundException("Vendor product not found");
+                }
             } else {
-                vendorProduct = selectLowestPriceVendorProduct(product.getId());
+                vendorProduct = offers.lowestByProduct().get(product.getId());
                 if (vendorProduct == null) {
                     throw new ResourceNotFoundException("No vendor product available for product " + product.getId());
                 }
@@ -191,6 +230,11 @@ public class OrderService {
 
         order.setItems(items);
         Order savedOrder = orderRepository.save(order);
+        salesRollupService.orderCreated(savedOrder);
+        stockReservationService.reserve(savedOrder);
+        eventPublisher.publishEvent(OrderItemsChangedEvent.added(
+                savedOrder.getItems().stream().map(OrderItemFact::of).toList()));
+        publishOrderChanged(savedOrder);
 
         OrdersPost201Response response = new OrdersPost201Response();
         response.setSuccess(true);
@@ -212,6 +256,8 @@ public class OrderService {
     public OrdersOrderIdPut200Response updateOrder(Integer orderId, OrderUpdate request) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        SalesRollupService.Contribution before = salesRollupService.snapshot(order);
+        String previousStatus = order.getOrderStatus();
 
         if (request.getOrderStatus() != null) {
             order.setOrderStatus(request.getOrderStatus().getValue());
@@ -243,6 +289,9 @@ public class OrderService {
         }
 
         Order saved = orderRepository.save(order);
+        salesRollupService.orderChanged(before, saved);
+        stockReservationService.orderChanged(previousStatus, saved);
+        publishOrderChanged(saved);
 
         OrdersOrderIdPut200Response response = new OrdersOrderIdPut200Response();
         response.setSuccess(true);
@@ -254,8 +303,13 @@ public class OrderService {
     public OrdersOrderIdDelete200Response cancelOrder(Integer orderId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        SalesRollupService.Contribution before = salesRollupService.snapshot(order);
+        String previousStatus = order.getOrderStatus();
         order.setOrderStatus("cancelled");
         orderRepository.save(order);
+        salesRollupService.orderChanged(before, order);
+        stockReservationService.orderChanged(previousStatus, order);
+        publishOrderChanged(order);
 
         OrdersOrderIdDelete200Response response = new OrdersOrderIdDelete200Response();
         response.setSuccess(true);
@@ -269,6 +323,8 @@ public class OrderService {
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
         order.setPaymentStatus(request.getPaymentStatus().getValue());
         Order saved = orderRepository.save(order);
+        stockReservationService.orderChanged(saved.getOrderStatus(), saved);
+        publishOrderChanged(saved);
 
         OrdersOrderIdPaymentStatusPatch200Response response = new OrdersOrderIdPaymentStatusPatch200Response();
         response.setSuccess(true);
@@ -281,8 +337,13 @@ public class OrderService {
                                                                  OrdersOrderIdStatusPatchRequest request) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        SalesRollupService.Contribution before = salesRollupService.snapshot(order);
+        String previousStatus = order.getOrderStatus();
         order.setOrderStatus(request.getOrderStatus().getValue());
         Order saved = orderRepository.save(order);
+        salesRollupService.orderChanged(before, saved);
+        stockReservationService.orderChanged(previousStatus, saved);
+        publishOrderChanged(saved);
 
         OrdersOrderIdStatusPatch200Response response = new OrdersOrderIdStatusPatch200Response();
         response.setSuccess(true);
@@ -291,6 +352,14 @@ public class OrderService {
         return response;
     }
 
+    /**
+     * Marks order-derived results stale for the order's day once the transaction commits.
+     */
+    private void publishOrderChanged(Order order) {
+        eventPublisher.publishEvent(DataChangedEvent.ofDay(DataTopic.ORDERS,
+                order.getOrderDate() != null ? order.getOrderDate().toLocalDate() : null));
+    }
+
     private com.echohealthcare.mvps.model.Order mapToOrderModel(Order order) {
         com.echohealthcare.mvps.model.Order model = new com.echohealthcare.mvps.model.Order();
         model.setOrderId(order.getId());
@@ -418,22 +487,75 @@ public class OrderService {
         return dto;
     }
 
-    private VendorProduct selectLowestPriceVendorProduct(Integer productId) {
-        List<VendorProduct> candidates = vendorProductRepository.search(null, productId, true, null, null, Pageable.unpaged()).getContent();
-        return candidates.stream()
-                .filter(vp -> vp.getStockQuantity() != null && vp.getStockQuantity() > 0)
-                .min(Comparator.comparing(this::getEffectiveFinalPriceSafe))
-                .orElse(null);
+    /**
+     * Loads the vendor products an order needs in one query: the explicitly chosen ones plus the
+     * lowest-price index's pick for every line without a vendor product. Picks that have sold out
+     * since the index last caught up are settled with one grouped lowest-price query.
+     */
+    private ResolvedOffers resolveVendorProducts(List<OrderCreateItemsInner> lines) {
+        Set<Integer> explicitIds = new HashSet<>();
+        // Units wanted per product over the lines that leave the vendor to us; one offer must cover them.
+        Map<Integer, Integer> unpinnedUnits = new HashMap<>();
+        for (OrderCreateItemsInner line : lines) {
+            Integer vendorProductId = line.getVendorProductId().orElse(null);
+            if (vendorProductId != null) {
+                explicitIds.add(vendorProductId);
+            } else if (line.getProductId() != null) {
+                unpinnedUnits.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+            }
+        }
+        Set<Integer> unpinnedProductIds = unpinnedUnits.keySet();
+
+        Map<Integer, Integer> indexedPicks = new HashMap<>();
+        for (Integer productId : unpinnedProductIds) {
+            Integer pick = lowestPriceIndex.lowestOfferId(productId, unpinnedUnits.get(productId));
+            if (pick != null) {
+                indexedPicks.put(productId, pick);
+            }
+        }
+
+        Set<Integer> toLoad = new HashSet<>(explicitIds);
+        toLoad.addAll(indexedPicks.values());
+        Map<Integer, VendorProduct> byId = new HashMap<>();
+        if (!toLoad.isEmpty()) {
+            vendorProductRepository.findAllById(toLoad).forEach(vp -> byId.put(vp.getId(), vp));
+        }
+
+        Map<Integer, VendorProduct> lowestByProduct = new HashMap<>();
+        Map<Integer, List<Integer>> unresolvedByUnits = new HashMap<>();
+        for (Integer productId : unpinnedProductIds) {
+            int units = unpinnedUnits.get(productId);
+            VendorProduct pick = byId.get(indexedPicks.get(productId));
+            if (pick != null && Boolean.TRUE.equals(pick.getAvailable())
+                    && pick.getStockQuantity() != null && pick.getStockQuantity() >= units) {
+                lowestByProduct.put(productId, pick);
+            } else {
+                unresolvedByUnits.computeIfAbsent(units, u -> new ArrayList<>()).add(productId);
+            }
+        }
+        unresolvedByUnits.forEach((units, productIds) ->
+                putLowest(lowestByProduct, vendorProductRepository.findLowestPricedOffers(productIds, units)));
+
+        // No single offer covers the quantity: take the cheapest one in stock so the reservation reports the shortfall.
+        List<Integer> shortOfStock = unpinnedProductIds.stream()
+                .filter(productId -> !lowestByProduct.containsKey(productId))
+                .toList();
+        if (!shortOfStock.isEmpty()) {
+            putLowest(lowestByProduct, vendorProductRepository.findLowestPricedOffers(shortOfStock, 1));
+        }
+
+        return new ResolvedOffers(byId, lowestByProduct);
     }
 
-    private BigDecimal getEffectiveFinalPriceSafe(VendorProduct vp) {
-        BigDecimal price = getEffectiveFinalPrice(vp);
-        if (price == null) {
-            return vp.getCostPrice();
+    private static void putLowest(Map<Integer, VendorProduct> lowestByProduct, List<VendorProduct> offers) {
+        for (VendorProduct vp : offers) {
+            // Equal lowest prices: keep the oldest offer so the choice is stable.
+            lowestByProduct.merge(vp.getProduct().getId(), vp, (a, b) -> a.getId() <= b.getId() ? a : b);
         }
-        return price;
     }
 
+    private record ResolvedOffers(Map<Integer, VendorProduct> byId, Map<Integer, VendorProduct> lowestByProduct) {}
+
     private BigDecimal getEffectiveFinalPrice(VendorProduct vp) {
         if (vp.getFinalPrice() != null) {
             return vp.getFinalPrice();
@@ -449,8 +571,4 @@ public class OrderService {
         BigDecimal factor = hundred.subtract(discount).divide(hundred);
         return vp.getCostPrice().multiply(factor);
     }
-
-    private String generateOrderNumber() {
-        return "ORD-" + LocalDate.now() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
 }
@@ -0,0 +1,130 @@
+package com.echohealthcare.mvps.service;
+
+import com.echohealthcare.mvps.model.Pagination;
+import com.echohealthcare.mvps.util.TotalMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Builds the pagination block for offset list endpoints that fetch a {@link Slice} (no count query)
+ * and computes the total only as precisely as the client asked for.
+ *
+ * A short last page gives the exact total for free. Otherwise {@link TotalMode#EXACT} runs the count
+ * query, {@link TotalMode#NONE} omits the total and {@link TotalMode#ESTIMATED} answers from a small
+ * LRU cache of per-filter counts; an unfiltered list is estimated from the table statistics MySQL keeps
+ * in information_schema, so it never needs a count at all. Cached values expire after
+ * {@code mvps.pagination.estimate-ttl-seconds}.
+ */
+@Component
+public class PageTotalResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(PageTotalResolver.class);
+
+    private static final int MAX_CACHED_COUNTS = 2048;
+    private static final String TABLE_ROWS_SQL =
+            "select table_rows from information_schema.tables where table_schema = database() and table_name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMillis;
+    private final Map<List<Object>, CachedCount> counts = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedCount> eldest) {
+                    return size() > MAX_CACHED_COUNTS;
+                }
+            });
+
+    public PageTotalResolver(JdbcTemplate jdbcTemplate,
+                             @Value("${mvps.pagination.estimate-ttl-seconds:300}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /**
+     * @param page 1-based page number
+     * @param limit page size
+     * @param slice the fetched page
+     * @param mode requested total mode
+     * @param table physical table behind the list, used for statistics and as cache namespace
+     * @param filters the filter values of the request (nulls for absent filters), in a fixed order
+     * @param exactCount runs the count query for these filters
+     */
+    public Pagination paginate(int page,
+                               int limit,
+                               Slice<?> slice,
+                               TotalMode mode,
+                               String table,
+                               List<?> filters,
+                               LongSupplier exactCount) {
+        Pagination pagination = new Pagination();
+        pagination.setPage(page);
+        pagination.setLimit(limit);
+        pagination.setHasNext(slice.hasNext());
+
+        long offset = (long) Math.max(page - 1, 0) * limit;
+        long seen = offset + slice.getNumberOfElements();
+
+        Long total;
+        TotalMode reported = mode;
+        if (!slice.hasNext() && (slice.hasContent() || offset == 0)) {
+            total = seen;
+            reported = TotalMode.EXACT;
+        } else {
+            total = switch (mode) {
+                case EXACT -> exactCount.getAsLong();
+                // Never report fewer rows than the pages already proved to exist.
+                case ESTIMATED -> Math.max(estimate(table, filters, exactCount), seen + (slice.hasNext() ? 1 : 0));
+                case NONE -> null;
+            };
+        }
+
+        pagination.setTotalMode(Pagination.TotalModeEnum.fromValue(reported.value()));
+        if (total != null) {
+            pagination.setTotalItems((int) Math.min(total, Integer.MAX_VALUE));
+            pagination.setTotalPages((int) Math.min((total + limit - 1) / limit, Integer.MAX_VALUE));
+        }
+        return pagination;
+    }
+
+    private long estimate(String table, List<?> filters, LongSupplier exactCount) {
+        List<Object> key = new ArrayList<>(filters.size() + 1);
+        key.add(table);
+        key.addAll(filters);
+
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(key);
+        if (cached != null && now - cached.computedAt() < ttlMillis) {
+            return cached.count();
+        }
+
+        boolean unfiltered = filters.stream().allMatch(Objects::isNull);
+        Long estimate = unfiltered ? tableRows(table) : null;
+        long count = estimate != null ? estimate : exactCount.getAsLong();
+        counts.put(key, new CachedCount(count, now));
+        return count;
+    }
+
+    private Long tableRows(String table) {
+        try {
+            return jdbcTemplate.queryForObject(TABLE_ROWS_SQL, Long.class, table);
+        } catch (DataAccessException e) {
+            log.debug("No table statistics for {}, falling back to a count query", table, e);
+            return null;
+        }
+    }
+
+    private record CachedCount(long count, long computedAt) {}
+}
@@ -2,7 +2,8 @@ package com.echohealthcare.mvps.service;
 
 import com.echohealthcare.mvps.domain.ProductCategory;
 import com.echohealthcare.mvps.dto.CursorPageResponse;
-import com.echohealthcare.mvps.model.Pagination;
+import com.echohealthcare.mvps.event.ProductChangedEvent;
+import com.echohealthcare.mvps.index.CategoryTree;
 import com.echohealthcare.mvps.model.ProductCreate;
 import com.echohealthcare.mvps.model.ProductUpdate;
 import com.echohealthcare.mvps.model.ProductsGet200Response;
@@ -11,28 +12,48 @@ import com.echohealthcare.mvps.model.ProductsProductIdDelete200Response;
 import com.echohealthcare.mvps.model.ProductsProductIdGet200Response;
 import com.echohealthcare.mvps.model.ProductsProductIdPut200Response;
 import com.echohealthcare.mvps.repository.ProductCategoryRepository;
+import com.echohealthcare.mvps.repository.KeysetQuery;
 import com.echohealthcare.mvps.repository.ProductRepository;
 import com.echohealthcare.mvps.util.CursorPaginationUtils;
-import org.springframework.data.domain.Page;
+import com.echohealthcare.mvps.util.KeysetCursor;
+import com.echohealthcare.mvps.util.KeysetSort;
+import com.echohealthcare.mvps.util.TotalMode;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Transactional
 public class ProductService {
 
+    private static final Map<String, KeysetSort.Field<com.echohealthcare.mvps.domain.Product>> CURSOR_SORTS = Map.of(
+            KeysetSort.ID, KeysetSort.field("p.id", com.echohealthcare.mvps.domain.Product::getId),
+            "name", KeysetSort.field("p.name", com.echohealthcare.mvps.domain.Product::getName));
+
     private final ProductRepository productRepository;
     private final ProductCategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PageTotalResolver pageTotalResolver;
+    private final CategoryTree categoryTree;
 
     public ProductService(ProductRepository productRepository,
-                          ProductCategoryRepository categoryRepository) {
+                          ProductCategoryRepository categoryRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          PageTotalResolver pageTotalResolver,
+                          CategoryTree categoryTree) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.pageTotalResolver = pageTotalResolver;
+        this.categoryTree = categoryTree;
     }
 
     public ProductsGet200Response getProducts(Integer categoryId,
@@ -40,22 +61,21 @@ public class ProductService {
                                               Boolean prescriptionRequired,
                                               String search,
                                               int page,
-                                              int limit) {
+                                              int limit,
+                                              String totalMode) {
         Pageable pageable = PageRequest.of(Math.max(page - 1, 0), limit);
-        Page<com.echohealthcare.mvps.domain.Product> productPage =
-            productRepository.search(categoryId, isActive, prescriptionRequired, search, pageable);
+        Set<Integer> categoryIds = categorySubtree(categoryId);
+        Slice<com.echohealthcare.mvps.domain.Product> productPage =
+            productRepository.search(categoryIds, isActive, prescriptionRequired, search, pageable);
 
         ProductsGet200Response response = new ProductsGet200Response();
         response.setSuccess(true);
 
         productPage.getContent().forEach(product -> response.addDataItem(mapToModel(product)));
 
-        Pagination pagination = new Pagination();
-        pagination.setPage(page);
-        pagination.setLimit(limit);
-		pagination.setTotalItems((int) productPage.getTotalElements());
-		pagination.setTotalPages(productPage.getTotalPages());
-        response.setPagination(pagination);
+        response.setPagination(pageTotalResolver.paginate(page, limit, productPage, TotalMode.parse(totalMode),
+            "products_master", Arrays.asList(categoryIds, isActive, prescriptionRequired, search),
+            () -> productRepository.countSearch(categoryIds, isActive, prescriptionRequired, search)));
         return response;
     }
 
@@ -65,7 +85,8 @@ public class ProductService {
      *
      * @param cursor the cursor from which to start fetching (null for first page)
      * @param size the page size
-     * @param categoryId optional category filter
+     * @param sort optional sort, {@code field[,asc|desc]} over id or name
+     * @param categoryId optional category filter; matches the category and its subcategories
      * @param isActive optional active status filter
      * @param prescriptionRequired optional prescription requirement filter
      * @param search optional search term
@@ -74,38 +95,24 @@ public class ProductService {
     public CursorPageResponse<com.echohealthcare.mvps.model.Product> getProductsByCursor(
             String cursor,
             Integer size,
+            String sort,
             Integer categoryId,
             Boolean isActive,
             Boolean prescriptionRequired,
             String search) {
 
         int validatedSize = CursorPaginationUtils.validatePageSize(size);
-        Integer decodedCursor = CursorPaginationUtils.decodeCursor(cursor);
-
-        // Fetch size+1 to check if there's a next page
-        Pageable pageable = PageRequest.of(0, validatedSize + 1);
-        List<com.echohealthcare.mvps.domain.Product> products =
-            productRepository.searchByCursor(decodedCursor, categoryId, isActive, prescriptionRequired, search, pageable);
-
-        boolean hasNext = products.size() > validatedSize;
-        List<com.echohealthcare.mvps.domain.Product> pageItems = hasNext
-            ? products.subList(0, validatedSize)
-            : products;
-
-        Integer nextCursorValue = hasNext && !pageItems.isEmpty()
-            ? pageItems.get(pageItems.size() - 1).getId()
-            : null;
-
-        List<com.echohealthcare.mvps.model.Product> responseData = pageItems.stream()
-            .map(this::mapToModel)
-            .collect(Collectors.toList());
-
-        return new CursorPageResponse<>(
-            responseData,
-            validatedSize,
-            CursorPaginationUtils.encodeCursor(nextCursorValue),
-            hasNext
-        );
+        KeysetSort<com.echohealthcare.mvps.domain.Product> keysetSort = CursorPaginationUtils.parseSort(sort, CURSOR_SORTS);
+        KeysetCursor decodedCursor = KeysetCursor.decode(cursor, keysetSort);
+
+        // Fetch size+1 to check if there's another page in the walking direction
+        List<com.echohealthcare.mvps.domain.Product> products = productRepository.seek(KeysetQuery.of(
+            productRepository.filter(categorySubtree(categoryId), isActive, prescriptionRequired, search))
+            .orderBy(keysetSort)
+            .after(decodedCursor)
+            .limit(validatedSize + 1));
+
+        return CursorPaginationUtils.keysetPage(products, validatedSize, keysetSort, decodedCursor, this::mapToModel);
     }
 
     public ProductsPost201Response createProduct(ProductCreate request) {
@@ -114,6 +121,8 @@ public class ProductService {
 
         com.echohealthcare.mvps.domain.Product saved = productRepository.save(product);
 
+        eventPublisher.publishEvent(ProductChangedEvent.of(saved));
+
         ProductsPost201Response response = new ProductsPost201Response();
         response.setSuccess(true);
         response.setMessage("Product created successfully");
@@ -137,6 +146,7 @@ public class ProductService {
 
         applyUpdate(request, product);
         com.echohealthcare.mvps.domain.Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(saved));
 
         ProductsProductIdPut200Response response = new ProductsProductIdPut200Response();
         response.setSuccess(true);
@@ -150,6 +160,7 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
         product.setActive(false);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product));
 
         ProductsProductIdDelete200Response response = new ProductsProductIdDelete200Response();
         response.setSuccess(true);
@@ -157,6 +168,10 @@ public class ProductService {
         return response;
     }
 
+    private Set<Integer> categorySubtree(Integer categoryId) {
+        return categoryId != null ? categoryTree.subtree(categoryId) : null;
+    }
+
     private void applyCreate(ProductCreate request, com.echohealthcare.mvps.domain.Product product) {
         product.setName(request.getProductName());
         product.setGenericName(request.getGenericName());
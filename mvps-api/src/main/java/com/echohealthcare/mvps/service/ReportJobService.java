@@ -0,0 +1,237 @@
+package com.echohealthcare.mvps.service;
+
+import com.echohealthcare.mvps.config.ReplicaRoutingDataSource;
+import com.echohealthcare.mvps.dto.ReportJobRequest;
+import com.echohealthcare.mvps.dto.ReportJobStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs long analytics reports as background jobs, off the request threads.
+ *
+ * Each job runs on its own virtual thread, but at most {@code mvps.reports.max-concurrent} run at a
+ * time, so reports never hold more than that many database connections; the rest wait their turn.
+ * At most {@code mvps.reports.max-queued} jobs may be unfinished at once, further submissions are
+ * refused. Finished jobs and their results are kept for {@code mvps.reports.retention-minutes}, and
+ * at most {@code mvps.reports.max-retained} of them, oldest dropped first.
+ *
+ * Cancelling a job interrupts its thread. A query already sent to the database runs to the end, but
+ * its result is discarded and the job reports cancelled at once.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobService.class);
+
+    private final AnalyticsService analyticsService;
+    private final int maxQueued;
+    private final int maxRetained;
+    private final Duration retention;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("report-job-", 0).factory());
+    private final Semaphore runSlots;
+    private final AtomicInteger unfinished = new AtomicInteger();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ReportJobService(AnalyticsService analyticsService,
+                            @Value("${mvps.reports.max-concurrent:4}") int maxConcurrent,
+                            @Value("${mvps.reports.max-queued:100}") int maxQueued,
+                            @Value("${mvps.reports.max-retained:1000}") int maxRetained,
+                            @Value("${mvps.reports.retention-minutes:30}") long retentionMinutes) {
+        this.analyticsService = analyticsService;
+        this.runSlots = new Semaphore(maxConcurrent, true);
+        this.maxQueued = maxQueued;
+        this.maxRetained = maxRetained;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public ReportJobStatus submit(ReportJobRequest request) {
+        Supplier<Object> report = reportFor(request);
+        purgeFinished();
+        if (unfinished.incrementAndGet() > maxQueued) {
+            unfinished.decrementAndGet();
+            throw new ServiceBusyException("Too many report jobs pending; retry later");
+        }
+        Job job = new Job(UUID.randomUUID().toString(), request.report().trim().toLowerCase(Locale.ROOT));
+        jobs.put(job.id, job);
+        // Bound to the submitting client, so a report run right after its write reads the primary.
+        job.task = executor.submit(ReplicaRoutingDataSource.bindClient(() -> run(job, report)));
+        return job.status();
+    }
+
+    public ReportJobStatus getStatus(String jobId) {
+        return find(jobId).status();
+    }
+
+    /**
+     * Completes with the job's final status once it has succeeded, failed or been cancelled.
+     */
+    public CompletableFuture<ReportJobStatus> whenFinished(String jobId) {
+        Job job = find(jobId);
+        return job.done.thenApply(ignored -> job.status());
+    }
+
+    public ReportJobStatus cancel(String jobId) {
+        Job job = find(jobId);
+        if (job.finish(State.CANCELLED, null, null)) {
+            Future<?> task = job.task;
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+        return job.status();
+    }
+
+    private Supplier<Object> reportFor(ReportJobRequest request) {
+        if (request == null || request.report() == null) {
+            throw new InvalidRequestException("report is required");
+        }
+        if (request.fromDate() == null || request.toDate() == null) {
+            throw new InvalidRequestException("fromDate and toDate are required");
+        }
+        if (request.fromDate().isAfter(request.toDate())) {
+            throw new InvalidRequestException("fromDate must not be after toDate");
+        }
+        int limit = request.limit() != null ? request.limit() : 10;
+        return switch (request.report().trim().toLowerCase(Locale.ROOT)) {
+            case "sales-summary" -> () -> analyticsService.getSalesSummary(
+                    request.fromDate(), request.toDate(), request.groupBy());
+            case "top-products" -> () -> analyticsService.getTopProducts(
+                    request.fromDate(), request.toDate(), limit, request.sortBy());
+            case "vendor-revenue" -> () -> analyticsService.getVendorRevenue(request.fromDate(), request.toDate());
+            default -> throw new InvalidRequestException(
+                    "Unknown report '" + request.report() + "'; expected sales-summary, top-products or vendor-revenue");
+        };
+    }
+
+    private void run(Job job, Supplier<Object> report) {
+        try {
+            runSlots.acquire();
+        } catch (InterruptedException ex) {
+            job.finish(State.CANCELLED, null, null);
+            return;
+        }
+        try {
+            if (!job.start()) {
+                return;
+            }
+            Object result = report.get();
+            if (Thread.currentThread().isInterrupted()) {
+                job.finish(State.CANCELLED, null, null);
+            } else {
+                job.finish(State.SUCCEEDED, result, null);
+            }
+        } catch (RuntimeException ex) {
+            if (!job.finish(State.FAILED, null, ex.getMessage() != null ? ex.getMessage() : ex.toString())) {
+                return;
+            }
+            log.warn("Report job {} ({}) failed", job.id, job.report, ex);
+        } finally {
+            runSlots.release();
+        }
+    }
+
+    private Job find(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null || job.expired()) {
+            throw new ResourceNotFoundException("Report job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void purgeFinished() {
+        jobs.values().removeIf(Job::expired);
+        int excess = jobs.size() - maxRetained;
+        if (excess > 0) {
+            jobs.values().stream()
+                    .filter(job -> job.finishedAt != null)
+                    .sorted(Comparator.comparing(job -> job.finishedAt))
+                    .limit(excess)
+                    .toList()
+                    .forEach(job -> jobs.remove(job.id, job));
+        }
+    }
+
+    private enum State { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    private final class Job {
+        final String id;
+        final String report;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        volatile Future<?> task;
+
+        // Written under this; finishedAt is also read without it to expire the job.
+        volatile State state = State.QUEUED;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile Object result;
+        volatile String error;
+
+        Job(String id, String report) {
+            this.id = id;
+            this.report = report;
+        }
+
+        synchronized boolean start() {
+            if (state != State.QUEUED) {
+                return false;
+            }
+            state = State.RUNNING;
+            startedAt = LocalDateTime.now();
+            return true;
+        }
+
+        /**
+         * Moves an unfinished job to a final state; returns false if it had already finished.
+         */
+        synchronized boolean finish(State finalState, Object result, String error) {
+            if (finishedAt != null) {
+                return false;
+            }
+            this.result = result;
+            this.error = error;
+            this.state = finalState;
+            this.finishedAt = LocalDateTime.now();
+            unfinished.decrementAndGet();
+            done.complete(null);
+            return true;
+        }
+
+        boolean expired() {
+            LocalDateTime finished = finishedAt;
+            return finished != null && finished.plus(retention).isBefore(LocalDateTime.now());
+        }
+
+        ReportJobStatus status() {
+            synchronized (this) {
+                return new ReportJobStatus(id, report, state.name().toLowerCase(Locale.ROOT),
+                        submittedAt, startedAt, finishedAt, error, result);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.echohealthcare.mvps.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Folds the sales rollup deltas appended by order writes into sales_daily_rollup and
+ * customer_order_summary, {@code mvps.rollup.fold-batch-size} deltas per transaction, until none are
+ * left. Several nodes may fold at once; each takes rows the others have not locked.
+ */
+@Component
+public class SalesRollupFolder {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupFolder.class);
+
+    private final SalesRollupService salesRollupService;
+    private final int batchSize;
+
+    public SalesRollupFolder(SalesRollupService salesRollupService,
+                             @Value("${mvps.rollup.fold-batch-size:1000}") int batchSize) {
+        this.salesRollupService = salesRollupService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${mvps.rollup.fold-interval-ms:2000}")
+    public void fold() {
+        try {
+            while (salesRollupService.fold(batchSize) == batchSize) {
+                // A full batch; there may be more.
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not fold sales rollup deltas", ex);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.echohealthcare.mvps.service;
+
+import com.echohealthcare.mvps.domain.CustomerOrderSummary;
+import com.echohealthcare.mvps.domain.Order;
+import com.echohealthcare.mvps.domain.SalesDailyRollup;
+import com.echohealthcare.mvps.domain.SalesRollupDelta;
+import com.echohealthcare.mvps.repository.CustomerOrderSummaryRepository;
+import com.echohealthcare.mvps.repository.SalesDailyRollupRepository;
+import com.echohealthcare.mvps.repository.SalesRollupDeltaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Keeps the sales_daily_rollup and customer_order_summary tables in step with order writes.
+ * Each order contributes to exactly one (day, order type) row and one customer row. Order writes do
+ * not update those rows, which every order of a day (or of a customer) would have to lock until its
+ * transaction ends; they append the difference between the order's previous and current contribution
+ * to sales_rollup_deltas inside the caller's transaction, so it commits or rolls back with the order.
+ * {@link SalesRollupFolder} folds committed deltas into the rollup rows in the background, and reads
+ * add the deltas not folded yet, so results are exact either way.
+ */
+@Service
+@Transactional
+public class SalesRollupService {
+
+    private static final String CANCELLED = "cancelled";
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final CustomerOrderSummaryRepository customerSummaryRepository;
+    private final SalesRollupDeltaRepository deltaRepository;
+
+    public SalesRollupService(SalesDailyRollupRepository rollupRepository,
+                              CustomerOrderSummaryRepository customerSummaryRepository,
+                              SalesRollupDeltaRepository deltaRepository) {
+        this.rollupRepository = rollupRepository;
+        this.customerSummaryRepository = customerSummaryRepository;
+        this.deltaRepository = deltaRepository;
+    }
+
+    /**
+     * Captures what an order currently contributes to the rollups. Take this before mutating
+     * the order and pass it to {@link #orderChanged(Contribution, Order)} afterwards.
+     */
+    public Contribution snapshot(Order order) {
+        LocalDate day = order.getOrderDate() != null ? order.getOrderDate().toLocalDate() : null;
+        BigDecimal amount = order.getFinalAmount() != null ? order.getFinalAmount() : BigDecimal.ZERO;
+        Integer customerId = order.getCustomer() != null ? order.getCustomer().getId() : null;
+        return new Contribution(day, normalizeType(order.getOrderType()), customerId, amount,
+                CANCELLED.equalsIgnoreCase(order.getOrderStatus()));
+    }
+
+    public void orderCreated(Order order) {
+        record(snapshot(order), 1, true);
+    }
+
+    public void orderChanged(Contribution before, Order order) {
+        Contribution after = snapshot(order);
+        if (before.equals(after)) {
+            return;
+        }
+        if (Objects.equals(before.day(), after.day()) && before.orderType().equals(after.orderType())
+                && Objects.equals(before.customerId(), after.customerId())) {
+            // Same rows: one delta carrying the difference.
+            SalesRollupDelta delta = delta(after, 0,
+                    after.amount().subtract(before.amount()),
+                    after.cancelledCount() - before.cancelledCount(),
+                    after.cancelledAmount().subtract(before.cancelledAmount()));
+            if (delta != null) {
+                delta.setLastOrderDate(after.day());
+                deltaRepository.save(delta);
+            }
+            return;
+        }
+        record(before, -1, false);
+        record(after, 1, true);
+    }
+
+    private void record(Contribution contribution, int sign, boolean adding) {
+        BigDecimal signum = BigDecimal.valueOf(sign);
+        SalesRollupDelta delta = delta(contribution, sign,
+                contribution.amount().multiply(signum),
+                contribution.cancelledCount() * sign,
+                contribution.cancelledAmount().multiply(signum));
+        if (delta != null) {
+            // Removing an order leaves last_order_date as is; it records the latest order ever placed.
+            delta.setLastOrderDate(adding ? contribution.day() : null);
+            deltaRepository.save(delta);
+        }
+    }
+
+    private static SalesRollupDelta delta(Contribution contribution, int orderCount, BigDecimal revenue,
+                                          int cancelledCount, BigDecimal cancelledRevenue) {
+        if (contribution.day() == null && contribution.customerId() == null) {
+            return null;
+        }
+        SalesRollupDelta delta = new SalesRollupDelta();
+        delta.setRollupDate(contribution.day());
+        delta.setOrderType(contribution.orderType());
+        delta.setCustomerId(contribution.customerId());
+        delta.setOrderCount(orderCount);
+        delta.setRevenue(revenue);
+        delta.setCancelledCount(cancelledCount);
+        delta.setCancelledRevenue(cancelledRevenue);
+        return delta;
+    }
+
+    /**
+     * Folds up to {@code limit} of the oldest deltas into the rollup tables and deletes them.
+     * Returns how many were folded.
+     */
+    public int fold(int limit) {
+        List<SalesRollupDelta> batch = deltaRepository.findBatchForFold(limit);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // Sorted keys, so two nodes folding at once lock the rollup rows in the same order.
+        Map<LocalDate, Map<String, Totals>> daily = new TreeMap<>();
+        Map<Integer, Totals> customers = new TreeMap<>();
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (SalesRollupDelta delta : batch) {
+            if (delta.getRollupDate() != null) {
+                daily.computeIfAbsent(delta.getRollupDate(), day -> new TreeMap<>())
+                        .computeIfAbsent(delta.getOrderType(), type -> new Totals())
+                        .add(delta);
+            }
+            if (delta.getCustomerId() != null) {
+                customers.computeIfAbsent(delta.getCustomerId(), id -> new Totals()).add(delta);
+            }
+            ids.add(delta.getId());
+        }
+        daily.forEach((day, byType) -> byType.forEach((orderType, totals) ->
+                rollupRepository.applyDelta(day, orderType,
+                        totals.orderCount, totals.revenue, totals.cancelledCount, totals.cancelledRevenue)));
+        customers.forEach((customerId, totals) ->
+                customerSummaryRepository.applyDelta(customerId,
+                        totals.orderCount, totals.revenue, totals.cancelledCount, totals.cancelledRevenue,
+                        totals.lastOrderDate));
+        deltaRepository.deleteFolded(ids);
+        return batch.size();
+    }
+
+    /**
+     * The daily rollup rows between the given days, oldest first, including deltas not folded yet.
+     * The rows returned are copies and are not managed.
+     */
+    @Transactional(readOnly = true)
+    public List<SalesDailyRollup> findDaily(LocalDate fromDate, LocalDate toDate) {
+        Map<LocalDate, Map<String, Totals>> daily = new TreeMap<>();
+        for (SalesDailyRollup rollup : rollupRepository.findByRollupDateBetweenOrderByRollupDateAsc(fromDate, toDate)) {
+            daily.computeIfAbsent(rollup.getRollupDate(), day -> new TreeMap<>())
+                    .computeIfAbsent(rollup.getOrderType(), type -> new Totals())
+                    .add(rollup.getOrderCount(), rollup.getRevenue(), rollup.getCancelledCount(),
+                            rollup.getCancelledRevenue(), null);
+        }
+        for (SalesRollupDelta delta : deltaRepository.findByRollupDateBetween(fromDate, toDate)) {
+            daily.computeIfAbsent(delta.getRollupDate(), day -> new TreeMap<>())
+                    .computeIfAbsent(delta.getOrderType(), type -> new Totals())
+                    .add(delta);
+        }
+        List<SalesDailyRollup> rollups = new ArrayList<>();
+        daily.forEach((day, byType) -> byType.forEach((orderType, totals) -> {
+            SalesDailyRollup rollup = new SalesDailyRollup();
+            rollup.setRollupDate(day);
+            rollup.setOrderType(orderType);
+            rollup.setOrderCount(totals.orderCount);
+            rollup.setRevenue(totals.revenue);
+            rollup.setCancelledCount(totals.cancelledCount);
+            rollup.setCancelledRevenue(totals.cancelledRevenue);
+            rollups.add(rollup);
+        }));
+        return rollups;
+    }
+
+    /**
+     * The customer's summary row including deltas not folded yet, or empty when the customer has no
+     * orders. The row returned is a copy and is not managed.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CustomerOrderSummary> findCustomerSummary(Integer customerId) {
+        Optional<CustomerOrderSummary> stored = customerSummaryRepository.findById(customerId);
+        List<SalesRollupDelta> pending = deltaRepository.findByCustomerId(customerId);
+        if (stored.isEmpty() && pending.isEmpty()) {
+            return Optional.empty();
+        }
+        Totals totals = new Totals();
+        stored.ifPresent(summary -> totals.add(summary.getOrderCount(), summary.getRevenue(),
+                summary.getCancelledCount(), summary.getCancelledRevenue(), summary.getLastOrderDate()));
+        pending.forEach(totals::add);
+        CustomerOrderSummary summary = new CustomerOrderSummary();
+        summary.setCustomerId(customerId);
+        summary.setOrderCount(totals.orderCount);
+        summary.setRevenue(totals.revenue);
+        summary.setCancelledCount(totals.cancelledCount);
+        summary.setCancelledRevenue(totals.cancelledRevenue);
+        summary.setLastOrderDate(totals.lastOrderDate);
+        return Optional.of(summary);
+    }
+
+    private static String normalizeType(String orderType) {
+        return orderType != null ? orderType : "";
+    }
+
+    private static final class Totals {
+        int orderCount;
+        BigDecimal revenue = BigDecimal.ZERO;
+        int cancelledCount;
+        BigDecimal cancelledRevenue = BigDecimal.ZERO;
+        LocalDate lastOrderDate;
+
+        void add(SalesRollupDelta delta) {
+            add(delta.getOrderCount(), delta.getRevenue(), delta.getCancelledCount(), delta.getCancelledRevenue(),
+                    delta.getLastOrderDate());
+        }
+
+        void add(int orders, BigDecimal amount, int cancelled, BigDecimal cancelledAmount, LocalDate orderDate) {
+            orderCount += orders;
+            revenue = revenue.add(amount);
+            cancelledCount += cancelled;
+            cancelledRevenue = cancelledRevenue.add(cancelledAmount);
+            if (orderDate != null && (lastOrderDate == null || orderDate.isAfter(lastOrderDate))) {
+                lastOrderDate = orderDate;
+            }
+        }
+    }
+
+    /**
+     * One order's share of its rollup rows.
+     */
+    public record Contribution(LocalDate day, String orderType, Integer customerId, BigDecimal amount, boolean cancelled) {
+
+        int cancelledCount() {
+            return cancelled ? 1 : 0;
+        }
+
+        BigDecimal cancelledAmount() {
+            return cancelled ? amount : BigDecimal.ZERO;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Contribution other)) {
+                return false;
+            }
+            return cancelled == other.cancelled
+                    && Objects.equals(day, other.day)
+                    && Objects.equals(orderType, other.orderType)
+                    && Objects.equals(customerId, other.customerId)
+                    && amount.compareTo(other.amount) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, orderType, customerId, cancelled, amount.stripTrailingZeros());
+        }
+    }
+}
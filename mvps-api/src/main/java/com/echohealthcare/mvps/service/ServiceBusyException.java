@@ -0,0 +1,8 @@
+package com.echohealthcare.mvps.service;
+
+public class ServiceBusyException extends RuntimeException {
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
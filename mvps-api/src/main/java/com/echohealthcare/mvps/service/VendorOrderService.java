@@ -1,7 +1,9 @@
 package com.echohealthcare.mvps.service;
 
 import com.echohealthcare.mvps.domain.VendorOrder;
-import com.echohealthcare.mvps.model.Pagination;
+import com.echohealthcare.mvps.event.DataChangedEvent;
+import com.echohealthcare.mvps.event.DataTopic;
+import com.echohealthcare.mvps.id.OrderNumberGenerator;
 import com.echohealthcare.mvps.model.VendorOrderCreate;
 import com.echohealthcare.mvps.model.VendorOrderUpdate;
 import com.echohealthcare.mvps.model.VendorOrdersGet200Response;
@@ -11,16 +13,18 @@ import com.echohealthcare.mvps.model.VendorOrdersVendorOrderIdGet200Response;
 import com.echohealthcare.mvps.model.VendorOrdersVendorOrderIdPut200Response;
 import com.echohealthcare.mvps.repository.VendorOrderRepository;
 import com.echohealthcare.mvps.repository.VendorRepository;
+import com.echohealthcare.mvps.util.TotalMode;
 import org.openapitools.jackson.nullable.JsonNullable;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.Arrays;
 
 @Service
 @Transactional
@@ -28,11 +32,20 @@ public class VendorOrderService {
 
     private final VendorOrderRepository vendorOrderRepository;
     private final VendorRepository vendorRepository;
+    private final PageTotalResolver pageTotalResolver;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderNumberGenerator orderNumberGenerator;
 
     public VendorOrderService(VendorOrderRepository vendorOrderRepository,
-                              VendorRepository vendorRepository) {
+                              VendorRepository vendorRepository,
+                              PageTotalResolver pageTotalResolver,
+                              ApplicationEventPublisher eventPublisher,
+                              OrderNumberGenerator orderNumberGenerator) {
         this.vendorOrderRepository = vendorOrderRepository;
         this.vendorRepository = vendorRepository;
+        this.pageTotalResolver = pageTotalResolver;
+        this.eventPublisher = eventPublisher;
+        this.orderNumberGenerator = orderNumberGenerator;
     }
 
     public VendorOrdersGet200Response getVendorOrders(Integer vendorId,
@@ -40,23 +53,21 @@ public class VendorOrderService {
                                                       LocalDate fromDate,
                                                       LocalDate toDate,
                                                       int page,
-                                                      int limit) {
+                                                      int limit,
+                                                      String totalMode) {
         Pageable pageable = PageRequest.of(Math.max(page - 1, 0), limit);
         LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
         LocalDateTime to = toDate != null ? toDate.atTime(23, 59, 59) : null;
 
-        Page<VendorOrder> orderPage = vendorOrderRepository.search(vendorId, status, from, to, pageable);
+        Slice<VendorOrder> orderPage = vendorOrderRepository.search(vendorId, status, from, to, pageable);
 
         VendorOrdersGet200Response response = new VendorOrdersGet200Response();
         response.setSuccess(true);
         orderPage.getContent().forEach(vo -> response.addDataItem(mapToModel(vo)));
 
-        Pagination pagination = new Pagination();
-        pagination.setPage(page);
-        pagination.setLimit(limit);
-		pagination.setTotalItems((int) orderPage.getTotalElements());
-		pagination.setTotalPages(orderPage.getTotalPages());
-        response.setPagination(pagination);
+        response.setPagination(pageTotalResolver.paginate(page, limit, orderPage, TotalMode.parse(totalMode),
+            "vendor_orders", Arrays.asList(vendorId, status, from, to),
+            () -> vendorOrderRepository.countSearch(vendorId, status, from, to)));
         return response;
     }
 
@@ -64,13 +75,14 @@ public class VendorOrderService {
         VendorOrder vendorOrder = new VendorOrder();
         vendorOrder.setVendor(vendorRepository.findById(request.getVendorId())
                 .orElseThrow(() -> new ResourceNotFoundException("Vendor not found")));
-        vendorOrder.setPoNumber(generatePoNumber());
+        vendorOrder.setPoNumber(orderNumberGenerator.next("PO"));
         vendorOrder.setTotalAmount(request.getTotalAmount());
         vendorOrder.setStatus("pending");
         vendorOrder.setExpectedDeliveryDate(request.getExpectedDeliveryDate());
         vendorOrder.setNotes(request.getNotes());
 
         VendorOrder saved = vendorOrderRepository.save(vendorOrder);
+        eventPublisher.publishEvent(new DataChangedEvent(DataTopic.VENDOR_ORDERS));
 
         VendorOrdersPost201Response response = new VendorOrdersPost201Response();
         response.setSuccess(true);
@@ -110,6 +122,7 @@ public class VendorOrderService {
         }
 
         VendorOrder saved = vendorOrderRepository.save(vendorOrder);
+        eventPublisher.publishEvent(new DataChangedEvent(DataTopic.VENDOR_ORDERS));
 
         VendorOrdersVendorOrderIdPut200Response response = new VendorOrdersVendorOrderIdPut200Response();
         response.setSuccess(true);
@@ -123,6 +136,7 @@ public class VendorOrderService {
                 .orElseThrow(() -> new ResourceNotFoundException("Vendor order not found"));
         vendorOrder.setStatus("cancelled");
         vendorOrderRepository.save(vendorOrder);
+        eventPublisher.publishEvent(new DataChangedEvent(DataTopic.VENDOR_ORDERS));
 
         VendorOrdersVendorOrderIdDelete200Response response = new VendorOrdersVendorOrderIdDelete200Response();
         response.setSuccess(true);
@@ -153,8 +167,4 @@ public class VendorOrderService {
         model.setUpdatedAt(vendorOrder.getUpdatedAt());
         return model;
     }
-
-    private String generatePoNumber() {
-        return "PO-" + LocalDate.now() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
 }
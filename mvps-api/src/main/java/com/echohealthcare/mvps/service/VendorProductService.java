@@ -4,15 +4,32 @@ import com.echohealthcare.mvps.domain.Product;
 import com.echohealthcare.mvps.domain.Vendor;
 import com.echohealthcare.mvps.domain.VendorProduct;
 import com.echohealthcare.mvps.domain.VendorStockMovement;
+import com.echohealthcare.mvps.dto.BulkStockUpdateResponse;
 import com.echohealthcare.mvps.dto.CursorPageResponse;
+import com.echohealthcare.mvps.dto.StockUpdateOutcome;
+import com.echohealthcare.mvps.event.StockMovement;
+import com.echohealthcare.mvps.event.StockMovementsRecordedEvent;
+import com.echohealthcare.mvps.event.VendorProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductSnapshot;
+import com.echohealthcare.mvps.index.CatalogSearchIndex;
+import com.echohealthcare.mvps.index.CategoryTree;
+import com.echohealthcare.mvps.index.LowestPriceIndex;
+import com.echohealthcare.mvps.index.TextSearchIndex;
 import com.echohealthcare.mvps.model.*;
+import com.echohealthcare.mvps.repository.KeysetQuery;
 import com.echohealthcare.mvps.repository.ProductRepository;
 import com.echohealthcare.mvps.repository.VendorProductRepository;
 import com.echohealthcare.mvps.repository.VendorRepository;
 import com.echohealthcare.mvps.repository.VendorStockMovementRepository;
+import com.echohealthcare.mvps.stock.StockReconciler;
 import com.echohealthcare.mvps.util.CursorPaginationUtils;
+import com.echohealthcare.mvps.util.KeysetCursor;
+import com.echohealthcare.mvps.util.KeysetSort;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -20,11 +37,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,19 +52,44 @@ public class VendorProductService {
 
     private static final Logger log = LoggerFactory.getLogger(VendorProductService.class);
 
+    private static final Map<String, KeysetSort.Field<VendorProduct>> CURSOR_SORTS = Map.of(
+            KeysetSort.ID, KeysetSort.field("vp.id", VendorProduct::getId),
+            "finalPrice", KeysetSort.field("vp.finalPrice", VendorProduct::getFinalPrice));
+
     private final VendorProductRepository vendorProductRepository;
     private final VendorRepository vendorRepository;
     private final ProductRepository productRepository;
     private final VendorStockMovementRepository vendorStockMovementRepository;
+    private final LowestPriceIndex lowestPriceIndex;
+    private final CatalogSearchIndex catalogSearchIndex;
+    private final CategoryTree categoryTree;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final StockReconciler stockReconciler;
+    private final int stockBatchSize;
 
     public VendorProductService(VendorProductRepository vendorProductRepository,
                                 VendorRepository vendorRepository,
                                 ProductRepository productRepository,
-                                VendorStockMovementRepository vendorStockMovementRepository) {
+                                VendorStockMovementRepository vendorStockMovementRepository,
+                                LowestPriceIndex lowestPriceIndex,
+                                CatalogSearchIndex catalogSearchIndex,
+                                CategoryTree categoryTree,
+                                ApplicationEventPublisher eventPublisher,
+                                EntityManager entityManager,
+                                StockReconciler stockReconciler,
+                                @Value("${mvps.stock.batch-size:500}") int stockBatchSize) {
         this.vendorProductRepository = vendorProductRepository;
         this.vendorRepository = vendorRepository;
         this.productRepository = productRepository;
         this.vendorStockMovementRepository = vendorStockMovementRepository;
+        this.lowestPriceIndex = lowestPriceIndex;
+        this.catalogSearchIndex = catalogSearchIndex;
+        this.categoryTree = categoryTree;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.stockReconciler = stockReconciler;
+        this.stockBatchSize = stockBatchSize;
     }
 
     public VendorProductsGet200Response getVendorProducts(Integer vendorId,
@@ -78,6 +122,7 @@ public class VendorProductService {
     public CursorPageResponse<com.echohealthcare.mvps.model.VendorProduct> getVendorProductsByCursor(
             String cursor,
             Integer size,
+            String sort,
             Integer vendorId,
             Integer productId,
             Boolean isAvailable,
@@ -85,29 +130,16 @@ public class VendorProductService {
             BigDecimal maxPrice) {
 
         int validatedSize = CursorPaginationUtils.validatePageSize(size);
-        Integer decodedCursor = CursorPaginationUtils.decodeCursor(cursor);
-
-        Pageable pageable = PageRequest.of(0, validatedSize + 1);
-        List<VendorProduct> vendorProducts = vendorProductRepository.searchByCursor(
-            decodedCursor, vendorId, productId, isAvailable, minPrice, maxPrice, pageable);
-
-        boolean hasNext = vendorProducts.size() > validatedSize;
-        List<VendorProduct> pageItems = hasNext ? vendorProducts.subList(0, validatedSize) : vendorProducts;
+        KeysetSort<VendorProduct> keysetSort = CursorPaginationUtils.parseSort(sort, CURSOR_SORTS);
+        KeysetCursor decodedCursor = KeysetCursor.decode(cursor, keysetSort);
 
-        Integer nextCursorValue = hasNext && !pageItems.isEmpty()
-            ? pageItems.get(pageItems.size() - 1).getId()
-            : null;
+        List<VendorProduct> vendorProducts = vendorProductRepository.seek(KeysetQuery.of(
+            vendorProductRepository.filter(vendorId, productId, isAvailable, minPrice, maxPrice))
+            .orderBy(keysetSort)
+            .after(decodedCursor)
+            .limit(validatedSize + 1));
 
-        List<com.echohealthcare.mvps.model.VendorProduct> responseData = pageItems.stream()
-            .map(this::mapToModel)
-            .collect(Collectors.toList());
-
-        return new CursorPageResponse<>(
-            responseData,
-            validatedSize,
-            CursorPaginationUtils.encodeCursor(nextCursorValue),
-            hasNext
-        );
+        return CursorPaginationUtils.keysetPage(vendorProducts, validatedSize, keysetSort, decodedCursor, this::mapToModel);
     }
 
     public VendorProductsPost201Response createVendorProduct(VendorProductCreate request) {
@@ -122,6 +154,7 @@ public class VendorProductService {
         applyCreate(request, entity);
 
         VendorProduct saved = vendorProductRepository.save(entity);
+        eventPublisher.publishEvent(new VendorProductChangedEvent(null, VendorProductSnapshot.of(saved)));
 
         VendorProductsPost201Response response = new VendorProductsPost201Response();
         response.setSuccess(true);
@@ -142,11 +175,18 @@ public class VendorProductService {
 
     public VendorProductsVendorProductIdPut200Response updateVendorProduct(Integer vendorProductId,
                                                                            VendorProductUpdate request) {
-        VendorProduct entity = vendorProductRepository.findById(vendorProductId)
-                .orElseThrow(() -> new ResourceNotFoundException("Vendor product not found"));
+        // Locked even without a stock change so the row version below is bumped by one writer at a time.
+        VendorProduct entity = findForStockWrite(vendorProductId);
 
+        VendorProductSnapshot before = VendorProductSnapshot.of(entity);
         applyUpdate(request, entity);
+        if (request.getStockQuantity() != null) {
+            Map<Integer, Integer> held = stockReconciler.reconcile(List.of(vendorProductId));
+            entity.setStockQuantity(StockReconciler.sellable(request.getStockQuantity(), held, vendorProductId));
+        }
+        nextRowVersion(entity);
         VendorProduct saved = vendorProductRepository.save(entity);
+        eventPublisher.publishEvent(new VendorProductChangedEvent(before, VendorProductSnapshot.of(saved)));
 
         VendorProductsVendorProductIdPut200Response response = new VendorProductsVendorProductIdPut200Response();
         response.setSuccess(true);
@@ -156,13 +196,16 @@ public class VendorProductService {
     }
 
     public VendorProductsVendorProductIdDelete200Response deleteVendorProduct(Integer vendorProductId) {
-        VendorProduct entity = vendorProductRepository.findById(vendorProductId)
-                .orElseThrow(() -> new ResourceNotFoundException("Vendor product not found"));
+        VendorProduct entity = findForStockWrite(vendorProductId);
 
-        // Soft delete semantics: mark unavailable and zero stock
+        // Soft delete semantics: mark unavailable and zero stock, dropping any escrowed units with it
+        VendorProductSnapshot before = VendorProductSnapshot.of(entity);
+        stockReconciler.reconcile(List.of(vendorProductId));
         entity.setAvailable(false);
         entity.setStockQuantity(0);
+        nextRowVersion(entity);
         vendorProductRepository.save(entity);
+        eventPublisher.publishEvent(new VendorProductChangedEvent(before, VendorProductSnapshot.of(entity)));
 
         VendorProductsVendorProductIdDelete200Response response = new VendorProductsVendorProductIdDelete200Response();
         response.setSuccess(true);
@@ -173,38 +216,58 @@ public class VendorProductService {
     public VendorProductsLowestPricesGet200Response getLowestPriceProducts(Integer categoryId,
                                                                            BigDecimal maxPrice,
                                                                            Integer minStock) {
-        List<VendorProduct> candidates = vendorProductRepository.findForLowestPriceView(categoryId);
+        // Served from the in-memory index; results are already ordered by product name.
+        List<LowestPriceProduct> models = lowestPriceIndex.lowestOffers(categorySubtree(categoryId), maxPrice, minStock).stream()
+                .map(this::mapToLowestPriceProduct)
+                .collect(Collectors.toList());
 
-        Map<Integer, VendorProduct> lowestByProduct = new HashMap<>();
-        for (VendorProduct vp : candidates) {
-            if (vp.getStockQuantity() == null || vp.getStockQuantity() <= 0) {
-                continue;
-            }
-            if (minStock != null && vp.getStockQuantity() < minStock) {
-                continue;
-            }
+        VendorProductsLowestPricesGet200Response response = new VendorProductsLowestPricesGet200Response();
+        response.setSuccess(true);
+        response.setData(models);
+        return response;
+    }
 
-            BigDecimal effectiveFinalPrice = getEffectiveFinalPrice(vp);
-            if (effectiveFinalPrice == null) {
-                continue;
+    /**
+     * Lowest price view narrowed by a free-text query over product name, generic name and the
+     * name of the vendor holding the lowest offer. Matches are ranked by relevance, then by product name.
+     */
+    public VendorProductsLowestPricesGet200Response searchLowestPriceProducts(String q,
+                                                                              Integer categoryId,
+                                                                              BigDecimal minPrice,
+                                                                              BigDecimal maxPrice) {
+        Set<Integer> categoryIds = categorySubtree(categoryId);
+        List<LowestPriceIndex.LowestOffer> offers;
+        if (q == null || q.isBlank()) {
+            offers = lowestPriceIndex.lowestOffers(categoryIds, maxPrice, null);
+        } else {
+            Map<Integer, Integer> scoreByProduct = new HashMap<>();
+            for (TextSearchIndex.Hit hit : catalogSearchIndex.searchProducts(q)) {
+                scoreByProduct.put(hit.id(), hit.score());
             }
-            if (maxPrice != null && effectiveFinalPrice.compareTo(maxPrice) > 0) {
-                continue;
+            for (TextSearchIndex.Hit hit : catalogSearchIndex.searchVendors(q)) {
+                for (Integer productId : lowestPriceIndex.productsLedBy(hit.id())) {
+                    scoreByProduct.merge(productId, hit.score(), Math::max);
+                }
             }
 
-            Integer productId = vp.getProduct().getId();
-            VendorProduct current = lowestByProduct.get(productId);
-            if (current == null || getEffectiveFinalPrice(current).compareTo(effectiveFinalPrice) > 0) {
-                lowestByProduct.put(productId, vp);
+            List<Map.Entry<Integer, LowestPriceIndex.LowestOffer>> ranked = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> match : scoreByProduct.entrySet()) {
+                LowestPriceIndex.LowestOffer offer =
+                        lowestPriceIndex.lowestOffer(match.getKey(), categoryIds, maxPrice, null);
+                if (offer != null) {
+                    ranked.add(Map.entry(match.getValue(), offer));
+                }
             }
+            ranked.sort(Map.Entry.<Integer, LowestPriceIndex.LowestOffer>comparingByKey().reversed()
+                    .thenComparing(e -> e.getValue().productName() != null ? e.getValue().productName() : "")
+                    .thenComparingInt(e -> e.getValue().productId()));
+            offers = ranked.stream().map(Map.Entry::getValue).collect(Collectors.toList());
         }
 
-        List<LowestPriceProduct> models = new ArrayList<>();
-        for (VendorProduct vp : lowestByProduct.values()) {
-            models.add(mapToLowestPriceProduct(vp));
-        }
-        // sort by product name for stable ordering
-        models.sort(Comparator.comparing(lp -> lp.getProductName() != null ? lp.getProductName() : ""));
+        List<LowestPriceProduct> models = offers.stream()
+                .filter(offer -> minPrice == null || offer.finalPrice().compareTo(minPrice) >= 0)
+                .map(this::mapToLowestPriceProduct)
+                .collect(Collectors.toList());
 
         VendorProductsLowestPricesGet200Response response = new VendorProductsLowestPricesGet200Response();
         response.setSuccess(true);
@@ -281,45 +344,123 @@ public class VendorProductService {
             return response;
         }
 
-        int updatedCount = 0;
-        for (VendorProductsUpdateStockPatchRequestUpdatesInner update : request.getUpdates()) {
-            VendorProduct vp = vendorProductRepository.findById(update.getVendorProductId()).orElse(null);
+        List<StockUpdateOutcome> outcomes = applyStockUpdates(request.getUpdates());
+
+        VendorProductsUpdateStockPatch200Response response = new VendorProductsUpdateStockPatch200Response();
+        response.setSuccess(true);
+        response.setMessage("Stock updated successfully");
+        response.setUpdatedCount(countUpdated(outcomes));
+        return response;
+    }
+
+    /**
+     * Same as {@link #updateStock} but reports what happened to every line, in request order.
+     */
+    public BulkStockUpdateResponse bulkUpdateStock(VendorProductsUpdateStockPatchRequest request) {
+        if (request == null || request.getUpdates() == null || request.getUpdates().isEmpty()) {
+            return new BulkStockUpdateResponse(true, "No updates provided", 0, List.of());
+        }
+
+        List<StockUpdateOutcome> outcomes = applyStockUpdates(request.getUpdates());
+        return new BulkStockUpdateResponse(true, "Stock updated successfully", countUpdated(outcomes), outcomes);
+    }
+
+    /**
+     * Applies stock lines in request order. All targeted vendor products are loaded with one IN query;
+     * changed rows are written through JDBC batches, flushing every {@code mvps.stock.batch-size} changed
+     * lines. Repeated ids see the result of earlier lines. The movements are handed to the audit writer
+     * once the transaction commits, so audit inserts are not part of the request.
+     *
+     * Quantities are shelf counts: the targeted rows are locked and each count is stored less the units
+     * held by open reservations, after dropping the products' escrow blocks (see {@link StockReconciler}).
+     */
+    private List<StockUpdateOutcome> applyStockUpdates(List<VendorProductsUpdateStockPatchRequestUpdatesInner> updates) {
+        List<Integer> ids = updates.stream()
+                .map(VendorProductsUpdateStockPatchRequestUpdatesInner::getVendorProductId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Integer, VendorProduct> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            vendorProductRepository.findAllForUpdate(ids).forEach(vp -> byId.put(vp.getId(), vp));
+        }
+        Map<Integer, Integer> held = stockReconciler.reconcile(updates.stream()
+                .filter(update -> update.getStockQuantity() != null && update.getStockQuantity() >= 0)
+                .map(VendorProductsUpdateStockPatchRequestUpdatesInner::getVendorProductId)
+                .filter(byId::containsKey)
+                .collect(Collectors.toSet()));
+
+        List<StockUpdateOutcome> outcomes = new ArrayList<>(updates.size());
+        List<StockMovement> movements = new ArrayList<>();
+        int unflushed = 0;
+        for (VendorProductsUpdateStockPatchRequestUpdatesInner update : updates) {
+            Integer vendorProductId = update.getVendorProductId();
+            VendorProduct vp = vendorProductId != null ? byId.get(vendorProductId) : null;
             if (vp == null) {
+                outcomes.add(new StockUpdateOutcome(vendorProductId, StockUpdateOutcome.Status.NOT_FOUND, null, null));
                 continue;
             }
 
             Integer previousQuantity = vp.getStockQuantity() != null ? vp.getStockQuantity() : 0;
-            Integer newQuantity = update.getStockQuantity();
-            if (newQuantity == null || newQuantity < 0) {
+            Integer reported = update.getStockQuantity();
+            if (reported == null || reported < 0) {
+                outcomes.add(new StockUpdateOutcome(vendorProductId, StockUpdateOutcome.Status.INVALID_QUANTITY,
+                        previousQuantity, previousQuantity));
                 continue;
             }
+            Integer newQuantity = StockReconciler.sellable(reported, held, vendorProductId);
             if (previousQuantity.equals(newQuantity)) {
+                outcomes.add(new StockUpdateOutcome(vendorProductId, StockUpdateOutcome.Status.UNCHANGED,
+                        previousQuantity, newQuantity));
                 continue;
             }
 
+            VendorProductSnapshot before = VendorProductSnapshot.of(vp);
+            // Managed entity: the update is written at the next flush, batched with its neighbours.
             vp.setStockQuantity(newQuantity);
-            vendorProductRepository.save(vp);
-
-            try {
-                VendorStockMovement movement = new VendorStockMovement();
-                movement.setVendorProduct(vp);
-                movement.setPreviousQuantity(previousQuantity);
-                movement.setNewQuantity(newQuantity);
-                movement.setChangeAmount(newQuantity - previousQuantity);
-                vendorStockMovementRepository.save(movement);
-            } catch (Exception ex) {
-                // Do not fail the stock update if audit logging fails (e.g., missing table)
-                log.warn("Failed to record stock movement audit for vendorProductId={}", vp.getId(), ex);
+            nextRowVersion(vp);
+            eventPublisher.publishEvent(new VendorProductChangedEvent(before, VendorProductSnapshot.of(vp)));
+
+            movements.add(new StockMovement(vendorProductId, previousQuantity, newQuantity, LocalDateTime.now()));
+
+            outcomes.add(new StockUpdateOutcome(vendorProductId, StockUpdateOutcome.Status.UPDATED,
+                    previousQuantity, newQuantity));
+
+            if (++unflushed >= stockBatchSize) {
+                entityManager.flush();
+                unflushed = 0;
             }
+        }
+        if (!movements.isEmpty()) {
+            eventPublisher.publishEvent(new StockMovementsRecordedEvent(movements));
+        }
+
+        log.debug("Applied {} stock lines against {} vendor products", updates.size(), byId.size());
+        return outcomes;
+    }
 
-            updatedCount++;
+    private static int countUpdated(List<StockUpdateOutcome> outcomes) {
+        return (int) outcomes.stream()
+                .filter(outcome -> outcome.status() == StockUpdateOutcome.Status.UPDATED)
+                .count();
+    }
+
+    /**
+     * Loads a vendor product locked for an absolute stock write.
+     */
+    private VendorProduct findForStockWrite(Integer vendorProductId) {
+        List<VendorProduct> locked = vendorProductRepository.findAllForUpdate(List.of(vendorProductId));
+        if (locked.isEmpty()) {
+            throw new ResourceNotFoundException("Vendor product not found");
         }
+        return locked.get(0);
+    }
 
-        VendorProductsUpdateStockPatch200Response response = new VendorProductsUpdateStockPatch200Response();
-        response.setSuccess(true);
-        response.setMessage("Stock updated successfully");
-        response.setUpdatedCount(updatedCount);
-        return response;
+    /**
+     * Bumps the row version ahead of taking the after snapshot; the caller must hold the row lock.
+     */
+    private static void nextRowVersion(VendorProduct vp) {
+        vp.setRowVersion(vp.getRowVersion() + 1);
     }
 
     public List<VendorStockMovement> getStockHistory(Integer vendorProductId) {
@@ -356,9 +497,6 @@ public class VendorProductService {
         if (request.getMinimumOrderQuantity() != null) {
             entity.setMinimumOrderQuantity(request.getMinimumOrderQuantity());
         }
-        if (request.getStockQuantity() != null) {
-            entity.setStockQuantity(request.getStockQuantity());
-        }
         if (request.getExpiryDate() != null && request.getExpiryDate().isPresent()) {
             entity.setExpiryDate(request.getExpiryDate().get());
         }
@@ -392,19 +530,26 @@ public class VendorProductService {
         return model;
     }
 
-    private LowestPriceProduct mapToLowestPriceProduct(VendorProduct entity) {
+    /**
+     * The category and its subcategories, or null for no category filter.
+     */
+    private Set<Integer> categorySubtree(Integer categoryId) {
+        return categoryId != null ? categoryTree.subtree(categoryId) : null;
+    }
+
+    private LowestPriceProduct mapToLowestPriceProduct(LowestPriceIndex.LowestOffer offer) {
         LowestPriceProduct model = new LowestPriceProduct();
-        model.setProductId(entity.getProduct().getId());
-        model.setProductName(entity.getProduct().getName());
-        model.setGenericName(entity.getProduct().getGenericName());
-        model.setVendorProductId(entity.getId());
-        model.setVendorId(entity.getVendor().getId());
-        model.setVendorName(entity.getVendor().getName());
-        model.setCostPrice(entity.getCostPrice());
-        model.setDiscountPercentage(entity.getDiscountPercentage());
-        model.setFinalPrice(getEffectiveFinalPrice(entity));
-        model.setStockQuantity(entity.getStockQuantity());
-        model.setIsAvailable(entity.getAvailable());
+        model.setProductId(offer.productId());
+        model.setProductName(offer.productName());
+        model.setGenericName(offer.genericName());
+        model.setVendorProductId(offer.vendorProductId());
+        model.setVendorId(offer.vendorId());
+        model.setVendorName(offer.vendorName());
+        model.setCostPrice(offer.costPrice());
+        model.setDiscountPercentage(offer.discountPercentage());
+        model.setFinalPrice(offer.finalPrice());
+        model.setStockQuantity(offer.stockQuantity());
+        model.setIsAvailable(true);
         return model;
     }
 
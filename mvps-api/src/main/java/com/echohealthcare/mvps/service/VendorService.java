@@ -2,7 +2,7 @@ package com.echohealthcare.mvps.service;
 
 import com.echohealthcare.mvps.domain.Vendor;
 import com.echohealthcare.mvps.dto.CursorPageResponse;
-import com.echohealthcare.mvps.model.Pagination;
+import com.echohealthcare.mvps.event.VendorChangedEvent;
 import com.echohealthcare.mvps.model.VendorCreate;
 import com.echohealthcare.mvps.model.VendorUpdate;
 import com.echohealthcare.mvps.model.VendorsGet200Response;
@@ -11,30 +11,46 @@ import com.echohealthcare.mvps.model.VendorsVendorIdDelete200Response;
 import com.echohealthcare.mvps.model.VendorsVendorIdGet200Response;
 import com.echohealthcare.mvps.model.VendorsVendorIdPut200Response;
 import com.echohealthcare.mvps.repository.VendorRepository;
+import com.echohealthcare.mvps.repository.KeysetQuery;
 import com.echohealthcare.mvps.util.CursorPaginationUtils;
-import org.springframework.data.domain.Page;
+import com.echohealthcare.mvps.util.KeysetCursor;
+import com.echohealthcare.mvps.util.KeysetSort;
+import com.echohealthcare.mvps.util.TotalMode;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @Transactional
 public class VendorService {
 
+	private static final Map<String, KeysetSort.Field<Vendor>> CURSOR_SORTS = Map.of(
+			KeysetSort.ID, KeysetSort.field("v.id", Vendor::getId),
+			"name", KeysetSort.field("v.name", Vendor::getName));
+
 	private final VendorRepository vendorRepository;
+	private final ApplicationEventPublisher eventPublisher;
+	private final PageTotalResolver pageTotalResolver;
 
-	public VendorService(VendorRepository vendorRepository) {
+	public VendorService(VendorRepository vendorRepository,
+						 ApplicationEventPublisher eventPublisher,
+						 PageTotalResolver pageTotalResolver) {
 		this.vendorRepository = vendorRepository;
+		this.eventPublisher = eventPublisher;
+		this.pageTotalResolver = pageTotalResolver;
 	}
 
-	public VendorsGet200Response getVendors(Boolean isActive, String city, String state, int page, int limit) {
+	public VendorsGet200Response getVendors(Boolean isActive, String city, String state, int page, int limit, String totalMode) {
 		Pageable pageable = PageRequest.of(Math.max(page - 1, 0), limit);
-		Page<Vendor> vendorPage = vendorRepository.search(isActive, city, state, pageable);
+		Slice<Vendor> vendorPage = vendorRepository.search(isActive, city, state, pageable);
 
 		VendorsGet200Response response = new VendorsGet200Response();
 		response.setSuccess(true);
@@ -42,12 +58,9 @@ public class VendorService {
 			response.addDataItem(mapToVendorModel(vendor));
 		}
 
-		Pagination pagination = new Pagination();
-		pagination.setPage(page);
-		pagination.setLimit(limit);
-		pagination.setTotalItems((int) vendorPage.getTotalElements());
-		pagination.setTotalPages(vendorPage.getTotalPages());
-		response.setPagination(pagination);
+		response.setPagination(pageTotalResolver.paginate(page, limit, vendorPage, TotalMode.parse(totalMode),
+			"vendors", Arrays.asList(isActive, city, state),
+			() -> vendorRepository.countSearch(isActive, city, state)));
 		return response;
 	}
 
@@ -57,34 +70,22 @@ public class VendorService {
 	public CursorPageResponse<com.echohealthcare.mvps.model.Vendor> getVendorsByCursor(
 			String cursor,
 			Integer size,
+			String sort,
 			Boolean isActive,
 			String city,
 			String state) {
 
 		int validatedSize = CursorPaginationUtils.validatePageSize(size);
-		Integer decodedCursor = CursorPaginationUtils.decodeCursor(cursor);
-
-		Pageable pageable = PageRequest.of(0, validatedSize + 1);
-		List<Vendor> vendors = vendorRepository.searchByCursor(
-			decodedCursor, isActive, city, state, pageable);
-
-		boolean hasNext = vendors.size() > validatedSize;
-		List<Vendor> pageItems = hasNext ? vendors.subList(0, validatedSize) : vendors;
+		KeysetSort<Vendor> keysetSort = CursorPaginationUtils.parseSort(sort, CURSOR_SORTS);
+		KeysetCursor decodedCursor = KeysetCursor.decode(cursor, keysetSort);
 
-		Integer nextCursorValue = hasNext && !pageItems.isEmpty()
-			? pageItems.get(pageItems.size() - 1).getId()
-			: null;
+		List<Vendor> vendors = vendorRepository.seek(KeysetQuery.of(
+			vendorRepository.filter(isActive, city, state))
+			.orderBy(keysetSort)
+			.after(decodedCursor)
+			.limit(validatedSize + 1));
 
-		List<com.echohealthcare.mvps.model.Vendor> responseData = pageItems.stream()
-			.map(this::mapToVendorModel)
-			.collect(Collectors.toList());
-
-		return new CursorPageResponse<>(
-			responseData,
-			validatedSize,
-			CursorPaginationUtils.encodeCursor(nextCursorValue),
-			hasNext
-		);
+		return CursorPaginationUtils.keysetPage(vendors, validatedSize, keysetSort, decodedCursor, this::mapToVendorModel);
 	}
 
 	public VendorsPost201Response createVendor(VendorCreate request) {
@@ -103,6 +104,8 @@ public class VendorService {
 
 		Vendor saved = vendorRepository.save(vendor);
 
+		eventPublisher.publishEvent(VendorChangedEvent.of(saved));
+
 		VendorsPost201Response response = new VendorsPost201Response();
 		response.setSuccess(true);
 		response.setMessage("Vendor created successfully");
@@ -160,6 +163,8 @@ public class VendorService {
 
 		Vendor saved = vendorRepository.save(vendor);
 
+		eventPublisher.publishEvent(VendorChangedEvent.of(saved));
+
 		VendorsVendorIdPut200Response response = new VendorsVendorIdPut200Response();
 		response.setSuccess(true);
 		response.setMessage("Vendor updated successfully");
@@ -172,6 +177,7 @@ public class VendorService {
 				.orElseThrow(() -> new ResourceNotFoundException("Vendor not found"));
 		vendor.setActive(false);
 		vendorRepository.save(vendor);
+		eventPublisher.publishEvent(VendorChangedEvent.of(vendor));
 
 		VendorsVendorIdDelete200Response response = new VendorsVendorIdDelete200Response();
 		response.setSuccess(true);
@@ -0,0 +1,509 @@
+package com.echohealthcare.mvps.stock;
+
+import com.echohealthcare.mvps.domain.StockEscrowBlock;
+import com.echohealthcare.mvps.event.StockMovement;
+import com.echohealthcare.mvps.event.VendorProductSnapshot;
+import com.echohealthcare.mvps.repository.NodeLeaseRepository;
+import com.echohealthcare.mvps.repository.StockEscrowBlockRepository;
+import com.echohealthcare.mvps.repository.StockReservationRepository;
+import com.echohealthcare.mvps.repository.VendorProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * In-memory escrow of stock for the hottest vendor products.
+ *
+ * Every conditional stock update locks the vendor product's row until the order's transaction ends,
+ * so orders for one popular SKU queue up behind each other. Once a SKU receives at least
+ * {@code mvps.stock.escrow.hot-reservations-per-second} reservations, this node moves a block of its
+ * stock (at most {@code block-size} units, and never more than half of what is on hand) out of
+ * vendor_products into an escrow block, and reservations for the SKU are then served by a compare-and-set
+ * on one of {@code stripes} counters instead of the row. A SKU whose rate falls below half the threshold
+ * has its block closed and the remaining units put back on the stock.
+ *
+ * Every {@code flush-interval-ms} the units left in each block are written to its stock_escrow_blocks row
+ * together with the time they were counted, and blocks running low are refilled. Draws whose order
+ * transaction rolls back go back into the block. Units held in escrow are not visible in the vendor
+ * product's stock_quantity.
+ *
+ * If the node stops without closing its blocks, the next start returns each block's units: the quantity
+ * of the last flush less everything reserved from the block since that flush. Reservations made around a
+ * flush can be subtracted twice, so recovery may hold back a few units, but it never returns units that
+ * were sold. Each node must run with its own {@code mvps.node-id}.
+ *
+ * Recovery treats every block tagged with the node id as left behind, so before recovering an instance
+ * claims the node id's row in node_leases and then renews its heartbeat at every flush. While another
+ * running instance holds the lease (two instances started with the same node id, or a restart before a
+ * crashed instance's heartbeat is {@code lease-ttl-seconds} old) this instance opens no blocks and tries
+ * again at the next flush. An instance that finds its lease taken over drops its blocks without putting
+ * their units back, since the new holder returns them.
+ *
+ * An absolute stock write (a vendor's stock count) already includes whatever sits in escrow, so it
+ * discards the vendor product's blocks (see {@link StockReconciler}): their rows are deleted in the
+ * write's transaction and their units are dropped rather than put back. This node drops its block at
+ * once; other nodes drop theirs at their next flush, when they find the row gone, and until then may
+ * still serve draws from it.
+ */
+@Component
+public class HotStockEscrow {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockEscrow.class);
+
+    private final StockEscrowBlockRepository blockRepository;
+    private final NodeLeaseRepository leaseRepository;
+    private final StockReservationRepository reservationRepository;
+    private final VendorProductRepository vendorProductRepository;
+    private final StockLevels stockLevels;
+    private final StockContentionStats stats;
+    private final TransactionTemplate transaction;
+    private final boolean enabled;
+    private final int nodeId;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final int leaseTtlSeconds;
+    private final double hotReservationsPerSecond;
+    private final int blockSize;
+    private final int stripes;
+
+    private final Map<Integer, Block> blocks = new ConcurrentHashMap<>();
+
+    // Serializes recovery, flushes and shutdown; the fields below are guarded by it.
+    private final Object flushLock = new Object();
+    private boolean recovered;
+    private boolean shutDown;
+    private long windowStartedAt = System.currentTimeMillis();
+
+    public HotStockEscrow(StockEscrowBlockRepository blockRepository,
+                          NodeLeaseRepository leaseRepository,
+                          StockReservationRepository reservationRepository,
+                          VendorProductRepository vendorProductRepository,
+                          StockLevels stockLevels,
+                          StockContentionStats stats,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${mvps.stock.escrow.enabled:true}") boolean enabled,
+                          @Value("${mvps.node-id:0}") int nodeId,
+                          @Value("${mvps.stock.escrow.hot-reservations-per-second:20}") double hotReservationsPerSecond,
+                          @Value("${mvps.stock.escrow.block-size:200}") int blockSize,
+                          @Value("${mvps.stock.escrow.stripes:8}") int stripes,
+                          @Value("${mvps.stock.escrow.lease-ttl-seconds:30}") int leaseTtlSeconds) {
+        this.blockRepository = blockRepository;
+        this.leaseRepository = leaseRepository;
+        this.reservationRepository = reservationRepository;
+        this.vendorProductRepository = vendorProductRepository;
+        this.stockLevels = stockLevels;
+        this.stats = stats;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.hotReservationsPerSecond = hotReservationsPerSecond;
+        this.blockSize = blockSize;
+        this.stripes = Math.max(1, stripes);
+        this.leaseTtlSeconds = leaseTtlSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        synchronized (flushLock) {
+            recover();
+        }
+    }
+
+    /**
+     * Draws {@code quantity} units from the vendor product's escrow block, inside the order's transaction.
+     * If that transaction rolls back the units go back into the block.
+     *
+     * @return the id of the block drawn from, or null when the SKU has no block or not enough units in one
+     *         stripe, in which case the caller takes the stock from vendor_products
+     */
+    Long draw(int vendorProductId, int quantity) {
+        Block block = blocks.get(vendorProductId);
+        if (block == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        int stripe = block.draw(quantity);
+        if (stripe < 0) {
+            return null;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // Only a definite rollback gives the units back; with an unknown outcome they stay drawn.
+                if (status == STATUS_ROLLED_BACK) {
+                    giveBack(block, stripe, quantity);
+                }
+            }
+        });
+        return block.escrowId;
+    }
+
+    /**
+     * Drops this node's blocks of the given vendor products without putting their units back, inside the
+     * transaction of an absolute stock write that also deletes the block rows. Should that transaction
+     * roll back, the units go back on the stock instead.
+     */
+    void discard(Collection<Integer> vendorProductIds) {
+        List<Block> dropped = new ArrayList<>();
+        for (Integer vendorProductId : vendorProductIds) {
+            Block block = blocks.remove(vendorProductId);
+            if (block != null) {
+                block.discarded = true;
+                block.held = block.drain();
+                stats.escrowed(vendorProductId, null);
+                dropped.add(block);
+            }
+        }
+        if (dropped.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    dropped.forEach(HotStockEscrow.this::restore);
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${mvps.stock.escrow.flush-interval-ms:1000}")
+    public void flush() {
+        synchronized (flushLock) {
+            long now = System.currentTimeMillis();
+            Map<Integer, Double> rates = stats.closeWindow(now - windowStartedAt);
+            windowStartedAt = now;
+            if (!enabled || shutDown || !recover() || !renewLease()) {
+                return;
+            }
+
+            for (Block block : blocks.values()) {
+                try {
+                    if (rates.getOrDefault(block.vendorProductId, 0.0) < hotReservationsPerSecond / 2) {
+                        close(block);
+                    } else {
+                        flush(block);
+                    }
+                } catch (RuntimeException ex) {
+                    log.warn("Could not flush escrow block {} of vendor product {}",
+                            block.escrowId, block.vendorProductId, ex);
+                }
+            }
+            rates.forEach((vendorProductId, rate) -> {
+                if (rate >= hotReservationsPerSecond && !blocks.containsKey(vendorProductId)) {
+                    try {
+                        open(vendorProductId);
+                    } catch (RuntimeException ex) {
+                        log.warn("Could not open an escrow block for vendor product {}", vendorProductId, ex);
+                    }
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (flushLock) {
+            shutDown = true;
+            for (Block block : blocks.values()) {
+                try {
+                    close(block);
+                } catch (RuntimeException ex) {
+                    log.error("Could not close escrow block {} of vendor product {}; its units are returned on the next start",
+                            block.escrowId, block.vendorProductId, ex);
+                }
+            }
+            if (recovered) {
+                try {
+                    // Lets a restart with the same node id recover at once instead of waiting for the lease to expire.
+                    transaction.executeWithoutResult(status -> leaseRepository.release(nodeId, instanceId));
+                } catch (RuntimeException ex) {
+                    log.warn("Could not release the lease on node id {}", nodeId, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims the node id's lease and returns the units of blocks this node left behind. Returns whether
+     * every block was recovered; until then no blocks are opened, and the next flush tries again.
+     */
+    private boolean recover() {
+        if (recovered) {
+            return true;
+        }
+        try {
+            boolean claimed = transaction.execute(status -> {
+                leaseRepository.insertIfAbsent(nodeId, instanceId);
+                return leaseRepository.claim(nodeId, instanceId, leaseTtlSeconds) > 0;
+            });
+            if (!claimed) {
+                log.warn("Node id {} is held by another running instance; escrow blocks are not used until it is released "
+                        + "or expires. Each instance needs its own mvps.node-id", nodeId);
+                return false;
+            }
+            List<StockEscrowBlock> leftBehind = blockRepository.findByNodeId(nodeId);
+            for (StockEscrowBlock row : leftBehind) {
+                int returned = transaction.execute(status -> {
+                    long drawn = reservationRepository.sumDrawnSince(row.getId(), row.getFlushedAt());
+                    int leftover = (int) Math.max(0, row.getQuantity() - drawn);
+                    if (leftover > 0) {
+                        record(stockLevels.give(row.getVendorProductId(), leftover));
+                    }
+                    blockRepository.deleteById(row.getId());
+                    return leftover;
+                });
+                log.info("Returned {} units of escrow block {} of vendor product {} left over from the previous run",
+                        returned, row.getId(), row.getVendorProductId());
+            }
+            recovered = true;
+        } catch (RuntimeException ex) {
+            log.warn("Could not recover escrow blocks of node {}; retrying at the next flush", nodeId, ex);
+        }
+        return recovered;
+    }
+
+    /**
+     * Renews this instance's lease on the node id. Should another instance have taken the lease over, it
+     * returns the units of this node's blocks, so they are dropped here without being put back.
+     */
+    private boolean renewLease() {
+        int renewed;
+        try {
+            renewed = transaction.execute(status -> leaseRepository.renew(nodeId, instanceId));
+        } catch (RuntimeException ex) {
+            log.warn("Could not renew the lease on node id {}; skipping this flush", nodeId, ex);
+            return false;
+        }
+        if (renewed > 0) {
+            return true;
+        }
+        log.error("Lease on node id {} was taken over by another instance; dropping {} escrow blocks", nodeId, blocks.size());
+        for (Block block : blocks.values()) {
+            blocks.remove(block.vendorProductId, block);
+            block.discarded = true;
+            block.drain();
+            stats.escrowed(block.vendorProductId, null);
+        }
+        recovered = false;
+        return false;
+    }
+
+    private void open(int vendorProductId) {
+        LocalDateTime now = LocalDateTime.now();
+        StockEscrowBlock row = transaction.execute(status -> {
+            int granted = grant(vendorProductId, blockSize);
+            if (granted == 0) {
+                return null;
+            }
+            StockEscrowBlock created = new StockEscrowBlock();
+            created.setVendorProductId(vendorProductId);
+            created.setNodeId(nodeId);
+            created.setQuantity(granted);
+            created.setFlushedAt(now);
+            return blockRepository.save(created);
+        });
+        if (row == null) {
+            return;
+        }
+        Block block = new Block(row.getId(), vendorProductId, stripes);
+        block.add(row.getQuantity());
+        blocks.put(vendorProductId, block);
+        stats.escrowed(vendorProductId, row.getQuantity());
+        log.info("Opened escrow block {} for vendor product {} with {} units", row.getId(), vendorProductId, row.getQuantity());
+    }
+
+    private void flush(Block block) {
+        // Counted after this instant, so every draw the count misses has a later reserved_at.
+        LocalDateTime flushedAt = LocalDateTime.now();
+        int held = block.sum();
+        int wanted = held < blockSize / 2 ? blockSize - held : 0;
+        Integer granted = transaction.execute(status -> {
+            StockEscrowBlock row = blockRepository.findById(block.escrowId).orElse(null);
+            if (row == null) {
+                return null;
+            }
+            int units = wanted > 0 ? grant(block.vendorProductId, wanted) : 0;
+            row.setQuantity(held + units);
+            row.setFlushedAt(flushedAt);
+            return units;
+        });
+        if (granted == null) {
+            // Discarded by a stock count on another node; the count already includes these units.
+            blocks.remove(block.vendorProductId, block);
+            block.discarded = true;
+            block.drain();
+            stats.escrowed(block.vendorProductId, null);
+            log.info("Dropped escrow block {} of vendor product {}, discarded by a stock count",
+                    block.escrowId, block.vendorProductId);
+            return;
+        }
+        block.add(granted);
+        stats.escrowed(block.vendorProductId, block.sum());
+    }
+
+    private void close(Block block) {
+        blocks.remove(block.vendorProductId, block);
+        int drained = block.drain();
+        transaction.executeWithoutResult(status -> {
+            if (blockRepository.deleteBlock(block.escrowId) > 0 && drained > 0) {
+                record(stockLevels.give(block.vendorProductId, drained));
+            }
+        });
+        stats.escrowed(block.vendorProductId, null);
+        log.info("Closed escrow block {} of vendor product {}, returning {} units", block.escrowId, block.vendorProductId, drained);
+    }
+
+    /**
+     * Moves up to {@code wanted} units, and at most half the stock on hand, from vendor_products into escrow.
+     */
+    private int grant(int vendorProductId, int wanted) {
+        VendorProductSnapshot offer = vendorProductRepository.findSnapshotById(vendorProductId);
+        if (offer == null || !offer.available()) {
+            return 0;
+        }
+        int units = Math.min(wanted, offer.stockQuantity() / 2);
+        if (units <= 0) {
+            return 0;
+        }
+        StockMovement movement = stockLevels.take(vendorProductId, units);
+        record(movement);
+        return movement != null ? units : 0;
+    }
+
+    /**
+     * Puts the units of a block whose discard was rolled back on the stock, closing the block for good.
+     */
+    private void restore(Block block) {
+        block.discarded = false;
+        try {
+            transaction.executeWithoutResult(status -> {
+                blockRepository.deleteBlock(block.escrowId);
+                if (block.held > 0) {
+                    record(stockLevels.give(block.vendorProductId, block.held));
+                }
+            });
+        } catch (RuntimeException ex) {
+            log.error("Could not return {} units of vendor product {} from escrow block {}; they are returned on the next start",
+                    block.held, block.vendorProductId, block.escrowId, ex);
+        }
+    }
+
+    private void giveBack(Block block, int stripe, int quantity) {
+        if (block.discarded) {
+            // A stock count since the draw has already included these units.
+            return;
+        }
+        block.stripes.addAndGet(stripe, quantity);
+        if (!block.closed) {
+            return;
+        }
+        // Closed meanwhile: whichever of us and the closing drain takes the stripe returns its units.
+        int units = block.stripes.getAndSet(stripe, 0);
+        if (units == 0) {
+            return;
+        }
+        try {
+            transaction.executeWithoutResult(status -> record(stockLevels.give(block.vendorProductId, units)));
+        } catch (RuntimeException ex) {
+            log.error("Could not return {} units of vendor product {} from closed escrow block {}",
+                    units, block.vendorProductId, block.escrowId, ex);
+        }
+    }
+
+    private void record(StockMovement movement) {
+        if (movement != null) {
+            stockLevels.recorded(List.of(movement));
+        }
+    }
+
+    /**
+     * Units of one escrow block, spread over striped counters so concurrent draws rarely touch the same one.
+     */
+    private static final class Block {
+
+        final long escrowId;
+        final int vendorProductId;
+        final AtomicIntegerArray stripes;
+        volatile boolean closed;
+        // Dropped by a stock count: its units are neither flushed nor given back.
+        volatile boolean discarded;
+        // Units drained when the block was discarded.
+        int held;
+
+        Block(long escrowId, int vendorProductId, int stripeCount) {
+            this.escrowId = escrowId;
+            this.vendorProductId = vendorProductId;
+            this.stripes = new AtomicIntegerArray(stripeCount);
+        }
+
+        /**
+         * Takes the units from the first stripe, starting at a random one, that holds enough of them.
+         * Returns the stripe, or -1 when none does.
+         */
+        int draw(int quantity) {
+            int count = stripes.length();
+            int start = ThreadLocalRandom.current().nextInt(count);
+            for (int i = 0; i < count; i++) {
+                int stripe = (start + i) % count;
+                int units = stripes.get(stripe);
+                while (units >= quantity) {
+                    if (stripes.compareAndSet(stripe, units, units - quantity)) {
+                        return stripe;
+                    }
+                    units = stripes.get(stripe);
+                }
+            }
+            return -1;
+        }
+
+        void add(int units) {
+            int count = stripes.length();
+            for (int i = 0; i < count; i++) {
+                int share = units / count + (i < units % count ? 1 : 0);
+                if (share > 0) {
+                    stripes.addAndGet(i, share);
+                }
+            }
+        }
+
+        int sum() {
+            int total = 0;
+            for (int i = 0; i < stripes.length(); i++) {
+                total += stripes.get(i);
+            }
+            return total;
+        }
+
+        /**
+         * Closes the block to draws and takes out everything left in it.
+         */
+        int drain() {
+            closed = true;
+            int total = 0;
+            for (int i = 0; i < stripes.length(); i++) {
+                total += stripes.getAndSet(i, 0);
+            }
+            return total;
+        }
+    }
+}
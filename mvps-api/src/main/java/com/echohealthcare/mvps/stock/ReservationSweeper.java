@@ -0,0 +1,53 @@
+package com.echohealthcare.mvps.stock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Gives back the stock of reservations that expired before their order was confirmed or paid. The
+ * orders stay as they are. Each order's reservations are expired in their own transaction, for at most
+ * {@code mvps.stock.reservation.sweep-batch-size} orders per run.
+ */
+@Component
+public class ReservationSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationSweeper.class);
+
+    private final StockReservationService reservationService;
+    private final int batchSize;
+
+    public ReservationSweeper(StockReservationService reservationService,
+                              @Value("${mvps.stock.reservation.sweep-batch-size:100}") int batchSize) {
+        this.reservationService = reservationService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${mvps.stock.reservation.sweep-interval-ms:60000}")
+    public void sweep() {
+        List<Integer> orderIds;
+        try {
+            orderIds = reservationService.findExpiredOrderIds(batchSize);
+        } catch (RuntimeException ex) {
+            log.warn("Could not look up expired stock reservations", ex);
+            return;
+        }
+        int expired = 0;
+        for (Integer orderId : orderIds) {
+            try {
+                if (reservationService.expire(orderId)) {
+                    expired++;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Could not expire the stock reservations of order {}", orderId, ex);
+            }
+        }
+        if (expired > 0) {
+            log.info("Released the expired stock reservations of {} orders", expired);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.echohealthcare.mvps.stock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per vendor product counters of stock reservations.
+ *
+ * The time of each conditional stock update is recorded as well; it is mostly time spent waiting for
+ * the row lock held by other orders of the same vendor product, so a high average marks a contended
+ * SKU. The reservation rate over the last escrow flush interval decides which SKUs are served from
+ * escrow (see {@link HotStockEscrow}).
+ *
+ * At most {@code mvps.stock.contention.max-skus} SKUs are tracked. When a window closes over that,
+ * SKUs without reservations in the window and without an escrow block are dropped, least update time
+ * first, so their counters start again from zero if they become active later.
+ */
+@Component
+public class StockContentionStats {
+
+    private final int maxSkus;
+    private final Map<Integer, Counters> bySku = new ConcurrentHashMap<>();
+
+    public StockContentionStats(@Value("${mvps.stock.contention.max-skus:10000}") int maxSkus) {
+        this.maxSkus = maxSkus;
+    }
+
+    void reserved(int vendorProductId, int quantity, boolean fromEscrow, long updateNanos) {
+        Counters counters = counters(vendorProductId);
+        counters.reservations.increment();
+        counters.units.add(quantity);
+        counters.window.increment();
+        if (fromEscrow) {
+            counters.escrowDraws.increment();
+        } else {
+            counters.updated(updateNanos);
+        }
+    }
+
+    void rejected(int vendorProductId, long updateNanos) {
+        Counters counters = counters(vendorProductId);
+        counters.rejected.increment();
+        counters.window.increment();
+        counters.updated(updateNanos);
+    }
+
+    void escrowed(int vendorProductId, Integer units) {
+        counters(vendorProductId).escrowed = units;
+    }
+
+    /**
+     * Reservations per second of every SKU seen since the previous call, which started the window.
+     * Drops idle SKUs when more than the maximum are tracked.
+     */
+    Map<Integer, Double> closeWindow(long windowMillis) {
+        Map<Integer, Double> rates = new HashMap<>();
+        List<Map.Entry<Integer, Counters>> idle = new ArrayList<>();
+        double seconds = Math.max(windowMillis, 1) / 1000.0;
+        bySku.forEach((vendorProductId, counters) -> {
+            double rate = counters.window.sumThenReset() / seconds;
+            counters.recentPerSecond = rate;
+            if (rate > 0) {
+                rates.put(vendorProductId, rate);
+            } else if (counters.escrowed == null) {
+                idle.add(Map.entry(vendorProductId, counters));
+            }
+        });
+
+        int excess = bySku.size() - maxSkus;
+        if (excess > 0) {
+            idle.sort(Comparator.comparingLong(entry -> entry.getValue().updateNanos.sum()));
+            for (int i = 0; i < idle.size() && excess > 0; i++) {
+                Map.Entry<Integer, Counters> entry = idle.get(i);
+                if (bySku.remove(entry.getKey(), entry.getValue())) {
+                    excess--;
+                }
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * The most contended SKUs, by total time spent in stock updates.
+     */
+    public List<SkuStats> top(int limit) {
+        return bySku.entrySet().stream()
+                .map(entry -> entry.getValue().stats(entry.getKey()))
+                .sorted(Comparator.comparingLong(SkuStats::totalUpdateMicros).reversed()
+                        .thenComparing(Comparator.comparingLong(SkuStats::reservations).reversed()))
+                .limit(limit)
+                .toList();
+    }
+
+    private Counters counters(int vendorProductId) {
+        return bySku.computeIfAbsent(vendorProductId, id -> new Counters());
+    }
+
+    private static final class Counters {
+        final LongAdder reservations = new LongAdder();
+        final LongAdder units = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder escrowDraws = new LongAdder();
+        final LongAdder updates = new LongAdder();
+        final LongAdder updateNanos = new LongAdder();
+        final LongAccumulator maxUpdateNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder window = new LongAdder();
+        volatile double recentPerSecond;
+        volatile Integer escrowed;
+
+        void updated(long nanos) {
+            updates.increment();
+            updateNanos.add(nanos);
+            maxUpdateNanos.accumulate(nanos);
+        }
+
+        SkuStats stats(int vendorProductId) {
+            long updateCount = updates.sum();
+            long totalNanos = updateNanos.sum();
+            return new SkuStats(vendorProductId, reservations.sum(), units.sum(), rejected.sum(), escrowDraws.sum(),
+                    updateCount,
+                    TimeUnit.NANOSECONDS.toMicros(totalNanos),
+                    updateCount > 0 ? TimeUnit.NANOSECONDS.toMicros(totalNanos / updateCount) : 0,
+                    TimeUnit.NANOSECONDS.toMicros(maxUpdateNanos.get()),
+                    Math.round(recentPerSecond * 100) / 100.0,
+                    escrowed);
+        }
+    }
+
+    /**
+     * Reservation figures of one vendor product. {@code reservations} counts successful reservations and
+     * {@code rejected} those refused for lack of stock; {@code escrowDraws} of the reservations were served
+     * from escrow and the rest by a stock update. Update times cover the conditional update including
+     * its lock wait. {@code escrowed} is the stock held in this node's escrow at the last flush, or null
+     * when the SKU has no escrow block.
+     */
+    public record SkuStats(
+        int vendorProductId,
+        long reservations,
+        long unitsReserved,
+        long rejected,
+        long escrowDraws,
+        long stockUpdates,
+        long totalUpdateMicros,
+        long averageUpdateMicros,
+        long maxUpdateMicros,
+        double recentPerSecond,
+        Integer escrowed
+    ) {}
+}
@@ -0,0 +1,80 @@
+package com.echohealthcare.mvps.stock;
+
+import com.echohealthcare.mvps.event.DataChangedEvent;
+import com.echohealthcare.mvps.event.DataTopic;
+import com.echohealthcare.mvps.event.StockMovement;
+import com.echohealthcare.mvps.event.StockMovementsRecordedEvent;
+import com.echohealthcare.mvps.event.VendorProductChangedEvent;
+import com.echohealthcare.mvps.event.VendorProductSnapshot;
+import com.echohealthcare.mvps.repository.VendorProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Relative stock changes on vendor_products, for callers that must not lose a concurrent change.
+ *
+ * Each change is one conditional UPDATE of the stock column instead of a read-modify-write of the
+ * entity, so two orders for the same vendor product cannot both see the last unit. The new level is
+ * read back afterwards (the row is locked by then) to publish the usual change event; managed
+ * VendorProduct entities in the caller's persistence context keep their old stock value, which is
+ * harmless as long as the caller does not modify them.
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class StockLevels {
+
+    private final VendorProductRepository vendorProductRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public StockLevels(VendorProductRepository vendorProductRepository, ApplicationEventPublisher eventPublisher) {
+        this.vendorProductRepository = vendorProductRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Takes {@code quantity} units off the stock if that many are on hand.
+     *
+     * @return the movement made, or null when the stock is short or the vendor product does not exist
+     */
+    public StockMovement take(Integer vendorProductId, int quantity) {
+        if (vendorProductRepository.decrementStock(vendorProductId, quantity) == 0) {
+            return null;
+        }
+        return changed(vendorProductId, -quantity);
+    }
+
+    /**
+     * Puts {@code quantity} units back on the stock.
+     *
+     * @return the movement made, or null when the vendor product does not exist
+     */
+    public StockMovement give(Integer vendorProductId, int quantity) {
+        if (vendorProductRepository.incrementStock(vendorProductId, quantity) == 0) {
+            return null;
+        }
+        return changed(vendorProductId, quantity);
+    }
+
+    /**
+     * Hands the movements to the audit writer and marks inventory results stale, once the transaction commits.
+     */
+    public void recorded(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new StockMovementsRecordedEvent(movements));
+        eventPublisher.publishEvent(new DataChangedEvent(DataTopic.INVENTORY));
+    }
+
+    private StockMovement changed(Integer vendorProductId, int delta) {
+        VendorProductSnapshot after = vendorProductRepository.findSnapshotById(vendorProductId);
+        int previous = after.stockQuantity() - delta;
+        eventPublisher.publishEvent(new VendorProductChangedEvent(after.withStockQuantity(previous), after));
+        return new StockMovement(vendorProductId, previous, after.stockQuantity(), LocalDateTime.now());
+    }
+}
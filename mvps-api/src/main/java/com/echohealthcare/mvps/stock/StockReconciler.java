@@ -0,0 +1,68 @@
+package com.echohealthcare.mvps.stock;
+
+import com.echohealthcare.mvps.repository.StockEscrowBlockRepository;
+import com.echohealthcare.mvps.repository.StockReservationRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns stock counts reported from outside into the sellable stock stored in vendor_products.
+ *
+ * A vendor's count is what is on the shelf. That includes units held by reservations of orders that
+ * have not shipped yet and units sitting in escrow blocks, both of which are already missing from
+ * stock_quantity and would otherwise be counted twice once they come back (a cancelled order, a closed
+ * block). So before an absolute write the vendor product's escrow blocks are discarded, the reservations
+ * of shipped and delivered orders are settled (their units have left the shelf and are no longer given
+ * back), and the units of the remaining open reservations are subtracted from the count.
+ *
+ * The caller must hold the vendor product rows locked (see
+ * {@link com.echohealthcare.mvps.repository.VendorProductRepository#findAllForUpdate}), which keeps
+ * reservations taken from the database from committing in between. Escrow draws in flight, and draws
+ * another node serves before its next flush, are not covered.
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class StockReconciler {
+
+    private final StockReservationRepository reservationRepository;
+    private final StockEscrowBlockRepository blockRepository;
+    private final HotStockEscrow escrow;
+
+    public StockReconciler(StockReservationRepository reservationRepository,
+                           StockEscrowBlockRepository blockRepository,
+                           HotStockEscrow escrow) {
+        this.reservationRepository = reservationRepository;
+        this.blockRepository = blockRepository;
+        this.escrow = escrow;
+    }
+
+    /**
+     * Prepares the given vendor products for absolute stock writes and returns the units each has held
+     * by reservations; pass them to {@link #sellable}. Vendor products without reservations are absent.
+     */
+    public Map<Integer, Integer> reconcile(Collection<Integer> vendorProductIds) {
+        Map<Integer, Integer> held = new HashMap<>();
+        if (vendorProductIds.isEmpty()) {
+            return held;
+        }
+        escrow.discard(vendorProductIds);
+        blockRepository.deleteByVendorProducts(vendorProductIds);
+        reservationRepository.settleShipped(vendorProductIds);
+        for (Object[] row : reservationRepository.sumHeldForUpdate(vendorProductIds)) {
+            held.put(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+        }
+        return held;
+    }
+
+    /**
+     * Stock to store for a reported count, given the units held as returned by {@link #reconcile}.
+     */
+    public static int sellable(int reported, Map<Integer, Integer> held, Integer vendorProductId) {
+        return Math.max(0, reported - held.getOrDefault(vendorProductId, 0));
+    }
+}
@@ -0,0 +1,203 @@
+package com.echohealthcare.mvps.stock;
+
+import com.echohealthcare.mvps.domain.Order;
+import com.echohealthcare.mvps.domain.OrderItem;
+import com.echohealthcare.mvps.domain.StockReservation;
+import com.echohealthcare.mvps.event.StockMovement;
+import com.echohealthcare.mvps.repository.StockReservationRepository;
+import com.echohealthcare.mvps.service.InsufficientStockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Takes the stock an order needs when it is placed and gives it back if the order is cancelled.
+ *
+ * Each vendor product of the order gets one stock_reservations row. The units come from the SKU's
+ * escrow block when it has one (see {@link HotStockEscrow}), otherwise from a conditional update of
+ * vendor_products that fails rather than letting stock go negative; a shortfall on any line fails the
+ * whole order with {@link InsufficientStockException}. Vendor products are reserved in id order, so two
+ * orders sharing SKUs lock their rows in the same order and cannot deadlock.
+ *
+ * A reservation is committed once its order leaves the pending status or is paid. Reservations still
+ * open after {@code mvps.stock.reservation.ttl-minutes} are expired by {@link ReservationSweeper}: their
+ * units go back on the stock and the order itself is left alone, since unpaid pending orders (cash on
+ * delivery, credit) are legitimate. An order whose reservations expired reserves them again when it is
+ * confirmed or paid, and fails with {@link InsufficientStockException} if the stock has gone meanwhile.
+ * Cancelling an order releases its reservations, committed or not; reopening a cancelled order reserves
+ * its stock again.
+ */
+@Service
+@Transactional
+public class StockReservationService {
+
+    private static final String PENDING = "pending";
+    private static final String CANCELLED = "cancelled";
+    private static final String PAID = "paid";
+
+    private final StockReservationRepository reservationRepository;
+    private final StockLevels stockLevels;
+    private final HotStockEscrow escrow;
+    private final StockContentionStats stats;
+    private final long ttlMinutes;
+
+    public StockReservationService(StockReservationRepository reservationRepository,
+                                   StockLevels stockLevels,
+                                   HotStockEscrow escrow,
+                                   StockContentionStats stats,
+                                   @Value("${mvps.stock.reservation.ttl-minutes:30}") long ttlMinutes) {
+        this.reservationRepository = reservationRepository;
+        this.stockLevels = stockLevels;
+        this.escrow = escrow;
+        this.stats = stats;
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    /**
+     * Reserves the stock for every line of a saved order. Call it after the order's other writes, since
+     * the vendor product rows stay locked until the transaction ends.
+     *
+     * @throws InsufficientStockException when a vendor product does not have enough stock
+     */
+    public void reserve(Order order) {
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : order.getItems()) {
+            if (item.getVendorProduct() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+                quantities.merge(item.getVendorProduct().getId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        reserve(order.getId(), quantities);
+    }
+
+    /**
+     * Reserves the given units per vendor product, which must be in vendor product id order.
+     */
+    private void reserve(Integer orderId, Map<Integer, Integer> quantities) {
+        List<StockMovement> movements = new ArrayList<>();
+        List<StockReservation> reservations = new ArrayList<>(quantities.size());
+        quantities.forEach((vendorProductId, quantity) -> {
+            Long escrowId = escrow.draw(vendorProductId, quantity);
+            if (escrowId != null) {
+                stats.reserved(vendorProductId, quantity, true, 0);
+            } else {
+                long started = System.nanoTime();
+                StockMovement movement = stockLevels.take(vendorProductId, quantity);
+                long elapsed = System.nanoTime() - started;
+                if (movement == null) {
+                    stats.rejected(vendorProductId, elapsed);
+                    throw new InsufficientStockException(
+                            "Insufficient stock for vendor product " + vendorProductId + ": " + quantity + " requested");
+                }
+                stats.reserved(vendorProductId, quantity, false, elapsed);
+                movements.add(movement);
+            }
+            // Stamped after the draw, which escrow recovery relies on.
+            LocalDateTime now = LocalDateTime.now();
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(orderId);
+            reservation.setVendorProductId(vendorProductId);
+            reservation.setQuantity(quantity);
+            reservation.setEscrowId(escrowId);
+            reservation.setReservedAt(now);
+            reservation.setExpiresAt(now.plusMinutes(ttlMinutes));
+            reservations.add(reservation);
+        });
+        reservationRepository.saveAll(reservations);
+        stockLevels.recorded(movements);
+    }
+
+    /**
+     * Brings the order's reservations in line with a status or payment change.
+     *
+     * @param previousStatus the order status before the change
+     */
+    public void orderChanged(String previousStatus, Order order) {
+        boolean wasCancelled = CANCELLED.equals(previousStatus);
+        boolean cancelled = CANCELLED.equals(order.getOrderStatus());
+        if (cancelled) {
+            if (!wasCancelled) {
+                release(order.getId());
+            }
+            return;
+        }
+        if (wasCancelled) {
+            reserve(order);
+        }
+        if (!PENDING.equals(order.getOrderStatus()) || PAID.equals(order.getPaymentStatus())) {
+            renewLapsed(order.getId());
+            reservationRepository.commitOrder(order.getId());
+        }
+    }
+
+    /**
+     * Gives back the stock of the order's reservations that have expired and marks them expired.
+     * The order is not changed. Returns whether anything expired.
+     */
+    public boolean expire(Integer orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockMovement> movements = new ArrayList<>();
+        List<StockReservation> due = reservationRepository.findExpiredForUpdate(orderId, now);
+        for (StockReservation reservation : due) {
+            StockMovement movement = stockLevels.give(reservation.getVendorProductId(), reservation.getQuantity());
+            if (movement != null) {
+                movements.add(movement);
+            }
+            reservation.setStatus(StockReservation.EXPIRED);
+            reservation.setReleasedAt(now);
+        }
+        stockLevels.recorded(movements);
+        return !due.isEmpty();
+    }
+
+    /**
+     * Reserves again what the order's expired reservations held, for an order being confirmed or paid.
+     * The expired rows are kept, as released, since escrow recovery counts every draw.
+     */
+    private void renewLapsed(Integer orderId) {
+        List<StockReservation> lapsed = reservationRepository.findLapsedForUpdate(orderId);
+        if (lapsed.isEmpty()) {
+            return;
+        }
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (StockReservation reservation : lapsed) {
+            quantities.merge(reservation.getVendorProductId(), reservation.getQuantity(), Integer::sum);
+            reservation.setStatus(StockReservation.RELEASED);
+        }
+        reserve(orderId, quantities);
+    }
+
+    /**
+     * Puts the stock of the order's reservations back and marks them released.
+     */
+    public void release(Integer orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockMovement> movements = new ArrayList<>();
+        for (StockReservation reservation : reservationRepository.findHeldForUpdate(orderId)) {
+            StockMovement movement = stockLevels.give(reservation.getVendorProductId(), reservation.getQuantity());
+            if (movement != null) {
+                movements.add(movement);
+            }
+            reservation.setStatus(StockReservation.RELEASED);
+            reservation.setReleasedAt(now);
+        }
+        // Expired ones gave their stock back already; they must not be renewed if the order is reopened.
+        reservationRepository.findLapsedForUpdate(orderId)
+                .forEach(reservation -> reservation.setStatus(StockReservation.RELEASED));
+        stockLevels.recorded(movements);
+    }
+
+    /**
+     * Orders with a reservation that has expired, oldest first.
+     */
+    @Transactional(readOnly = true)
+    public List<Integer> findExpiredOrderIds(int limit) {
+        return reservationRepository.findExpiredOrderIds(LocalDateTime.now(), PageRequest.of(0, limit));
+    }
+}
@@ -1,7 +1,13 @@
 package com.echohealthcare.mvps.util;
 
+import com.echohealthcare.mvps.dto.CursorPageResponse;
+import com.echohealthcare.mvps.service.InvalidRequestException;
+
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Utility class for cursor-based pagination parameter validation and encoding.
@@ -75,4 +81,53 @@ public class CursorPaginationUtils {
     public static boolean hasNextPage(int fetchedCount, int requestedSize) {
         return fetchedCount > requestedSize;
     }
+
+    /**
+     * Parses the sort parameter of a keyset endpoint against its whitelisted fields.
+     *
+     * @throws InvalidRequestException for an unknown field or direction
+     */
+    public static <T> KeysetSort<T> parseSort(String sort, Map<String, KeysetSort.Field<T>> sortable) {
+        try {
+            return KeysetSort.parse(sort, sortable);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * Builds a keyset page from rows fetched with a limit of size+1, in forward sort order.
+     * Going forward the extra row is the last one and signals a next page; going backward it is
+     * the first one and signals a previous page.
+     *
+     * @param rows the fetched rows (at most size+1)
+     * @param size the validated page size
+     * @param sort the sort the rows were fetched with
+     * @param cursor the decoded request cursor, or null for the first page
+     * @param mapper maps entities to response models
+     */
+    public static <E, M> CursorPageResponse<M> keysetPage(List<E> rows,
+                                                         int size,
+                                                         KeysetSort<E> sort,
+                                                         KeysetCursor cursor,
+                                                         Function<E, M> mapper) {
+        boolean backward = cursor != null && cursor.backward();
+        boolean overflow = rows.size() > size;
+        List<E> pageItems = !overflow ? rows
+            : backward ? rows.subList(rows.size() - size, rows.size())
+            : rows.subList(0, size);
+
+        boolean hasNext = backward ? !pageItems.isEmpty() : overflow;
+        boolean hasPrevious = backward ? overflow : cursor != null && !pageItems.isEmpty();
+
+        String nextCursor = hasNext && !pageItems.isEmpty()
+            ? new KeysetCursor(sort.signature(), false, sort.keyOf(pageItems.get(pageItems.size() - 1))).encode()
+            : null;
+        String previousCursor = hasPrevious
+            ? new KeysetCursor(sort.signature(), true, sort.keyOf(pageItems.get(0))).encode()
+            : null;
+
+        List<M> data = pageItems.stream().map(mapper).toList();
+        return new CursorPageResponse<>(data, size, nextCursor, hasNext, previousCursor, hasPrevious);
+    }
 }
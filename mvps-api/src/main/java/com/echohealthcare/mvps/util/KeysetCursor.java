@@ -0,0 +1,141 @@
+package com.echohealthcare.mvps.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque, versioned cursor for keyset pagination.
+ *
+ * A cursor records the sort it was issued for, the direction to walk and the sort-key tuple of the
+ * boundary row. It is serialized as {@code 2|<sort>|<f|b>|<value>|...} with type-tagged values and
+ * Base64url-encoded, so clients treat it as an opaque token. Version 1 cursors (a plain Base64 id
+ * issued before composite sorts existed) are still accepted for the default id order.
+ *
+ * @param sort signature of the {@link KeysetSort} the cursor belongs to
+ * @param backward true to fetch the rows before the boundary, false for the rows after it
+ * @param values sort-key tuple of the boundary row
+ */
+public record KeysetCursor(String sort, boolean backward, List<Object> values) {
+
+    private static final String VERSION = "2";
+    private static final String SEPARATOR = "|";
+    private static final String LEGACY_SORT = "id:asc";
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder(VERSION)
+                .append(SEPARATOR).append(sort)
+                .append(SEPARATOR).append(backward ? 'b' : 'f');
+        for (Object value : values) {
+            sb.append(SEPARATOR).append(encodeValue(value));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor issued for the given sort.
+     * Returns null when the cursor is absent, malformed or was issued for a different sort,
+     * which restarts paging from the beginning as the original cursor endpoints did.
+     */
+    public static KeysetCursor decode(String encoded, KeysetSort<?> sort) {
+        if (encoded == null || encoded.isBlank()) {
+            return null;
+        }
+        try {
+            KeysetCursor cursor = parse(encoded.trim());
+            if (cursor == null || !cursor.sort().equals(sort.signature())
+                    || cursor.values().size() != sort.columns().size()) {
+                return null;
+            }
+            return cursor;
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static KeysetCursor parse(String encoded) {
+        String legacy = decodeBase64(encoded, Base64.getDecoder());
+        if (legacy != null && legacy.chars().allMatch(Character::isDigit) && !legacy.isEmpty()) {
+            return new KeysetCursor(LEGACY_SORT, false, List.of(Integer.parseInt(legacy)));
+        }
+
+        String decoded = decodeBase64(encoded, Base64.getUrlDecoder());
+        if (decoded == null) {
+            return null;
+        }
+        String[] parts = decoded.split("\\|", -1);
+        if (parts.length < 4 || !VERSION.equals(parts[0])) {
+            return null;
+        }
+        boolean backward = switch (parts[2]) {
+            case "b" -> true;
+            case "f" -> false;
+            default -> throw new IllegalArgumentException("Bad cursor direction");
+        };
+        List<Object> values = new ArrayList<>(parts.length - 3);
+        for (int i = 3; i < parts.length; i++) {
+            values.add(decodeValue(parts[i]));
+        }
+        return new KeysetCursor(parts[1], backward, values);
+    }
+
+    private static String decodeBase64(String encoded, Base64.Decoder decoder) {
+        try {
+            return new String(decoder.decode(encoded), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String encodeValue(Object value) {
+        if (value == null) {
+            return "~";
+        }
+        if (value instanceof Integer v) {
+            return "i" + v;
+        }
+        if (value instanceof Long v) {
+            return "l" + v;
+        }
+        if (value instanceof BigDecimal v) {
+            return "n" + v.toPlainString();
+        }
+        if (value instanceof LocalDateTime v) {
+            return "t" + v;
+        }
+        if (value instanceof LocalDate v) {
+            return "d" + v;
+        }
+        if (value instanceof Boolean v) {
+            return v ? "b1" : "b0";
+        }
+        if (value instanceof String v) {
+            return "s" + Base64.getUrlEncoder().withoutPadding().encodeToString(v.getBytes(StandardCharsets.UTF_8));
+        }
+        throw new IllegalArgumentException("Unsupported cursor value type: " + value.getClass().getName());
+    }
+
+    private static Object decodeValue(String token) {
+        if (token.equals("~")) {
+            return null;
+        }
+        if (token.isEmpty()) {
+            throw new IllegalArgumentException("Empty cursor value");
+        }
+        String payload = token.substring(1);
+        return switch (token.charAt(0)) {
+            case 'i' -> Integer.valueOf(payload);
+            case 'l' -> Long.valueOf(payload);
+            case 'n' -> new BigDecimal(payload);
+            case 't' -> LocalDateTime.parse(payload);
+            case 'd' -> LocalDate.parse(payload);
+            case 'b' -> payload.equals("1");
+            case 's' -> new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8);
+            default -> throw new IllegalArgumentException("Unknown cursor value type");
+        };
+    }
+}
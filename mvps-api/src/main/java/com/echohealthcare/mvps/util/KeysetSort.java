@@ -0,0 +1,93 @@
+package com.echohealthcare.mvps.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Sort order for keyset (seek) pagination: one public sort field plus the id as tie-breaker,
+ * so every row has a unique position and the page boundary can be expressed as a row tuple.
+ *
+ * Sortable fields are whitelisted per endpoint and should map to indexed, non-null columns;
+ * a null in a sort column cannot be compared and would end paging early.
+ *
+ * @param <T> the entity being paged
+ */
+public record KeysetSort<T>(String signature, List<Column<T>> columns) {
+
+    public static final String ID = "id";
+
+    /**
+     * One sortable field: its JPQL path (alias-qualified) and how to read its value from an entity.
+     */
+    public record Field<T>(String path, Function<T, ?> getter) {}
+
+    public record Column<T>(String path, boolean descending, Function<T, ?> getter) {}
+
+    public static <T> Field<T> field(String path, Function<T, ?> getter) {
+        return new Field<>(path, getter);
+    }
+
+    /**
+     * Parses a sort parameter of the form {@code field} or {@code field,asc|desc}.
+     * A missing parameter sorts by id ascending, which matches the original cursor endpoints.
+     *
+     * @param sort the raw sort parameter, may be null
+     * @param sortable whitelisted fields by public name; must contain {@link #ID}
+     * @throws IllegalArgumentException for an unknown field or direction
+     */
+    public static <T> KeysetSort<T> parse(String sort, Map<String, Field<T>> sortable) {
+        String name = ID;
+        boolean descending = false;
+        if (sort != null && !sort.isBlank()) {
+            String[] parts = sort.split(",");
+            name = parts[0].trim();
+            if (parts.length > 1) {
+                String direction = parts[1].trim().toLowerCase(Locale.ROOT);
+                if (!direction.equals("asc") && !direction.equals("desc")) {
+                    throw new IllegalArgumentException("Unknown sort direction: " + parts[1].trim());
+                }
+                descending = direction.equals("desc");
+            }
+        }
+
+        Field<T> primary = sortable.get(name);
+        if (primary == null) {
+            throw new IllegalArgumentException("Unsupported sort field: " + name
+                    + " (supported: " + String.join(", ", new TreeSet<>(sortable.keySet())) + ")");
+        }
+
+        List<Column<T>> columns = new ArrayList<>(2);
+        columns.add(new Column<>(primary.path(), descending, primary.getter()));
+        if (!name.equals(ID)) {
+            Field<T> id = sortable.get(ID);
+            columns.add(new Column<>(id.path(), descending, id.getter()));
+        }
+        return new KeysetSort<>(name + ":" + (descending ? "desc" : "asc"), List.copyOf(columns));
+    }
+
+    /**
+     * Values of the sort columns for one row, in column order.
+     */
+    public List<Object> keyOf(T row) {
+        List<Object> key = new ArrayList<>(columns.size());
+        for (Column<T> column : columns) {
+            key.add(column.getter().apply(row));
+        }
+        return key;
+    }
+
+    /**
+     * JPQL order by list; reversed when walking backwards from a cursor.
+     */
+    public String orderBy(boolean reversed) {
+        List<String> parts = new ArrayList<>(columns.size());
+        for (Column<T> column : columns) {
+            parts.add(column.path() + (column.descending() != reversed ? " desc" : " asc"));
+        }
+        return String.join(", ", parts);
+    }
+}
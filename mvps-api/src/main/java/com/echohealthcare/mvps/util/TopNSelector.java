@@ -0,0 +1,52 @@
+package com.echohealthcare.mvps.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Utility class for picking the N highest-ranked elements from a forward-only source.
+ * Keeps a bounded min-heap of size N, so memory stays O(N) however many rows are scanned.
+ */
+public class TopNSelector {
+
+    /**
+     * Consumes the stream and returns its top {@code limit} elements, highest first.
+     *
+     * @param source the elements to rank (consumed and not closed)
+     * @param limit the maximum number of elements to return
+     * @param ranking orders elements from lowest to highest rank
+     * @return up to {@code limit} elements ordered from highest to lowest rank
+     */
+    public static <T> List<T> top(Stream<T> source, int limit, Comparator<? super T> ranking) {
+        return top(source.iterator(), limit, ranking);
+    }
+
+    /**
+     * Iterator variant of {@link #top(Stream, int, Comparator)}.
+     */
+    public static <T> List<T> top(Iterator<T> source, int limit, Comparator<? super T> ranking) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Head of the heap is the weakest element currently kept.
+        PriorityQueue<T> heap = new PriorityQueue<>(limit, ranking);
+        while (source.hasNext()) {
+            T candidate = source.next();
+            if (heap.size() < limit) {
+                heap.add(candidate);
+            } else if (ranking.compare(candidate, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+
+        List<T> result = new ArrayList<>(heap);
+        result.sort(ranking.reversed());
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+package com.echohealthcare.mvps.util;
+
+import com.echohealthcare.mvps.service.InvalidRequestException;
+
+import java.util.Locale;
+
+/**
+ * How an offset-paginated list endpoint computes its total item count.
+ */
+public enum TotalMode {
+
+    /** Run a count query with the same filters (the original behavior). */
+    EXACT,
+    /** Use a cached per-filter count or table statistics; may lag recent writes. */
+    ESTIMATED,
+    /** Skip the total; clients page on has_next alone. */
+    NONE;
+
+    /**
+     * Parses the total_mode query parameter; a missing value means {@link #EXACT}.
+     *
+     * @throws InvalidRequestException for an unknown mode
+     */
+    public static TotalMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unsupported total_mode: " + value + " (supported: exact, estimated, none)");
+        }
+    }
+
+    public String value() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
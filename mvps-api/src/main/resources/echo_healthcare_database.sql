@@ -76,6 +76,7 @@ CREATE TABLE vendor_products (
     delivery_time_days INT DEFAULT 7,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    row_version BIGINT NOT NULL DEFAULT 0, -- Bumped by every write, orders change events for in-memory indexes
     FOREIGN KEY (vendor_id) REFERENCES vendors(vendor_id),
     FOREIGN KEY (product_id) REFERENCES products_master(product_id),
     UNIQUE KEY unique_vendor_product (vendor_id, product_id),
@@ -85,6 +86,9 @@ CREATE TABLE vendor_products (
     INDEX idx_available (is_available)
 );
 
+-- Upgrade for an existing database (run once):
+-- ALTER TABLE vendor_products ADD COLUMN row_version BIGINT NOT NULL DEFAULT 0;
+
 -- ============================================
 -- 5. CUSTOMERS TABLE
 -- ============================================
@@ -187,6 +191,145 @@ CREATE TABLE vendor_stock_movements (
     INDEX idx_changed_at (changed_at)
 );
 
+-- ============================================
+-- 10. SALES DAILY ROLLUP TABLE (Pre-aggregated sales)
+-- ============================================
+-- Maintained incrementally from order writes (through sales_rollup_deltas, see
+-- section 14) so that the sales summary reads one row per day and order type
+-- instead of every order.
+CREATE TABLE sales_daily_rollup (
+    rollup_id INT PRIMARY KEY AUTO_INCREMENT,
+    rollup_date DATE NOT NULL,
+    order_type VARCHAR(20) NOT NULL DEFAULT '',
+    order_count INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+    cancelled_count INT NOT NULL DEFAULT 0,
+    cancelled_revenue DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+    UNIQUE KEY unique_rollup_day_type (rollup_date, order_type)
+);
+
+-- Backfill for an existing database (run once after creating the table):
+-- INSERT INTO sales_daily_rollup (rollup_date, order_type, order_count, revenue, cancelled_count, cancelled_revenue)
+-- SELECT DATE(order_date), COALESCE(order_type, ''), COUNT(*), SUM(final_amount),
+--        SUM(order_status = 'cancelled'), SUM(CASE WHEN order_status = 'cancelled' THEN final_amount ELSE 0 END)
+-- FROM orders
+-- WHERE order_date IS NOT NULL
+-- GROUP BY DATE(order_date), COALESCE(order_type, '');
+
+-- ============================================
+-- 11. ID GENERATORS TABLE (Table-allocated primary keys)
+-- ============================================
+-- Hands out id blocks to entities whose inserts are JDBC-batched; IDENTITY columns
+-- force Hibernate to insert rows one at a time. vendor_stock_movements ids are
+-- allocated here, so rows for that table must not rely on AUTO_INCREMENT.
+CREATE TABLE id_generators (
+    generator_name VARCHAR(64) PRIMARY KEY,
+    next_value BIGINT NOT NULL
+);
+
+-- Seed past any existing ids (the extra 50 covers one allocation block).
+INSERT INTO id_generators (generator_name, next_value)
+SELECT 'vendor_stock_movements', COALESCE(MAX(movement_id), 0) + 51 FROM vendor_stock_movements;
+
+-- ============================================
+-- 12. CUSTOMER ORDER SUMMARY TABLE (Pre-aggregated per customer)
+-- ============================================
+-- Maintained incrementally alongside sales_daily_rollup (see section 14), so the
+-- lifetime totals in a customer's order history read one row instead of every order.
+CREATE TABLE customer_order_summary (
+    customer_id INT PRIMARY KEY,
+    order_count INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+    cancelled_count INT NOT NULL DEFAULT 0,
+    cancelled_revenue DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+    last_order_date DATE,
+    FOREIGN KEY (customer_id) REFERENCES customers(customer_id)
+);
+
+-- Backfill for an existing database (run once after creating the table):
+-- INSERT INTO customer_order_summary (customer_id, order_count, revenue, cancelled_count, cancelled_revenue, last_order_date)
+-- SELECT customer_id, COUNT(*), SUM(final_amount),
+--        SUM(order_status = 'cancelled'), SUM(CASE WHEN order_status = 'cancelled' THEN final_amount ELSE 0 END),
+--        DATE(MAX(order_date))
+-- FROM orders
+-- GROUP BY customer_id;
+
+-- ============================================
+-- 13. STOCK RESERVATIONS AND ESCROW BLOCKS
+-- ============================================
+-- One row per vendor product of an order: the stock it took when it was placed.
+-- status: reserved (expires at expires_at unless the order is confirmed or paid),
+-- committed, expired (stock given back at expiry; reserved again if the order is
+-- confirmed or paid), released (stock given back when the order was cancelled), or
+-- settled (order shipped before a stock count, so cancelling gives nothing back).
+-- escrow_id names the escrow block the units came from, NULL when they were
+-- taken from vendor_products.stock_quantity directly.
+CREATE TABLE stock_reservations (
+    reservation_id BIGINT PRIMARY KEY,
+    order_id INT NOT NULL,
+    vendor_product_id INT NOT NULL,
+    quantity INT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'reserved',
+    escrow_id BIGINT,
+    reserved_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    released_at DATETIME(6),
+    FOREIGN KEY (order_id) REFERENCES orders(order_id),
+    FOREIGN KEY (vendor_product_id) REFERENCES vendor_products(vendor_product_id),
+    INDEX idx_reservation_order (order_id),
+    INDEX idx_reservation_status_expiry (status, expires_at),
+    INDEX idx_reservation_escrow (escrow_id, reserved_at),
+    INDEX idx_reservation_product_status (vendor_product_id, status)
+);
+
+-- Ids are table-allocated (see section 11).
+INSERT INTO id_generators (generator_name, next_value) VALUES ('stock_reservations', 1);
+
+-- Stock of hot vendor products moved into an API node's in-memory escrow.
+-- quantity is what the block held at flushed_at; rows are removed when the
+-- block closes, and a node returns the units of its leftover rows on startup.
+CREATE TABLE stock_escrow_blocks (
+    escrow_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    vendor_product_id INT NOT NULL,
+    node_id INT NOT NULL,
+    quantity INT NOT NULL,
+    flushed_at DATETIME(6) NOT NULL,
+    INDEX idx_escrow_node (node_id)
+);
+
+-- The running API instance that owns each node id's escrow blocks. An instance
+-- claims its node id before recovering leftover blocks and renews heartbeat_at
+-- at every flush; another instance can take the id over only once the heartbeat
+-- is older than mvps.stock.escrow.lease-ttl-seconds.
+CREATE TABLE node_leases (
+    node_id INT PRIMARY KEY,
+    instance_id VARCHAR(36) NOT NULL,
+    heartbeat_at DATETIME(6) NOT NULL
+);
+
+-- ============================================
+-- 14. SALES ROLLUP DELTAS (Pending rollup changes)
+-- ============================================
+-- Order writes append their change to sales_daily_rollup and customer_order_summary
+-- here instead of updating those rows, which would serialize every order of a day
+-- on one row lock. Deltas are folded into the rollup tables in the background and
+-- deleted; reads add the ones not folded yet. A delta applies to the
+-- (rollup_date, order_type) row when rollup_date is set and to the customer's row
+-- when customer_id is set.
+CREATE TABLE sales_rollup_deltas (
+    delta_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    rollup_date DATE,
+    order_type VARCHAR(20) NOT NULL DEFAULT '',
+    customer_id INT,
+    order_count INT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL,
+    cancelled_count INT NOT NULL,
+    cancelled_revenue DECIMAL(14,2) NOT NULL,
+    last_order_date DATE,
+    INDEX idx_delta_rollup_date (rollup_date),
+    INDEX idx_delta_customer (customer_id)
+);
+
 -- ============================================
 -- SAMPLE DATA INSERTION
 -- ============================================
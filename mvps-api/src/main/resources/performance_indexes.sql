@@ -4,6 +4,7 @@
 -- Purpose: Add missing indexes to improve query performance for high-volume data
 -- Created: 2026-02-14
 -- Priority: HIGH - Apply these indexes before production deployment
+-- Run once: MySQL has no CREATE INDEX IF NOT EXISTS, so a rerun stops at the first existing index
 -- ============================================================================
 
 USE echo_healthcare_db;
@@ -17,15 +18,15 @@ USE echo_healthcare_db;
 -- Query Pattern: WHERE customer_id = ? AND order_status = ? AND order_date BETWEEN ? AND ?
 -- Impact: Reduces query time from O(n) to O(log n) for filtered order searches
 --
-CREATE INDEX IF NOT EXISTS idx_order_customer_status_date
+CREATE INDEX idx_order_customer_status_date
 ON orders(customer_id, order_status, order_date);
 
 -- Additional index for payment status filtering
-CREATE INDEX IF NOT EXISTS idx_order_payment_status
+CREATE INDEX idx_order_payment_status
 ON orders(payment_status);
 
 -- Composite index for order type and status filtering
-CREATE INDEX IF NOT EXISTS idx_order_type_status
+CREATE INDEX idx_order_type_status
 ON orders(order_type, order_status);
 
 
@@ -37,11 +38,11 @@ ON orders(order_type, order_status);
 -- Query Pattern: WHERE category_id = ? AND is_active = ?
 -- Impact: Essential for category filtering performance on product catalog pages
 --
-CREATE INDEX IF NOT EXISTS idx_product_category_active
+CREATE INDEX idx_product_category_active
 ON products_master(category_id, is_active);
 
 -- Improve LIKE search performance (though full-text search is recommended)
-CREATE INDEX IF NOT EXISTS idx_product_generic_name
+CREATE INDEX idx_product_generic_name
 ON products_master(generic_name);
 
 -- Full-text search indexes for better search performance
@@ -58,12 +59,17 @@ ALTER TABLE products_master ADD FULLTEXT INDEX idx_product_fulltext_search (prod
 -- Query Pattern: WHERE customer_type = ? AND city = ? AND (name LIKE '%?' OR email LIKE '%?')
 -- Impact: Critical for customer lookup and search functionality
 --
-CREATE INDEX IF NOT EXISTS idx_customer_city
+CREATE INDEX idx_customer_city
 ON customers(city);
 
-CREATE INDEX IF NOT EXISTS idx_customer_type_active
+CREATE INDEX idx_customer_type_active
 ON customers(customer_type, is_active);
 
+-- Keyset pagination sorted by name seeks on (customer_name, customer_id); InnoDB appends the
+-- primary key to secondary indexes, so this index serves the full sort tuple
+CREATE INDEX idx_customer_name
+ON customers(customer_name);
+
 -- Full-text search for customers
 ALTER TABLE customers ADD FULLTEXT INDEX idx_customer_fulltext_search (customer_name, email);
 
@@ -77,16 +83,23 @@ ALTER TABLE customers ADD FULLTEXT INDEX idx_customer_fulltext_search (customer_
 -- Query Pattern: WHERE vendor_id = ? AND product_id = ? AND is_available = ?
 -- Impact: Dramatically improves vendor product lookup and price comparison queries
 --
-CREATE INDEX IF NOT EXISTS idx_vp_vendor_product_available
+CREATE INDEX idx_vp_vendor_product_available
 ON vendor_products(vendor_id, product_id, is_available);
 
 -- For lowest price queries that filter on availability and sort by price
-CREATE INDEX IF NOT EXISTS idx_vp_available_price
-ON vendor_products(is_available, vendor_price);
+CREATE INDEX idx_vp_available_price
+ON vendor_products(is_available, final_price);
 
 -- For product-centric price comparisons
-CREATE INDEX IF NOT EXISTS idx_vp_product_available_price
-ON vendor_products(product_id, is_available, vendor_price);
+CREATE INDEX idx_vp_product_available_price
+ON vendor_products(product_id, is_available, final_price);
+
+-- Expiring-products report and its 7/30/90-day summary: range scan on the expiry
+-- date; stock_quantity is included so the summary never touches the table rows
+--
+-- Query Pattern: WHERE expiry_date BETWEEN ? AND ? AND stock_quantity > 0
+CREATE INDEX idx_vp_expiry_stock
+ON vendor_products(expiry_date, stock_quantity);
 
 
 -- ============================================================================
@@ -98,29 +111,29 @@ ON vendor_products(product_id, is_available, vendor_price);
 -- Query Pattern: SELECT * FROM order_items WHERE order_id = ? (with JOINs to product/vendor)
 -- Impact: Improves order details page load time
 --
-CREATE INDEX IF NOT EXISTS idx_orderitem_order_product
+CREATE INDEX idx_orderitem_order_product
 ON order_items(order_id, product_id);
 
-CREATE INDEX IF NOT EXISTS idx_orderitem_product
+CREATE INDEX idx_orderitem_product
 ON order_items(product_id);
 
-CREATE INDEX IF NOT EXISTS idx_orderitem_vendor_product
+CREATE INDEX idx_orderitem_vendor_product
 ON order_items(vendor_id, product_id);
 
 
 -- ============================================================================
 -- 6. VENDOR_ORDERS TABLE - Purchase Order Query Optimization
 -- ============================================================================
--- Vendor orders queries filter on vendor_id, order_status, and dates
+-- Vendor orders queries filter on vendor_id, status, and dates
 --
--- Query Pattern: WHERE vendor_id = ? AND order_status = ? AND order_date BETWEEN ? AND ?
+-- Query Pattern: WHERE vendor_id = ? AND status = ? AND order_date BETWEEN ? AND ?
 -- Impact: Improves vendor order search and filtering
 --
-CREATE INDEX IF NOT EXISTS idx_vendor_order_vendor_status_date
-ON vendor_orders(vendor_id, order_status, order_date);
+CREATE INDEX idx_vendor_order_vendor_status_date
+ON vendor_orders(vendor_id, status, order_date);
 
-CREATE INDEX IF NOT EXISTS idx_vendor_order_status
-ON vendor_orders(order_status);
+CREATE INDEX idx_vendor_order_status
+ON vendor_orders(status);
 
 
 -- ============================================================================
@@ -129,13 +142,52 @@ ON vendor_orders(order_status);
 -- Categories are frequently looked up by name for filtering
 -- Currently only has primary key index
 --
-CREATE INDEX IF NOT EXISTS idx_category_name
+CREATE INDEX idx_category_name
 ON product_categories(category_name);
 
-CREATE INDEX IF NOT EXISTS idx_category_active
+CREATE INDEX idx_category_active
 ON product_categories(is_active);
 
 
+-- ============================================================================
+-- 8. VENDORS TABLE - Location Filtering
+-- ============================================================================
+-- Vendor lists filter on city and state; the search query compares them directly
+-- (the column collation is case-insensitive) instead of wrapping them in LOWER()
+--
+-- Query Pattern: WHERE city = ? [AND state = ?] [AND is_active = ?]
+--
+CREATE INDEX idx_vendor_city_state
+ON vendors(city, state);
+
+
+-- ============================================================================
+-- 9. VENDOR_STOCK_MOVEMENTS TABLE - Movement Log Paging
+-- ============================================================================
+-- The movement log pages by (changed_at, movement_id); idx_changed_at already
+-- serves the unfiltered log since InnoDB appends the primary key. Filtering by
+-- one vendor product seeks on this index instead of walking the whole log
+--
+-- Query Pattern: WHERE vendor_product_id = ? AND changed_at >= ? ORDER BY changed_at DESC, movement_id DESC
+--
+CREATE INDEX idx_movement_vp_changed
+ON vendor_stock_movements(vendor_product_id, changed_at);
+
+
+-- ============================================================================
+-- 10. ORDERS TABLE - Customer Order History Paging
+-- ============================================================================
+-- A customer's order history pages newest first by (order_date, order_id).
+-- idx_order_customer_status_date has order_status in between, so without a
+-- status filter it cannot return the rows in date order; this index can, and
+-- InnoDB appends the primary key for the tie-breaker
+--
+-- Query Pattern: WHERE customer_id = ? AND order_date <= ? ORDER BY order_date DESC, order_id DESC
+--
+CREATE INDEX idx_order_customer_date
+ON orders(customer_id, order_date);
+
+
 -- ============================================================================
 -- Index Analysis and Maintenance
 -- ============================================================================
@@ -149,6 +201,8 @@ ANALYZE TABLE vendor_products;
 ANALYZE TABLE order_items;
 ANALYZE TABLE vendor_orders;
 ANALYZE TABLE product_categories;
+ANALYZE TABLE vendors;
+ANALYZE TABLE vendor_stock_movements;
 
 
 -- ============================================================================
@@ -168,12 +222,89 @@ ANALYZE TABLE product_categories;
 -- Example 3: Vendor product price comparison (should use idx_vp_product_available_price)
 -- EXPLAIN SELECT * FROM vendor_products
 -- WHERE product_id = 1 AND is_available = 1
--- ORDER BY vendor_price LIMIT 10;
+-- ORDER BY final_price LIMIT 10;
 
 -- Example 4: Customer search (should use idx_customer_fulltext_search)
 -- EXPLAIN SELECT * FROM customers
 -- WHERE MATCH(customer_name, email) AGAINST('john' IN BOOLEAN MODE) LIMIT 20;
 
+-- Example 5: Keyset page of orders by date (should range-scan idx_order_date, no filesort)
+-- EXPLAIN SELECT * FROM orders
+-- WHERE order_date <= '2024-06-01 10:00:00'
+--   AND (order_date < '2024-06-01 10:00:00' OR (order_date = '2024-06-01 10:00:00' AND order_id < 5000))
+-- ORDER BY order_date DESC, order_id DESC LIMIT 21;
+
+
+-- ============================================================================
+-- Search Query Shape Validation
+-- ============================================================================
+-- List and cursor endpoints emit only the filters a request supplies, so each
+-- combination is its own query shape. The expected key is noted per shape (type
+-- should be ref/range, never ALL, except for the unfiltered list and the
+-- LIKE '%...%' text search). FilterQueryExplainTest checks the list shapes
+-- against MySQL on every test run with Docker available, using the SQL
+-- Hibernate generates; the EXPLAINs below are for checking a live database.
+
+-- orders: customerId [+ orderStatus] [+ date range]  -> idx_order_customer_status_date
+-- EXPLAIN SELECT * FROM orders WHERE customer_id = 1 LIMIT 21;
+-- EXPLAIN SELECT * FROM orders WHERE customer_id = 1 AND order_status = 'pending' LIMIT 21;
+-- EXPLAIN SELECT * FROM orders WHERE customer_id = 1 AND order_status = 'pending'
+--   AND order_date >= '2024-01-01' AND order_date <= '2024-12-31 23:59:59' LIMIT 21;
+-- orders: customer history page (no status filter)   -> idx_order_customer_date
+-- EXPLAIN SELECT order_id, order_number, order_date FROM orders WHERE customer_id = 1
+--   ORDER BY order_date DESC, order_id DESC LIMIT 21;
+-- orders: orderStatus only                             -> idx_order_status
+-- EXPLAIN SELECT * FROM orders WHERE order_status = 'pending' LIMIT 21;
+-- orders: paymentStatus only                           -> idx_order_payment_status
+-- EXPLAIN SELECT * FROM orders WHERE payment_status = 'paid' LIMIT 21;
+-- orders: orderType [+ orderStatus]                    -> idx_order_type_status
+-- EXPLAIN SELECT * FROM orders WHERE order_type = 'online' AND order_status = 'pending' LIMIT 21;
+-- orders: date range only                              -> idx_order_date
+-- EXPLAIN SELECT * FROM orders WHERE order_date >= '2024-01-01' AND order_date <= '2024-01-31 23:59:59' LIMIT 21;
+
+-- products_master: categoryId [+ isActive]             -> idx_product_category_active
+-- EXPLAIN SELECT * FROM products_master WHERE category_id = 1 AND is_active = 1 LIMIT 21;
+-- products_master: isActive only                       -> idx_active
+-- EXPLAIN SELECT * FROM products_master WHERE is_active = 1 LIMIT 21;
+
+-- customers: customerType [+ isActive]                 -> idx_customer_type_active
+-- EXPLAIN SELECT * FROM customers WHERE customer_type = 'retail' AND is_active = 1 LIMIT 21;
+-- customers: city                                      -> idx_customer_city
+-- EXPLAIN SELECT * FROM customers WHERE city = 'Mumbai' LIMIT 21;
+
+-- vendors: city [+ state]                              -> idx_vendor_city_state
+-- EXPLAIN SELECT * FROM vendors WHERE city = 'Mumbai' AND state = 'Maharashtra' LIMIT 21;
+-- vendors: isActive only                               -> idx_vendor_active
+-- EXPLAIN SELECT * FROM vendors WHERE is_active = 1 LIMIT 21;
+
+-- vendor_orders: vendorId [+ status] [+ date range]    -> idx_vendor_order_vendor_status_date
+-- EXPLAIN SELECT * FROM vendor_orders WHERE vendor_id = 1 AND status = 'pending' LIMIT 21;
+-- vendor_orders: status only                           -> idx_status
+-- EXPLAIN SELECT * FROM vendor_orders WHERE status = 'pending' LIMIT 21;
+
+-- vendor_products: vendorId [+ productId] [+ available] -> idx_vp_vendor_product_available
+-- EXPLAIN SELECT * FROM vendor_products WHERE vendor_id = 1 AND is_available = 1 LIMIT 21;
+-- vendor_products: productId only                      -> idx_product
+-- EXPLAIN SELECT * FROM vendor_products WHERE product_id = 1 LIMIT 21;
+-- vendor_products: price range                         -> idx_final_price
+-- EXPLAIN SELECT * FROM vendor_products WHERE final_price >= 10 AND final_price <= 50 LIMIT 21;
+-- vendor_products: expiry window (report and summary)  -> idx_vp_expiry_stock
+-- EXPLAIN SELECT * FROM vendor_products WHERE expiry_date BETWEEN CURRENT_DATE
+--   AND CURRENT_DATE + INTERVAL 30 DAY AND stock_quantity > 0 ORDER BY expiry_date;
+-- EXPLAIN SELECT expiry_date, COUNT(*), SUM(stock_quantity) FROM vendor_products
+--   WHERE expiry_date BETWEEN CURRENT_DATE AND CURRENT_DATE + INTERVAL 90 DAY
+--   AND stock_quantity > 0 GROUP BY expiry_date;       (Extra: Using index)
+
+-- order_items: orderId [+ productId]                   -> idx_orderitem_order_product
+-- EXPLAIN SELECT * FROM order_items WHERE order_id = 1;
+
+-- vendor_stock_movements: time range only              -> idx_changed_at
+-- EXPLAIN SELECT * FROM vendor_stock_movements WHERE changed_at >= '2024-01-01'
+--   AND changed_at < '2024-02-01' ORDER BY changed_at DESC, movement_id DESC LIMIT 21;
+-- vendor_stock_movements: vendorProductId [+ range]    -> idx_movement_vp_changed
+-- EXPLAIN SELECT * FROM vendor_stock_movements WHERE vendor_product_id = 1
+--   ORDER BY changed_at DESC, movement_id DESC LIMIT 21;
+
 
 -- ============================================================================
 -- Index Size and Impact Report
@@ -272,31 +403,34 @@ Based on typical query patterns:
 /*
 -- Only run this if you need to remove the indexes for any reason
 
-DROP INDEX IF EXISTS idx_order_customer_status_date ON orders;
-DROP INDEX IF EXISTS idx_order_payment_status ON orders;
-DROP INDEX IF EXISTS idx_order_type_status ON orders;
+DROP INDEX idx_order_customer_status_date ON orders;
+DROP INDEX idx_order_payment_status ON orders;
+DROP INDEX idx_order_type_status ON orders;
+
+DROP INDEX idx_product_category_active ON products_master;
+DROP INDEX idx_product_generic_name ON products_master;
+DROP INDEX idx_product_fulltext_search ON products_master;
 
-DROP INDEX IF EXISTS idx_product_category_active ON products_master;
-DROP INDEX IF EXISTS idx_product_generic_name ON products_master;
-DROP INDEX IF EXISTS idx_product_fulltext_search ON products_master;
+DROP INDEX idx_customer_city ON customers;
+DROP INDEX idx_customer_type_active ON customers;
+DROP INDEX idx_customer_name ON customers;
+DROP INDEX idx_customer_fulltext_search ON customers;
 
-DROP INDEX IF EXISTS idx_customer_city ON customers;
-DROP INDEX IF EXISTS idx_customer_type_active ON customers;
-DROP INDEX IF EXISTS idx_customer_fulltext_search ON customers;
+DROP INDEX idx_vp_vendor_product_available ON vendor_products;
+DROP INDEX idx_vp_available_price ON vendor_products;
+DROP INDEX idx_vp_product_available_price ON vendor_products;
 
-DROP INDEX IF EXISTS idx_vp_vendor_product_available ON vendor_products;
-DROP INDEX IF EXISTS idx_vp_available_price ON vendor_products;
-DROP INDEX IF EXISTS idx_vp_product_available_price ON vendor_products;
+DROP INDEX idx_orderitem_order_product ON order_items;
+DROP INDEX idx_orderitem_product ON order_items;
+DROP INDEX idx_orderitem_vendor_product ON order_items;
 
-DROP INDEX IF EXISTS idx_orderitem_order_product ON order_items;
-DROP INDEX IF EXISTS idx_orderitem_product ON order_items;
-DROP INDEX IF EXISTS idx_orderitem_vendor_product ON order_items;
+DROP INDEX idx_vendor_order_vendor_status_date ON vendor_orders;
+DROP INDEX idx_vendor_order_status ON vendor_orders;
 
-DROP INDEX IF EXISTS idx_vendor_order_vendor_status_date ON vendor_orders;
-DROP INDEX IF EXISTS idx_vendor_order_status ON vendor_orders;
+DROP INDEX idx_category_name ON product_categories;
+DROP INDEX idx_category_active ON product_categories;
 
-DROP INDEX IF EXISTS idx_category_name ON product_categories;
-DROP INDEX IF EXISTS idx_category_active ON product_categories;
+DROP INDEX idx_vendor_city_state ON vendors;
 */
 
 -- ============================================================================
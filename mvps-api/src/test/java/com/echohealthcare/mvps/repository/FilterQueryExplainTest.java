@@ -0,0 +1,252 @@
+package com.echohealthcare.mvps.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN on the SQL Hibernate generates for each list filter shape and checks the index MySQL
+ * picks for the queried table. This is the automated form of the "Search Query Shape Validation"
+ * section of performance_indexes.sql, against the real schema, that script and explain_fixture.sql.
+ *
+ * Where two indexes share the filtered prefix the optimizer may take either, so those shapes accept
+ * both; a full scan (no key) always fails. Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class FilterQueryExplainTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final Pattern ROOT_TABLE = Pattern.compile(" from (\\w+) (\\w+)");
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("echo_healthcare_db");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector", SqlRecorder.class::getName);
+    }
+
+    @BeforeAll
+    static void createSchema() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(
+                MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword())) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("echo_healthcare_database.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("explain_fixture.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("performance_indexes.sql"));
+        }
+    }
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private VendorRepository vendorRepository;
+    @Autowired
+    private VendorOrderRepository vendorOrderRepository;
+    @Autowired
+    private VendorProductRepository vendorProductRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void orderFilters() throws SQLException {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 7, 23, 59, 59);
+        int customerId = customerId();
+
+        assertThat(plannedKey(orderRepository, orderRepository.filter(customerId, null, null, null, null, null)))
+                .isIn("idx_order_customer_status_date", "idx_order_customer_date");
+        assertThat(plannedKey(orderRepository, orderRepository.filter(customerId, "pending", null, null, null, null)))
+                .isEqualTo("idx_order_customer_status_date");
+        assertThat(plannedKey(orderRepository, orderRepository.filter(customerId, "pending", null, null, from, to)))
+                .isEqualTo("idx_order_customer_status_date");
+        assertThat(plannedKey(orderRepository, orderRepository.filter(null, "cancelled", null, null, null, null)))
+                .isEqualTo("idx_order_status");
+        assertThat(plannedKey(orderRepository, orderRepository.filter(null, null, "failed", null, null, null)))
+                .isEqualTo("idx_order_payment_status");
+        assertThat(plannedKey(orderRepository, orderRepository.filter(null, "cancelled", null, "door_to_door", null, null)))
+                .isEqualTo("idx_order_type_status");
+        assertThat(plannedKey(orderRepository, orderRepository.filter(null, null, null, null, from, to)))
+                .isEqualTo("idx_order_date");
+    }
+
+    @Test
+    void customerFilters() throws SQLException {
+        assertThat(plannedKey(customerRepository, customerRepository.filter("institution", false, null, null)))
+                .isEqualTo("idx_customer_type_active");
+        assertThat(plannedKey(customerRepository, customerRepository.filter(null, null, "City 7", null)))
+                .isEqualTo("idx_customer_city");
+    }
+
+    @Test
+    void vendorFilters() throws SQLException {
+        assertThat(plannedKey(vendorRepository, vendorRepository.filter(null, "City 7", "State 7")))
+                .isEqualTo("idx_vendor_city_state");
+        assertThat(plannedKey(vendorRepository, vendorRepository.filter(false, null, null)))
+                .isEqualTo("idx_vendor_active");
+    }
+
+    @Test
+    void vendorOrderFilters() throws SQLException {
+        int vendorId = vendorId();
+
+        assertThat(plannedKey(vendorOrderRepository, vendorOrderRepository.filter(vendorId, "pending", null, null)))
+                .isEqualTo("idx_vendor_order_vendor_status_date");
+        assertThat(plannedKey(vendorOrderRepository, vendorOrderRepository.filter(null, "cancelled", null, null)))
+                .isIn("idx_status", "idx_vendor_order_status");
+    }
+
+    @Test
+    void vendorProductFilters() throws SQLException {
+        int vendorId = vendorId();
+
+        assertThat(plannedKey(vendorProductRepository, vendorProductRepository.filter(vendorId, null, true, null, null)))
+                .isIn("idx_vp_vendor_product_available", "unique_vendor_product", "idx_vendor");
+        assertThat(plannedKey(vendorProductRepository, vendorProductRepository.filter(null, productId(), null, null, null)))
+                .isIn("idx_product", "idx_vp_product_available_price");
+        assertThat(plannedKey(vendorProductRepository, vendorProductRepository.filter(
+                null, null, null, new BigDecimal("100.00"), new BigDecimal("101.00"))))
+                .isEqualTo("idx_final_price");
+    }
+
+    @Test
+    void productFilters() throws SQLException {
+        int categoryId = categoryId();
+
+        assertThat(plannedKey(productRepository, productRepository.filter(List.of(categoryId), true, null, null)))
+                .isEqualTo("idx_product_category_active");
+        assertThat(plannedKey(productRepository, productRepository.filter(null, false, null, null)))
+                .isEqualTo("idx_active");
+    }
+
+    /**
+     * Runs the query as the list endpoints do (one slice, no sort), then explains the SQL Hibernate sent
+     * with the same parameters and returns the key chosen for the query's own table.
+     */
+    private <T> String plannedKey(FilterQueryRepository<T> repository, FilterQuery<T> query) throws SQLException {
+        SqlRecorder.start();
+        repository.slice(query, PageRequest.of(0, PAGE_SIZE));
+        String sql = SqlRecorder.first();
+        assertThat(sql).as("SQL for %s", query.clauses()).isNotNull();
+
+        Matcher root = ROOT_TABLE.matcher(sql);
+        assertThat(root.find()).as("root table of %s", sql).isTrue();
+        String rootAlias = root.group(2);
+
+        List<Object> values = new ArrayList<>();
+        for (Object value : query.parameters().values()) {
+            if (value instanceof Collection<?> collection) {
+                values.addAll(collection);
+            } else {
+                values.add(value);
+            }
+        }
+        values.add(PAGE_SIZE + 1);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+            int placeholders = explain.getParameterMetaData().getParameterCount();
+            assertThat(placeholders).as("parameters of %s", sql).isEqualTo(values.size());
+            for (int i = 0; i < placeholders; i++) {
+                explain.setObject(i + 1, values.get(i));
+            }
+            try (ResultSet plan = explain.executeQuery()) {
+                while (plan.next()) {
+                    if (rootAlias.equals(plan.getString("table"))) {
+                        return plan.getString("key");
+                    }
+                }
+            }
+        }
+        throw new AssertionError("No plan row for " + rootAlias + " in " + sql);
+    }
+
+    private int customerId() throws SQLException {
+        return scalar("select max(customer_id) from customers");
+    }
+
+    private int vendorId() throws SQLException {
+        return scalar("select max(vendor_id) from vendors");
+    }
+
+    private int productId() throws SQLException {
+        return scalar("select max(product_id) from products_master");
+    }
+
+    private int categoryId() throws SQLException {
+        return scalar("select max(category_id) from product_categories");
+    }
+
+    private int scalar(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet result = statement.executeQuery()) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+
+    /**
+     * Statement inspector that keeps the first statement Hibernate prepares after {@link #start()};
+     * association loads that follow the query are ignored.
+     */
+    public static class SqlRecorder implements StatementInspector {
+
+        private static volatile boolean recording;
+        private static volatile String first;
+
+        static void start() {
+            first = null;
+            recording = true;
+        }
+
+        static String first() {
+            recording = false;
+            return first;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (recording && first == null) {
+                first = sql;
+            }
+            return sql;
+        }
+    }
+}
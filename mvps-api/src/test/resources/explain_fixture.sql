@@ -0,0 +1,70 @@
+-- Synthetic rows for FilterQueryExplainTest, loaded after echo_healthcare_database.sql and
+-- before performance_indexes.sql (which ends by analyzing the tables).
+--
+-- The optimizer only picks an index when the filter is selective for the table it sees, so
+-- every value the test filters on matches a few percent of the rows or less.
+
+SET SESSION cte_max_recursion_depth = 100000;
+
+CREATE TABLE fixture_seq (n INT PRIMARY KEY);
+
+INSERT INTO fixture_seq (n)
+WITH RECURSIVE seq (n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < 99999)
+SELECT n FROM seq;
+
+-- 2,000 vendors: 50 cities (each in one of 10 states), 4% inactive
+SET @first_vendor = (SELECT COALESCE(MAX(vendor_id), 0) + 1 FROM vendors);
+
+INSERT INTO vendors (vendor_name, email, phone, city, state, is_active)
+SELECT CONCAT('Fixture Vendor ', n), CONCAT('vendor', n, '@example.com'), LPAD(n, 10, '8'),
+       CONCAT('City ', n % 50), CONCAT('State ', n % 10), n % 25 <> 0
+FROM fixture_seq WHERE n < 2000;
+
+-- 50 categories, 5,000 products: 5% inactive
+SET @first_category = (SELECT COALESCE(MAX(category_id), 0) + 1 FROM product_categories);
+
+INSERT INTO product_categories (category_name)
+SELECT CONCAT('Fixture Category ', n) FROM fixture_seq WHERE n < 50;
+
+SET @first_product = (SELECT COALESCE(MAX(product_id), 0) + 1 FROM products_master);
+
+INSERT INTO products_master (product_name, generic_name, category_id, prescription_required, is_active)
+SELECT CONCAT('Fixture Product ', n), CONCAT('Generic ', n % 500), @first_category + n % 50,
+       n % 3 = 0, n % 20 <> 0
+FROM fixture_seq WHERE n < 5000;
+
+-- 20,000 vendor products, four vendors per product, final prices spread over 5.00 - 504.75
+INSERT INTO vendor_products (vendor_id, product_id, vendor_sku, cost_price, discount_percentage,
+                             stock_quantity, expiry_date, is_available)
+SELECT @first_vendor + n % 2000, @first_product + FLOOR(n / 4), CONCAT('FX-', n),
+       5 + (n % 2000) * 0.25, 0, n % 300, DATE('2025-01-01') + INTERVAL (n % 730) DAY, n % 10 <> 0
+FROM fixture_seq WHERE n < 20000;
+
+-- 5,000 customers: 3 types, 100 cities, 2% inactive
+SET @first_customer = (SELECT COALESCE(MAX(customer_id), 0) + 1 FROM customers);
+
+INSERT INTO customers (customer_name, email, phone, city, state, customer_type, is_active)
+SELECT CONCAT('Fixture Customer ', n), CONCAT('customer', n, '@example.com'), LPAD(n, 10, '9'),
+       CONCAT('City ', n % 100), CONCAT('State ', n % 20),
+       ELT(1 + n % 3, 'retail', 'wholesale', 'institution'), n % 50 <> 0
+FROM fixture_seq WHERE n < 5000;
+
+-- 50,000 orders over 2024, ten per customer: 2.5% cancelled, 2% failed payments,
+-- one in seven door to door (independent of the status)
+INSERT INTO orders (customer_id, order_number, order_date, order_type, total_amount, final_amount,
+                    payment_status, order_status)
+SELECT @first_customer + n % 5000, CONCAT('FX-', n),
+       TIMESTAMP('2024-01-01') + INTERVAL (n % 366) DAY + INTERVAL (n % 86400) SECOND,
+       IF(n % 7 = 0, 'door_to_door', 'online'), 100.00, 100.00,
+       IF(n % 50 = 0, 'failed', IF(n % 2 = 0, 'paid', 'pending')),
+       IF(n % 40 = 0, 'cancelled', ELT(1 + n % 5, 'pending', 'confirmed', 'processing', 'shipped', 'delivered'))
+FROM fixture_seq WHERE n < 50000;
+
+-- 20,000 purchase orders, ten per vendor: 2.5% cancelled
+INSERT INTO vendor_orders (vendor_id, po_number, order_date, total_amount, status)
+SELECT @first_vendor + n % 2000, CONCAT('FX-PO-', n),
+       TIMESTAMP('2024-01-01') + INTERVAL (n % 366) DAY, 500.00,
+       IF(n % 40 = 0, 'cancelled', ELT(1 + n % 4, 'pending', 'confirmed', 'shipped', 'received'))
+FROM fixture_seq WHERE n < 20000;
+
+DROP TABLE fixture_seq;